@@ -356,6 +356,65 @@ public class CoordinatorLayoutTest {
         verify(behavior, times(1)).onDependentViewChanged(col, viewB, viewA);
     }
 
+    @Test
+    public void testDependentViewChangedOnlyDispatchedToDependents() throws Throwable {
+        final Instrumentation instrumentation = getInstrumentation();
+        final CoordinatorLayout col = mActivityTestRule.getActivity().mCoordinatorLayout;
+
+        // Add three views, A, B & C, where B depends on A and C depends on nothing
+        final View viewA = new View(col.getContext());
+        final CoordinatorLayout.LayoutParams lpA = col.generateDefaultLayoutParams();
+        lpA.width = 100;
+        lpA.height = 100;
+
+        final View viewB = new View(col.getContext());
+        final CoordinatorLayout.LayoutParams lpB = col.generateDefaultLayoutParams();
+        lpB.width = 100;
+        lpB.height = 100;
+        final CoordinatorLayout.Behavior behaviorB =
+                spy(new DependentBehavior(viewA));
+        lpB.setBehavior(behaviorB);
+
+        final View viewC = new View(col.getContext());
+        final CoordinatorLayout.LayoutParams lpC = col.generateDefaultLayoutParams();
+        lpC.width = 100;
+        lpC.height = 100;
+        final CoordinatorLayout.Behavior behaviorC =
+                spy(new DependentBehavior(null));
+        lpC.setBehavior(behaviorC);
+
+        mActivityTestRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                col.addView(viewA, lpA);
+                col.addView(viewB, lpB);
+                col.addView(viewC, lpC);
+            }
+        });
+        instrumentation.waitForIdleSync();
+
+        // Reset the Behaviors since they may have already been called as part of any
+        // layout/draw passes already
+        reset(behaviorB);
+        reset(behaviorC);
+
+        // Now offset view A
+        mActivityTestRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                ViewCompat.offsetLeftAndRight(viewA, 20);
+                ViewCompat.offsetTopAndBottom(viewA, 20);
+            }
+        });
+        instrumentation.waitForIdleSync();
+
+        // View B's Behavior should be called, and view C's Behavior should not even be asked
+        verify(behaviorB, times(1)).onDependentViewChanged(col, viewB, viewA);
+        verify(behaviorC, never()).layoutDependsOn(col, viewC, viewA);
+        verify(behaviorC, never()).onDependentViewChanged(
+                any(CoordinatorLayout.class), any(View.class), any(View.class));
+    }
+
     @Test
     public void testDependentViewRemoved() throws Throwable {
         final Instrumentation instrumentation = getInstrumentation();
@@ -149,6 +149,18 @@ public class CoordinatorLayout extends ViewGroup implements NestedScrollingParen
     public @interface DispatchChangeEvent {}
 
     static final Comparator<View> TOP_SORTED_CHILDREN_COMPARATOR;
+
+    /**
+     * Sorts child views in the order of {@link #mDependencySortedChildren}, as recorded by the
+     * last {@link #prepareChildren()}.
+     */
+    static final Comparator<View> DEPENDENCY_ORDER_COMPARATOR = new Comparator<View>() {
+        @Override
+        public int compare(View lhs, View rhs) {
+            return ((LayoutParams) lhs.getLayoutParams()).mDependencyOrder
+                    - ((LayoutParams) rhs.getLayoutParams()).mDependencyOrder;
+        }
+    };
     private static final Pools.Pool<Rect> sRectPool = new Pools.SynchronizedPool<>(12);
 
     @NonNull
@@ -758,6 +770,26 @@ public class CoordinatorLayout extends ViewGroup implements NestedScrollingParen
         // We also need to reverse the result since we want the start of the list to contain
         // Views which have no dependencies, then dependent views after that
         Collections.reverse(mDependencySortedChildren);
+
+        // Index the dependents of each child so that a moving child only dispatches to the views
+        // which depend on it. The graph already holds them as incoming edges, which only need to
+        // be put in dependency order.
+        for (int i = 0, size = mDependencySortedChildren.size(); i < size; i++) {
+            final View child = mDependencySortedChildren.get(i);
+            ((LayoutParams) child.getLayoutParams()).mDependencyOrder = i;
+        }
+        for (int i = 0, size = mDependencySortedChildren.size(); i < size; i++) {
+            final View child = mDependencySortedChildren.get(i);
+            final ArrayList<View> dependents = ((LayoutParams) child.getLayoutParams()).mDependents;
+            dependents.clear();
+            final List<View> edges = mChildDag.getIncomingEdgesInternal(child);
+            if (edges != null) {
+                dependents.addAll(edges);
+                if (dependents.size() > 1) {
+                    Collections.sort(dependents, DEPENDENCY_ORDER_COMPARATOR);
+                }
+            }
+        }
     }
 
     /**
@@ -1357,13 +1389,9 @@ public class CoordinatorLayout extends ViewGroup implements NestedScrollingParen
                 continue;
             }
 
-            // Check child views before for anchor
-            for (int j = 0; j < i; j++) {
-                final View checkChild = mDependencySortedChildren.get(j);
-
-                if (lp.mAnchorDirectChild == checkChild) {
-                    offsetChildToAnchor(child, layoutDirection);
-                }
+            // The anchor is a dependency of the child, so it has already been updated above
+            if (lp.mAnchorDirectChild != null) {
+                offsetChildToAnchor(child, layoutDirection);
             }
 
             // Get the current draw rect of the view
@@ -1406,8 +1434,9 @@ public class CoordinatorLayout extends ViewGroup implements NestedScrollingParen
             }
 
             // Update any behavior-dependent views for the change
-            for (int j = i + 1; j < childCount; j++) {
-                final View checkChild = mDependencySortedChildren.get(j);
+            final List<View> dependents = lp.mDependents;
+            for (int j = 0, dependentCount = dependents.size(); j < dependentCount; j++) {
+                final View checkChild = dependents.get(j);
                 final LayoutParams checkLp = (LayoutParams) checkChild.getLayoutParams();
                 final Behavior b = checkLp.getBehavior();
 
@@ -2274,6 +2303,11 @@ public class CoordinatorLayout extends ViewGroup implements NestedScrollingParen
          *     position changes.</li>
          * </ol>
          *
+         * <p>Dependencies are only collected during layout. If the result of this method changes
+         * for a given pair of views, call {@link View#requestLayout()} on the parent so that the
+         * new dependency starts, or the old one stops, receiving
+         * {@link #onDependentViewChanged} calls.</p>
+         *
          * @param parent the parent view of the given child
          * @param child the child view to test
          * @param dependency the proposed dependency of child
@@ -2894,6 +2928,10 @@ public class CoordinatorLayout extends ViewGroup implements NestedScrollingParen
 
         final Rect mLastChildRect = new Rect();
 
+        // The children which depend on this view, in dependency order. Rebuilt with the graph
+        final ArrayList<View> mDependents = new ArrayList<>();
+        int mDependencyOrder;
+
         Object mBehaviorTag;
 
         public LayoutParams(int width, int height) {
@@ -3259,6 +3297,8 @@ public class CoordinatorLayout extends ViewGroup implements NestedScrollingParen
         @Override
         public void onChildViewRemoved(View parent, View child) {
             onChildViewsChanged(EVENT_VIEW_REMOVED);
+            // Don't keep the other children alive through the removed view
+            ((LayoutParams) child.getLayoutParams()).mDependents.clear();
 
             if (mOnHierarchyChangeListener != null) {
                 mOnHierarchyChangeListener.onChildViewRemoved(parent, child);
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.RestrictTo;
+
+/**
+ * Index of the adapters generated for one module when the lifecycle annotation processor runs
+ * with the {@code lifecycle.registry} option.
+ * <p>
+ * Once a registry is installed with {@link Lifecycling#addGeneratedAdapterRegistry}, adapters are
+ * only created through the installed registries, without any reflection.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public interface GeneratedAdapterRegistry {
+
+    /**
+     * @return The observer classes that have a generated adapter. The index of a class in this
+     * array is the index passed to {@link #createAdapter(int, Object)}.
+     */
+    Class<?>[] getObserverClasses();
+
+    /**
+     * Creates the generated adapter for the given observer.
+     *
+     * @param index The index of the observer's class in {@link #getObserverClasses()}
+     * @param observer The observer
+     * @return The adapter that calls the observer's lifecycle methods
+     */
+    GeneratedAdapter createAdapter(int index, Object observer);
+}
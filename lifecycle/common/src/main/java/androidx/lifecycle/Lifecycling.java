@@ -19,6 +19,7 @@ package androidx.lifecycle;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -27,6 +28,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Internal class to handle lifecycle conversion etc.
@@ -39,9 +41,41 @@ public class Lifecycling {
     private static final int REFLECTIVE_CALLBACK = 1;
     private static final int GENERATED_CALLBACK = 2;
 
-    private static Map<Class, Integer> sCallbackCache = new HashMap<>();
-    private static Map<Class, List<Constructor<? extends GeneratedAdapter>>> sClassToAdapters =
-            new HashMap<>();
+    // Replaced as a whole rather than cleared when registries change, so that a concurrent
+    // getCallback only ever sees one consistent set of caches and registries.
+    private static volatile ResolvedClasses sResolvedClasses = new ResolvedClasses(null);
+
+    /**
+     * Installs the adapters generated for a module with the {@code lifecycle.registry}
+     * annotation processor option. Called by the generated registry's {@code install()} method.
+     * <p>
+     * After the first registry is installed, lifecycle methods are never called with reflection:
+     * an observer must be a {@link FullLifecycleObserver}, a {@link GenericLifecycleObserver} or
+     * have an adapter in one of the installed registries, or be a subclass of such observers
+     * that declares no lifecycle methods of its own. A class missing from the registries is
+     * checked once for lifecycle methods of its own, and fails with an
+     * {@link IllegalStateException} naming it if it has any.
+     *
+     * @param registry The generated registry
+     */
+    public static synchronized void addGeneratedAdapterRegistry(
+            @NonNull GeneratedAdapterRegistry registry) {
+        Map<Class<?>, AdapterFactory> previous = sResolvedClasses.mRegisteredAdapters;
+        Map<Class<?>, AdapterFactory> registered = previous == null
+                ? new HashMap<Class<?>, AdapterFactory>()
+                : new HashMap<>(previous);
+        Class<?>[] observerClasses = registry.getObserverClasses();
+        for (int i = 0; i < observerClasses.length; i++) {
+            registered.put(observerClasses[i], new RegistryAdapterFactory(registry, i));
+        }
+        // classes resolved so far may have been resolved with reflection, start over
+        sResolvedClasses = new ResolvedClasses(registered);
+    }
+
+    @VisibleForTesting
+    static synchronized void removeGeneratedAdapterRegistries() {
+        sResolvedClasses = new ResolvedClasses(null);
+    }
 
     @NonNull
     static GenericLifecycleObserver getCallback(Object object) {
@@ -54,24 +88,33 @@ public class Lifecycling {
         }
 
         final Class<?> klass = object.getClass();
-        int type = getObserverConstructorType(klass);
+        final ResolvedClasses resolved = sResolvedClasses;
+        int type = getObserverConstructorType(resolved, klass);
         if (type == GENERATED_CALLBACK) {
-            List<Constructor<? extends GeneratedAdapter>> constructors =
-                    sClassToAdapters.get(klass);
-            if (constructors.size() == 1) {
-                GeneratedAdapter generatedAdapter = createGeneratedAdapter(
-                        constructors.get(0), object);
+            List<AdapterFactory> factories = resolved.mClassToAdapters.get(klass);
+            if (factories.size() == 1) {
+                GeneratedAdapter generatedAdapter = factories.get(0).create(object);
                 return new SingleGeneratedAdapterObserver(generatedAdapter);
             }
-            GeneratedAdapter[] adapters = new GeneratedAdapter[constructors.size()];
-            for (int i = 0; i < constructors.size(); i++) {
-                adapters[i] = createGeneratedAdapter(constructors.get(i), object);
+            GeneratedAdapter[] adapters = new GeneratedAdapter[factories.size()];
+            for (int i = 0; i < factories.size(); i++) {
+                adapters[i] = factories.get(i).create(object);
             }
             return new CompositeGeneratedAdaptersObserver(adapters);
         }
+        if (resolved.mRegisteredAdapters != null) {
+            throw missingAdapterException(klass);
+        }
         return new ReflectiveGenericLifecycleObserver(object);
     }
 
+    private static IllegalStateException missingAdapterException(Class<?> klass) {
+        return new IllegalStateException("No generated lifecycle adapter is registered for "
+                + klass.getName() + ". Observers must be named classes compiled with the"
+                + " lifecycle annotation processor and the lifecycle.registry option, and"
+                + " the generated registry of their module must be installed.");
+    }
+
     private static GeneratedAdapter createGeneratedAdapter(
             Constructor<? extends GeneratedAdapter> constructor, Object object) {
         //noinspection TryWithIdenticalCatches
@@ -112,56 +155,70 @@ public class Lifecycling {
         }
     }
 
-    private static int getObserverConstructorType(Class<?> klass) {
-        if (sCallbackCache.containsKey(klass)) {
-            return sCallbackCache.get(klass);
+    @Nullable
+    private static AdapterFactory generatedAdapterFactory(ResolvedClasses resolved,
+            Class<?> klass) {
+        if (resolved.mRegisteredAdapters != null) {
+            return resolved.mRegisteredAdapters.get(klass);
+        }
+        Constructor<? extends GeneratedAdapter> constructor = generatedConstructor(klass);
+        return constructor != null ? new ConstructorAdapterFactory(constructor) : null;
+    }
+
+    private static int getObserverConstructorType(ResolvedClasses resolved, Class<?> klass) {
+        Integer cachedType = resolved.mCallbackCache.get(klass);
+        if (cachedType != null) {
+            return cachedType;
         }
-        int type = resolveObserverCallbackType(klass);
-        sCallbackCache.put(klass, type);
+        int type = resolveObserverCallbackType(resolved, klass);
+        resolved.mCallbackCache.put(klass, type);
         return type;
     }
 
-    private static int resolveObserverCallbackType(Class<?> klass) {
+    private static int resolveObserverCallbackType(ResolvedClasses resolved, Class<?> klass) {
         // anonymous class bug:35073837
         if (klass.getCanonicalName() == null) {
             return REFLECTIVE_CALLBACK;
         }
 
-        Constructor<? extends GeneratedAdapter> constructor = generatedConstructor(klass);
-        if (constructor != null) {
-            sClassToAdapters.put(klass, Collections
-                    .<Constructor<? extends GeneratedAdapter>>singletonList(constructor));
+        AdapterFactory factory = generatedAdapterFactory(resolved, klass);
+        if (factory != null) {
+            resolved.mClassToAdapters.put(klass, Collections.singletonList(factory));
             return GENERATED_CALLBACK;
         }
 
-        boolean hasLifecycleMethods = ClassesInfoCache.sInstance.hasLifecycleMethods(klass);
-        if (hasLifecycleMethods) {
+        if (ClassesInfoCache.sInstance.hasLifecycleMethods(klass)) {
+            if (resolved.mRegisteredAdapters != null) {
+                // Registries hold every class that declares lifecycle methods, so this one was
+                // built without the annotation processor or its registry was not installed.
+                throw missingAdapterException(klass);
+            }
             return REFLECTIVE_CALLBACK;
         }
 
         Class<?> superclass = klass.getSuperclass();
-        List<Constructor<? extends GeneratedAdapter>> adapterConstructors = null;
+        List<AdapterFactory> adapterFactories = null;
         if (isLifecycleParent(superclass)) {
-            if (getObserverConstructorType(superclass) == REFLECTIVE_CALLBACK) {
+            if (getObserverConstructorType(resolved, superclass) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
             }
-            adapterConstructors = new ArrayList<>(sClassToAdapters.get(superclass));
+            adapterFactories = new ArrayList<>(resolved.mClassToAdapters.get(superclass));
         }
 
         for (Class<?> intrface : klass.getInterfaces()) {
             if (!isLifecycleParent(intrface)) {
                 continue;
             }
-            if (getObserverConstructorType(intrface) == REFLECTIVE_CALLBACK) {
+            if (getObserverConstructorType(resolved, intrface) == REFLECTIVE_CALLBACK) {
                 return REFLECTIVE_CALLBACK;
             }
-            if (adapterConstructors == null) {
-                adapterConstructors = new ArrayList<>();
+            if (adapterFactories == null) {
+                adapterFactories = new ArrayList<>();
             }
-            adapterConstructors.addAll(sClassToAdapters.get(intrface));
+            adapterFactories.addAll(resolved.mClassToAdapters.get(intrface));
         }
-        if (adapterConstructors != null) {
-            sClassToAdapters.put(klass, adapterConstructors);
+        if (adapterFactories != null) {
+            resolved.mClassToAdapters.put(klass, adapterFactories);
             return GENERATED_CALLBACK;
         }
 
@@ -181,4 +238,54 @@ public class Lifecycling {
 
     private Lifecycling() {
     }
+
+    /**
+     * The observer classes resolved against one set of installed registries.
+     */
+    private static class ResolvedClasses {
+        final Map<Class, Integer> mCallbackCache = new ConcurrentHashMap<>();
+        final Map<Class, List<AdapterFactory>> mClassToAdapters = new ConcurrentHashMap<>();
+
+        // Adapter factories of the classes indexed by the installed registries, or null if no
+        // registry is installed. Once one is, adapters are only created through registries and
+        // observers that have none fail instead of falling back to reflection.
+        @Nullable
+        final Map<Class<?>, AdapterFactory> mRegisteredAdapters;
+
+        ResolvedClasses(@Nullable Map<Class<?>, AdapterFactory> registeredAdapters) {
+            mRegisteredAdapters = registeredAdapters;
+        }
+    }
+
+    private abstract static class AdapterFactory {
+        abstract GeneratedAdapter create(Object object);
+    }
+
+    private static class ConstructorAdapterFactory extends AdapterFactory {
+        private final Constructor<? extends GeneratedAdapter> mConstructor;
+
+        ConstructorAdapterFactory(Constructor<? extends GeneratedAdapter> constructor) {
+            mConstructor = constructor;
+        }
+
+        @Override
+        GeneratedAdapter create(Object object) {
+            return createGeneratedAdapter(mConstructor, object);
+        }
+    }
+
+    private static class RegistryAdapterFactory extends AdapterFactory {
+        private final GeneratedAdapterRegistry mRegistry;
+        private final int mIndex;
+
+        RegistryAdapterFactory(GeneratedAdapterRegistry registry, int index) {
+            mRegistry = registry;
+            mIndex = index;
+        }
+
+        @Override
+        GeneratedAdapter create(Object object) {
+            return mRegistry.createAdapter(mIndex, object);
+        }
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import androidx.lifecycle.observers.Base;
+import androidx.lifecycle.observers.Base_LifecycleAdapter;
+import androidx.lifecycle.observers.DerivedWithNewMethods;
+import androidx.lifecycle.observers.DerivedWithNoNewMethods;
+import androidx.lifecycle.observers.Interface1;
+import androidx.lifecycle.observers.Interface1_LifecycleAdapter;
+import androidx.lifecycle.observers.Interface2;
+import androidx.lifecycle.observers.Interface2_LifecycleAdapter;
+import androidx.lifecycle.observers.InterfaceImpl1;
+import androidx.lifecycle.observers.InterfaceImpl2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LifecyclingRegistryTest {
+
+    private TestRegistry mRegistry;
+
+    @Before
+    public void installRegistry() {
+        mRegistry = new TestRegistry();
+        Lifecycling.addGeneratedAdapterRegistry(mRegistry);
+    }
+
+    @After
+    public void removeRegistries() {
+        Lifecycling.removeGeneratedAdapterRegistries();
+    }
+
+    @Test
+    public void testRegisteredClass() {
+        GenericLifecycleObserver callback = Lifecycling.getCallback(new Base());
+        assertThat(callback, instanceOf(SingleGeneratedAdapterObserver.class));
+        assertThat(mRegistry.mCreatedCount, is(1));
+    }
+
+    @Test
+    public void testSubclassOfRegisteredClass() {
+        GenericLifecycleObserver callback = Lifecycling.getCallback(new DerivedWithNoNewMethods());
+        assertThat(callback, instanceOf(SingleGeneratedAdapterObserver.class));
+        assertThat(mRegistry.mCreatedCount, is(1));
+    }
+
+    @Test
+    public void testRegisteredInterfaces() {
+        assertThat(Lifecycling.getCallback(new InterfaceImpl1()),
+                instanceOf(SingleGeneratedAdapterObserver.class));
+        assertThat(Lifecycling.getCallback(new InterfaceImpl2()),
+                instanceOf(CompositeGeneratedAdaptersObserver.class));
+        assertThat(mRegistry.mCreatedCount, is(3));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnregisteredClassFails() {
+        Lifecycling.getCallback(new LifecycleObserver() {
+            @OnLifecycleEvent(Lifecycle.Event.ON_START)
+            public void onStart() {
+            }
+        });
+    }
+
+    @Test
+    public void testUnregisteredSubclassWithNewMethodsFails() {
+        try {
+            Lifecycling.getCallback(new DerivedWithNewMethods());
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), containsString(DerivedWithNewMethods.class.getName()));
+        }
+        assertThat(mRegistry.mCreatedCount, is(0));
+    }
+
+    @Test
+    public void testRegistryAddedAfterResolution() {
+        Lifecycling.removeGeneratedAdapterRegistries();
+        assertThat(Lifecycling.getCallback(new InterfaceImpl1()),
+                instanceOf(SingleGeneratedAdapterObserver.class));
+        Lifecycling.addGeneratedAdapterRegistry(mRegistry);
+        assertThat(Lifecycling.getCallback(new InterfaceImpl1()),
+                instanceOf(SingleGeneratedAdapterObserver.class));
+        assertThat(mRegistry.mCreatedCount, is(1));
+    }
+
+    @Test
+    public void testRegistryRemoved() {
+        Lifecycling.removeGeneratedAdapterRegistries();
+        GenericLifecycleObserver callback = Lifecycling.getCallback(new LifecycleObserver() {
+            @OnLifecycleEvent(Lifecycle.Event.ON_START)
+            public void onStart() {
+            }
+        });
+        assertThat(callback, instanceOf(ReflectiveGenericLifecycleObserver.class));
+    }
+
+    private static class TestRegistry implements GeneratedAdapterRegistry {
+        int mCreatedCount;
+
+        @Override
+        public Class<?>[] getObserverClasses() {
+            return new Class<?>[]{Base.class, Interface1.class, Interface2.class};
+        }
+
+        @Override
+        public GeneratedAdapter createAdapter(int index, Object observer) {
+            mCreatedCount++;
+            switch (index) {
+                case 0:
+                    return new Base_LifecycleAdapter((Base) observer);
+                case 1:
+                    return new Interface1_LifecycleAdapter((Interface1) observer);
+                case 2:
+                    return new Interface2_LifecycleAdapter((Interface2) observer);
+                default:
+                    throw new IllegalArgumentException();
+            }
+        }
+    }
+}
@@ -36,6 +36,8 @@ object ErrorMessages {
     const val INVALID_ENCLOSING_ELEMENT =
             "Parent of OnLifecycleEvent should be a class or interface"
     const val INVALID_ANNOTATED_ELEMENT = "OnLifecycleEvent can only be added to methods"
+    const val ADAPTER_AFTER_REGISTRY = "observer was generated after the lifecycle adapter " +
+            "registry was written, it won't be part of the registry"
 
     fun failedToGenerateAdapter(type: TypeElement, failureReason: EventMethod) =
             """
@@ -16,18 +16,50 @@
 
 package androidx.lifecycle
 
+import androidx.lifecycle.model.AdapterClass
 import javax.annotation.processing.AbstractProcessor
 import javax.annotation.processing.RoundEnvironment
 import javax.annotation.processing.SupportedAnnotationTypes
+import javax.annotation.processing.SupportedOptions
 import javax.lang.model.SourceVersion
 import javax.lang.model.element.TypeElement
+import javax.tools.Diagnostic
+
+/**
+ * Name of the annotation processor option that turns on the registry mode. Its value is the fully
+ * qualified name of a registry class to generate, which indexes all the adapters generated for
+ * the module so that they can be created without reflection once the registry is installed.
+ */
+const val REGISTRY_OPTION = "lifecycle.registry"
 
 @SupportedAnnotationTypes("androidx.lifecycle.OnLifecycleEvent")
+@SupportedOptions(REGISTRY_OPTION)
 class LifecycleProcessor : AbstractProcessor() {
+    private val registeredAdapters = mutableListOf<AdapterClass>()
+    private var registryWritten = false
+
     override fun process(annotations: MutableSet<out TypeElement>,
                          roundEnv: RoundEnvironment): Boolean {
+        val registryName = processingEnv.options[REGISTRY_OPTION]
         val input = collectAndVerifyInput(processingEnv, roundEnv)
-        writeModels(transformToOutput(processingEnv, input), processingEnv)
+        val adapters = transformToOutput(processingEnv, input, registryName != null)
+        writeModels(adapters, processingEnv, registryName != null)
+        if (registryName == null) {
+            return true
+        }
+        if (registryWritten) {
+            adapters.forEach {
+                processingEnv.messager.printMessage(Diagnostic.Kind.ERROR,
+                        ErrorMessages.ADAPTER_AFTER_REGISTRY, it.type)
+            }
+        } else if (adapters.isEmpty() && !roundEnv.processingOver()) {
+            // write the registry once a round brings no new observer, rather than in the last
+            // round, so that it is compiled like any other generated source
+            writeRegistry(registryName, registeredAdapters, processingEnv)
+            registryWritten = true
+        } else {
+            registeredAdapters.addAll(adapters)
+        }
         return true
     }
 
@@ -86,7 +86,8 @@ private fun needsSyntheticAccess(type: TypeElement, eventMethod: EventMethod): B
 
 private fun validateMethod(processingEnv: ProcessingEnvironment,
                            world: InputModel, type: TypeElement,
-                           eventMethod: EventMethod): Boolean {
+                           eventMethod: EventMethod,
+                           requireAdapters: Boolean): Boolean {
     if (!needsSyntheticAccess(type, eventMethod)) {
         // no synthetic calls - no problems
         return true
@@ -102,13 +103,17 @@ private fun validateMethod(processingEnv: ProcessingEnvironment,
         return true
     }
 
-    processingEnv.messager.printMessage(Diagnostic.Kind.WARNING,
+    // without an adapter, the observer can only be called with reflection, which the registry
+    // mode doesn't allow
+    val kind = if (requireAdapters) Diagnostic.Kind.ERROR else Diagnostic.Kind.WARNING
+    processingEnv.messager.printMessage(kind,
             ErrorMessages.failedToGenerateAdapter(type, eventMethod), type)
     return false
 }
 
 fun transformToOutput(processingEnv: ProcessingEnvironment,
-                      world: InputModel): List<AdapterClass> {
+                      world: InputModel,
+                      requireAdapters: Boolean = false): List<AdapterClass> {
     val flatObservers = flattenObservers(processingEnv, world.observersInfo)
     val syntheticMethods = HashMultimap.create<TypeElement, EventMethodCall>()
     val adapterCalls = flatObservers
@@ -117,7 +122,7 @@ fun transformToOutput(processingEnv: ProcessingEnvironment,
             // filter out if it needs SYNTHETIC access and we can't generate adapter for it
             .filter { (type, methods) ->
                 methods.all { eventMethod ->
-                    validateMethod(processingEnv, world, type, eventMethod)
+                    validateMethod(processingEnv, world, type, eventMethod, requireAdapters)
                 }
             }
             .map { (type, methods) ->
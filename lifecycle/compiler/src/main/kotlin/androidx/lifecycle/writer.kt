@@ -20,20 +20,25 @@ import androidx.lifecycle.model.AdapterClass
 import androidx.lifecycle.model.EventMethodCall
 import androidx.lifecycle.model.getAdapterName
 import com.squareup.javapoet.AnnotationSpec
+import com.squareup.javapoet.ArrayTypeName
 import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.CodeBlock
 import com.squareup.javapoet.FieldSpec
 import com.squareup.javapoet.JavaFile
 import com.squareup.javapoet.MethodSpec
 import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.ParameterizedTypeName
 import com.squareup.javapoet.TypeName
 import com.squareup.javapoet.TypeSpec
+import com.squareup.javapoet.WildcardTypeName
 import javax.annotation.processing.ProcessingEnvironment
 import javax.lang.model.element.Modifier
 import javax.lang.model.element.TypeElement
 import javax.tools.StandardLocation
 
-fun writeModels(infos: List<AdapterClass>, processingEnv: ProcessingEnvironment) {
-    infos.forEach({ writeAdapter(it, processingEnv) })
+fun writeModels(infos: List<AdapterClass>, processingEnv: ProcessingEnvironment,
+                registryMode: Boolean = false) {
+    infos.forEach({ writeAdapter(it, processingEnv, registryMode) })
 }
 
 private val GENERATED_PACKAGE = "javax.annotation"
@@ -56,7 +61,15 @@ private val METHODS_LOGGER: ParameterSpec = ParameterSpec.builder(
 
 private const val HAS_LOGGER_VAR = "hasLogger"
 
-private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnvironment) {
+private const val OBSERVER_CLASS_METHOD = "observerClass"
+private const val CREATE_METHOD = "create"
+
+private val CLASS_WILDCARD: TypeName = ParameterizedTypeName.get(
+        ClassName.get(Class::class.java), WildcardTypeName.subtypeOf(Any::class.java))
+private val GENERATED_ADAPTER = ClassName.get(GeneratedAdapter::class.java)
+
+private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnvironment,
+                         registryMode: Boolean) {
     val receiverField: FieldSpec = FieldSpec.builder(ClassName.get(adapter.type), "mReceiver",
             Modifier.FINAL).build()
     val dispatchMethodBuilder = MethodSpec.methodBuilder("callMethods")
@@ -121,12 +134,101 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
             .addMethod(dispatchMethod)
             .addMethods(syntheticMethods)
 
+    if (registryMode) {
+        // The registry may live in another package than a package private observer, so the
+        // adapter exposes the observer class and its creation to it.
+        val observerParam = ParameterSpec.builder(TypeName.OBJECT, "observer").build()
+        adapterTypeSpecBuilder.addMethod(MethodSpec.methodBuilder(OBSERVER_CLASS_METHOD)
+                .returns(CLASS_WILDCARD)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addStatement("return $T.class", ClassName.get(adapter.type))
+                .build())
+        adapterTypeSpecBuilder.addMethod(MethodSpec.methodBuilder(CREATE_METHOD)
+                .returns(GENERATED_ADAPTER)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(observerParam)
+                .addStatement("return new $L(($T) $N)", adapterName,
+                        ClassName.get(adapter.type), observerParam)
+                .build())
+    }
+
     addGeneratedAnnotationIfAvailable(adapterTypeSpecBuilder, processingEnv)
 
     JavaFile.builder(adapter.type.getPackageQName(), adapterTypeSpecBuilder.build())
             .build().writeTo(processingEnv.filer)
 
-    generateKeepRule(adapter.type, processingEnv)
+    // Adapters referenced by a registry are not looked up by name, so they don't need to be kept.
+    if (!registryMode) {
+        generateKeepRule(adapter.type, processingEnv)
+    }
+}
+
+/**
+ * Writes the registry class named by the [REGISTRY_OPTION] processor option. It indexes the given
+ * adapters and has a static `install()` method that makes `Lifecycling` create adapters through
+ * it instead of with reflection.
+ */
+fun writeRegistry(qualifiedName: String, adapters: List<AdapterClass>,
+                  processingEnv: ProcessingEnvironment) {
+    val registryName = ClassName.bestGuess(qualifiedName)
+    val adapterNames = adapters.map {
+        ClassName.get(it.type.getPackageQName(), getAdapterName(it.type))
+    }
+
+    val observerClasses = CodeBlock.builder().add("return new $T[] {\n", CLASS_WILDCARD).indent()
+    adapterNames.forEachIndexed { index, adapterName ->
+        val separator = if (index < adapterNames.size - 1) "," else ""
+        observerClasses.add("$T.$L()$L\n", adapterName, OBSERVER_CLASS_METHOD, separator)
+    }
+    observerClasses.unindent().add("};\n")
+    val observerClassesMethod = MethodSpec.methodBuilder("getObserverClasses")
+            .addAnnotation(Override::class.java)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(ArrayTypeName.of(CLASS_WILDCARD))
+            .addCode(observerClasses.build())
+            .build()
+
+    val indexParam = ParameterSpec.builder(TypeName.INT, "index").build()
+    val observerParam = ParameterSpec.builder(TypeName.OBJECT, "observer").build()
+    val createAdapter = CodeBlock.builder().beginControlFlow("switch ($N)", indexParam)
+    adapterNames.forEachIndexed { index, adapterName ->
+        createAdapter.add("case $L:\n", index).indent()
+                .addStatement("return $T.$L($N)", adapterName, CREATE_METHOD, observerParam)
+                .unindent()
+    }
+    createAdapter.add("default:\n").indent()
+            .addStatement("throw new $T($S + $N)", IllegalArgumentException::class.java,
+                    "Unknown observer index ", indexParam)
+            .unindent()
+            .endControlFlow()
+    val createAdapterMethod = MethodSpec.methodBuilder("createAdapter")
+            .addAnnotation(Override::class.java)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(GENERATED_ADAPTER)
+            .addParameter(indexParam)
+            .addParameter(observerParam)
+            .addCode(createAdapter.build())
+            .build()
+
+    val installMethod = MethodSpec.methodBuilder("install")
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .addStatement("$T.addGeneratedAdapterRegistry(new $T())",
+                    ClassName.get(Lifecycling::class.java), registryName)
+            .build()
+
+    val registryTypeSpecBuilder = TypeSpec.classBuilder(registryName.simpleName())
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addSuperinterface(ClassName.get(GeneratedAdapterRegistry::class.java))
+            .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+            .addMethod(installMethod)
+            .addMethod(observerClassesMethod)
+            .addMethod(createAdapterMethod)
+    adapters.forEach { registryTypeSpecBuilder.addOriginatingElement(it.type) }
+
+    addGeneratedAnnotationIfAvailable(registryTypeSpecBuilder, processingEnv)
+
+    JavaFile.builder(registryName.packageName(), registryTypeSpecBuilder.build())
+            .build().writeTo(processingEnv.filer)
 }
 
 private fun addGeneratedAnnotationIfAvailable(adapterTypeSpecBuilder: TypeSpec.Builder,
@@ -137,6 +137,27 @@ class ValidCasesTest {
         doesntGenerateClass(compileTester, "foo", "DerivedFromJar1_LifecycleAdapter")
     }
 
+    @Test
+    fun testRegistry() {
+        JavaSourcesSubject.assertThat(load("foo.OnAnyMethod", ""))
+                .withCompilerOptions("-A$REGISTRY_OPTION=foo.LifecycleAdapters")
+                .processedWith(LifecycleProcessor())
+                .compilesWithoutError().and()
+                .generatesSources(
+                        load("foo.OnAnyMethod_LifecycleAdapter", "expected/registry"),
+                        load("foo.LifecycleAdapters", "expected/registry"))
+    }
+
+    @Test
+    fun testRegistryRequiresAdapters() {
+        JavaSourcesSubject.assertThat(load("foo.DerivedFromJar1", ""))
+                .withClasspathFrom(libraryClassLoader())
+                .withCompilerOptions("-A$REGISTRY_OPTION=foo.LifecycleAdapters")
+                .processedWith(LifecycleProcessor())
+                .failsToCompile()
+                .withErrorContaining("Failed to generate an Adapter for")
+    }
+
     // compile-testing has fancy, but not always convenient API
     private fun doesntGenerateClass(compile: CompileTester.SuccessfulCompilationClause,
                                     packageName: String, className: String) {
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package foo;
+
+import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterRegistry;
+import androidx.lifecycle.Lifecycling;
+import java.lang.Class;
+import java.lang.IllegalArgumentException;
+import java.lang.Object;
+import java.lang.Override;
+import javax.annotation.Generated;
+
+@Generated("androidx.lifecycle.LifecycleProcessor")
+public final class LifecycleAdapters implements GeneratedAdapterRegistry {
+  private LifecycleAdapters() {
+  }
+
+  public static void install() {
+    Lifecycling.addGeneratedAdapterRegistry(new LifecycleAdapters());
+  }
+
+  @Override
+  public Class<?>[] getObserverClasses() {
+    return new Class<?>[] {
+      OnAnyMethod_LifecycleAdapter.observerClass()
+    };
+  }
+
+  @Override
+  public GeneratedAdapter createAdapter(int index, Object observer) {
+    switch (index) {
+      case 0:
+        return OnAnyMethod_LifecycleAdapter.create(observer);
+      default:
+        throw new IllegalArgumentException("Unknown observer index " + index);
+    }
+  }
+}
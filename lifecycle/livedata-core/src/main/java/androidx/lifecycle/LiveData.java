@@ -27,6 +27,7 @@ import androidx.arch.core.executor.ArchTaskExecutor;
 
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * LiveData is a data holder class that can be observed within a given lifecycle.
@@ -57,10 +58,13 @@ import java.util.Map;
  * @see ViewModel
  */
 public abstract class LiveData<T> {
-    private final Object mDataLock = new Object();
     static final int START_VERSION = -1;
     private static final Object NOT_SET = new Object();
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<LiveData, Object> PENDING_DATA_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(LiveData.class, Object.class, "mPendingData");
+
     private SafeIterableMap<Observer<? super T>, ObserverWrapper> mObservers =
             new SafeIterableMap<>();
 
@@ -68,25 +72,13 @@ public abstract class LiveData<T> {
     private int mActiveCount = 0;
     private volatile Object mData = NOT_SET;
     // when setData is called, we set the pending data and actual data swap happens on the main
-    // thread
+    // thread. Only updated through PENDING_DATA_UPDATER so that postValue doesn't need a lock.
     private volatile Object mPendingData = NOT_SET;
     private int mVersion = START_VERSION;
 
     private boolean mDispatchingValue;
     @SuppressWarnings("FieldCanBeLocal")
     private boolean mDispatchInvalidated;
-    private final Runnable mPostValueRunnable = new Runnable() {
-        @Override
-        public void run() {
-            Object newValue;
-            synchronized (mDataLock) {
-                newValue = mPendingData;
-                mPendingData = NOT_SET;
-            }
-            //noinspection unchecked
-            setValue((T) newValue);
-        }
-    };
 
     private void considerNotify(ObserverWrapper observer) {
         if (!observer.mActive) {
@@ -121,6 +113,11 @@ public abstract class LiveData<T> {
             if (initiator != null) {
                 considerNotify(initiator);
                 initiator = null;
+            } else if (mObservers.size() == 1) {
+                // Most LiveData have a single observer: skip creating and registering an
+                // iterator. If the observer adds another one, the dispatch is invalidated and
+                // the next pass iterates over all of them.
+                considerNotify(mObservers.eldest().getValue());
             } else {
                 for (Iterator<Map.Entry<Observer<? super T>, ObserverWrapper>> iterator =
                         mObservers.iteratorWithAdditions(); iterator.hasNext(); ) {
@@ -254,19 +251,29 @@ public abstract class LiveData<T> {
      * <p>
      * If you called this method multiple times before a main thread executed a posted task, only
      * the last value would be dispatched.
+     * <p>
+     * Values posted to different LiveData instances before the main thread runs are all set by
+     * the same main thread task, in the order in which the LiveData instances were first posted
+     * to.
      *
      * @param value The new value
      */
     protected void postValue(T value) {
-        boolean postTask;
-        synchronized (mDataLock) {
-            postTask = mPendingData == NOT_SET;
-            mPendingData = value;
+        if (PENDING_DATA_UPDATER.getAndSet(this, value) == NOT_SET) {
+            PostValueDispatcher.getInstance().schedule(this);
         }
-        if (!postTask) {
-            return;
+    }
+
+    /**
+     * Sets the value last posted with {@link #postValue(Object)}, if it has not been set yet.
+     */
+    @MainThread
+    void dispatchPendingValue() {
+        Object newValue = PENDING_DATA_UPDATER.getAndSet(this, NOT_SET);
+        if (newValue != NOT_SET) {
+            //noinspection unchecked
+            setValue((T) newValue);
         }
-        ArchTaskExecutor.getInstance().postToMainThread(mPostValueRunnable);
     }
 
     /**
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.arch.core.executor.ArchTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers the values posted with {@link LiveData#postValue(Object)} on the main thread.
+ * <p>
+ * Instead of posting one task per LiveData, the LiveData instances which have a pending value are
+ * collected in a lock-free queue and a single task, posted when the queue stops being empty,
+ * sets all of their values. Many LiveData posting at once therefore cost one main thread message.
+ * <p>
+ * A posted drain task may never run, for instance when the {@link ArchTaskExecutor} delegate is
+ * replaced before its main thread queue is run. Since the dispatcher is shared by the whole
+ * process, a drain which has been pending for longer than {@link #STALE_DRAIN_NANOS} is assumed
+ * lost and another one is posted. Running an extra drain is harmless: it finds the queue empty.
+ */
+final class PostValueDispatcher {
+
+    private static final long STALE_DRAIN_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final PostValueDispatcher sInstance =
+            new PostValueDispatcher(STALE_DRAIN_NANOS);
+
+    private final Queue<LiveData<?>> mPending = new ConcurrentLinkedQueue<>();
+
+    // true while a drain task is posted and has not started yet
+    private final AtomicBoolean mDrainPosted = new AtomicBoolean(false);
+
+    // System.nanoTime() when the last drain task was posted
+    private final AtomicLong mDrainPostedNanos = new AtomicLong();
+
+    private final long mStaleDrainNanos;
+
+    private final Runnable mDrainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    @VisibleForTesting
+    PostValueDispatcher(long staleDrainNanos) {
+        mStaleDrainNanos = staleDrainNanos;
+    }
+
+    static PostValueDispatcher getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Schedules the pending value of the given LiveData to be set on the main thread. Must be
+     * called once each time the LiveData's pending value goes from unset to set.
+     */
+    void schedule(@NonNull LiveData<?> liveData) {
+        mPending.offer(liveData);
+        if (mDrainPosted.compareAndSet(false, true)) {
+            mDrainPostedNanos.set(System.nanoTime());
+            ArchTaskExecutor.getInstance().postToMainThread(mDrainRunnable);
+            return;
+        }
+        // A drain is already posted, unless it was lost. Only one thread re-posts a stale drain.
+        final long postedNanos = mDrainPostedNanos.get();
+        final long now = System.nanoTime();
+        if (now - postedNanos >= mStaleDrainNanos
+                && mDrainPostedNanos.compareAndSet(postedNanos, now)) {
+            ArchTaskExecutor.getInstance().postToMainThread(mDrainRunnable);
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    @MainThread
+    void drain() {
+        // Clear the flag first so that a LiveData queued after the queue was emptied below
+        // always posts a new drain task.
+        mDrainPosted.set(false);
+        // Take a snapshot before setting any value: an observer may post again, and those values
+        // belong to the next drain, like they used to belong to the next posted task.
+        List<LiveData<?>> liveDatas = new ArrayList<>();
+        LiveData<?> liveData;
+        while ((liveData = mPending.poll()) != null) {
+            liveDatas.add(liveData);
+        }
+        for (int i = 0; i < liveDatas.size(); i++) {
+            liveDatas.get(i).dispatchPendingValue();
+        }
+    }
+}
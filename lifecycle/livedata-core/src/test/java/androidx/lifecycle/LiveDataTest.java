@@ -39,6 +39,7 @@ import static org.mockito.Mockito.when;
 
 import androidx.annotation.Nullable;
 import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 
 import org.junit.After;
@@ -51,6 +52,9 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @SuppressWarnings({"unchecked"})
 @RunWith(JUnit4.class)
 public class LiveDataTest {
@@ -802,6 +806,49 @@ public class LiveDataTest {
         assertThat(mLiveData.hasObservers(), is(false));
     }
 
+    @Test
+    public void postValuesAreCoalesced() {
+        QueuedTaskExecutor taskExecutor = new QueuedTaskExecutor();
+        ArchTaskExecutor.getInstance().setDelegate(taskExecutor);
+        PublicLiveData<String> liveData2 = new PublicLiveData<>();
+        Observer<String> observer = (Observer<String>) mock(Observer.class);
+        Observer<String> observer2 = (Observer<String>) mock(Observer.class);
+        mLiveData.observeForever(observer);
+        liveData2.observeForever(observer2);
+
+        mLiveData.postValue("a");
+        liveData2.postValue("b");
+        mLiveData.postValue("c");
+        assertThat(taskExecutor.mMainThreadTasks.size(), is(1));
+        assertThat(mLiveData.getValue(), is((String) null));
+
+        taskExecutor.mMainThreadTasks.remove(0).run();
+        verify(observer, only()).onChanged("c");
+        verify(observer2, only()).onChanged("b");
+        assertThat(taskExecutor.mMainThreadTasks.size(), is(0));
+    }
+
+    @Test
+    public void postValueFromObserverRunsInNextTask() {
+        QueuedTaskExecutor taskExecutor = new QueuedTaskExecutor();
+        ArchTaskExecutor.getInstance().setDelegate(taskExecutor);
+        final PublicLiveData<String> liveData2 = new PublicLiveData<>();
+        mLiveData.observeForever(new Observer<String>() {
+            @Override
+            public void onChanged(@Nullable String s) {
+                liveData2.postValue(s + "!");
+            }
+        });
+
+        mLiveData.postValue("a");
+        taskExecutor.mMainThreadTasks.remove(0).run();
+        assertThat(liveData2.getValue(), is((String) null));
+        assertThat(taskExecutor.mMainThreadTasks.size(), is(1));
+
+        taskExecutor.mMainThreadTasks.remove(0).run();
+        assertThat(liveData2.getValue(), is("a!"));
+    }
+
     private GenericLifecycleObserver getGenericLifecycleObserver(Lifecycle lifecycle) {
         ArgumentCaptor<GenericLifecycleObserver> captor =
                 ArgumentCaptor.forClass(GenericLifecycleObserver.class);
@@ -829,6 +876,25 @@ public class LiveDataTest {
         }
     }
 
+    private static class QueuedTaskExecutor extends TaskExecutor {
+        final List<Runnable> mMainThreadTasks = new ArrayList<>();
+
+        @Override
+        public void executeOnDiskIO(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public void postToMainThread(Runnable runnable) {
+            mMainThreadTasks.add(runnable);
+        }
+
+        @Override
+        public boolean isMainThread() {
+            return true;
+        }
+    }
+
     private class FailReentranceObserver<T> implements Observer<T> {
         @Override
         public void onChanged(@Nullable T t) {
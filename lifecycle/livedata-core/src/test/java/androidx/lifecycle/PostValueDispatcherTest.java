@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class PostValueDispatcherTest {
+
+    private QueuedTaskExecutor mTaskExecutor;
+
+    @Before
+    public void setExecutorDelegate() {
+        mTaskExecutor = new QueuedTaskExecutor();
+        ArchTaskExecutor.getInstance().setDelegate(mTaskExecutor);
+    }
+
+    @After
+    public void removeExecutorDelegate() {
+        ArchTaskExecutor.getInstance().setDelegate(null);
+    }
+
+    @Test
+    public void pendingDrainIsNotPostedAgain() {
+        PostValueDispatcher dispatcher = new PostValueDispatcher(Long.MAX_VALUE);
+        CountingLiveData liveData1 = new CountingLiveData();
+        CountingLiveData liveData2 = new CountingLiveData();
+
+        dispatcher.schedule(liveData1);
+        dispatcher.schedule(liveData2);
+        assertThat(mTaskExecutor.mMainThreadTasks.size(), is(1));
+
+        mTaskExecutor.mMainThreadTasks.remove(0).run();
+        assertThat(liveData1.mDispatchCount, is(1));
+        assertThat(liveData2.mDispatchCount, is(1));
+    }
+
+    @Test
+    public void lostDrainIsPostedAgain() {
+        PostValueDispatcher dispatcher = new PostValueDispatcher(0);
+        CountingLiveData liveData1 = new CountingLiveData();
+        CountingLiveData liveData2 = new CountingLiveData();
+
+        dispatcher.schedule(liveData1);
+        assertThat(mTaskExecutor.mMainThreadTasks.size(), is(1));
+        // Drop the drain task, like an executor delegate replaced before running its queue
+        mTaskExecutor.mMainThreadTasks.clear();
+
+        dispatcher.schedule(liveData2);
+        assertThat(mTaskExecutor.mMainThreadTasks.size(), is(1));
+
+        mTaskExecutor.mMainThreadTasks.remove(0).run();
+        assertThat(liveData1.mDispatchCount, is(1));
+        assertThat(liveData2.mDispatchCount, is(1));
+
+        // The dispatcher is idle again
+        dispatcher.schedule(liveData1);
+        assertThat(mTaskExecutor.mMainThreadTasks.size(), is(1));
+    }
+
+    private static class CountingLiveData extends LiveData<String> {
+        int mDispatchCount;
+
+        @Override
+        void dispatchPendingValue() {
+            mDispatchCount++;
+        }
+    }
+
+    private static class QueuedTaskExecutor extends TaskExecutor {
+        final List<Runnable> mMainThreadTasks = new ArrayList<>();
+
+        @Override
+        public void executeOnDiskIO(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public void postToMainThread(Runnable runnable) {
+            mMainThreadTasks.add(runnable);
+        }
+
+        @Override
+        public boolean isMainThread() {
+            return true;
+        }
+    }
+}
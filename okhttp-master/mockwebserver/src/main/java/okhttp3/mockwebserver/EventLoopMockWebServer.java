@@ -0,0 +1,873 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3.mockwebserver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.internal.Internal;
+import okhttp3.internal.NamedRunnable;
+import okhttp3.internal.Util;
+import okhttp3.internal.http2.ErrorCode;
+import okhttp3.internal.http2.Header;
+import okhttp3.internal.http2.Http2Connection;
+import okhttp3.internal.http2.Http2Stream;
+import okhttp3.internal.platform.Platform;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import okio.Timeout;
+
+import static okhttp3.internal.Util.closeQuietly;
+import static okhttp3.mockwebserver.SocketPolicy.DISCONNECT_AT_END;
+import static okhttp3.mockwebserver.SocketPolicy.KEEP_OPEN;
+
+/**
+ * A mock web server for load tests. Where {@link MockWebServer} dedicates a thread to each
+ * connection and records every request, this server multiplexes plaintext HTTP/1.1 connections on
+ * a single selector thread and replies with canned responses that are encoded once, up front. This
+ * keeps the server cheap enough that throughput tests measure the client rather than the server.
+ *
+ * <p>HTTP/2 is supported with prior knowledge on plaintext connections, and through ALPN when
+ * {@link #useHttps HTTPS} is enabled. Because HTTP/2 multiplexes many calls on few connections,
+ * each HTTP/2 connection and each HTTPS connection is served by its own thread.
+ *
+ * <p>Requests are not recorded unless {@link #setRecordedRequestLimit} is called. Canned responses
+ * support a status, headers and a body. They do not support throttling, delays, pushes, web
+ * sockets, or socket policies other than {@link SocketPolicy#KEEP_OPEN} and {@link
+ * SocketPolicy#DISCONNECT_AT_END}.
+ */
+public final class EventLoopMockWebServer implements Closeable {
+  static {
+    Internal.initializeInstanceForTests();
+  }
+
+  private static final Logger logger = Logger.getLogger(EventLoopMockWebServer.class.getName());
+
+  private static final ByteString CONNECTION_PREFACE
+      = ByteString.encodeUtf8("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n");
+  private static final ByteString CRLF = ByteString.encodeUtf8("\r\n");
+  private static final ByteString CRLF_CRLF = ByteString.encodeUtf8("\r\n\r\n");
+
+  /** Reject requests whose line and headers don't fit in this many bytes. */
+  private static final long MAX_HEADERS_SIZE = 64 * 1024;
+
+  /** Answers requests that can't be parsed, then closes their connection. */
+  private static final EncodedResponse BAD_REQUEST = EncodedResponse.encode(new MockResponse()
+      .setResponseCode(400)
+      .setHeader("Connection", "close")
+      .setSocketPolicy(DISCONNECT_AT_END));
+
+  private static final int CHUNK_SIZE = 0;
+  private static final int CHUNK_DATA = 1;
+  private static final int CHUNK_CRLF = 2;
+  private static final int CHUNK_TRAILERS = 3;
+
+  private final Map<String, EncodedResponse> responsesByPath = new ConcurrentHashMap<>();
+  private volatile EncodedResponse defaultResponse = EncodedResponse.encode(new MockResponse());
+
+  private final Set<Closeable> openBlockingConnections =
+      Collections.newSetFromMap(new ConcurrentHashMap<Closeable, Boolean>());
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final AtomicInteger droppedRequestCount = new AtomicInteger();
+  private BlockingQueue<RecordedRequest> requestQueue;
+  private int recordedRequestLimit = 0;
+  private long bodyLimit = Long.MAX_VALUE;
+
+  private SSLSocketFactory sslSocketFactory;
+  private List<Protocol> protocols = Util.immutableList(Protocol.HTTP_2, Protocol.HTTP_1_1);
+
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private ExecutorService executor;
+  private volatile boolean shutdown;
+  private InetSocketAddress inetSocketAddress;
+  private int port = -1;
+  private boolean started;
+
+  /**
+   * Records up to {@code limit} requests to be returned by {@link #takeRequest}. Once the limit is
+   * reached further requests are served but not recorded until recorded requests are taken. The
+   * default limit is 0, which disables recording. Must be called before {@link #start}.
+   */
+  public void setRecordedRequestLimit(int limit) {
+    if (started) throw new IllegalStateException("setRecordedRequestLimit() after start()");
+    if (limit < 0) throw new IllegalArgumentException("limit < 0: " + limit);
+    this.recordedRequestLimit = limit;
+  }
+
+  /** Sets the number of bytes of each recorded request body to keep in memory. */
+  public void setBodyLimit(long maxBodyLength) {
+    this.bodyLimit = maxBodyLength;
+  }
+
+  /**
+   * Serve requests with HTTPS rather than otherwise. HTTPS connections are served by a thread each.
+   * Must be called before {@link #start}.
+   */
+  public void useHttps(SSLSocketFactory sslSocketFactory) {
+    if (started) throw new IllegalStateException("useHttps() after start()");
+    this.sslSocketFactory = sslSocketFactory;
+  }
+
+  /**
+   * Indicates the protocols supported by ALPN on incoming HTTPS connections.
+   *
+   * @param protocols the protocols to use, in order of preference. The list must contain
+   * {@linkplain Protocol#HTTP_1_1}. It must not contain null.
+   */
+  public void setProtocols(List<Protocol> protocols) {
+    protocols = Util.immutableList(protocols);
+    if (!protocols.contains(Protocol.HTTP_1_1)) {
+      throw new IllegalArgumentException("protocols doesn't contain http/1.1: " + protocols);
+    }
+    if (protocols.contains(null)) {
+      throw new IllegalArgumentException("protocols must not contain null");
+    }
+    this.protocols = protocols;
+  }
+
+  /**
+   * Serves {@code response} to every request that has no path-specific response. The response is
+   * encoded immediately; later changes to it have no effect. By default the server replies with
+   * an empty {@code 200 OK}.
+   *
+   * @throws IllegalArgumentException if {@code response} uses a feature this server doesn't
+   * support.
+   */
+  public void setDefaultResponse(MockResponse response) {
+    this.defaultResponse = EncodedResponse.encode(response);
+  }
+
+  /**
+   * Serves {@code response} to every request for {@code path}, such as "/feed?page=1". Requests
+   * whose path includes a query also match a response registered for the path without the query.
+   * The response is encoded immediately; later changes to it have no effect.
+   *
+   * @throws IllegalArgumentException if {@code response} uses a feature this server doesn't
+   * support.
+   */
+  public void setResponse(String path, MockResponse response) {
+    responsesByPath.put(path, EncodedResponse.encode(response));
+  }
+
+  /**
+   * Awaits the next recorded request (waiting up to the specified wait time if necessary), removes
+   * it, and returns it. Returns null if no request was recorded within the wait time.
+   */
+  public RecordedRequest takeRequest(long timeout, TimeUnit unit) throws InterruptedException {
+    if (requestQueue == null) throw new IllegalStateException("request recording is disabled");
+    return requestQueue.poll(timeout, unit);
+  }
+
+  /** Returns the number of HTTP requests served thus far by this server. */
+  public int getRequestCount() {
+    return requestCount.get();
+  }
+
+  /** Returns the number of requests that weren't recorded because the record limit was reached. */
+  public int getDroppedRequestCount() {
+    return droppedRequestCount.get();
+  }
+
+  public int getPort() {
+    if (!started) throw new IllegalStateException("getPort() before start()");
+    return port;
+  }
+
+  public String getHostName() {
+    if (!started) throw new IllegalStateException("getHostName() before start()");
+    return inetSocketAddress.getAddress().getCanonicalHostName();
+  }
+
+  /**
+   * Returns a URL for connecting to this server.
+   *
+   * @param path the request path, such as "/".
+   */
+  public HttpUrl url(String path) {
+    return new HttpUrl.Builder()
+        .scheme(sslSocketFactory != null ? "https" : "http")
+        .host(getHostName())
+        .port(getPort())
+        .build()
+        .resolve(path);
+  }
+
+  /** Equivalent to {@code start(0)}. */
+  public void start() throws IOException {
+    start(0);
+  }
+
+  /**
+   * Starts the server on the loopback interface for the given port.
+   *
+   * @param port the port to listen to, or 0 for any available port.
+   */
+  public void start(int port) throws IOException {
+    start(new InetSocketAddress(InetAddress.getByName("localhost"), port));
+  }
+
+  private synchronized void start(InetSocketAddress inetSocketAddress) throws IOException {
+    if (started) throw new IllegalStateException("start() already called");
+    started = true;
+
+    if (recordedRequestLimit > 0) {
+      requestQueue = new LinkedBlockingQueue<>(recordedRequestLimit);
+    }
+    executor = Executors.newCachedThreadPool(Util.threadFactory("EventLoopMockWebServer", false));
+    this.inetSocketAddress = inetSocketAddress;
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.socket().setReuseAddress(inetSocketAddress.getPort() != 0);
+    serverChannel.socket().bind(inetSocketAddress, 1024);
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    port = serverChannel.socket().getLocalPort();
+
+    executor.execute(new NamedRunnable("EventLoopMockWebServer %s", port) {
+      @Override protected void execute() {
+        try {
+          logger.info(EventLoopMockWebServer.this + " starting to accept connections");
+          eventLoop();
+        } catch (Throwable e) {
+          logger.log(Level.WARNING, EventLoopMockWebServer.this + " failed unexpectedly", e);
+        }
+
+        // Release all sockets and all threads, even if any close fails.
+        closeQuietly(serverChannel);
+        for (SelectionKey key : selector.keys()) {
+          closeQuietly(key.channel());
+        }
+        closeQuietly(selector);
+        for (Iterator<Closeable> c = openBlockingConnections.iterator(); c.hasNext(); ) {
+          closeQuietly(c.next());
+          c.remove();
+        }
+        executor.shutdown();
+      }
+    });
+  }
+
+  public synchronized void shutdown() throws IOException {
+    if (!started) return;
+    if (shutdown) return;
+    shutdown = true;
+    selector.wakeup();
+
+    // Await shutdown.
+    try {
+      if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        throw new IOException("Gave up waiting for executor to shut down");
+      }
+    } catch (InterruptedException e) {
+      throw new AssertionError();
+    }
+  }
+
+  @Override public void close() throws IOException {
+    shutdown();
+  }
+
+  @Override public String toString() {
+    return "EventLoopMockWebServer[" + port + "]";
+  }
+
+  private void eventLoop() throws IOException {
+    ByteBuffer readBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    byte[] readArray = new byte[readBuffer.capacity()];
+    List<Http1Connection> handOffs = new ArrayList<>();
+
+    while (!shutdown) {
+      selector.select();
+
+      for (Iterator<SelectionKey> i = selector.selectedKeys().iterator(); i.hasNext(); ) {
+        SelectionKey key = i.next();
+        i.remove();
+        if (!key.isValid()) continue;
+
+        if (key.isAcceptable()) {
+          acceptConnections();
+          continue;
+        }
+
+        Http1Connection connection = (Http1Connection) key.attachment();
+        try {
+          if (key.isReadable()) {
+            readBuffer.clear();
+            int read = connection.channel.read(readBuffer);
+            if (read == -1) {
+              connection.closeChannel();
+              continue;
+            }
+            readBuffer.flip();
+            readBuffer.get(readArray, 0, read);
+            connection.inbound.write(readArray, 0, read);
+            connection.processRequests();
+            if (connection.http2) {
+              key.cancel();
+              handOffs.add(connection);
+              continue;
+            }
+          }
+          connection.flushChannel();
+        } catch (IOException | RuntimeException e) {
+          // Includes CancelledKeyException. Only this connection is affected.
+          logger.info(this + " connection from "
+              + connection.socket.getInetAddress() + " failed: " + e);
+          connection.closeChannel();
+        }
+      }
+
+      if (!handOffs.isEmpty()) {
+        // Deregister canceled keys before switching their channels to blocking mode.
+        selector.selectNow();
+        for (Http1Connection connection : handOffs) {
+          handOffHttp2(connection);
+        }
+        handOffs.clear();
+      }
+    }
+  }
+
+  private void acceptConnections() throws IOException {
+    SocketChannel channel;
+    while ((channel = serverChannel.accept()) != null) {
+      if (sslSocketFactory != null) {
+        serveHttps(channel.socket());
+        continue;
+      }
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+      Http1Connection connection = new Http1Connection(channel.socket(), channel);
+      connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+  }
+
+  /** Serves an HTTP/2 connection that started with the prior knowledge connection preface. */
+  private void handOffHttp2(final Http1Connection connection) {
+    try {
+      connection.channel.configureBlocking(true);
+    } catch (IOException e) {
+      connection.closeChannel();
+      return;
+    }
+    final Socket socket = connection.socket;
+    executor.execute(new NamedRunnable("EventLoopMockWebServer %s",
+        socket.getRemoteSocketAddress()) {
+      @Override protected void execute() {
+        Source source = new PrefixedSource(connection.inbound, Okio.source(socket));
+        try {
+          serveHttp2(socket, source);
+        } catch (IOException e) {
+          logger.info(EventLoopMockWebServer.this + " connection from "
+              + socket.getInetAddress() + " failed: " + e);
+          closeQuietly(socket);
+        }
+      }
+    });
+  }
+
+  private void serveHttp2(Socket socket, Source source) throws IOException {
+    // The connection's reader closes its source when the connection is done.
+    final Http2Connection[] connection = new Http2Connection[1];
+    Source closeNotifyingSource = new ForwardingSource(source) {
+      @Override public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          openBlockingConnections.remove(connection[0]);
+        }
+      }
+    };
+    connection[0] = new Http2Connection.Builder(false)
+        .socket(socket, socket.getInetAddress().getHostName(), Okio.buffer(closeNotifyingSource),
+            Okio.buffer(Okio.sink(socket)))
+        .listener(new Http2Handler(socket))
+        .build();
+    openBlockingConnections.add(connection[0]);
+    connection[0].start();
+  }
+
+  /** Returns the number of HTTP/2 and TLS connections that are being served on their own thread. */
+  int openBlockingConnectionCount() {
+    return openBlockingConnections.size();
+  }
+
+  private void serveHttps(final Socket raw) {
+    openBlockingConnections.add(raw);
+    executor.execute(new NamedRunnable("EventLoopMockWebServer %s",
+        raw.getRemoteSocketAddress()) {
+      @Override protected void execute() {
+        try {
+          processConnection();
+        } catch (IOException e) {
+          logger.info(EventLoopMockWebServer.this + " connection from "
+              + raw.getInetAddress() + " failed: " + e);
+        } finally {
+          openBlockingConnections.remove(raw);
+        }
+      }
+
+      private void processConnection() throws IOException {
+        SSLSocket socket = (SSLSocket) sslSocketFactory.createSocket(
+            raw, raw.getInetAddress().getHostAddress(), raw.getPort(), true);
+        socket.setUseClientMode(false);
+        openBlockingConnections.add(socket);
+        try {
+          Platform.get().configureTlsExtensions(socket, null, protocols);
+          socket.startHandshake();
+          String protocolString = Platform.get().getSelectedProtocol(socket);
+          Protocol protocol = protocolString != null
+              ? Protocol.get(protocolString)
+              : Protocol.HTTP_1_1;
+
+          if (protocol == Protocol.HTTP_2) {
+            serveHttp2(socket, Okio.source(socket));
+            return;
+          }
+
+          Http1Connection connection = new Http1Connection(socket, null);
+          InputStream in = socket.getInputStream();
+          OutputStream out = socket.getOutputStream();
+          WritableByteChannel outChannel = Channels.newChannel(out);
+          byte[] readArray = new byte[8192];
+          for (int read; !connection.closeAfterWrite && (read = in.read(readArray)) != -1; ) {
+            connection.inbound.write(readArray, 0, read);
+            connection.processRequests();
+            for (ByteBuffer response; (response = connection.outbound.poll()) != null; ) {
+              while (response.hasRemaining()) outChannel.write(response);
+            }
+            out.flush();
+          }
+          socket.close();
+        } finally {
+          openBlockingConnections.remove(socket);
+        }
+      }
+    });
+  }
+
+  private EncodedResponse responseFor(String path) {
+    EncodedResponse result = responsesByPath.get(path);
+    if (result == null) {
+      int queryStart = path.indexOf('?');
+      if (queryStart != -1) result = responsesByPath.get(path.substring(0, queryStart));
+    }
+    return result != null ? result : defaultResponse;
+  }
+
+  private void record(String requestLine, Headers headers, List<Integer> chunkSizes,
+      long bodySize, Buffer body, int sequenceNumber, Socket socket) {
+    requestCount.incrementAndGet();
+    if (requestQueue == null) return;
+    RecordedRequest request = new RecordedRequest(requestLine, headers, chunkSizes, bodySize, body,
+        sequenceNumber, socket);
+    if (!requestQueue.offer(request)) {
+      droppedRequestCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * An HTTP/1.1 connection. Requests are parsed incrementally from {@link #inbound} as bytes arrive
+   * and their responses are appended to {@link #outbound}. The same parser serves non-blocking
+   * plaintext channels and blocking TLS sockets.
+   */
+  private final class Http1Connection {
+    final Socket socket;
+    final SocketChannel channel;
+    SelectionKey key;
+
+    final Buffer inbound = new Buffer();
+    final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+    boolean closeAfterWrite;
+    boolean http2;
+    private boolean prefaceChecked;
+    private int sequenceNumber;
+
+    // State of the request whose body is being read, or null if awaiting a request line.
+    private String requestLine;
+    private Headers requestHeaders;
+    private long bodyBytesRemaining;
+    private boolean chunked;
+    private int chunkState;
+    private List<Integer> chunkSizes;
+    private long bodySize;
+    private Buffer body;
+
+    Http1Connection(Socket socket, SocketChannel channel) {
+      this.socket = socket;
+      this.channel = channel;
+    }
+
+    /** Consumes all complete requests from {@link #inbound} and enqueues their responses. */
+    void processRequests() throws IOException {
+      if (!prefaceChecked) {
+        long size = Math.min(inbound.size(), CONNECTION_PREFACE.size());
+        if (channel != null && inbound.rangeEquals(0, CONNECTION_PREFACE.substring(0, (int) size))) {
+          if (size < CONNECTION_PREFACE.size()) return; // Await the rest of the preface.
+          http2 = true;
+          return;
+        }
+        prefaceChecked = true;
+      }
+
+      while (!closeAfterWrite) {
+        if (requestLine == null && !readRequestHeaders()) return;
+        if (!readRequestBody()) return;
+
+        String requestLine = this.requestLine;
+        Headers headers = this.requestHeaders;
+        record(requestLine, headers, chunkSizes, bodySize, body, sequenceNumber++, socket);
+        this.requestLine = null;
+        this.requestHeaders = null;
+        this.chunkSizes = null;
+        this.body = null;
+
+        int pathStart = requestLine.indexOf(' ') + 1;
+        int pathEnd = requestLine.indexOf(' ', pathStart);
+        EncodedResponse response = responseFor(requestLine.substring(pathStart, pathEnd));
+        outbound.add(response.http1.duplicate());
+        if (response.closeConnection || "close".equalsIgnoreCase(headers.get("Connection"))) {
+          closeAfterWrite = true;
+        }
+      }
+    }
+
+    /** Returns true if a request line and headers were read. */
+    private boolean readRequestHeaders() throws IOException {
+      long headersEnd = inbound.indexOf(CRLF_CRLF);
+      if (headersEnd == -1) {
+        if (inbound.size() > MAX_HEADERS_SIZE) throw new ProtocolException("headers too large");
+        return false;
+      }
+
+      String requestLine = inbound.readUtf8LineStrict();
+      int pathStart = requestLine.indexOf(' ') + 1;
+      if (pathStart == 0 || requestLine.indexOf(' ', pathStart) == -1) {
+        throw new ProtocolException("unexpected request line: " + requestLine);
+      }
+      Headers.Builder headers = new Headers.Builder();
+      long contentLength = 0;
+      boolean chunked = false;
+      for (String header; (header = inbound.readUtf8LineStrict()).length() != 0; ) {
+        Internal.instance.addLenient(headers, header);
+        String lowercaseHeader = header.toLowerCase(Locale.US);
+        if (lowercaseHeader.startsWith("content-length:")) {
+          contentLength = parseContentLength(header.substring(15).trim());
+        }
+        if (lowercaseHeader.startsWith("transfer-encoding:")
+            && lowercaseHeader.substring(18).trim().equals("chunked")) {
+          chunked = true;
+        }
+      }
+
+      if (contentLength == -1L) {
+        // The request's body can't be framed, so answer it and give up on the connection.
+        outbound.add(BAD_REQUEST.http1.duplicate());
+        closeAfterWrite = true;
+        return false;
+      }
+
+      this.requestLine = requestLine;
+      this.requestHeaders = headers.build();
+      this.chunked = chunked;
+      this.bodyBytesRemaining = chunked ? 0L : contentLength;
+      this.chunkState = CHUNK_SIZE;
+      this.chunkSizes = chunked ? new ArrayList<Integer>() : Collections.<Integer>emptyList();
+      this.bodySize = 0L;
+      this.body = new Buffer();
+      return true;
+    }
+
+    /** Returns the parsed content length, or -1 if it isn't a non-negative number. */
+    private long parseContentLength(String value) {
+      try {
+        long result = Long.parseLong(value);
+        return result >= 0L ? result : -1L;
+      } catch (NumberFormatException e) {
+        return -1L;
+      }
+    }
+
+    /** Returns true if the body of the current request was read completely. */
+    private boolean readRequestBody() throws IOException {
+      if (!chunked) return readBodyBytes();
+
+      while (true) {
+        switch (chunkState) {
+          case CHUNK_SIZE:
+            if (inbound.indexOf(CRLF) == -1L) return false;
+            String sizeLine = inbound.readUtf8LineStrict();
+            int semicolon = sizeLine.indexOf(';');
+            if (semicolon != -1) sizeLine = sizeLine.substring(0, semicolon);
+            int chunkSize;
+            try {
+              chunkSize = Integer.parseInt(sizeLine.trim(), 16);
+            } catch (NumberFormatException e) {
+              throw new ProtocolException("unexpected chunk size: " + sizeLine);
+            }
+            if (chunkSize == 0) {
+              chunkState = CHUNK_TRAILERS;
+            } else {
+              chunkSizes.add(chunkSize);
+              bodyBytesRemaining = chunkSize;
+              chunkState = CHUNK_DATA;
+            }
+            break;
+
+          case CHUNK_DATA:
+            if (!readBodyBytes()) return false;
+            chunkState = CHUNK_CRLF;
+            break;
+
+          case CHUNK_CRLF:
+            if (inbound.size() < 2L) return false;
+            inbound.skip(2L);
+            chunkState = CHUNK_SIZE;
+            break;
+
+          case CHUNK_TRAILERS:
+            if (inbound.indexOf(CRLF) == -1L) return false;
+            if (inbound.readUtf8LineStrict().length() == 0) return true;
+            break; // Ignore trailer headers.
+
+          default:
+            throw new AssertionError();
+        }
+      }
+    }
+
+    /** Consumes available body bytes. Returns true once {@link #bodyBytesRemaining} is 0. */
+    private boolean readBodyBytes() throws IOException {
+      long byteCount = Math.min(bodyBytesRemaining, inbound.size());
+      long toKeep = requestQueue != null
+          ? Math.max(0L, Math.min(byteCount, bodyLimit - body.size()))
+          : 0L;
+      if (toKeep > 0L) inbound.read(body, toKeep);
+      inbound.skip(byteCount - toKeep);
+      bodyBytesRemaining -= byteCount;
+      bodySize += byteCount;
+      return bodyBytesRemaining == 0L;
+    }
+
+    /** Writes as many pending responses as the channel accepts without blocking. */
+    void flushChannel() throws IOException {
+      while (!outbound.isEmpty()) {
+        ByteBuffer head = outbound.peek();
+        channel.write(head);
+        if (head.hasRemaining()) {
+          key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+          return;
+        }
+        outbound.poll();
+      }
+      if (closeAfterWrite) {
+        closeChannel();
+      } else if (key.isValid()) {
+        key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+
+    void closeChannel() {
+      if (key != null) key.cancel();
+      closeQuietly(channel);
+    }
+  }
+
+  /** Serves HTTP/2 streams with canned responses. */
+  private final class Http2Handler extends Http2Connection.Listener {
+    private final Socket socket;
+    private final AtomicInteger sequenceNumber = new AtomicInteger();
+
+    Http2Handler(Socket socket) {
+      this.socket = socket;
+    }
+
+    @Override public void onStream(Http2Stream stream) throws IOException {
+      List<Header> streamHeaders = stream.getRequestHeaders();
+      Headers.Builder httpHeaders = new Headers.Builder();
+      String method = "<:method omitted>";
+      String path = "<:path omitted>";
+      for (int i = 0, size = streamHeaders.size(); i < size; i++) {
+        ByteString name = streamHeaders.get(i).name;
+        String value = streamHeaders.get(i).value.utf8();
+        if (name.equals(Header.TARGET_METHOD)) {
+          method = value;
+        } else if (name.equals(Header.TARGET_PATH)) {
+          path = value;
+        } else if (!name.startsWith(ByteString.encodeUtf8(":"))) {
+          httpHeaders.add(name.utf8(), value);
+        }
+      }
+
+      // Drain the request body so the peer's flow-control window is replenished.
+      Buffer body = new Buffer();
+      Buffer scratch = new Buffer();
+      long bodySize = 0L;
+      Source source = stream.getSource();
+      for (long read; (read = source.read(scratch, 8192)) != -1L; ) {
+        bodySize += read;
+        long toKeep = requestQueue != null
+            ? Math.max(0L, Math.min(read, bodyLimit - body.size()))
+            : 0L;
+        if (toKeep > 0L) scratch.read(body, toKeep);
+        scratch.clear();
+      }
+
+      String requestLine = method + ' ' + path + " HTTP/1.1";
+      List<Integer> chunkSizes = Collections.emptyList(); // No chunked encoding for HTTP/2.
+      record(requestLine, httpHeaders.build(), chunkSizes, bodySize, body,
+          sequenceNumber.getAndIncrement(), socket);
+
+      EncodedResponse response = responseFor(path);
+      boolean hasBody = response.body.size() > 0;
+      stream.sendResponseHeaders(response.http2Headers, hasBody);
+      if (hasBody) {
+        BufferedSink sink = Okio.buffer(stream.getSink());
+        sink.write(response.body);
+        sink.close();
+      }
+
+      if (response.closeConnection) {
+        stream.getConnection().shutdown(ErrorCode.NO_ERROR);
+      }
+    }
+  }
+
+  /** A {@link MockResponse} encoded once for both HTTP/1.1 and HTTP/2. */
+  static final class EncodedResponse {
+    /** Status line, headers and body. Callers must {@link ByteBuffer#duplicate} before writing. */
+    final ByteBuffer http1;
+    final List<Header> http2Headers;
+    final ByteString body;
+    final boolean closeConnection;
+
+    private EncodedResponse(ByteBuffer http1, List<Header> http2Headers, ByteString body,
+        boolean closeConnection) {
+      this.http1 = http1;
+      this.http2Headers = http2Headers;
+      this.body = body;
+      this.closeConnection = closeConnection;
+    }
+
+    static EncodedResponse encode(MockResponse response) {
+      SocketPolicy socketPolicy = response.getSocketPolicy();
+      if (socketPolicy != KEEP_OPEN && socketPolicy != DISCONNECT_AT_END) {
+        throw new IllegalArgumentException("unsupported socket policy: " + socketPolicy);
+      }
+      if (response.getThrottleBytesPerPeriod() != Long.MAX_VALUE
+          || response.getBodyDelay(TimeUnit.MILLISECONDS) != 0
+          || response.getHeadersDelay(TimeUnit.MILLISECONDS) != 0) {
+        throw new IllegalArgumentException("throttled and delayed responses are not supported");
+      }
+      if (!response.getPushPromises().isEmpty()
+          || response.getSettings() != null
+          || response.getWebSocketListener() != null) {
+        throw new IllegalArgumentException("pushes, settings and web sockets are not supported");
+      }
+
+      Buffer body = response.getBody();
+      ByteString bodyBytes = body != null ? body.snapshot() : ByteString.EMPTY;
+
+      Buffer http1 = new Buffer();
+      http1.writeUtf8(response.getStatus()).writeUtf8("\r\n");
+      Headers headers = response.getHeaders();
+      for (int i = 0, size = headers.size(); i < size; i++) {
+        http1.writeUtf8(headers.name(i)).writeUtf8(": ").writeUtf8(headers.value(i));
+        http1.writeUtf8("\r\n");
+      }
+      http1.writeUtf8("\r\n");
+      http1.write(bodyBytes);
+
+      String[] statusParts = response.getStatus().split(" ", 3);
+      if (statusParts.length < 2) {
+        throw new IllegalArgumentException("Unexpected status: " + response.getStatus());
+      }
+      List<Header> http2Headers = new ArrayList<>();
+      http2Headers.add(new Header(Header.RESPONSE_STATUS, statusParts[1]));
+      for (int i = 0, size = headers.size(); i < size; i++) {
+        http2Headers.add(new Header(headers.name(i), headers.value(i)));
+      }
+
+      return new EncodedResponse(ByteBuffer.wrap(http1.readByteArray()).asReadOnlyBuffer(),
+          Collections.unmodifiableList(http2Headers), bodyBytes,
+          socketPolicy == DISCONNECT_AT_END);
+    }
+  }
+
+  /** Reads {@code prefix} before reading from {@code delegate}. */
+  private static final class PrefixedSource implements Source {
+    private final Buffer prefix;
+    private final Source delegate;
+
+    PrefixedSource(Buffer prefix, Source delegate) {
+      this.prefix = prefix;
+      this.delegate = delegate;
+    }
+
+    @Override public long read(Buffer sink, long byteCount) throws IOException {
+      if (prefix.size() > 0L) return prefix.read(sink, byteCount);
+      return delegate.read(sink, byteCount);
+    }
+
+    @Override public Timeout timeout() {
+      return delegate.timeout();
+    }
+
+    @Override public void close() throws IOException {
+      delegate.close();
+    }
+  }
+}
@@ -962,7 +962,9 @@ public final class MockWebServer extends ExternalResource implements Closeable {
     private void pushPromises(Http2Stream stream, List<PushPromise> promises) throws IOException {
       for (PushPromise pushPromise : promises) {
         List<Header> pushedHeaders = new ArrayList<>();
-        pushedHeaders.add(new Header(Header.TARGET_AUTHORITY, url(pushPromise.path()).host()));
+        HttpUrl pushedUrl = url(pushPromise.path());
+        pushedHeaders.add(new Header(Header.TARGET_SCHEME, pushedUrl.scheme()));
+        pushedHeaders.add(new Header(Header.TARGET_AUTHORITY, Util.hostHeader(pushedUrl, false)));
         pushedHeaders.add(new Header(Header.TARGET_METHOD, pushPromise.method()));
         pushedHeaders.add(new Header(Header.TARGET_PATH, pushPromise.path()));
         Headers pushPromiseHeaders = pushPromise.headers();
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3.mockwebserver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.internal.http2.Header;
+import okhttp3.internal.http2.Http2Connection;
+import okhttp3.internal.http2.Http2Stream;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public final class EventLoopMockWebServerTest {
+  private final EventLoopMockWebServer server = new EventLoopMockWebServer();
+
+  @After public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @Test public void defaultResponse() throws Exception {
+    server.setDefaultResponse(new MockResponse().setBody("hello world"));
+    server.start();
+
+    HttpURLConnection connection = (HttpURLConnection) server.url("/").url().openConnection();
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("hello world", readAscii(connection));
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test public void responseByPath() throws Exception {
+    server.setDefaultResponse(new MockResponse().setResponseCode(404));
+    server.setResponse("/a", new MockResponse().setBody("A"));
+    server.setResponse("/b?page=2", new MockResponse().setBody("B2"));
+    server.start();
+
+    HttpURLConnection a = (HttpURLConnection) server.url("/a?page=1").url().openConnection();
+    assertEquals("A", readAscii(a));
+    HttpURLConnection b = (HttpURLConnection) server.url("/b?page=2").url().openConnection();
+    assertEquals("B2", readAscii(b));
+    HttpURLConnection c = (HttpURLConnection) server.url("/c").url().openConnection();
+    assertEquals(404, c.getResponseCode());
+  }
+
+  @Test public void pipelinedAndChunkedRequests() throws Exception {
+    server.setRecordedRequestLimit(10);
+    server.setDefaultResponse(new MockResponse().setBody("ok"));
+    server.start();
+
+    Socket socket = new Socket(server.getHostName(), server.getPort());
+    OutputStream out = socket.getOutputStream();
+    out.write((""
+        + "POST /chunked HTTP/1.1\r\n"
+        + "Transfer-Encoding: chunked\r\n"
+        + "\r\n"
+        + "3\r\nabc\r\n"
+        + "2\r\nde\r\n"
+        + "0\r\n"
+        + "\r\n"
+        + "POST /fixed HTTP/1.1\r\n"
+        + "Content-Length: 4\r\n"
+        + "Connection: close\r\n"
+        + "\r\n"
+        + "wxyz").getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+
+    BufferedReader reader = new BufferedReader(
+        new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    int statusLines = 0;
+    for (String line; (line = reader.readLine()) != null; ) {
+      if (line.equals("HTTP/1.1 200 OK")) statusLines++;
+    }
+    assertEquals(2, statusLines);
+    socket.close();
+
+    RecordedRequest first = server.takeRequest(5, TimeUnit.SECONDS);
+    assertEquals("POST /chunked HTTP/1.1", first.getRequestLine());
+    assertEquals(Arrays.asList(3, 2), first.getChunkSizes());
+    assertEquals("abcde", first.getBody().readUtf8());
+    RecordedRequest second = server.takeRequest(5, TimeUnit.SECONDS);
+    assertEquals("POST /fixed HTTP/1.1", second.getRequestLine());
+    assertEquals("wxyz", second.getBody().readUtf8());
+    assertEquals(1, second.getSequenceNumber());
+  }
+
+  @Test public void malformedContentLengthRejected() throws Exception {
+    server.start();
+
+    Socket socket = new Socket(server.getHostName(), server.getPort());
+    OutputStream out = socket.getOutputStream();
+    out.write((""
+        + "POST / HTTP/1.1\r\n"
+        + "Content-Length: abc\r\n"
+        + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+
+    BufferedReader reader = new BufferedReader(
+        new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    assertEquals("HTTP/1.1 400 Client Error", reader.readLine());
+    while (reader.readLine() != null) {
+      // Drain the response until the server closes the connection.
+    }
+    socket.close();
+    assertEquals(0, server.getRequestCount());
+
+    // The event loop survives to serve other connections.
+    HttpURLConnection connection = (HttpURLConnection) server.url("/").url().openConnection();
+    assertEquals(200, connection.getResponseCode());
+    connection.getInputStream().close();
+  }
+
+  @Test public void malformedRequestLineClosesOnlyItsConnection() throws Exception {
+    server.start();
+
+    Socket socket = new Socket(server.getHostName(), server.getPort());
+    OutputStream out = socket.getOutputStream();
+    out.write("GET /\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+    assertEquals(-1, socket.getInputStream().read());
+    socket.close();
+    assertEquals(0, server.getRequestCount());
+
+    // The event loop survives to serve other connections.
+    HttpURLConnection connection = (HttpURLConnection) server.url("/").url().openConnection();
+    assertEquals(200, connection.getResponseCode());
+    connection.getInputStream().close();
+  }
+
+  @Test public void http2WithPriorKnowledge() throws Exception {
+    server.setRecordedRequestLimit(10);
+    server.setDefaultResponse(new MockResponse().setBody("hello h2"));
+    server.start();
+
+    Socket socket = new Socket(server.getHostName(), server.getPort());
+    Http2Connection connection = new Http2Connection.Builder(true)
+        .socket(socket)
+        .build();
+    connection.start();
+
+    for (int i = 0; i < 2; i++) {
+      Http2Stream stream = connection.newStream(Arrays.asList(
+          new Header(Header.TARGET_METHOD, "GET"),
+          new Header(Header.TARGET_PATH, "/" + i),
+          new Header(Header.TARGET_AUTHORITY, server.getHostName() + ":" + server.getPort()),
+          new Header(Header.TARGET_SCHEME, "http")), false);
+      List<Header> responseHeaders = stream.takeResponseHeaders();
+      assertEquals(new Header(Header.RESPONSE_STATUS, "200"), responseHeaders.get(0));
+      assertEquals("hello h2", Okio.buffer(stream.getSource()).readUtf8());
+
+      RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+      assertEquals("GET /" + i + " HTTP/1.1", request.getRequestLine());
+      assertEquals(i, request.getSequenceNumber());
+    }
+    assertEquals(1, server.openBlockingConnectionCount());
+
+    // The server forgets the connection once the client closes it.
+    connection.close();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (server.openBlockingConnectionCount() != 0 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, server.openBlockingConnectionCount());
+  }
+
+  @Test public void recordingIsBounded() throws Exception {
+    server.setRecordedRequestLimit(1);
+    server.start();
+
+    for (int i = 0; i < 3; i++) {
+      HttpURLConnection connection = (HttpURLConnection) server.url("/").url().openConnection();
+      assertEquals(200, connection.getResponseCode());
+      connection.getInputStream().close();
+    }
+
+    assertEquals(3, server.getRequestCount());
+    assertEquals(2, server.getDroppedRequestCount());
+    server.takeRequest(5, TimeUnit.SECONDS);
+    assertNull(server.takeRequest(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test public void unsupportedResponseRejected() {
+    try {
+      server.setDefaultResponse(new MockResponse().setBodyDelay(1, TimeUnit.SECONDS));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      server.setDefaultResponse(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  private String readAscii(HttpURLConnection connection) throws IOException {
+    BufferedReader reader = new BufferedReader(
+        new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII));
+    StringBuilder result = new StringBuilder();
+    for (int c; (c = reader.read()) != -1; ) {
+      result.append((char) c);
+    }
+    reader.close();
+    return result.toString();
+  }
+}
@@ -18,7 +18,14 @@ package okhttp3.logging;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import okhttp3.Connection;
 import okhttp3.Headers;
 import okhttp3.Interceptor;
@@ -28,10 +35,16 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okhttp3.internal.Util;
 import okhttp3.internal.http.HttpHeaders;
 import okhttp3.internal.platform.Platform;
 import okio.Buffer;
+import okio.BufferedSink;
 import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
 
 import static okhttp3.internal.platform.Platform.INFO;
 
@@ -41,6 +54,10 @@ import static okhttp3.internal.platform.Platform.INFO;
  * OkHttpClient#networkInterceptors() network interceptor}. <p> The format of the logs created by
  * this class should not be considered stable and may change slightly between releases. If you need
  * a stable logging format, use your own interceptor.
+ *
+ * <p>To keep logging enabled in production, {@linkplain #setSampleRate sample} the calls that are
+ * logged, {@linkplain #setMaxBodyBytes cap} the logged bytes of each body, and {@linkplain
+ * #setAsync log asynchronously} so that calls don't wait on the logger.
  */
 public final class HttpLoggingInterceptor implements Interceptor {
   private static final Charset UTF8 = Charset.forName("UTF-8");
@@ -123,6 +140,9 @@ public final class HttpLoggingInterceptor implements Interceptor {
   private final Logger logger;
 
   private volatile Level level = Level.NONE;
+  private volatile double sampleRate = 1.0;
+  private volatile long maxBodyBytes = Long.MAX_VALUE;
+  private volatile AsyncLogWriter asyncWriter;
 
   /** Change the level at which this interceptor logs. */
   public HttpLoggingInterceptor setLevel(Level level) {
@@ -135,6 +155,60 @@ public final class HttpLoggingInterceptor implements Interceptor {
     return level;
   }
 
+  /**
+   * Logs a random {@code sampleRate} fraction of calls, between 0.0 (none) and 1.0 (all). Calls
+   * that aren't sampled proceed without any logging overhead. All calls are logged by default.
+   */
+  public HttpLoggingInterceptor setSampleRate(double sampleRate) {
+    if (sampleRate < 0.0 || sampleRate > 1.0) {
+      throw new IllegalArgumentException("sampleRate < 0.0 || sampleRate > 1.0: " + sampleRate);
+    }
+    this.sampleRate = sampleRate;
+    return this;
+  }
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Logs at most {@code maxBodyBytes} bytes of each request and response body at {@link
+   * Level#BODY}. When a cap is set response bodies are no longer buffered up front: they're copied
+   * to the log as the application reads them, and logged when the body is exhausted or closed.
+   */
+  public HttpLoggingInterceptor setMaxBodyBytes(long maxBodyBytes) {
+    if (maxBodyBytes < 0L) throw new IllegalArgumentException("maxBodyBytes < 0: " + maxBodyBytes);
+    this.maxBodyBytes = maxBodyBytes;
+    return this;
+  }
+
+  public long getMaxBodyBytes() {
+    return maxBodyBytes;
+  }
+
+  /**
+   * Hands the lines of each call to a background thread that writes them to the logger, rather
+   * than logging on the calling thread. Each call is written with a single {@link Logger#log}
+   * call, its lines separated by {@code '\n'}, so that concurrent calls don't interleave. At most
+   * {@code capacity} records are queued; when the logger can't keep up further records are dropped
+   * and counted by {@link #droppedRecordCount}. The daemon thread exits after a minute without
+   * records. This may only be called once.
+   */
+  public HttpLoggingInterceptor setAsync(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException("capacity <= 0: " + capacity);
+    synchronized (this) {
+      if (asyncWriter != null) throw new IllegalStateException("setAsync() already called");
+      asyncWriter = new AsyncLogWriter(logger, capacity);
+    }
+    return this;
+  }
+
+  /** Returns the number of records dropped because the asynchronous queue was full. */
+  public long droppedRecordCount() {
+    AsyncLogWriter asyncWriter = this.asyncWriter;
+    return asyncWriter != null ? asyncWriter.dropped.get() : 0L;
+  }
+
   @Override public Response intercept(Chain chain) throws IOException {
     Level level = this.level;
 
@@ -143,6 +217,16 @@ public final class HttpLoggingInterceptor implements Interceptor {
       return chain.proceed(request);
     }
 
+    double sampleRate = this.sampleRate;
+    if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+      return chain.proceed(request);
+    }
+
+    long maxBodyBytes = this.maxBodyBytes;
+    AsyncLogWriter asyncWriter = this.asyncWriter;
+    LogRecord record = asyncWriter != null ? new LogRecord() : null;
+    Logger logger = record != null ? record : this.logger;
+
     boolean logBody = level == Level.BODY;
     boolean logHeaders = logBody || level == Level.HEADERS;
 
@@ -186,7 +270,17 @@ public final class HttpLoggingInterceptor implements Interceptor {
         logger.log("--> END " + request.method() + " (encoded body omitted)");
       } else {
         Buffer buffer = new Buffer();
-        requestBody.writeTo(buffer);
+        long byteCount;
+        if (maxBodyBytes == Long.MAX_VALUE) {
+          requestBody.writeTo(buffer);
+          byteCount = buffer.size();
+        } else {
+          TruncatingSink truncatingSink = new TruncatingSink(buffer, maxBodyBytes);
+          BufferedSink sink = Okio.buffer(truncatingSink);
+          requestBody.writeTo(sink);
+          sink.flush();
+          byteCount = truncatingSink.byteCount;
+        }
 
         Charset charset = UTF8;
         MediaType contentType = requestBody.contentType();
@@ -198,7 +292,9 @@ public final class HttpLoggingInterceptor implements Interceptor {
         if (isPlaintext(buffer)) {
           logger.log(buffer.readString(charset));
           logger.log("--> END " + request.method()
-              + " (" + requestBody.contentLength() + "-byte body)");
+              + " (" + requestBody.contentLength() + "-byte body"
+              + (byteCount > maxBodyBytes ? ", first " + maxBodyBytes + " bytes logged" : "")
+              + ")");
         } else {
           logger.log("--> END " + request.method() + " (binary "
               + requestBody.contentLength() + "-byte body omitted)");
@@ -212,9 +308,11 @@ public final class HttpLoggingInterceptor implements Interceptor {
       response = chain.proceed(request);
     } catch (Exception e) {
       logger.log("<-- HTTP FAILED: " + e);
+      if (record != null) asyncWriter.offer(record);
       throw e;
     }
     long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+    boolean logBodyLater = false;
 
     ResponseBody responseBody = response.body();
     long contentLength = responseBody.contentLength();
@@ -235,6 +333,19 @@ public final class HttpLoggingInterceptor implements Interceptor {
         logger.log("<-- END HTTP");
       } else if (bodyEncoded(response.headers())) {
         logger.log("<-- END HTTP (encoded body omitted)");
+      } else if (maxBodyBytes != Long.MAX_VALUE) {
+        // Log the body as the application streams it, rather than buffering it here.
+        Charset charset = UTF8;
+        MediaType contentType = responseBody.contentType();
+        if (contentType != null) {
+          charset = contentType.charset(UTF8);
+        }
+        // The record is handed off with the body, so that the whole response is written at once.
+        response = response.newBuilder()
+            .body(new LoggingResponseBody(
+                responseBody, logger, record, asyncWriter, charset, maxBodyBytes))
+            .build();
+        logBodyLater = true;
       } else {
         BufferedSource source = responseBody.source();
         source.request(Long.MAX_VALUE); // Buffer the entire body.
@@ -249,6 +360,7 @@ public final class HttpLoggingInterceptor implements Interceptor {
         if (!isPlaintext(buffer)) {
           logger.log("");
           logger.log("<-- END HTTP (binary " + buffer.size() + "-byte body omitted)");
+          if (record != null) asyncWriter.offer(record);
           return response;
         }
 
@@ -261,6 +373,7 @@ public final class HttpLoggingInterceptor implements Interceptor {
       }
     }
 
+    if (record != null && !logBodyLater) asyncWriter.offer(record);
     return response;
   }
 
@@ -292,4 +405,162 @@ public final class HttpLoggingInterceptor implements Interceptor {
     String contentEncoding = headers.get("Content-Encoding");
     return contentEncoding != null && !contentEncoding.equalsIgnoreCase("identity");
   }
+
+  /** The lines logged for one call, collected so they can be handed off together. */
+  static final class LogRecord implements Logger {
+    final List<String> lines = new ArrayList<>();
+
+    @Override public void log(String message) {
+      lines.add(message);
+    }
+
+    /** Returns the lines of this record as one message. */
+    String message() {
+      StringBuilder result = new StringBuilder();
+      for (int i = 0, size = lines.size(); i < size; i++) {
+        if (i > 0) result.append('\n');
+        result.append(lines.get(i));
+      }
+      return result.toString();
+    }
+  }
+
+  /**
+   * Writes records to a logger on a background thread, dropping records when it falls behind. The
+   * thread is started on demand and exits when idle, so an unused interceptor doesn't keep it.
+   */
+  static final class AsyncLogWriter {
+    final Logger logger;
+    final ThreadPoolExecutor executor;
+    final AtomicLong dropped = new AtomicLong();
+
+    AsyncLogWriter(Logger logger, int capacity) {
+      this.logger = logger;
+      this.executor = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<Runnable>(capacity),
+          Util.threadFactory("OkHttp HttpLoggingInterceptor", true),
+          new RejectedExecutionHandler() {
+            @Override public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+              dropped.incrementAndGet();
+            }
+          });
+    }
+
+    void offer(final LogRecord record) {
+      executor.execute(new Runnable() {
+        @Override public void run() {
+          logger.log(record.message());
+        }
+      });
+    }
+  }
+
+  /** Keeps the first {@code limit} bytes written in {@code buffer} and discards the rest. */
+  static final class TruncatingSink implements Sink {
+    private final Buffer buffer;
+    private final long limit;
+    long byteCount;
+
+    TruncatingSink(Buffer buffer, long limit) {
+      this.buffer = buffer;
+      this.limit = limit;
+    }
+
+    @Override public void write(Buffer source, long byteCount) throws IOException {
+      long toKeep = Math.max(0L, Math.min(byteCount, limit - this.byteCount));
+      if (toKeep > 0L) source.read(buffer, toKeep);
+      source.skip(byteCount - toKeep);
+      this.byteCount += byteCount;
+    }
+
+    @Override public void flush() {
+    }
+
+    @Override public Timeout timeout() {
+      return Timeout.NONE;
+    }
+
+    @Override public void close() {
+    }
+  }
+
+  /**
+   * A response body that copies up to {@code maxBodyBytes} of its content to the log as it is read.
+   * The captured bytes are logged once, when the body is exhausted or closed. When logging
+   * asynchronously they complete the call's {@code record}, which is handed off then.
+   */
+  static final class LoggingResponseBody extends ResponseBody {
+    private final ResponseBody delegate;
+    private final Logger logger;
+    private final LogRecord record;
+    private final AsyncLogWriter asyncWriter;
+    private final Charset charset;
+    private final long maxBodyBytes;
+    private final Buffer captured = new Buffer();
+    private long byteCount;
+    private BufferedSource source;
+    private boolean logged;
+
+    LoggingResponseBody(ResponseBody delegate, Logger logger, LogRecord record,
+        AsyncLogWriter asyncWriter, Charset charset, long maxBodyBytes) {
+      this.delegate = delegate;
+      this.logger = logger;
+      this.record = record;
+      this.asyncWriter = asyncWriter;
+      this.charset = charset;
+      this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override public MediaType contentType() {
+      return delegate.contentType();
+    }
+
+    @Override public long contentLength() {
+      return delegate.contentLength();
+    }
+
+    @Override public BufferedSource source() {
+      if (source == null) {
+        source = Okio.buffer(new ForwardingSource(delegate.source()) {
+          @Override public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if (read == -1L) {
+              logBody(true);
+            } else {
+              long toCopy = Math.min(read, maxBodyBytes - captured.size());
+              if (toCopy > 0L) sink.copyTo(captured, sink.size() - read, toCopy);
+              LoggingResponseBody.this.byteCount += read;
+            }
+            return read;
+          }
+
+          @Override public void close() throws IOException {
+            logBody(false);
+            super.close();
+          }
+        });
+      }
+      return source;
+    }
+
+    synchronized void logBody(boolean exhausted) {
+      if (logged) return;
+      logged = true;
+
+      String suffix = exhausted ? "" : ", not fully read";
+      logger.log("");
+      if (!isPlaintext(captured)) {
+        logger.log("<-- END HTTP (binary " + byteCount + "-byte body omitted" + suffix + ")");
+      } else {
+        if (captured.size() > 0L) {
+          logger.log(captured.readString(charset));
+        }
+        logger.log("<-- END HTTP (" + byteCount + "-byte body"
+            + (byteCount > maxBodyBytes ? ", first " + maxBodyBytes + " bytes logged" : "")
+            + suffix + ")");
+      }
+
+      if (record != null) asyncWriter.offer(record);
+    }
+  }
 }
@@ -20,6 +20,10 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import javax.net.ssl.HostnameVerifier;
 import okhttp3.Dns;
@@ -46,6 +50,7 @@ import org.junit.Test;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -700,6 +705,161 @@ public final class HttpLoggingInterceptorTest {
         .assertNoMoreLogs();
   }
 
+  @Test public void sampleRateZeroLogsNothing() throws IOException {
+    setLevel(Level.BODY);
+    applicationInterceptor.setSampleRate(0.0);
+    networkInterceptor.setSampleRate(0.0);
+
+    server.enqueue(new MockResponse().setBody("Hello!"));
+    Response response = client.newCall(request().build()).execute();
+    assertEquals("Hello!", response.body().string());
+
+    applicationLogs.assertNoMoreLogs();
+    networkLogs.assertNoMoreLogs();
+  }
+
+  @Test public void sampleRateOutOfRange() {
+    try {
+      applicationInterceptor.setSampleRate(1.5);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test public void maxBodyBytesTruncatesRequestBody() throws Exception {
+    applicationInterceptor.setLevel(Level.BODY);
+    applicationInterceptor.setMaxBodyBytes(4);
+
+    server.enqueue(new MockResponse());
+    Request request = request().post(RequestBody.create(PLAIN, "Hello, world!")).build();
+    Response response = client.newCall(request).execute();
+    response.body().close();
+
+    applicationLogs
+        .assertLogEqual("--> POST " + url)
+        .assertLogEqual("Content-Type: text/plain; charset=utf-8")
+        .assertLogEqual("Content-Length: 13")
+        .assertLogEqual("")
+        .assertLogEqual("Hell")
+        .assertLogEqual("--> END POST (13-byte body, first 4 bytes logged)");
+    assertEquals("Hello, world!", server.takeRequest().getBody().readUtf8());
+  }
+
+  @Test public void maxBodyBytesStreamsResponseBody() throws IOException {
+    applicationInterceptor.setLevel(Level.BODY);
+    applicationInterceptor.setMaxBodyBytes(5);
+
+    server.enqueue(new MockResponse()
+        .setBody("Hello, world!")
+        .setHeader("Content-Type", PLAIN));
+    Response response = client.newCall(request().build()).execute();
+
+    applicationLogs
+        .assertLogEqual("--> GET " + url)
+        .assertLogEqual("--> END GET")
+        .assertLogMatch("<-- 200 OK " + url + " \\(\\d+ms\\)")
+        .assertLogEqual("Content-Length: 13")
+        .assertLogEqual("Content-Type: text/plain; charset=utf-8")
+        .assertNoMoreLogs();
+
+    assertEquals("Hello, world!", response.body().string());
+    applicationLogs
+        .assertLogEqual("")
+        .assertLogEqual("Hello")
+        .assertLogEqual("<-- END HTTP (13-byte body, first 5 bytes logged)")
+        .assertNoMoreLogs();
+  }
+
+  @Test public void asyncLogging() throws Exception {
+    final BlockingQueue<String> logs = new LinkedBlockingQueue<>();
+    HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor(
+        new HttpLoggingInterceptor.Logger() {
+          @Override public void log(String message) {
+            logs.add(message);
+          }
+        });
+    interceptor.setLevel(Level.BASIC);
+    interceptor.setAsync(16);
+    client = client.newBuilder()
+        .addInterceptor(interceptor)
+        .build();
+
+    server.enqueue(new MockResponse());
+    client.newCall(request().build()).execute().body().close();
+
+    String message = logs.poll(5, TimeUnit.SECONDS);
+    assertTrue(message, message.startsWith("--> GET " + url + "\n<-- 200 OK " + url));
+    assertEquals(0L, interceptor.droppedRecordCount());
+
+    try {
+      interceptor.setAsync(16);
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test public void asyncLoggingWritesStreamedBodyWithItsCall() throws Exception {
+    final BlockingQueue<String> logs = new LinkedBlockingQueue<>();
+    HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor(
+        new HttpLoggingInterceptor.Logger() {
+          @Override public void log(String message) {
+            logs.add(message);
+          }
+        });
+    interceptor.setLevel(Level.BODY);
+    interceptor.setMaxBodyBytes(5);
+    interceptor.setAsync(16);
+    client = client.newBuilder()
+        .addInterceptor(interceptor)
+        .build();
+
+    server.enqueue(new MockResponse()
+        .setBody("Hello, world!")
+        .setHeader("Content-Type", PLAIN));
+    Response response = client.newCall(request().build()).execute();
+    assertNull(logs.poll(100, TimeUnit.MILLISECONDS));
+
+    assertEquals("Hello, world!", response.body().string());
+    String message = logs.poll(5, TimeUnit.SECONDS);
+    assertTrue(message, message.startsWith("--> GET " + url + "\n--> END GET\n<-- 200 OK "));
+    assertTrue(message, message.endsWith(
+        "\n\nHello\n<-- END HTTP (13-byte body, first 5 bytes logged)"));
+    assertNull(logs.poll(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test public void asyncLoggingDropsRecordsWhenFull() throws Exception {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor(
+        new HttpLoggingInterceptor.Logger() {
+          @Override public void log(String message) {
+            blocked.countDown();
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+          }
+        });
+    interceptor.setLevel(Level.BASIC);
+    interceptor.setAsync(1);
+    client = client.newBuilder()
+        .addInterceptor(interceptor)
+        .build();
+
+    // The first record blocks the writer thread, the second fills the queue, the third is dropped.
+    server.enqueue(new MockResponse());
+    client.newCall(request().build()).execute().body().close();
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    server.enqueue(new MockResponse());
+    client.newCall(request().build()).execute().body().close();
+    server.enqueue(new MockResponse());
+    client.newCall(request().build()).execute().body().close();
+
+    assertEquals(1L, interceptor.droppedRecordCount());
+    release.countDown();
+  }
+
   private Request.Builder request() {
     return new Request.Builder().url(url);
   }
@@ -88,6 +88,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -354,6 +355,155 @@ public final class CallTest {
     postZeroLength();
   }
 
+  @Test public void postFile() throws Exception {
+    server.enqueue(new MockResponse().setBody("abc"));
+
+    File file = File.createTempFile("CallTest", ".txt");
+    file.deleteOnExit();
+    BufferedSink fileSink = Okio.buffer(Okio.sink(file));
+    for (int i = 0; i < 100_000; i++) {
+      fileSink.writeUtf8("def\n");
+    }
+    fileSink.close();
+
+    Request request = new Request.Builder()
+        .url(server.url("/"))
+        .post(RequestBody.create(MediaType.parse("text/plain"), file))
+        .build();
+
+    executeSynchronously(request)
+        .assertCode(200)
+        .assertBody("abc");
+
+    RecordedRequest recordedRequest = server.takeRequest();
+    assertEquals("POST", recordedRequest.getMethod());
+    assertEquals(400_000, recordedRequest.getBodySize());
+    assertEquals("def", recordedRequest.getBody().readUtf8LineStrict());
+    assertEquals("400000", recordedRequest.getHeader("Content-Length"));
+  }
+
+  @Test public void postFile_HTTPS() throws Exception {
+    enableTls();
+    postFile();
+  }
+
+  @Test public void postFile_HTTP_2() throws Exception {
+    enableProtocol(Protocol.HTTP_2);
+    postFile();
+  }
+
+  @Test public void readBodyAsync() throws Exception {
+    server.enqueue(new MockResponse()
+        .setBody(new Buffer().write(new byte[100_000]))
+        .throttleBody(16_384, 10, TimeUnit.MILLISECONDS));
+
+    final RecordingBodyCallback bodyCallback = new RecordingBodyCallback();
+    client.newCall(new Request.Builder().url(server.url("/")).build()).enqueue(new Callback() {
+      @Override public void onFailure(Call call, IOException e) {
+        bodyCallback.onFailure(null, e);
+      }
+
+      @Override public void onResponse(Call call, Response response) {
+        response.body().readAsync(bodyCallback);
+      }
+    });
+
+    assertEquals(100_000L, bodyCallback.await().size());
+  }
+
+  @Test public void readBodyAsync_HTTPS() throws Exception {
+    enableTls();
+    readBodyAsync();
+  }
+
+  @Test public void readBodyAsync_HTTP_2() throws Exception {
+    enableProtocol(Protocol.HTTP_2);
+    readBodyAsync();
+  }
+
+  @Test public void readBodyAsyncCallbackFailure() throws Exception {
+    server.enqueue(new MockResponse().setBody("abc"));
+
+    Response response = client.newCall(new Request.Builder().url(server.url("/")).build())
+        .execute();
+    final RecordingBodyCallback bodyCallback = new RecordingBodyCallback() {
+      @Override public void onData(ResponseBody body, Buffer chunk) throws IOException {
+        throw new IOException("boom");
+      }
+    };
+    response.body().readAsync(bodyCallback);
+
+    try {
+      bodyCallback.await();
+      fail();
+    } catch (IOException expected) {
+      assertEquals("boom", expected.getMessage());
+    }
+  }
+
+  @Test public void readBodyAsyncCallbackFailure_HTTP_2() throws Exception {
+    enableProtocol(Protocol.HTTP_2);
+    readBodyAsyncCallbackFailure();
+  }
+
+  @Test public void readBodyAsyncCallbackThrowsUnchecked() throws Exception {
+    server.enqueue(new MockResponse().setBody("abc"));
+    server.enqueue(new MockResponse().setBody("def"));
+
+    Response response = client.newCall(new Request.Builder().url(server.url("/a")).build())
+        .execute();
+    final RuntimeException boom = new IllegalStateException("boom");
+    final RecordingBodyCallback bodyCallback = new RecordingBodyCallback() {
+      @Override public void onData(ResponseBody body, Buffer chunk) throws IOException {
+        throw boom;
+      }
+    };
+    response.body().readAsync(bodyCallback);
+
+    try {
+      bodyCallback.await();
+      fail();
+    } catch (IOException expected) {
+      assertSame(boom, expected.getCause());
+    }
+
+    // The failed body was closed, releasing its connection for the next call.
+    executeSynchronously("/b").assertBody("def");
+  }
+
+  @Test public void readBodyAsyncCallbackThrowsUnchecked_HTTP_2() throws Exception {
+    enableProtocol(Protocol.HTTP_2);
+    readBodyAsyncCallbackThrowsUnchecked();
+  }
+
+  @Test public void readBodyAsyncTimeout() throws Exception {
+    server.enqueue(new MockResponse()
+        .setBody("abc")
+        .throttleBody(1, 5, TimeUnit.SECONDS));
+
+    client = client.newBuilder()
+        .readTimeout(250, TimeUnit.MILLISECONDS)
+        .build();
+    Response response = client.newCall(new Request.Builder().url(server.url("/")).build())
+        .execute();
+    RecordingBodyCallback bodyCallback = new RecordingBodyCallback();
+    long startNanos = System.nanoTime();
+    response.body().readAsync(bodyCallback);
+
+    try {
+      bodyCallback.await();
+      fail();
+    } catch (SocketTimeoutException expected) {
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      assertTrue(Util.format("Timed out: %sms", elapsedMillis), elapsedMillis < 2500);
+    }
+  }
+
+  @Test public void readBodyAsyncTimeout_HTTP_2() throws Exception {
+    enableProtocol(Protocol.HTTP_2);
+    readBodyAsyncTimeout();
+  }
+
   @Test public void postBodyRetransmittedAfterAuthorizationFail() throws Exception {
     postBodyRetransmittedAfterAuthorizationFail("abc");
   }
@@ -3144,6 +3294,32 @@ public final class CallTest {
     }
   }
 
+  /** Collects a body read with {@link ResponseBody#readAsync}. */
+  private static class RecordingBodyCallback implements BodyCallback {
+    private final Buffer buffer = new Buffer();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private IOException failure;
+
+    @Override public void onData(ResponseBody body, Buffer chunk) throws IOException {
+      buffer.writeAll(chunk);
+    }
+
+    @Override public void onEnd(ResponseBody body) {
+      done.countDown();
+    }
+
+    @Override public void onFailure(ResponseBody body, IOException e) {
+      failure = e;
+      done.countDown();
+    }
+
+    Buffer await() throws Exception {
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+      if (failure != null) throw failure;
+      return buffer;
+    }
+  }
+
   /**
    * Used during tests that involve TLS connection fallback attempts. OkHttp includes the
    * TLS_FALLBACK_SCSV cipher on fallback connections. See {@link FallbackTestClientSocketFactory}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.internal.io.InMemoryFileSystem;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class PersistentCookieJarTest {
+  @Rule public final InMemoryFileSystem fileSystem = new InMemoryFileSystem();
+
+  private final File file = new File("/cookies");
+  private final HttpUrl url = HttpUrl.parse("https://www.square.com/a/b");
+  private PersistentCookieJar jar = new PersistentCookieJar(fileSystem, file);
+
+  @After public void tearDown() throws IOException {
+    jar.close();
+  }
+
+  @Test public void domainAndHostOnlyCookies() {
+    save("https://www.square.com/", "host=a");
+    save("https://www.square.com/", "domain=b; Domain=square.com");
+    save("https://squareup.com/", "other=c");
+
+    assertEquals(Arrays.asList("domain=b", "host=a"), names(jar.loadForRequest(url)));
+    assertEquals(Arrays.asList("domain=b"),
+        names(jar.loadForRequest(HttpUrl.parse("https://api.square.com/"))));
+    assertEquals(Collections.<String>emptyList(),
+        names(jar.loadForRequest(HttpUrl.parse("https://square.org/"))));
+  }
+
+  @Test public void pathAndSecureAreMatched() {
+    save("https://www.square.com/", "a=1; Path=/a");
+    save("https://www.square.com/", "b=2; Path=/c");
+    save("https://www.square.com/", "c=3; Secure");
+
+    assertEquals(Arrays.asList("a=1", "c=3"), names(jar.loadForRequest(url)));
+    assertEquals(Arrays.asList("a=1"),
+        names(jar.loadForRequest(HttpUrl.parse("http://www.square.com/a"))));
+  }
+
+  @Test public void cookieIsReplaced() {
+    save("https://www.square.com/", "a=1");
+    save("https://www.square.com/", "a=2");
+    assertEquals(Arrays.asList("a=2"), names(jar.loadForRequest(url)));
+    assertEquals(1, jar.size());
+  }
+
+  @Test public void expiredCookieRemovesExisting() {
+    save("https://www.square.com/", "a=1; Max-Age=60");
+    save("https://www.square.com/", "a=1; Max-Age=0");
+    assertEquals(Collections.<String>emptyList(), names(jar.loadForRequest(url)));
+    assertEquals(0, jar.size());
+  }
+
+  @Test public void persistentCookiesSurviveReopen() throws Exception {
+    save("https://www.square.com/", "persistent=1; Max-Age=60; Domain=square.com; HttpOnly");
+    save("https://www.square.com/", "session=2");
+    save("https://www.square.com/", "removed=3; Max-Age=60");
+    save("https://www.square.com/", "removed=3; Max-Age=0");
+    jar.close();
+
+    jar = new PersistentCookieJar(fileSystem, file);
+    List<Cookie> cookies = jar.loadForRequest(url);
+    assertEquals(Arrays.asList("persistent=1"), names(cookies));
+    Cookie cookie = cookies.get(0);
+    assertEquals("square.com", cookie.domain());
+    assertTrue(cookie.httpOnly());
+    assertTrue(cookie.persistent());
+  }
+
+  @Test public void journalIsCompacted() throws Exception {
+    for (int i = 0; i < 3000; i++) {
+      save("https://www.square.com/", "a=" + i + "; Max-Age=60");
+    }
+    jar.close();
+    BufferedSource source = Okio.buffer(fileSystem.source(file));
+    int lineCount = source.readUtf8().split("\n").length;
+    source.close();
+    assertTrue(lineCount < 2000);
+
+    jar = new PersistentCookieJar(fileSystem, file);
+    assertEquals(Arrays.asList("a=2999"), names(jar.loadForRequest(url)));
+  }
+
+  @Test public void truncatedJournalIsRecovered() throws Exception {
+    save("https://www.square.com/", "a=1; Max-Age=60");
+    jar.close();
+
+    BufferedSink sink = Okio.buffer(fileSystem.appendingSink(file));
+    sink.writeUtf8("SET\twww.squ");
+    sink.close();
+
+    jar = new PersistentCookieJar(fileSystem, file);
+    assertEquals(Arrays.asList("a=1"), names(jar.loadForRequest(url)));
+  }
+
+  @Test public void corruptJournalLineIsRecovered() throws Exception {
+    save("https://www.square.com/", "a=1; Max-Age=60");
+    jar.close();
+
+    BufferedSink sink = Okio.buffer(fileSystem.appendingSink(file));
+    sink.writeUtf8("SET\twww.square.com\t/\tb\tnot a number\th\t2\n");
+    sink.close();
+
+    // Cookies read before the corrupt line are kept, and the journal is rebuilt without it.
+    jar = new PersistentCookieJar(fileSystem, file);
+    assertEquals(Arrays.asList("a=1"), names(jar.loadForRequest(url)));
+    save("https://www.square.com/", "a=2; Max-Age=60");
+    jar.close();
+
+    jar = new PersistentCookieJar(fileSystem, file);
+    assertEquals(Arrays.asList("a=2"), names(jar.loadForRequest(url)));
+  }
+
+  private void save(String url, String setCookie) {
+    HttpUrl httpUrl = HttpUrl.parse(url);
+    jar.saveFromResponse(httpUrl, Collections.singletonList(Cookie.parse(httpUrl, setCookie)));
+  }
+
+  private static List<String> names(List<Cookie> cookies) {
+    String[] result = new String[cookies.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = cookies.get(i).name() + "=" + cookies.get(i).value();
+    }
+    return Arrays.asList(result);
+  }
+}
@@ -52,7 +52,7 @@ public final class RecordingEventListener extends EventListener {
     return eventClass.cast(event);
   }
 
-  public List<String> recordedEventTypes() {
+  public synchronized List<String> recordedEventTypes() {
     List<String> eventTypes = new ArrayList<>();
     for (CallEvent event : eventSequence) {
       eventTypes.add(event.getName());
@@ -60,11 +60,11 @@ public final class RecordingEventListener extends EventListener {
     return eventTypes;
   }
 
-  public void clearAllEvents() {
+  public synchronized void clearAllEvents() {
     eventSequence.clear();
   }
 
-  private void logEvent(CallEvent e) {
+  private synchronized void logEvent(CallEvent e) {
     for (Object lock : forbiddenLocks) {
       assertFalse(lock.toString(), Thread.holdsLock(lock));
     }
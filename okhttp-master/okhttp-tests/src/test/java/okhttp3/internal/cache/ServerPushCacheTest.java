@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3.internal.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.internal.http2.Header;
+import okhttp3.internal.http2.PushObserver;
+import okio.Buffer;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public final class ServerPushCacheTest {
+  private final ServerPushCache pushCache = new ServerPushCache(null);
+  private final PushObserver observer =
+      pushCache.newObserver(HttpUrl.parse("https://square.com/"));
+
+  @Test public void pushIsHeldUntilRequested() throws Exception {
+    assertFalse(observer.onRequest(2, pushRequest("GET", "https", "square.com", "/a")));
+    assertFalse(observer.onHeaders(2, asList(new Header(Header.RESPONSE_STATUS, "200"),
+        new Header("content-type", "text/plain")), false));
+    assertFalse(observer.onData(2, new Buffer().writeUtf8("abc"), 3, true));
+    assertEquals(1, pushCache.heldCount());
+
+    Response response = pushCache.take(request("https://square.com/a"));
+    assertEquals(200, response.code());
+    assertEquals("abc", response.body().string());
+    assertEquals(0, pushCache.heldCount());
+    assertNull(pushCache.take(request("https://square.com/a")));
+  }
+
+  @Test public void pushForOtherOriginIsCanceled() throws Exception {
+    assertTrue(observer.onRequest(2, pushRequest("GET", "https", "evil.com", "/a")));
+    assertTrue(observer.onRequest(4, pushRequest("GET", "http", "square.com", "/a")));
+    assertTrue(observer.onRequest(6, pushRequest("GET", "https", "square.com:8443", "/a")));
+    assertTrue(observer.onHeaders(2, asList(new Header(Header.RESPONSE_STATUS, "200")), true));
+    assertEquals(0, pushCache.heldCount());
+  }
+
+  @Test public void pushOfUnsafeMethodIsCanceled() throws Exception {
+    assertTrue(observer.onRequest(2, pushRequest("POST", "https", "square.com", "/a")));
+  }
+
+  @Test public void pushWithErrorStatusIsCanceled() throws Exception {
+    assertFalse(observer.onRequest(2, pushRequest("GET", "https", "square.com", "/a")));
+    assertTrue(observer.onHeaders(2, asList(new Header(Header.RESPONSE_STATUS, "404")), true));
+    assertEquals(0, pushCache.heldCount());
+  }
+
+  @Test public void oversizedPushIsCanceled() throws Exception {
+    assertFalse(observer.onRequest(2, pushRequest("GET", "https", "square.com", "/a")));
+    assertFalse(observer.onHeaders(2, asList(new Header(Header.RESPONSE_STATUS, "200")), false));
+    int byteCount = (int) ServerPushCache.MAX_PUSH_BYTES + 1;
+    Buffer source = new Buffer().write(new byte[byteCount]);
+    assertTrue(observer.onData(2, source, byteCount, true));
+    assertEquals(0L, source.size());
+    assertEquals(0, pushCache.heldCount());
+  }
+
+  @Test public void noCacheRequestIgnoresHeldPush() throws Exception {
+    assertFalse(observer.onRequest(2, pushRequest("GET", "https", "square.com", "/a")));
+    assertFalse(observer.onHeaders(2, asList(new Header(Header.RESPONSE_STATUS, "200")), true));
+
+    assertNull(pushCache.take(new Request.Builder()
+        .url("https://square.com/a")
+        .header("Cache-Control", "no-cache")
+        .build()));
+    assertEquals(1, pushCache.heldCount());
+  }
+
+  @Test public void heldPushMatchesVaryHeaders() throws Exception {
+    List<Header> pushRequest = new ArrayList<>(pushRequest("GET", "https", "square.com", "/a"));
+    pushRequest.add(new Header("accept-language", "fr-CA"));
+    assertFalse(observer.onRequest(2, pushRequest));
+    assertFalse(observer.onHeaders(2, asList(new Header(Header.RESPONSE_STATUS, "200"),
+        new Header("vary", "Accept-Language")), false));
+    assertFalse(observer.onData(2, new Buffer().writeUtf8("bonjour"), 7, true));
+
+    assertNull(pushCache.take(request("https://square.com/a")));
+    assertNull(pushCache.take(new Request.Builder()
+        .url("https://square.com/a")
+        .header("Accept-Language", "en-US")
+        .build()));
+    assertEquals(1, pushCache.heldCount());
+
+    Response response = pushCache.take(new Request.Builder()
+        .url("https://square.com/a")
+        .header("Accept-Language", "fr-CA")
+        .build());
+    assertEquals("bonjour", response.body().string());
+    assertEquals(0, pushCache.heldCount());
+  }
+
+  @Test public void pushThatVariesOnEverythingIsNotHeld() throws Exception {
+    assertFalse(observer.onRequest(2, pushRequest("GET", "https", "square.com", "/a")));
+    assertFalse(observer.onHeaders(2, asList(new Header(Header.RESPONSE_STATUS, "200"),
+        new Header("vary", "*")), true));
+    assertEquals(0, pushCache.heldCount());
+  }
+
+  private static List<Header> pushRequest(
+      String method, String scheme, String authority, String path) {
+    return asList(
+        new Header(Header.TARGET_METHOD, method),
+        new Header(Header.TARGET_SCHEME, scheme),
+        new Header(Header.TARGET_AUTHORITY, authority),
+        new Header(Header.TARGET_PATH, path));
+  }
+
+  private static Request request(String url) {
+    return new Request.Builder().url(url).build();
+  }
+}
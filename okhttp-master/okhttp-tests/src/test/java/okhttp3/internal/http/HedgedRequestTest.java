@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3.internal.http;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.RecordingEventListener;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static okhttp3.TestUtil.defaultClient;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public final class HedgedRequestTest {
+  @Rule public final MockWebServer server = new MockWebServer();
+
+  private final RecordingEventListener listener = new RecordingEventListener();
+  private OkHttpClient client;
+
+  @Before public void setUp() throws Exception {
+    client = defaultClient().newBuilder()
+        .eventListener(listener)
+        .hedgeIdempotentRequests(50.0, 250, TimeUnit.MILLISECONDS)
+        .build();
+
+    // No request is hedged until enough latencies have been observed.
+    for (int i = 0; i < LatencyTracker.MIN_SAMPLES; i++) {
+      server.enqueue(new MockResponse().setBody("warm up"));
+      Response response = client.newCall(request()).execute();
+      assertEquals("warm up", response.body().string());
+      server.takeRequest();
+    }
+    assertEquals(1, client.connectionPool().connectionCount());
+    listener.clearAllEvents();
+  }
+
+  @Test public void hedgeWins() throws Exception {
+    server.enqueue(new MockResponse()
+        .setBody("primary")
+        .setHeadersDelay(2, TimeUnit.SECONDS));
+    server.enqueue(new MockResponse()
+        .setBody("hedge"));
+
+    Response response = client.newCall(request()).execute();
+    assertEquals("hedge", response.body().string());
+    assertNotNull(server.takeRequest(1, TimeUnit.SECONDS));
+    assertNotNull(server.takeRequest(1, TimeUnit.SECONDS));
+
+    // The primary attempt is canceled, and its connection closed rather than pooled.
+    awaitConnectionCount(1);
+    // Both attempts report their connections, but only the primary reports request events.
+    List<String> events = listener.recordedEventTypes();
+    assertEquals(1, Collections.frequency(events, "CallStart"));
+    assertEquals(1, Collections.frequency(events, "ConnectStart"));
+    assertEquals(2, Collections.frequency(events, "ConnectionAcquired"));
+    assertEquals(1, Collections.frequency(events, "RequestHeadersStart"));
+    assertEquals(1, Collections.frequency(events, "CallEnd"));
+  }
+
+  @Test public void primaryWins() throws Exception {
+    server.enqueue(new MockResponse()
+        .setBody("primary")
+        .setHeadersDelay(500, TimeUnit.MILLISECONDS));
+    server.enqueue(new MockResponse()
+        .setBody("hedge")
+        .setHeadersDelay(2, TimeUnit.SECONDS));
+
+    Response response = client.newCall(request()).execute();
+    assertEquals("primary", response.body().string());
+    assertNotNull(server.takeRequest(1, TimeUnit.SECONDS));
+    assertNotNull(server.takeRequest(1, TimeUnit.SECONDS));
+
+    // The hedge is canceled, and its new connection closed rather than pooled.
+    awaitConnectionCount(1);
+    List<String> events = listener.recordedEventTypes();
+    assertEquals(1, Collections.frequency(events, "ConnectStart"));
+    assertEquals(2, Collections.frequency(events, "ConnectionAcquired"));
+    assertEquals(1, Collections.frequency(events, "RequestHeadersStart"));
+  }
+
+  @Test public void warmUpRequestsProceedOnCallingThread() throws Exception {
+    OkHttpClient coldClient = client.newBuilder()
+        .hedgeIdempotentRequests(50.0, 250, TimeUnit.MILLISECONDS)
+        .addNetworkInterceptor(new Interceptor() {
+          @Override public Response intercept(Chain chain) throws IOException {
+            return chain.proceed(chain.request()).newBuilder()
+                .header("Thread", Thread.currentThread().getName())
+                .build();
+          }
+        })
+        .build();
+    server.enqueue(new MockResponse().setBody("primary"));
+
+    Response response = coldClient.newCall(request()).execute();
+    assertEquals("primary", response.body().string());
+    assertEquals(Thread.currentThread().getName(), response.header("Thread"));
+  }
+
+  @Test public void fastRequestIsNotHedged() throws Exception {
+    server.enqueue(new MockResponse()
+        .setBody("primary"));
+
+    Response response = client.newCall(request()).execute();
+    assertEquals("primary", response.body().string());
+    assertNotNull(server.takeRequest(1, TimeUnit.SECONDS));
+    assertEquals(LatencyTracker.MIN_SAMPLES + 1, server.getRequestCount());
+    assertEquals(1, client.connectionPool().connectionCount());
+  }
+
+  private Request request() {
+    return new Request.Builder()
+        .url(server.url("/"))
+        .build();
+  }
+
+  /** The canceled attempt cleans up on its own thread, so give it some time. */
+  private void awaitConnectionCount(int expected) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (client.connectionPool().connectionCount() != expected
+        && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, client.connectionPool().connectionCount());
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3.internal.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public final class LatencyTrackerTest {
+  @Test public void noPercentileUntilEnoughSamples() {
+    LatencyTracker tracker = new LatencyTracker(95.0, 100);
+    for (int i = 0; i < LatencyTracker.MIN_SAMPLES - 1; i++) {
+      tracker.record(10L);
+    }
+    assertEquals(-1L, tracker.percentileMillis());
+    tracker.record(10L);
+    assertEquals(10L, tracker.percentileMillis());
+  }
+
+  @Test public void percentile() {
+    LatencyTracker tracker = new LatencyTracker(95.0, 100);
+    for (int i = 1; i <= 100; i++) {
+      tracker.record(i);
+    }
+    assertEquals(95L, tracker.percentileMillis());
+  }
+
+  @Test public void oldSamplesAgeOut() {
+    LatencyTracker tracker = new LatencyTracker(50.0, 64);
+    for (int i = 0; i < 64; i++) {
+      tracker.record(1000L);
+    }
+    assertEquals(1000L, tracker.percentileMillis());
+    for (int i = 0; i < 64; i++) {
+      tracker.record(5L);
+    }
+    assertEquals(5L, tracker.percentileMillis());
+  }
+
+  @Test public void percentileOutOfRange() {
+    try {
+      new LatencyTracker(0.0, 100);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      new LatencyTracker(100.0, 100);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
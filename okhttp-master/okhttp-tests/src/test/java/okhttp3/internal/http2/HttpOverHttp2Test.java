@@ -872,6 +872,46 @@ public final class HttpOverHttp2Test {
     assertEquals("bar", pushedRequest.getHeader("foo"));
   }
 
+  @Test public void serverPushIsHeldAndCached() throws Exception {
+    client = client.newBuilder()
+        .cache(cache)
+        .cacheServerPushes(true)
+        .build();
+
+    PushPromise pushPromise = new PushPromise("GET", "/foo/bar", Headers.of(),
+        new MockResponse().setBody("bar").addHeader("Cache-Control: max-age=60"));
+    server.enqueue(new MockResponse()
+        .setBody("ABCDE")
+        .withPush(pushPromise));
+
+    Response response = client.newCall(new Request.Builder()
+        .url(server.url("/foo"))
+        .build()).execute();
+    assertEquals("ABCDE", response.body().string());
+
+    // Pushes are processed asynchronously. Wait for both responses to be written to the cache.
+    long deadline = System.nanoTime() + SECONDS.toNanos(5);
+    while (cache.writeSuccessCount() < 2) {
+      assertTrue(System.nanoTime() < deadline);
+      Thread.sleep(10);
+    }
+
+    // The first request for the pushed resource is served from the holding area.
+    Response pushed = client.newCall(new Request.Builder()
+        .url(server.url("/foo/bar"))
+        .build()).execute();
+    assertEquals("bar", pushed.body().string());
+    assertEquals(0, cache.hitCount());
+
+    // Later requests are served from the cache.
+    Response cached = client.newCall(new Request.Builder()
+        .url(server.url("/foo/bar"))
+        .build()).execute();
+    assertEquals("bar", cached.body().string());
+    assertEquals(1, cache.hitCount());
+    assertEquals(1, server.getRequestCount());
+  }
+
   @Test public void noDataFramesSentWithNullRequestBody() throws Exception {
     server.enqueue(new MockResponse()
         .setBody("ABC"));
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3;
+
+import java.io.IOException;
+import okio.Buffer;
+
+/**
+ * Receives a response body that is {@linkplain ResponseBody#readAsync read asynchronously}. Calls
+ * to a callback are never concurrent, and they end with exactly one call to either {@link #onEnd}
+ * or {@link #onFailure}.
+ */
+public interface BodyCallback {
+  /**
+   * Called with the next chunk of the body. Implementations should consume {@code chunk} before
+   * returning; unconsumed bytes are discarded. Throwing fails the read and closes the body.
+   */
+  void onData(ResponseBody body, Buffer chunk) throws IOException;
+
+  /** Called once the body has been read completely. The body is closed before this is called. */
+  void onEnd(ResponseBody body);
+
+  /**
+   * Called when the body could not be read completely, due to a network failure, a timeout, or an
+   * exception thrown by {@link #onData}. The body is closed before this is called.
+   */
+  void onFailure(ResponseBody body, IOException e);
+}
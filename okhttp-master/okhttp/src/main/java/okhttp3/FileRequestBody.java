@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3;
+
+import java.io.File;
+import java.io.IOException;
+import javax.annotation.Nullable;
+import okhttp3.internal.Util;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * A request body that transmits the content of a file. OkHttp's call server interceptor recognizes
+ * this type so that HTTP/1.1 codecs can write the file straight to the socket instead of copying
+ * it through {@link #writeTo}.
+ */
+final class FileRequestBody extends RequestBody {
+  private final @Nullable MediaType contentType;
+  final File file;
+
+  FileRequestBody(@Nullable MediaType contentType, File file) {
+    if (file == null) throw new NullPointerException("content == null");
+    this.contentType = contentType;
+    this.file = file;
+  }
+
+  @Override public @Nullable MediaType contentType() {
+    return contentType;
+  }
+
+  @Override public long contentLength() {
+    return file.length();
+  }
+
+  @Override public void writeTo(BufferedSink sink) throws IOException {
+    Source source = null;
+    try {
+      source = Okio.source(file);
+      sink.writeAll(source);
+    } finally {
+      Util.closeQuietly(source);
+    }
+  }
+}
@@ -14,6 +14,7 @@
  * limitations under the License.
  */
 package okhttp3;
+import java.io.File;
 
 import java.net.MalformedURLException;
 import java.net.Proxy;
@@ -43,9 +44,12 @@ import javax.net.ssl.X509TrustManager;
 import okhttp3.internal.Internal;
 import okhttp3.internal.Util;
 import okhttp3.internal.cache.InternalCache;
+import okhttp3.internal.cache.ServerPushCache;
 import okhttp3.internal.connection.RealConnection;
 import okhttp3.internal.connection.RouteDatabase;
 import okhttp3.internal.connection.StreamAllocation;
+import okhttp3.internal.http.LatencyTracker;
+import okhttp3.internal.http2.PushObserver;
 import okhttp3.internal.platform.Platform;
 import okhttp3.internal.tls.CertificateChainCleaner;
 import okhttp3.internal.tls.OkHostnameVerifier;
@@ -134,6 +138,9 @@ import static okhttp3.internal.Util.checkDuration;
   *
   */
 public class OkHttpClient implements Cloneable, Call.Factory, WebSocket.Factory {
+  /** How many recent latencies are retained to compute the hedge delay. */
+  static final int HEDGE_LATENCY_SAMPLES = 256;
+
   static final List<Protocol> DEFAULT_PROTOCOLS = Util.immutableList(
       Protocol.HTTP_2, Protocol.HTTP_1_1);
 
@@ -203,6 +210,21 @@ public class OkHttpClient implements Cloneable, Call.Factory, WebSocket.Factory
       @Override public Call newWebSocketCall(OkHttpClient client, Request originalRequest) {
         return RealCall.newRealCall(client, originalRequest, true);
       }
+
+      @Override public @Nullable LatencyTracker hedgeLatencyTracker(OkHttpClient client) {
+        return client.hedgeLatencyTracker;
+      }
+
+      @Override public @Nullable File requestBodyFile(RequestBody body) {
+        return body instanceof FileRequestBody ? ((FileRequestBody) body).file : null;
+      }
+
+      @Override public PushObserver pushObserver(Call call, HttpUrl origin) {
+        ServerPushCache serverPushCache = call instanceof RealCall
+            ? ((RealCall) call).client.serverPushCache
+            : null;
+        return serverPushCache != null ? serverPushCache.newObserver(origin) : PushObserver.CANCEL;
+      }
     };
   }
 
@@ -233,6 +255,11 @@ public class OkHttpClient implements Cloneable, Call.Factory, WebSocket.Factory
   final int readTimeout;
   final int writeTimeout;
   final int pingInterval;
+  final double hedgePercentile;
+  final int hedgeMinDelay;
+  final @Nullable LatencyTracker hedgeLatencyTracker;
+  final boolean cacheServerPushes;
+  final @Nullable ServerPushCache serverPushCache;
 
   public OkHttpClient() {
     this(new Builder());
@@ -280,6 +307,13 @@ public class OkHttpClient implements Cloneable, Call.Factory, WebSocket.Factory
     this.readTimeout = builder.readTimeout;
     this.writeTimeout = builder.writeTimeout;
     this.pingInterval = builder.pingInterval;
+    this.hedgePercentile = builder.hedgePercentile;
+    this.hedgeMinDelay = builder.hedgeMinDelay;
+    this.hedgeLatencyTracker = hedgePercentile > 0.0
+        ? new LatencyTracker(hedgePercentile, HEDGE_LATENCY_SAMPLES)
+        : null;
+    this.cacheServerPushes = builder.cacheServerPushes;
+    this.serverPushCache = cacheServerPushes ? new ServerPushCache(internalCache()) : null;
 
     if (interceptors.contains(null)) {
       throw new IllegalStateException("Null interceptor: " + interceptors);
@@ -335,6 +369,24 @@ public class OkHttpClient implements Cloneable, Call.Factory, WebSocket.Factory
     return pingInterval;
   }
 
+  /**
+   * The latency percentile after which idempotent requests are hedged, or 0 if hedging is
+   * disabled.
+   */
+  public double hedgePercentile() {
+    return hedgePercentile;
+  }
+
+  /** Minimum delay before an idempotent request is hedged (in milliseconds). */
+  public int hedgeMinDelayMillis() {
+    return hedgeMinDelay;
+  }
+
+  /** Returns true if HTTP/2 server pushes are accepted and cached. */
+  public boolean cacheServerPushes() {
+    return cacheServerPushes;
+  }
+
   public Proxy proxy() {
     return proxy;
   }
@@ -483,6 +535,9 @@ public class OkHttpClient implements Cloneable, Call.Factory, WebSocket.Factory
     int readTimeout;
     int writeTimeout;
     int pingInterval;
+    double hedgePercentile;
+    int hedgeMinDelay;
+    boolean cacheServerPushes;
 
     public Builder() {
       dispatcher = new Dispatcher();
@@ -505,6 +560,8 @@ public class OkHttpClient implements Cloneable, Call.Factory, WebSocket.Factory
       readTimeout = 10_000;
       writeTimeout = 10_000;
       pingInterval = 0;
+      hedgePercentile = 0.0;
+      hedgeMinDelay = 0;
     }
 
     Builder(OkHttpClient okHttpClient) {
@@ -535,6 +592,9 @@ public class OkHttpClient implements Cloneable, Call.Factory, WebSocket.Factory
       this.readTimeout = okHttpClient.readTimeout;
       this.writeTimeout = okHttpClient.writeTimeout;
       this.pingInterval = okHttpClient.pingInterval;
+      this.hedgePercentile = okHttpClient.hedgePercentile;
+      this.hedgeMinDelay = okHttpClient.hedgeMinDelay;
+      this.cacheServerPushes = okHttpClient.cacheServerPushes;
     }
 
     /**
@@ -807,6 +867,41 @@ public class OkHttpClient implements Cloneable, Call.Factory, WebSocket.Factory
       return this;
     }
 
+    /**
+     * Configure this client to hedge idempotent requests. If a {@code GET} or {@code HEAD} request
+     * without a body hasn't received its response headers within {@code percentile} of recently
+     * observed latencies, a second attempt is started on another connection. Whichever attempt
+     * returns first is used and the other is canceled.
+     *
+     * <p>Hedging trades extra server load for lower tail latency. The delay is never shorter than
+     * {@code minDelay}, and no request is hedged until enough latencies have been observed to
+     * estimate the percentile. Hedging is disabled by default.
+     *
+     * @param percentile a value in (0, 100), like 95.0 to hedge requests slower than the p95.
+     */
+    public Builder hedgeIdempotentRequests(double percentile, long minDelay, TimeUnit unit) {
+      if (percentile <= 0.0 || percentile >= 100.0) {
+        throw new IllegalArgumentException("percentile <= 0 || percentile >= 100: " + percentile);
+      }
+      hedgeMinDelay = checkDuration("minDelay", minDelay, unit);
+      hedgePercentile = percentile;
+      return this;
+    }
+
+    /**
+     * Configure this client to accept HTTP/2 server pushes. Pushed {@code GET} responses for the
+     * connection's own origin are written to the {@linkplain #cache response cache} when their
+     * headers permit, and are also briefly held in memory so that a matching request made soon
+     * after the push is served without a round trip. Pushes for other origins, pushes of other
+     * methods and pushes with large bodies are canceled.
+     *
+     * <p>By default every server push is canceled.
+     */
+    public Builder cacheServerPushes(boolean cacheServerPushes) {
+      this.cacheServerPushes = cacheServerPushes;
+      return this;
+    }
+
     /**
      * Sets the dispatcher used to set policy and execute asynchronous requests. Must not be null.
      */
@@ -0,0 +1,426 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import okhttp3.internal.Util;
+import okhttp3.internal.io.FileSystem;
+import okhttp3.internal.platform.Platform;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+import static okhttp3.internal.Util.verifyAsIpAddress;
+import static okhttp3.internal.platform.Platform.WARN;
+
+/**
+ * A cookie jar that keeps cookies in memory and persists them to a file.
+ *
+ * <p>Cookies are indexed by domain in a trie whose edges are domain labels, starting with the
+ * top-level domain. Loading cookies for a request walks one node per label of the request's host,
+ * so the cost of a lookup depends on the host rather than on the number of cookies stored. Expired
+ * cookies are discarded lazily, when a lookup encounters them.
+ *
+ * <p>Persistent cookies are written to an append-only journal as they are saved; session cookies
+ * are kept in memory only. The journal is compacted when most of its lines are obsolete. If the
+ * file cannot be read or written, this jar logs a warning and continues with its in-memory
+ * contents.
+ */
+public final class PersistentCookieJar implements CookieJar, Closeable {
+  static final String MAGIC = "okhttp3.PersistentCookieJar";
+  static final String VERSION_1 = "1";
+  private static final String SET = "SET";
+  private static final String REMOVE = "REMOVE";
+
+  private final FileSystem fileSystem;
+  private final File journalFile;
+  private final File journalFileTmp;
+  private final File journalFileBackup;
+
+  /** The root of the domain trie. Its children are top-level domains. */
+  private final Node root = new Node();
+  private int size;
+  private int persistentSize;
+
+  private @Nullable BufferedSink journalWriter;
+  private int redundantOpCount;
+  private boolean initialized;
+  private boolean closed;
+
+  public PersistentCookieJar(File file) {
+    this(FileSystem.SYSTEM, file);
+  }
+
+  PersistentCookieJar(FileSystem fileSystem, File file) {
+    this.fileSystem = fileSystem;
+    this.journalFile = file;
+    this.journalFileTmp = new File(file.getPath() + ".tmp");
+    this.journalFileBackup = new File(file.getPath() + ".bkp");
+  }
+
+  @Override public synchronized void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+    initialize();
+    long now = System.currentTimeMillis();
+    for (int i = 0, size = cookies.size(); i < size; i++) {
+      Cookie cookie = cookies.get(i);
+      Cookie replaced = remove(cookie.domain(), cookie.name(), cookie.path());
+      boolean live = cookie.expiresAt() > now;
+      if (live) add(cookie);
+
+      if (live && cookie.persistent()) {
+        if (replaced != null && replaced.persistent()) redundantOpCount++;
+        writeJournalLine(cookie, true);
+      } else if (replaced != null && replaced.persistent()) {
+        redundantOpCount += 2; // Both the replaced SET line and this REMOVE line are obsolete.
+        writeJournalLine(replaced, false);
+      }
+    }
+    flushJournal(url);
+  }
+
+  @Override public synchronized List<Cookie> loadForRequest(HttpUrl url) {
+    initialize();
+    long now = System.currentTimeMillis();
+    List<Cookie> result = null;
+
+    String host = url.host();
+    String[] labels = labels(host);
+    Node node = root;
+    for (int i = labels.length - 1; i >= 0 && node != null; i--) {
+      node = node.children != null ? node.children.get(labels[i]) : null;
+      if (node == null || node.cookies == null) continue;
+
+      boolean exactHost = i == 0;
+      for (Iterator<Cookie> it = node.cookies.iterator(); it.hasNext(); ) {
+        Cookie cookie = it.next();
+        if (cookie.expiresAt() <= now) {
+          it.remove();
+          size--;
+          if (cookie.persistent()) {
+            persistentSize--;
+            redundantOpCount++;
+          }
+          continue;
+        }
+        if (cookie.hostOnly() && !exactHost) continue;
+        if (!cookie.matches(url)) continue;
+        if (result == null) result = new ArrayList<>();
+        result.add(cookie);
+      }
+    }
+
+    return result != null ? Collections.unmodifiableList(result) : Collections.<Cookie>emptyList();
+  }
+
+  /** Returns the number of cookies in this jar, including expired ones not yet discarded. */
+  public synchronized int size() {
+    initialize();
+    return size;
+  }
+
+  /** Removes all cookies from this jar and its file. */
+  public synchronized void evictAll() throws IOException {
+    initialize();
+    root.children = null;
+    size = 0;
+    persistentSize = 0;
+    if (!closed) rebuildJournal();
+  }
+
+  /** Closes the file. Cookies saved after this are kept in memory only. */
+  @Override public synchronized void close() throws IOException {
+    closed = true;
+    if (journalWriter != null) {
+      journalWriter.close();
+      journalWriter = null;
+    }
+  }
+
+  private void add(Cookie cookie) {
+    Node node = root;
+    String[] labels = labels(cookie.domain());
+    for (int i = labels.length - 1; i >= 0; i--) {
+      if (node.children == null) node.children = new HashMap<>();
+      Node child = node.children.get(labels[i]);
+      if (child == null) {
+        child = new Node();
+        node.children.put(labels[i], child);
+      }
+      node = child;
+    }
+    if (node.cookies == null) node.cookies = new ArrayList<>(2);
+    node.cookies.add(cookie);
+    size++;
+    if (cookie.persistent()) persistentSize++;
+  }
+
+  /** Removes and returns the cookie that {@code domain}, {@code name} and {@code path} identify. */
+  private @Nullable Cookie remove(String domain, String name, String path) {
+    Node node = root;
+    String[] labels = labels(domain);
+    for (int i = labels.length - 1; i >= 0 && node != null; i--) {
+      node = node.children != null ? node.children.get(labels[i]) : null;
+    }
+    if (node == null || node.cookies == null) return null;
+
+    for (Iterator<Cookie> it = node.cookies.iterator(); it.hasNext(); ) {
+      Cookie cookie = it.next();
+      if (cookie.name().equals(name) && cookie.path().equals(path)) {
+        it.remove();
+        size--;
+        if (cookie.persistent()) persistentSize--;
+        return cookie;
+      }
+    }
+    return null;
+  }
+
+  /** IP addresses aren't split into labels; a cookie for an IP address must match it exactly. */
+  private static String[] labels(String host) {
+    return verifyAsIpAddress(host) ? new String[] {host} : host.split("\\.", -1);
+  }
+
+  private void initialize() {
+    if (initialized) return;
+    initialized = true;
+    if (closed) return; // Closed before first use. Keep cookies in memory only.
+
+    try {
+      if (fileSystem.exists(journalFileBackup)) {
+        if (fileSystem.exists(journalFile)) {
+          fileSystem.delete(journalFileBackup);
+        } else {
+          fileSystem.rename(journalFileBackup, journalFile);
+        }
+      }
+
+      if (fileSystem.exists(journalFile)) {
+        readJournal();
+      } else {
+        rebuildJournal();
+      }
+    } catch (IOException e) {
+      Platform.get().log(WARN, "Loading cookies failed for " + journalFile, e);
+      try {
+        rebuildJournal(); // Replace the unreadable journal with what was loaded before it failed.
+      } catch (IOException ignored) {
+        // The file cannot be written. Keep cookies in memory only.
+      }
+    }
+  }
+
+  private void readJournal() throws IOException {
+    BufferedSource source = Okio.buffer(fileSystem.source(journalFile));
+    boolean truncated = false;
+    try {
+      String magic = source.readUtf8LineStrict();
+      String version = source.readUtf8LineStrict();
+      if (!MAGIC.equals(magic) || !VERSION_1.equals(version)) {
+        throw new IOException("unexpected journal header: [" + magic + ", " + version + "]");
+      }
+
+      long now = System.currentTimeMillis();
+      int lineCount = 0;
+      while (true) {
+        try {
+          readJournalLine(source.readUtf8LineStrict(), now);
+          lineCount++;
+        } catch (EOFException endOfJournal) {
+          break;
+        }
+      }
+      redundantOpCount = lineCount - persistentSize;
+      truncated = !source.exhausted();
+    } finally {
+      Util.closeQuietly(source);
+    }
+
+    // If we ended on a truncated line, rebuild the journal before appending to it.
+    if (truncated || journalRebuildRequired()) {
+      rebuildJournal();
+    } else {
+      journalWriter = Okio.buffer(fileSystem.appendingSink(journalFile));
+    }
+  }
+
+  private void readJournalLine(String line, long now) throws IOException {
+    String[] parts = line.split("\t", -1);
+    if (parts[0].equals(REMOVE) && parts.length == 4) {
+      remove(parts[1], parts[3], parts[2]);
+      return;
+    }
+    if (!parts[0].equals(SET) || parts.length != 7) {
+      throw new IOException("unexpected journal line: " + line);
+    }
+
+    String domain = parts[1];
+    String flags = parts[5];
+    Cookie cookie;
+    try {
+      Cookie.Builder builder = new Cookie.Builder()
+          .path(parts[2])
+          .name(parts[3])
+          .expiresAt(Long.parseLong(parts[4]))
+          .value(parts[6]);
+      if (flags.indexOf('h') != -1) {
+        builder.hostOnlyDomain(domain);
+      } else {
+        builder.domain(domain);
+      }
+      if (flags.indexOf('s') != -1) builder.secure();
+      if (flags.indexOf('o') != -1) builder.httpOnly();
+      cookie = builder.build();
+    } catch (IllegalArgumentException e) { // Includes NumberFormatException.
+      throw new IOException("unexpected journal line: " + line);
+    }
+
+    remove(cookie.domain(), cookie.name(), cookie.path());
+    if (cookie.expiresAt() > now) add(cookie);
+  }
+
+  private void writeJournalLine(Cookie cookie, boolean set) {
+    if (journalWriter == null) return;
+    try {
+      writeJournalLine(journalWriter, cookie, set);
+    } catch (IOException e) {
+      Platform.get().log(WARN, "Saving cookies failed for " + journalFile, e);
+      Util.closeQuietly(journalWriter);
+      journalWriter = null;
+    }
+  }
+
+  private static void writeJournalLine(BufferedSink sink, Cookie cookie, boolean set)
+      throws IOException {
+    if (!persistable(cookie)) return;
+    if (set) {
+      sink.writeUtf8(SET).writeByte('\t')
+          .writeUtf8(cookie.domain()).writeByte('\t')
+          .writeUtf8(cookie.path()).writeByte('\t')
+          .writeUtf8(cookie.name()).writeByte('\t')
+          .writeDecimalLong(cookie.expiresAt()).writeByte('\t')
+          .writeUtf8(flags(cookie)).writeByte('\t')
+          .writeUtf8(cookie.value()).writeByte('\n');
+    } else {
+      sink.writeUtf8(REMOVE).writeByte('\t')
+          .writeUtf8(cookie.domain()).writeByte('\t')
+          .writeUtf8(cookie.path()).writeByte('\t')
+          .writeUtf8(cookie.name()).writeByte('\n');
+    }
+  }
+
+  private void flushJournal(HttpUrl url) {
+    if (journalWriter == null) return;
+    try {
+      if (journalRebuildRequired()) {
+        rebuildJournal();
+      } else {
+        journalWriter.flush();
+      }
+    } catch (IOException e) {
+      Platform.get().log(WARN, "Saving cookies failed for " + url.resolve("/..."), e);
+      Util.closeQuietly(journalWriter);
+      journalWriter = null;
+    }
+  }
+
+  /** Journal lines are tab-separated, so cookies with tabs or line breaks stay in memory only. */
+  private static boolean persistable(Cookie cookie) {
+    return persistable(cookie.name()) && persistable(cookie.value())
+        && persistable(cookie.path());
+  }
+
+  private static boolean persistable(String s) {
+    for (int i = 0, length = s.length(); i < length; i++) {
+      char c = s.charAt(i);
+      if (c == '\t' || c == '\n' || c == '\r') return false;
+    }
+    return true;
+  }
+
+  private static String flags(Cookie cookie) {
+    StringBuilder result = new StringBuilder(3);
+    if (cookie.hostOnly()) result.append('h');
+    if (cookie.secure()) result.append('s');
+    if (cookie.httpOnly()) result.append('o');
+    return result.length() > 0 ? result.toString() : "-";
+  }
+
+  /**
+   * We only rebuild the journal when it will halve the size of the journal and eliminate at least
+   * 2000 ops.
+   */
+  boolean journalRebuildRequired() {
+    final int redundantOpCompactThreshold = 2000;
+    return redundantOpCount >= redundantOpCompactThreshold
+        && redundantOpCount >= persistentSize;
+  }
+
+  /** Writes a new journal that contains only the live persistent cookies. */
+  void rebuildJournal() throws IOException {
+    if (journalWriter != null) {
+      journalWriter.close();
+      journalWriter = null;
+    }
+
+    BufferedSink writer = Okio.buffer(fileSystem.sink(journalFileTmp));
+    try {
+      writer.writeUtf8(MAGIC).writeByte('\n');
+      writer.writeUtf8(VERSION_1).writeByte('\n');
+      writeCookies(writer, root, System.currentTimeMillis());
+    } finally {
+      writer.close();
+    }
+
+    if (fileSystem.exists(journalFile)) {
+      fileSystem.rename(journalFile, journalFileBackup);
+    }
+    fileSystem.rename(journalFileTmp, journalFile);
+    fileSystem.delete(journalFileBackup);
+
+    journalWriter = Okio.buffer(fileSystem.appendingSink(journalFile));
+    redundantOpCount = 0;
+  }
+
+  private static void writeCookies(BufferedSink sink, Node node, long now) throws IOException {
+    if (node.cookies != null) {
+      for (int i = 0, size = node.cookies.size(); i < size; i++) {
+        Cookie cookie = node.cookies.get(i);
+        if (cookie.persistent() && cookie.expiresAt() > now) writeJournalLine(sink, cookie, true);
+      }
+    }
+    if (node.children != null) {
+      for (Node child : node.children.values()) {
+        writeCookies(sink, child, now);
+      }
+    }
+  }
+
+  /** A domain in the trie. Both fields are created lazily as most nodes only have one of them. */
+  static final class Node {
+    @Nullable Map<String, Node> children;
+    @Nullable List<Cookie> cookies;
+  }
+}
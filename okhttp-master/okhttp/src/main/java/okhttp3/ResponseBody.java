@@ -23,6 +23,7 @@ import java.io.Reader;
 import java.nio.charset.Charset;
 import javax.annotation.Nullable;
 import okhttp3.internal.Util;
+import okhttp3.internal.http.AsyncBodyReader;
 import okio.Buffer;
 import okio.BufferedSource;
 
@@ -183,6 +184,22 @@ public abstract class ResponseBody implements Closeable {
     return contentType != null ? contentType.charset(UTF_8) : UTF_8;
   }
 
+  /**
+   * Reads this body in the background, delivering it to {@code callback} in chunks as it arrives.
+   * This returns immediately, so a {@link Callback#onResponse} implementation that calls it doesn't
+   * hold its dispatcher thread while the body downloads. The body is closed when reading ends.
+   *
+   * <p>HTTP/2 response bodies that haven't been transformed by an interceptor are read without
+   * holding any thread while waiting for data. Other bodies, including HTTP/1 and transparently
+   * decompressed bodies, still hold one background thread for the whole read. At most 64 such
+   * bodies are read at once, matching the dispatcher's default {@linkplain
+   * Dispatcher#setMaxRequests maximum requests}; further reads wait for a thread.
+   */
+  public void readAsync(BodyCallback callback) {
+    if (callback == null) throw new NullPointerException("callback == null");
+    AsyncBodyReader.readOnThread(this, callback);
+  }
+
   @Override public void close() {
     Util.closeQuietly(source());
   }
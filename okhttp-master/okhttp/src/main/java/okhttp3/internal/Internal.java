@@ -15,9 +15,11 @@
  */
 package okhttp3.internal;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import javax.annotation.Nullable;
 import javax.net.ssl.SSLSocket;
 import okhttp3.Address;
 import okhttp3.Call;
@@ -27,12 +29,15 @@ import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.Route;
 import okhttp3.internal.cache.InternalCache;
 import okhttp3.internal.connection.RealConnection;
 import okhttp3.internal.connection.RouteDatabase;
 import okhttp3.internal.connection.StreamAllocation;
+import okhttp3.internal.http.LatencyTracker;
+import okhttp3.internal.http2.PushObserver;
 
 /**
  * Escalate internal APIs in {@code okhttp3} so they can be used from OkHttp's implementation
@@ -78,4 +83,12 @@ public abstract class Internal {
   public abstract StreamAllocation streamAllocation(Call call);
 
   public abstract Call newWebSocketCall(OkHttpClient client, Request request);
+
+  public abstract @Nullable LatencyTracker hedgeLatencyTracker(OkHttpClient client);
+
+  /** Returns the file that {@code body} transmits, or null if it isn't a file's content. */
+  public abstract @Nullable File requestBodyFile(RequestBody body);
+
+  /** Returns the observer for server pushes on a new HTTP/2 connection made for {@code call}. */
+  public abstract PushObserver pushObserver(Call call, HttpUrl origin);
 }
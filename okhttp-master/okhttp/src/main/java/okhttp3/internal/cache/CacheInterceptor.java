@@ -17,6 +17,7 @@
 package okhttp3.internal.cache;
 
 import java.io.IOException;
+import javax.annotation.Nullable;
 import okhttp3.Headers;
 import okhttp3.Interceptor;
 import okhttp3.Protocol;
@@ -44,12 +45,23 @@ import static okhttp3.internal.Util.discard;
 /** Serves requests from the cache and writes responses to the cache. */
 public final class CacheInterceptor implements Interceptor {
   final InternalCache cache;
+  final @Nullable ServerPushCache serverPushCache;
 
   public CacheInterceptor(InternalCache cache) {
+    this(cache, null);
+  }
+
+  public CacheInterceptor(InternalCache cache, @Nullable ServerPushCache serverPushCache) {
     this.cache = cache;
+    this.serverPushCache = serverPushCache;
   }
 
   @Override public Response intercept(Chain chain) throws IOException {
+    if (serverPushCache != null) {
+      Response pushed = serverPushCache.take(chain.request());
+      if (pushed != null) return pushed;
+    }
+
     Response cacheCandidate = cache != null
         ? cache.get(chain.request())
         : null;
@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3.internal.cache;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import okhttp3.Cache;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.internal.Internal;
+import okhttp3.internal.http.HttpHeaders;
+import okhttp3.internal.http2.ErrorCode;
+import okhttp3.internal.http2.Header;
+import okhttp3.internal.http2.Http2Codec;
+import okhttp3.internal.http2.PushObserver;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * Accepts HTTP/2 server pushes so they can satisfy later requests without a round trip.
+ *
+ * <p>Each HTTP/2 connection gets its own {@linkplain #newObserver observer}, which only accepts
+ * {@code GET} pushes for the connection's origin. Completed pushes are written to the {@linkplain
+ * InternalCache response cache} when their headers permit it. They are also held in memory for a
+ * short while, so that a request made shortly after the push is served from the push even if the
+ * response isn't cacheable, or if no cache is configured. As with cached responses, a held push
+ * only satisfies requests whose headers match the pushed request's on the response's {@code Vary}
+ * fields. The holding area is bounded by entry count and by total size; the least recently pushed
+ * entries are evicted first.
+ */
+public final class ServerPushCache {
+  /** The largest pushed body that is accepted. Larger pushes are canceled. */
+  static final long MAX_PUSH_BYTES = 256 * 1024;
+  static final int MAX_HELD_PUSHES = 32;
+  static final long MAX_HELD_BYTES = 1024 * 1024;
+  /** Held pushes that aren't requested within this window are discarded. */
+  static final long HOLD_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+  private final @Nullable InternalCache cache;
+
+  /** Pushes awaiting a matching request, keyed by URL, in push order. Guarded by this. */
+  private final LinkedHashMap<String, HeldPush> held = new LinkedHashMap<>();
+  private long heldBytes;
+
+  public ServerPushCache(@Nullable InternalCache cache) {
+    this.cache = cache;
+  }
+
+  /** Returns an observer for pushes on a connection to {@code origin}. */
+  public PushObserver newObserver(HttpUrl origin) {
+    return new CachingPushObserver(origin);
+  }
+
+  /**
+   * Returns the held push for {@code request} and removes it from the holding area, or null if
+   * nothing that varies the same way was pushed for it.
+   */
+  public @Nullable Response take(Request request) {
+    if (!request.method().equals("GET")) return null;
+    if (request.cacheControl().noCache() || request.cacheControl().noStore()) return null;
+
+    HeldPush push;
+    synchronized (this) {
+      evictExpired(System.nanoTime());
+      String key = Cache.key(request.url());
+      push = held.get(key);
+      if (push == null || !HttpHeaders.varyMatches(push.response, push.requestHeaders, request)) {
+        return null;
+      }
+      held.remove(key);
+      heldBytes -= push.body.size();
+    }
+
+    MediaType contentType = push.response.header("Content-Type") != null
+        ? MediaType.parse(push.response.header("Content-Type"))
+        : null;
+    return push.response.newBuilder()
+        .request(request)
+        .body(ResponseBody.create(contentType, push.body.size(), new Buffer().write(push.body)))
+        .build();
+  }
+
+  synchronized int heldCount() {
+    return held.size();
+  }
+
+  void accept(Request request, Response response, Buffer body) {
+    if (cache != null && CacheStrategy.isCacheable(response, request)) {
+      // The cache reads Vary headers from the network response.
+      writeToCache(response.newBuilder().networkResponse(response).build(), body.clone());
+    }
+
+    if (HttpHeaders.hasVaryAll(response)) return; // No request could match it.
+    ByteString bytes = body.readByteString();
+
+    synchronized (this) {
+      String key = Cache.key(request.url());
+      HeldPush previous = held.remove(key);
+      if (previous != null) heldBytes -= previous.body.size();
+
+      held.put(key, new HeldPush(request.headers(), response, bytes, System.nanoTime()));
+      heldBytes += bytes.size();
+
+      Iterator<HeldPush> i = held.values().iterator();
+      while (held.size() > MAX_HELD_PUSHES || heldBytes > MAX_HELD_BYTES) {
+        heldBytes -= i.next().body.size();
+        i.remove();
+      }
+    }
+  }
+
+  private void writeToCache(Response response, Buffer body) {
+    CacheRequest cacheRequest = null;
+    try {
+      cacheRequest = cache.put(response);
+      if (cacheRequest == null) return;
+      BufferedSink sink = Okio.buffer(cacheRequest.body());
+      sink.writeAll(body);
+      sink.close();
+    } catch (IOException e) {
+      if (cacheRequest != null) cacheRequest.abort();
+    }
+  }
+
+  private void evictExpired(long now) {
+    for (Iterator<HeldPush> i = held.values().iterator(); i.hasNext(); ) {
+      HeldPush push = i.next();
+      if (now - push.pushedAtNanos < HOLD_NANOS) break; // Entries are in push order.
+      heldBytes -= push.body.size();
+      i.remove();
+    }
+  }
+
+  static final class HeldPush {
+    /** The headers of the pushed request, which the response's Vary fields refer to. */
+    final Headers requestHeaders;
+    final Response response;
+    final ByteString body;
+    final long pushedAtNanos;
+
+    HeldPush(Headers requestHeaders, Response response, ByteString body, long pushedAtNanos) {
+      this.requestHeaders = requestHeaders;
+      this.response = response;
+      this.body = body;
+      this.pushedAtNanos = pushedAtNanos;
+    }
+  }
+
+  /** A push in progress on one connection. */
+  static final class PushedStream {
+    final Request request;
+    final long sentRequestAtMillis;
+    Response response;
+    final Buffer body = new Buffer();
+
+    PushedStream(Request request, long sentRequestAtMillis) {
+      this.request = request;
+      this.sentRequestAtMillis = sentRequestAtMillis;
+    }
+  }
+
+  /**
+   * Receives pushes for a single connection. Callbacks are delivered in order by the connection's
+   * push thread; this returns true to cancel pushes that are rejected.
+   */
+  final class CachingPushObserver implements PushObserver {
+    private final HttpUrl origin;
+    private final Map<Integer, PushedStream> streams = new LinkedHashMap<>();
+
+    CachingPushObserver(HttpUrl origin) {
+      this.origin = origin;
+    }
+
+    @Override public synchronized boolean onRequest(int streamId, List<Header> requestHeaders) {
+      Request request = pushedRequest(requestHeaders);
+      if (request == null) return true;
+      streams.put(streamId, new PushedStream(request, System.currentTimeMillis()));
+      return false;
+    }
+
+    @Override public synchronized boolean onHeaders(
+        int streamId, List<Header> responseHeaders, boolean last) {
+      PushedStream stream = streams.get(streamId);
+      if (stream == null) return true;
+
+      try {
+        stream.response = Http2Codec.readHttp2HeadersList(responseHeaders)
+            .request(stream.request)
+            .sentRequestAtMillis(stream.sentRequestAtMillis)
+            .receivedResponseAtMillis(System.currentTimeMillis())
+            .build();
+      } catch (IOException e) {
+        streams.remove(streamId);
+        return true;
+      }
+
+      if (stream.response.code() != 200) {
+        streams.remove(streamId);
+        return true;
+      }
+
+      if (last) complete(streamId);
+      return false;
+    }
+
+    @Override public synchronized boolean onData(
+        int streamId, BufferedSource source, int byteCount, boolean last) throws IOException {
+      PushedStream stream = streams.get(streamId);
+      if (stream == null || stream.response == null
+          || stream.body.size() + byteCount > MAX_PUSH_BYTES) {
+        streams.remove(streamId);
+        source.skip(byteCount);
+        return true;
+      }
+
+      source.readFully(stream.body, byteCount);
+      if (last) complete(streamId);
+      return false;
+    }
+
+    @Override public synchronized void onReset(int streamId, ErrorCode errorCode) {
+      streams.remove(streamId);
+    }
+
+    private void complete(int streamId) {
+      PushedStream stream = streams.remove(streamId);
+      accept(stream.request, stream.response, stream.body);
+    }
+
+    /**
+     * Returns the request described by {@code requestHeaders}, or null if it isn't a {@code GET}
+     * for this connection's origin. Pushes for other origins are rejected even if the certificate
+     * would cover them.
+     */
+    private @Nullable Request pushedRequest(List<Header> requestHeaders) {
+      String method = null;
+      String scheme = null;
+      String authority = null;
+      String path = null;
+      Headers.Builder headers = new Headers.Builder();
+      for (int i = 0, size = requestHeaders.size(); i < size; i++) {
+        Header header = requestHeaders.get(i);
+        String value = header.value.utf8();
+        if (header.name.equals(Header.TARGET_METHOD)) {
+          method = value;
+        } else if (header.name.equals(Header.TARGET_SCHEME)) {
+          scheme = value;
+        } else if (header.name.equals(Header.TARGET_AUTHORITY)) {
+          authority = value;
+        } else if (header.name.equals(Header.TARGET_PATH)) {
+          path = value;
+        } else if (!header.name.startsWith(Header.PSEUDO_PREFIX)) {
+          Internal.instance.addLenient(headers, header.name.utf8(), value);
+        }
+      }
+
+      if (!"GET".equals(method) || scheme == null || authority == null || path == null
+          || !path.startsWith("/")) {
+        return null;
+      }
+
+      HttpUrl url = HttpUrl.parse(scheme + "://" + authority + path);
+      if (url == null
+          || !url.scheme().equals(origin.scheme())
+          || !url.host().equals(origin.host())
+          || url.port() != origin.port()) {
+        return null;
+      }
+
+      return new Request.Builder()
+          .url(url)
+          .headers(headers.build())
+          .build();
+    }
+  }
+}
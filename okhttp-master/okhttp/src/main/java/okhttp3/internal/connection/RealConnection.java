@@ -288,6 +288,7 @@ public final class RealConnection extends Http2Connection.Listener implements Co
       http2Connection = new Http2Connection.Builder(true)
           .socket(socket, route.address().url().host(), source, sink)
           .listener(this)
+          .pushObserver(Internal.instance.pushObserver(call, route.address().url()))
           .build();
       http2Connection.start();
     }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3.internal.http;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import okhttp3.BodyCallback;
+import okhttp3.ResponseBody;
+import okhttp3.internal.NamedRunnable;
+import okhttp3.internal.Util;
+import okhttp3.internal.http2.Http2Stream;
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * Delivers a response body to a {@link BodyCallback}.
+ *
+ * <p>Bodies backed by an HTTP/2 stream are read only when the stream has data, so no thread waits
+ * on a slow peer: the stream's reader thread signals this, and a pooled thread drains whatever has
+ * arrived before returning to the pool. If the stream stays unreadable for longer than its read
+ * timeout the read fails, as a blocking read would. Other bodies are read with blocking reads on a
+ * pooled thread, which they hold for the whole read; when all of those threads are busy, further
+ * reads wait for one.
+ */
+public final class AsyncBodyReader extends NamedRunnable {
+  static final long CHUNK_SIZE = 8192L;
+
+  /** The most bodies read at once with blocking reads. The same as the default max requests. */
+  static final int MAX_BLOCKING_READS = 64;
+  /** The most HTTP/2 drains that run at once. Drains never wait for data. */
+  static final int MAX_DRAINS = 8;
+
+  /** Runs blocking reads. Reads beyond the limit wait in the queue for a thread. */
+  private static final Executor blockingExecutor = boundedExecutor(
+      MAX_BLOCKING_READS, "OkHttp AsyncBodyReader");
+  /** Runs drains of HTTP/2 streams. Kept apart so that blocking reads can't starve them. */
+  private static final Executor drainExecutor = boundedExecutor(
+      MAX_DRAINS, "OkHttp AsyncBodyReader Drain");
+
+  /** Fails reads of HTTP/2 streams that stay unreadable for longer than their read timeout. */
+  private static final ScheduledThreadPoolExecutor timeoutExecutor;
+  static {
+    timeoutExecutor = new ScheduledThreadPoolExecutor(1,
+        Util.threadFactory("OkHttp AsyncBodyReader Timeout", true));
+    timeoutExecutor.setKeepAliveTime(60, TimeUnit.SECONDS);
+    timeoutExecutor.allowCoreThreadTimeOut(true);
+    timeoutExecutor.setRemoveOnCancelPolicy(true);
+  }
+
+  private final ResponseBody body;
+  private final BufferedSource source;
+  private final BodyCallback callback;
+  private final @Nullable Http2Stream stream;
+
+  /** True if a drain is scheduled or running. Guarded by this. */
+  private boolean draining;
+  /** True if the stream signaled while a drain was running. Guarded by this. */
+  private boolean signaled;
+  /** True once the callback has been sent its final event. Guarded by this. */
+  private boolean finished;
+  /** True if the stream was unreadable for longer than its read timeout. Guarded by this. */
+  private boolean timedOut;
+  /** Fires if the stream stays unreadable. Non-null only while idle. Guarded by this. */
+  private ScheduledFuture<?> timeoutFuture;
+  /** Counts scheduled timeouts so that a stale one doesn't fire. Guarded by this. */
+  private int timeoutCount;
+
+  private AsyncBodyReader(ResponseBody body, BufferedSource source, BodyCallback callback,
+      @Nullable Http2Stream stream) {
+    super("OkHttp AsyncBodyReader");
+    this.body = body;
+    this.source = source;
+    this.callback = callback;
+    this.stream = stream;
+  }
+
+  private static Executor boundedExecutor(int threadCount, String name) {
+    ThreadPoolExecutor result = new ThreadPoolExecutor(threadCount, threadCount, 60,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), Util.threadFactory(name, true));
+    result.allowCoreThreadTimeOut(true);
+    return result;
+  }
+
+  /** Reads {@code body} with blocking reads on a pooled thread. */
+  public static void readOnThread(ResponseBody body, BodyCallback callback) {
+    blockingExecutor.execute(new AsyncBodyReader(body, body.source(), callback, null));
+  }
+
+  /** Reads {@code source}, which reads from {@code stream}, as data arrives on the stream. */
+  public static void readWhenReadable(ResponseBody body, BufferedSource source,
+      BodyCallback callback, Http2Stream stream) {
+    final AsyncBodyReader reader = new AsyncBodyReader(body, source, callback, stream);
+    stream.setReadListener(new Runnable() {
+      @Override public void run() {
+        reader.signal();
+      }
+    });
+    synchronized (reader) {
+      if (!reader.draining && !reader.finished) reader.scheduleTimeout();
+    }
+  }
+
+  /** Schedules a drain, or asks the running drain to check the stream again. */
+  void signal() {
+    synchronized (this) {
+      if (finished) return;
+      cancelTimeout();
+      if (draining) {
+        signaled = true;
+        return;
+      }
+      draining = true;
+    }
+    drainExecutor.execute(this);
+  }
+
+  /** Arms the read timeout while waiting for the stream to become readable. */
+  private void scheduleTimeout() {
+    assert (Thread.holdsLock(this));
+    long timeoutNanos = stream.readTimeout().timeoutNanos();
+    if (timeoutNanos == 0L || timeoutFuture != null) return;
+    final int timeout = ++timeoutCount;
+    timeoutFuture = timeoutExecutor.schedule(new Runnable() {
+      @Override public void run() {
+        synchronized (AsyncBodyReader.this) {
+          if (timeoutFuture == null || timeout != timeoutCount) return; // Readable in time.
+          timeoutFuture = null;
+          timedOut = true;
+          draining = true;
+        }
+        drainExecutor.execute(AsyncBodyReader.this);
+      }
+    }, timeoutNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private void cancelTimeout() {
+    assert (Thread.holdsLock(this));
+    if (timeoutFuture == null) return;
+    timeoutFuture.cancel(false);
+    timeoutFuture = null;
+  }
+
+  @Override protected void execute() {
+    if (stream == null) {
+      drain();
+      return;
+    }
+
+    boolean idle = false;
+    try {
+      boolean timedOut;
+      synchronized (this) {
+        timedOut = this.timedOut;
+      }
+      if (timedOut) {
+        fail(new SocketTimeoutException("timeout"));
+        return;
+      }
+
+      while (drain()) {
+        synchronized (this) {
+          if (!signaled) {
+            draining = false;
+            scheduleTimeout();
+            idle = true;
+            return;
+          }
+          signaled = false;
+        }
+      }
+    } finally {
+      if (!idle) {
+        synchronized (this) {
+          finished = true;
+          draining = false;
+          cancelTimeout();
+        }
+      }
+    }
+  }
+
+  /**
+   * Delivers data to the callback until the source would block. Returns false once the body is
+   * finished and the callback has been notified.
+   */
+  private boolean drain() {
+    try {
+      while (stream == null || source.buffer().size() > 0 || stream.isSourceReadable()) {
+        Buffer chunk = new Buffer();
+        long read = source.read(chunk, CHUNK_SIZE);
+        if (read == -1L) {
+          Util.closeQuietly(body);
+          callback.onEnd(body);
+          return false;
+        }
+        try {
+          callback.onData(body, chunk);
+        } catch (RuntimeException e) {
+          throw new IOException("BodyCallback.onData() failed", e);
+        }
+      }
+      return true;
+    } catch (IOException e) {
+      fail(e);
+      return false;
+    }
+  }
+
+  private void fail(IOException e) {
+    Util.closeQuietly(body);
+    callback.onFailure(body, e);
+  }
+}
@@ -15,15 +15,18 @@
  */
 package okhttp3.internal.http;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.ProtocolException;
 
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.internal.Internal;
 import okhttp3.internal.Util;
 import okhttp3.internal.connection.RealConnection;
 import okhttp3.internal.connection.StreamAllocation;
+import okhttp3.internal.http1.Http1Codec;
 import okio.Buffer;
 import okio.BufferedSink;
 import okio.ForwardingSink;
@@ -80,14 +83,22 @@ public final class CallServerInterceptor implements Interceptor {
         // Write the request body if the "Expect: 100-continue" expectation was met.
         realChain.eventListener().requestBodyStart(realChain.call());
         long contentLength = request.body().contentLength();
-        CountingSink requestBodyOut =
-            new CountingSink(httpCodec.createRequestBody(request, contentLength));
-        BufferedSink bufferedRequestBody = Okio.buffer(requestBodyOut);
-
-        request.body().writeTo(bufferedRequestBody);
-        bufferedRequestBody.close();
-        realChain.eventListener()
-            .requestBodyEnd(realChain.call(), requestBodyOut.successfulCount);
+        File file = Internal.instance.requestBodyFile(request.body());
+        if (httpCodec instanceof Http1Codec && file != null
+            && !"chunked".equalsIgnoreCase(request.header("Transfer-Encoding"))) {
+          // Let the codec hand the file to the socket without copying it through okio buffers.
+          ((Http1Codec) httpCodec).writeFileRequestBody(file, contentLength);
+          realChain.eventListener().requestBodyEnd(realChain.call(), contentLength);
+        } else {
+          CountingSink requestBodyOut =
+              new CountingSink(httpCodec.createRequestBody(request, contentLength));
+          BufferedSink bufferedRequestBody = Okio.buffer(requestBodyOut);
+
+          request.body().writeTo(bufferedRequestBody);
+          bufferedRequestBody.close();
+          realChain.eventListener()
+              .requestBodyEnd(realChain.call(), requestBodyOut.successfulCount);
+        }
       } else if (!connection.isMultiplexed()) {
         /*
          * 只有在"100-continue"的情况下，执行到这里时，responseBuider才可能不为空。又因为100-continue
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package okhttp3.internal.http;
+
+import java.util.Arrays;
+
+/**
+ * Tracks the time it takes to receive response headers for recent requests and reports a
+ * percentile of those times. This is used to decide when a slow request should be hedged.
+ *
+ * <p>Samples are kept in a fixed-size ring so old latencies age out as traffic changes. The
+ * percentile is recomputed lazily, at most once every {@link #RECOMPUTE_INTERVAL} samples.
+ */
+public final class LatencyTracker {
+  /** Don't report a percentile until this many samples have been recorded. */
+  static final int MIN_SAMPLES = 32;
+  static final int RECOMPUTE_INTERVAL = 16;
+
+  private final double percentile;
+  private final long[] samples;
+  private int next;
+  private int size;
+  private int samplesSinceRecompute;
+  private long cachedPercentileMillis = -1L;
+
+  /**
+   * @param percentile a value in (0, 100), like 95.0 for the 95th percentile.
+   * @param capacity the number of recent samples to retain.
+   */
+  public LatencyTracker(double percentile, int capacity) {
+    if (percentile <= 0.0 || percentile >= 100.0) {
+      throw new IllegalArgumentException("percentile <= 0 || percentile >= 100: " + percentile);
+    }
+    if (capacity < MIN_SAMPLES) {
+      throw new IllegalArgumentException("capacity < " + MIN_SAMPLES + ": " + capacity);
+    }
+    this.percentile = percentile;
+    this.samples = new long[capacity];
+  }
+
+  public synchronized void record(long latencyMillis) {
+    samples[next] = latencyMillis;
+    next = (next + 1) % samples.length;
+    if (size < samples.length) size++;
+    samplesSinceRecompute++;
+  }
+
+  /**
+   * Returns the tracked percentile of the recorded latencies in milliseconds, or -1 if too few
+   * samples have been recorded to make a useful estimate.
+   */
+  public synchronized long percentileMillis() {
+    if (size < MIN_SAMPLES) return -1L;
+    if (cachedPercentileMillis == -1L || samplesSinceRecompute >= RECOMPUTE_INTERVAL) {
+      long[] sorted = Arrays.copyOf(samples, size);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+      cachedPercentileMillis = sorted[Math.max(0, Math.min(size - 1, index))];
+      samplesSinceRecompute = 0;
+    }
+    return cachedPercentileMillis;
+  }
+}
@@ -112,6 +112,12 @@ public final class RealInterceptorChain implements Interceptor.Chain {
         request, call, eventListener, connectTimeout, readTimeout, millis);
   }
 
+  /** Returns a copy of this chain that reports its events to {@code eventListener}. */
+  RealInterceptorChain withEventListener(EventListener eventListener) {
+    return new RealInterceptorChain(interceptors, streamAllocation, httpCodec, connection, index,
+        request, call, eventListener, connectTimeout, readTimeout, writeTimeout);
+  }
+
   public StreamAllocation streamAllocation() {
     return streamAllocation;
   }
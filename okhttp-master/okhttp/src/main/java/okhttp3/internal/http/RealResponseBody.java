@@ -16,8 +16,10 @@
 package okhttp3.internal.http;
 
 import javax.annotation.Nullable;
+import okhttp3.BodyCallback;
 import okhttp3.MediaType;
 import okhttp3.ResponseBody;
+import okhttp3.internal.http2.Http2Stream;
 import okio.BufferedSource;
 
 public final class RealResponseBody extends ResponseBody {
@@ -28,12 +30,20 @@ public final class RealResponseBody extends ResponseBody {
   private final @Nullable String contentTypeString;
   private final long contentLength;
   private final BufferedSource source;
+  /** The HTTP/2 stream that {@code source} reads, or null if it doesn't read one directly. */
+  private final @Nullable Http2Stream stream;
 
   public RealResponseBody(
       @Nullable String contentTypeString, long contentLength, BufferedSource source) {
+    this(contentTypeString, contentLength, source, null);
+  }
+
+  public RealResponseBody(@Nullable String contentTypeString, long contentLength,
+      BufferedSource source, @Nullable Http2Stream stream) {
     this.contentTypeString = contentTypeString;
     this.contentLength = contentLength;
     this.source = source;
+    this.stream = stream;
   }
 
   @Override public MediaType contentType() {
@@ -47,4 +57,13 @@ public final class RealResponseBody extends ResponseBody {
   @Override public BufferedSource source() {
     return source;
   }
+
+  @Override public void readAsync(BodyCallback callback) {
+    if (stream == null) {
+      super.readAsync(callback);
+      return;
+    }
+    if (callback == null) throw new NullPointerException("callback == null");
+    AsyncBodyReader.readWhenReadable(this, source, callback, stream);
+  }
 }
@@ -22,6 +22,13 @@ import java.net.ProtocolException;
 import java.net.Proxy;
 import java.net.SocketTimeoutException;
 import java.security.cert.CertificateException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLHandshakeException;
@@ -40,6 +47,8 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.Route;
+import okhttp3.internal.Internal;
+import okhttp3.internal.Util;
 import okhttp3.internal.connection.RouteException;
 import okhttp3.internal.connection.StreamAllocation;
 import okhttp3.internal.http2.ConnectionShutdownException;
@@ -73,9 +82,21 @@ public final class RetryAndFollowUpInterceptor implements Interceptor {
    */
   private static final int MAX_FOLLOW_UPS = 20;
 
+  /** The most threads running hedged attempts at once. Further requests aren't hedged. */
+  private static final int MAX_HEDGE_THREADS = 64;
+
+  /**
+   * Background threads run the attempts of hedged requests while the calling thread waits for the
+   * first of them to return.
+   */
+  private static final Executor hedgeExecutor = new ThreadPoolExecutor(0 /* corePoolSize */,
+      MAX_HEDGE_THREADS /* maximumPoolSize */, 60L /* keepAliveTime */, TimeUnit.SECONDS,
+      new SynchronousQueue<Runnable>(), Util.threadFactory("OkHttp Hedged Request", true));
+
   private final OkHttpClient client;
   private final boolean forWebSocket;
-  private StreamAllocation streamAllocation;
+  private volatile StreamAllocation streamAllocation;
+  private volatile StreamAllocation hedgeStreamAllocation;
   private Object callStackTrace;
   private volatile boolean canceled;
 
@@ -97,6 +118,8 @@ public final class RetryAndFollowUpInterceptor implements Interceptor {
     canceled = true;
     StreamAllocation streamAllocation = this.streamAllocation;
     if (streamAllocation != null) streamAllocation.cancel();
+    StreamAllocation hedgeStreamAllocation = this.hedgeStreamAllocation;
+    if (hedgeStreamAllocation != null) hedgeStreamAllocation.cancel();
   }
 
   public boolean isCanceled() {
@@ -116,6 +139,7 @@ public final class RetryAndFollowUpInterceptor implements Interceptor {
     RealInterceptorChain realChain = (RealInterceptorChain) chain;
     Call call = realChain.call();
     EventListener eventListener = realChain.eventListener();
+    LatencyTracker hedgeLatencyTracker = Internal.instance.hedgeLatencyTracker(client);
 
     /*
      * 在RetryAndFollowUpInterceptor中创建了streamAllocation
@@ -147,7 +171,9 @@ public final class RetryAndFollowUpInterceptor implements Interceptor {
       Response response;
       boolean releaseConnection = true;
       try {
-        response = realChain.proceed(request, streamAllocation, null, null);
+        response = hedgeLatencyTracker != null && isHedgeable(request)
+            ? proceedHedged(realChain, request, hedgeLatencyTracker)
+            : realChain.proceed(request, streamAllocation, null, null);
         releaseConnection = false;
       } catch (RouteException e) {
         // The attempt to connect via a route failed. The request will not have been sent.
@@ -214,6 +240,113 @@ public final class RetryAndFollowUpInterceptor implements Interceptor {
     }
   }
 
+  /**
+   * Returns true if {@code request} may be sent twice concurrently. Only safe methods without a
+   * request body are hedged.
+   */
+  private boolean isHedgeable(Request request) {
+    if (forWebSocket || request.body() != null) return false;
+    String method = request.method();
+    return method.equals("GET") || method.equals("HEAD");
+  }
+
+  /**
+   * Proceeds with {@code request} on a background thread. If no response arrives within the hedge
+   * delay a second attempt is started on a new stream allocation, which won't share the primary's
+   * HTTP/1 connection. The first attempt to return a response wins and the other is canceled; its
+   * response body is closed and its stream allocation released once it returns.
+   *
+   * <p>Until the latency tracker has enough samples to pick a hedge delay, and whenever the hedge
+   * executor is saturated, requests proceed on the calling thread without hedging.
+   *
+   * <p>The second attempt's stream allocation reports connection events to the call's {@link
+   * EventListener}, so that a winning hedge carries on reporting for the rest of the call. Its
+   * request and response events aren't reported, so the listener sees those of the primary only.
+   *
+   * <p>The latency tracker records the primary attempt's latency. If the hedge wins, the primary is
+   * canceled and the time it had taken by then is recorded. That is a lower bound but it is at
+   * least the hedge delay, so it still ranks above the percentile the delay came from.
+   *
+   * <p>If every attempt fails this throws the primary attempt's exception so that the usual
+   * recovery applies to {@link #streamAllocation}.
+   */
+  private Response proceedHedged(RealInterceptorChain realChain, Request request,
+      LatencyTracker latencyTracker) throws IOException {
+    long startNanos = System.nanoTime();
+    long percentileMillis = latencyTracker.percentileMillis();
+    if (percentileMillis == -1L) {
+      // Without a hedge delay there's nothing to gain from waiting on another thread.
+      Response response = realChain.proceed(request, streamAllocation, null, null);
+      latencyTracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+      return response;
+    }
+    long delayMillis = Math.max(percentileMillis, client.hedgeMinDelayMillis());
+
+    BlockingQueue<HedgedAttempt> completed = new LinkedBlockingQueue<>();
+    HedgedAttempt primary = new HedgedAttempt(realChain, request, streamAllocation, completed);
+    HedgedAttempt hedge = null;
+    try {
+      hedgeExecutor.execute(primary);
+    } catch (RejectedExecutionException e) {
+      return realChain.proceed(request, streamAllocation, null, null);
+    }
+
+    HedgedAttempt winner;
+    try {
+      HedgedAttempt first = completed.poll(delayMillis, TimeUnit.MILLISECONDS);
+
+      if (first == null && !canceled) {
+        StreamAllocation hedgeAllocation = new StreamAllocation(client.connectionPool(),
+            createAddress(request.url()), realChain.call(), realChain.eventListener(),
+            callStackTrace);
+        HedgedAttempt attempt = new HedgedAttempt(
+            realChain.withEventListener(EventListener.NONE), request, hedgeAllocation, completed);
+        hedgeStreamAllocation = hedgeAllocation;
+        try {
+          hedgeExecutor.execute(attempt);
+          hedge = attempt;
+        } catch (RejectedExecutionException e) {
+          hedgeStreamAllocation = null;
+          hedgeAllocation.release();
+        }
+      }
+      if (first == null) first = completed.take();
+
+      winner = first;
+      if (winner.response == null && hedge != null) {
+        // The first attempt failed. Give the other one a chance before giving up.
+        HedgedAttempt second = completed.take();
+        if (second.response != null) winner = second;
+      }
+    } catch (InterruptedException e) {
+      // Both attempts clean up after themselves when they return. The primary attempt may still be
+      // using the stream allocation, so leave the caller a fresh one to release.
+      primary.abandon();
+      if (hedge != null) hedge.abandon();
+      hedgeStreamAllocation = null;
+      streamAllocation = new StreamAllocation(client.connectionPool(),
+          createAddress(request.url()), realChain.call(), EventListener.NONE, callStackTrace);
+      throw new InterruptedIOException();
+    }
+
+    if (hedge != null) {
+      // If both attempts failed, recover from the primary's failure.
+      if (winner.response == null) winner = primary;
+      HedgedAttempt loser = winner == primary ? hedge : primary;
+      loser.abandon();
+      if (winner == hedge) streamAllocation = hedge.streamAllocation;
+      hedgeStreamAllocation = null;
+    }
+
+    if (winner.response == null) {
+      if (winner.unchecked != null) throw winner.unchecked;
+      throw winner.failure;
+    }
+    long primaryDoneNanos = winner == primary ? primary.doneNanos : System.nanoTime();
+    latencyTracker.record(TimeUnit.NANOSECONDS.toMillis(primaryDoneNanos - startNanos));
+    return winner.response;
+  }
+
   private Address createAddress(HttpUrl url) {
     SSLSocketFactory sslSocketFactory = null;
     HostnameVerifier hostnameVerifier = null;
@@ -401,4 +534,87 @@ public final class RetryAndFollowUpInterceptor implements Interceptor {
         && url.port() == followUp.port()
         && url.scheme().equals(followUp.scheme());
   }
+
+  /**
+   * One of the concurrent attempts of a hedged request. When it completes it enqueues itself on
+   * {@code completed}, unless it was abandoned in which case it releases its own resources.
+   */
+  private static final class HedgedAttempt implements Runnable {
+    final RealInterceptorChain chain;
+    final Request request;
+    final StreamAllocation streamAllocation;
+    final BlockingQueue<HedgedAttempt> completed;
+
+    /** Exactly one of these is non-null once the attempt is done. */
+    Response response;
+    IOException failure;
+    RuntimeException unchecked;
+    /** The {@link System#nanoTime} when this attempt returned. */
+    long doneNanos;
+
+    private boolean done;
+    private boolean abandoned;
+
+    HedgedAttempt(RealInterceptorChain chain, Request request, StreamAllocation streamAllocation,
+        BlockingQueue<HedgedAttempt> completed) {
+      this.chain = chain;
+      this.request = request;
+      this.streamAllocation = streamAllocation;
+      this.completed = completed;
+    }
+
+    @Override public void run() {
+      Response response = null;
+      IOException failure = null;
+      RuntimeException unchecked = null;
+      try {
+        response = chain.proceed(request, streamAllocation, null, null);
+      } catch (IOException e) {
+        failure = e;
+      } catch (RuntimeException e) {
+        unchecked = e;
+      } finally {
+        if (response == null && failure == null && unchecked == null) {
+          unchecked = new IllegalStateException("Hedged attempt failed: " + request);
+        }
+        boolean discard;
+        synchronized (this) {
+          this.doneNanos = System.nanoTime();
+          this.response = response;
+          this.failure = failure;
+          this.unchecked = unchecked;
+          this.done = true;
+          discard = abandoned;
+        }
+        if (discard) {
+          discard();
+        } else {
+          completed.add(this);
+        }
+      }
+    }
+
+    /** Cancels this attempt and releases its resources once it completes. */
+    void abandon() {
+      boolean discard;
+      synchronized (this) {
+        abandoned = true;
+        discard = done;
+      }
+      if (discard) {
+        discard();
+      } else {
+        streamAllocation.cancel();
+      }
+    }
+
+    private void discard() {
+      if (response != null) {
+        closeQuietly(response.body());
+      } else {
+        streamAllocation.streamFailed(failure);
+      }
+      streamAllocation.release();
+    }
+  }
 }
@@ -16,8 +16,14 @@
 package okhttp3.internal.http1;
 
 import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
 
 import okhttp3.Headers;
 import okhttp3.HttpUrl;
@@ -34,6 +40,7 @@ import okhttp3.internal.http.HttpHeaders;
 import okhttp3.internal.http.RealResponseBody;
 import okhttp3.internal.http.RequestLine;
 import okhttp3.internal.http.StatusLine;
+import okio.AsyncTimeout;
 import okio.Buffer;
 import okio.BufferedSink;
 import okio.BufferedSource;
@@ -76,6 +83,7 @@ public final class Http1Codec implements HttpCodec {
   private static final int STATE_READING_RESPONSE_BODY = 5;
   private static final int STATE_CLOSED = 6;
   private static final int HEADER_LIMIT = 256 * 1024;
+  private static final int FILE_COPY_BUFFER_SIZE = 256 * 1024;
 
   /** The client that configures this stream. May be null for HTTPS proxy tunnels. */
   final OkHttpClient client;
@@ -235,6 +243,49 @@ public final class Http1Codec implements HttpCodec {
     return new ChunkedSink();
   }
 
+  /**
+   * Writes {@code byteCount} bytes of {@code file} as a fixed-length request body. The file is read
+   * in large blocks and written straight to the socket's stream, skipping okio's segments.
+   */
+  public void writeFileRequestBody(File file, long byteCount) throws IOException {
+    if (state != STATE_OPEN_REQUEST_BODY) throw new IllegalStateException("state: " + state);
+    state = STATE_WRITING_REQUEST_BODY;
+
+    // Headers are still buffered in the sink. They must precede the body on the wire.
+    sink.flush();
+
+    Socket socket = streamAllocation.connection().socket();
+    Timeout writeTimeout = sink.timeout();
+    AsyncTimeout asyncTimeout = writeTimeout instanceof AsyncTimeout
+        ? (AsyncTimeout) writeTimeout
+        : null;
+    if (asyncTimeout != null) asyncTimeout.enter();
+    boolean throwOnTimeout = false;
+    FileInputStream in = new FileInputStream(file);
+    try {
+      copyFile(in, socket.getOutputStream(), byteCount);
+      throwOnTimeout = true;
+    } finally {
+      Util.closeQuietly(in);
+      if (asyncTimeout != null && asyncTimeout.exit() && throwOnTimeout) {
+        throw new SocketTimeoutException("timeout");
+      }
+    }
+
+    state = STATE_READ_RESPONSE_HEADERS;
+  }
+
+  private void copyFile(InputStream in, OutputStream out, long byteCount) throws IOException {
+    byte[] buffer = new byte[(int) Math.min(byteCount, FILE_COPY_BUFFER_SIZE)];
+    for (long remaining = byteCount; remaining > 0L; ) {
+      int read = in.read(buffer, 0, (int) Math.min(remaining, buffer.length));
+      if (read == -1) throw new ProtocolException("unexpected end of stream");
+      out.write(buffer, 0, read);
+      remaining -= read;
+    }
+    out.flush();
+  }
+
   public Sink newFixedLengthSink(long contentLength) {
     if (state != STATE_OPEN_REQUEST_BODY) throw new IllegalStateException("state: " + state);
     state = STATE_WRITING_REQUEST_BODY;
@@ -190,7 +190,7 @@ public final class Http2Codec implements HttpCodec {
     String contentType = response.header("Content-Type");
     long contentLength = HttpHeaders.contentLength(response);
     Source source = new StreamFinishingSource(stream.getSource());
-    return new RealResponseBody(contentType, contentLength, Okio.buffer(source));
+    return new RealResponseBody(contentType, contentLength, Okio.buffer(source), stream);
   }
 
   @Override public void cancel() {
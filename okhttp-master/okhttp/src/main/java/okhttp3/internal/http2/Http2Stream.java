@@ -72,6 +72,9 @@ public final class Http2Stream {
    */
   ErrorCode errorCode = null;
 
+  /** Run when the source becomes readable without blocking. Guarded by this. */
+  private Runnable readListener;
+
   Http2Stream(int id, Http2Connection connection, boolean outFinished, boolean inFinished,
       List<Header> requestHeaders) {
     if (connection == null) throw new NullPointerException("connection == null");
@@ -200,6 +203,37 @@ public final class Http2Stream {
     return source;
   }
 
+  /**
+   * Returns true if reading {@linkplain #getSource the source} won't block: it has buffered data,
+   * or it is finished, closed or failed.
+   */
+  public synchronized boolean isSourceReadable() {
+    return source.readBuffer.size() > 0 || source.finished || source.closed || errorCode != null;
+  }
+
+  /**
+   * Sets a listener to run each time {@linkplain #isSourceReadable the source becomes readable}.
+   * The listener runs on the connection's reader thread so it must not block; it is also run
+   * immediately if the source is already readable.
+   */
+  public void setReadListener(Runnable readListener) {
+    boolean readable;
+    synchronized (this) {
+      this.readListener = readListener;
+      readable = isSourceReadable();
+    }
+    if (readable) readListener.run();
+  }
+
+  void notifyReadListener() {
+    assert (!Thread.holdsLock(Http2Stream.this));
+    Runnable readListener;
+    synchronized (this) {
+      readListener = this.readListener;
+    }
+    if (readListener != null) readListener.run();
+  }
+
   /**
    * Returns a sink that can be used to write data to the peer.
    *
@@ -251,6 +285,7 @@ public final class Http2Stream {
       notifyAll();
     }
     connection.removeStream(id);
+    notifyReadListener();
     return true;
   }
 
@@ -292,13 +327,17 @@ public final class Http2Stream {
     if (!open) {
       connection.removeStream(id);
     }
+    notifyReadListener();
   }
 
-  synchronized void receiveRstStream(ErrorCode errorCode) {
-    if (this.errorCode == null) {
+  void receiveRstStream(ErrorCode errorCode) {
+    assert (!Thread.holdsLock(Http2Stream.this));
+    synchronized (this) {
+      if (this.errorCode != null) return;
       this.errorCode = errorCode;
       notifyAll();
     }
+    notifyReadListener();
   }
 
   /**
@@ -413,6 +452,7 @@ public final class Http2Stream {
           }
         }
       }
+      notifyReadListener();
     }
 
     @Override public Timeout timeout() {
@@ -862,6 +862,13 @@ public abstract class PagedList<T> extends AbstractList<T> {
         @SuppressWarnings("WeakerAccess")
         public static final int MAX_SIZE_UNBOUNDED = Integer.MAX_VALUE;
 
+        /**
+         * When {@link #maxConcurrentLoads} is set to {@code MAX_CONCURRENT_LOADS_UNBOUNDED}, every
+         * page is loaded as soon as it enters the prefetch window.
+         */
+        @SuppressWarnings("WeakerAccess")
+        public static final int MAX_CONCURRENT_LOADS_UNBOUNDED = Integer.MAX_VALUE;
+
         /**
          * Size of each page loaded by the PagedList.
          */
@@ -903,13 +910,25 @@ public abstract class PagedList<T> extends AbstractList<T> {
         @SuppressWarnings("WeakerAccess")
         public final int initialLoadSizeHint;
 
+        /**
+         * Defines the maximum number of pages a PagedList loading from a
+         * {@link PositionalDataSource} with placeholders keeps loading at once.
+         *
+         * @see #MAX_CONCURRENT_LOADS_UNBOUNDED
+         * @see Builder#setMaxConcurrentLoads(int)
+         */
+        @SuppressWarnings("WeakerAccess")
+        public final int maxConcurrentLoads;
+
         Config(int pageSize, int prefetchDistance,
-                boolean enablePlaceholders, int initialLoadSizeHint, int maxSize) {
+                boolean enablePlaceholders, int initialLoadSizeHint, int maxSize,
+                int maxConcurrentLoads) {
             this.pageSize = pageSize;
             this.prefetchDistance = prefetchDistance;
             this.enablePlaceholders = enablePlaceholders;
             this.initialLoadSizeHint = initialLoadSizeHint;
             this.maxSize = maxSize;
+            this.maxConcurrentLoads = maxConcurrentLoads;
         }
 
         /**
@@ -925,6 +944,7 @@ public abstract class PagedList<T> extends AbstractList<T> {
             private int mInitialLoadSizeHint = -1;
             private boolean mEnablePlaceholders = true;
             private int mMaxSize = MAX_SIZE_UNBOUNDED;
+            private int mMaxConcurrentLoads = MAX_CONCURRENT_LOADS_UNBOUNDED;
 
             /**
              * Defines the number of items loaded at once from the DataSource.
@@ -1069,6 +1089,40 @@ public abstract class PagedList<T> extends AbstractList<T> {
                 return this;
             }
 
+            /**
+             * Defines how many pages may be loading at once.
+             * <p>
+             * This only applies to a {@link PositionalDataSource} with placeholders enabled, which
+             * can load any page independently. Other DataSources load one page at a time in each
+             * direction, since each page is requested with a key from the previous one.
+             * <p>
+             * When more pages are needed than may be loading at once, those closest to the most
+             * recent access are loaded first, and pages the user has scrolled away from before
+             * their load started are not loaded at all. A few loads in flight let a high latency
+             * DataSource, such as a network backend, keep up with flings, while loading pages
+             * one by one makes sure the visible ones come first.
+             * <p>
+             * If not set, defaults to {@code MAX_CONCURRENT_LOADS_UNBOUNDED}, which starts
+             * loading every page as soon as it enters the prefetch window.
+             *
+             * @param maxConcurrentLoads Maximum number of pages loading at once, or
+             *                           {@code MAX_CONCURRENT_LOADS_UNBOUNDED}.
+             * @return this
+             *
+             * @see Config#MAX_CONCURRENT_LOADS_UNBOUNDED
+             * @see Config#maxConcurrentLoads
+             */
+            @SuppressWarnings("WeakerAccess")
+            @NonNull
+            public Builder setMaxConcurrentLoads(@IntRange(from = 1) int maxConcurrentLoads) {
+                if (maxConcurrentLoads < 1) {
+                    throw new IllegalArgumentException(
+                            "Maximum concurrent loads must be a positive number");
+                }
+                mMaxConcurrentLoads = maxConcurrentLoads;
+                return this;
+            }
+
             /**
              * Creates a {@link Config} with the given parameters.
              *
@@ -1096,7 +1150,7 @@ public abstract class PagedList<T> extends AbstractList<T> {
                 }
 
                 return new Config(mPageSize, mPrefetchDistance,
-                        mEnablePlaceholders, mInitialLoadSizeHint, mMaxSize);
+                        mEnablePlaceholders, mInitialLoadSizeHint, mMaxSize, mMaxConcurrentLoads);
             }
         }
     }
@@ -21,6 +21,7 @@ import androidx.annotation.Nullable;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -38,6 +39,8 @@ final class PagedStorage<T> extends AbstractList<T> {
     @SuppressWarnings("MismatchedQueryAndUpdateOfCollection")
     private static final List PLACEHOLDER_LIST = new ArrayList();
 
+    private static final int[] EMPTY_PAGE_STARTS = new int[0];
+
     // Always set
     private int mLeadingNullCount;
     /**
@@ -75,6 +78,19 @@ final class PagedStorage<T> extends AbstractList<T> {
     private int mNumberPrepended;
     private int mNumberAppended;
 
+    /**
+     * Page table used when not tiled: local index at which each page of {@link #mPages} starts, so
+     * {@link #get(int)} can binary search for a page instead of walking all of them. The first
+     * {@link #mPageStartCount} entries are valid, which is every page when not tiled, and none
+     * while tiled.
+     */
+    private int[] mPageStarts;
+    private int mPageStartCount;
+
+    // Page found by the last non-tiled get(), tried first since accesses are mostly sequential.
+    // Always range checked before use, so racy reads on a shared snapshot are harmless.
+    private int mLastPageIndex;
+
     PagedStorage() {
         mLeadingNullCount = 0;
         mPages = new ArrayList<>();
@@ -85,6 +101,9 @@ final class PagedStorage<T> extends AbstractList<T> {
         mPageSize = 1;
         mNumberPrepended = 0;
         mNumberAppended = 0;
+        mPageStarts = EMPTY_PAGE_STARTS;
+        mPageStartCount = 0;
+        mLastPageIndex = 0;
     }
 
     PagedStorage(int leadingNulls, List<T> page, int trailingNulls) {
@@ -102,6 +121,9 @@ final class PagedStorage<T> extends AbstractList<T> {
         mPageSize = other.mPageSize;
         mNumberPrepended = other.mNumberPrepended;
         mNumberAppended = other.mNumberAppended;
+        mPageStarts = Arrays.copyOf(other.mPageStarts, other.mPageStartCount);
+        mPageStartCount = other.mPageStartCount;
+        mLastPageIndex = other.mLastPageIndex;
     }
 
     PagedStorage<T> snapshot() {
@@ -124,6 +146,7 @@ final class PagedStorage<T> extends AbstractList<T> {
 
         mNumberPrepended = 0;
         mNumberAppended = 0;
+        rebuildPageStarts();
     }
 
     void init(int leadingNulls, @NonNull List<T> page, int trailingNulls, int positionOffset,
@@ -152,18 +175,9 @@ final class PagedStorage<T> extends AbstractList<T> {
             localPageIndex = localIndex / mPageSize;
             pageInternalIndex = localIndex % mPageSize;
         } else {
-            // it's inside mPages, but page sizes aren't regular. Walk to correct tile.
-            // Pages can only be null while tiled, so accessing page count is safe.
-            pageInternalIndex = localIndex;
-            final int localPageCount = mPages.size();
-            for (localPageIndex = 0; localPageIndex < localPageCount; localPageIndex++) {
-                int pageSize = mPages.get(localPageIndex).size();
-                if (pageSize > pageInternalIndex) {
-                    // stop, found the page
-                    break;
-                }
-                pageInternalIndex -= pageSize;
-            }
+            // it's inside mPages, but page sizes aren't regular. Look up the page table.
+            localPageIndex = findPageIndex(localIndex);
+            pageInternalIndex = localIndex - mPageStarts[localPageIndex];
         }
 
         List<T> page = mPages.get(localPageIndex);
@@ -174,6 +188,48 @@ final class PagedStorage<T> extends AbstractList<T> {
         return page.get(pageInternalIndex);
     }
 
+    /**
+     * Returns the index of the page holding the passed local index, when not tiled.
+     */
+    private int findPageIndex(int localIndex) {
+        int pageIndex = mLastPageIndex;
+        if (pageIndex < mPageStartCount && mPageStarts[pageIndex] <= localIndex
+                && (pageIndex + 1 == mPageStartCount || mPageStarts[pageIndex + 1] > localIndex)) {
+            return pageIndex;
+        }
+        pageIndex = Arrays.binarySearch(mPageStarts, 0, mPageStartCount, localIndex);
+        if (pageIndex < 0) {
+            // not a page start, so take the last page starting before localIndex
+            pageIndex = -pageIndex - 2;
+        }
+        // empty pages share their start with the next page, skip past them
+        while (pageIndex + 1 < mPageStartCount && mPageStarts[pageIndex + 1] <= localIndex) {
+            pageIndex++;
+        }
+        mLastPageIndex = pageIndex;
+        return pageIndex;
+    }
+
+    /**
+     * Recomputes the page table from {@link #mPages}, or clears it if tiled.
+     */
+    private void rebuildPageStarts() {
+        if (isTiled()) {
+            mPageStartCount = 0;
+            return;
+        }
+        final int pageCount = mPages.size();
+        if (mPageStarts.length < pageCount) {
+            mPageStarts = new int[Math.max(pageCount, mPageStarts.length * 2)];
+        }
+        int start = 0;
+        for (int i = 0; i < pageCount; i++) {
+            mPageStarts[i] = start;
+            start += mPages.get(i).size();
+        }
+        mPageStartCount = pageCount;
+    }
+
     /**
      * Returns true if all pages are the same size, except for the last, which may be smaller
      */
@@ -303,6 +359,7 @@ final class PagedStorage<T> extends AbstractList<T> {
         }
 
         if (totalRemoved > 0) {
+            rebuildPageStarts();
             if (insertNulls) {
                 // replace removed items with nulls
                 int previousLeadingNulls = mLeadingNullCount;
@@ -329,6 +386,8 @@ final class PagedStorage<T> extends AbstractList<T> {
         }
 
         if (totalRemoved > 0) {
+            // remaining pages keep their start
+            mPageStartCount = isTiled() ? 0 : mPages.size();
             int newEndPosition = mLeadingNullCount + mStorageCount;
             if (insertNulls) {
                 // replace removed items with nulls
@@ -342,6 +401,50 @@ final class PagedStorage<T> extends AbstractList<T> {
         return totalRemoved > 0;
     }
 
+    /**
+     * Swap the loaded pages furthest from lastLoad to nulls, until at most maxSize items are
+     * loaded. Tiling only.
+     * <p>
+     * Trimming stops at the first page that is still loading and never touches inner pages, so
+     * it can't bound pages left behind when jumping around a large list, e.g. with a fast
+     * scroller. Pages within requiredRemaining / 2 of lastLoad cover the prefetch window, and are
+     * never dropped.
+     */
+    boolean dropDistantPages(int lastLoad, int maxSize, int requiredRemaining,
+            @NonNull Callback callback) {
+        if (!isTiled()) {
+            return false;
+        }
+        final int minimumDistance = requiredRemaining / 2;
+        boolean dropped = false;
+        while (mLoadedCount > maxSize) {
+            int furthestPageIndex = -1;
+            int furthestDistance = minimumDistance;
+            for (int i = 0; i < mPages.size(); i++) {
+                List<T> page = mPages.get(i);
+                // a short (last) page isn't dropped, since null pages are counted as mPageSize
+                if (page == null || page == PLACEHOLDER_LIST || page.size() != mPageSize) {
+                    continue;
+                }
+                int start = mLeadingNullCount + i * mPageSize;
+                int distance = Math.max(start - lastLoad, lastLoad - (start + mPageSize - 1));
+                if (distance > furthestDistance) {
+                    furthestPageIndex = i;
+                    furthestDistance = distance;
+                }
+            }
+            if (furthestPageIndex < 0) {
+                break;
+            }
+            mPages.set(furthestPageIndex, null);
+            mLoadedCount -= mPageSize;
+            callback.onPagesSwappedToPlaceholder(
+                    mLeadingNullCount + furthestPageIndex * mPageSize, mPageSize);
+            dropped = true;
+        }
+        return dropped;
+    }
+
     // ---------------- Contiguous API -------------------
 
     T getFirstLoadedItem() {
@@ -377,6 +480,7 @@ final class PagedStorage<T> extends AbstractList<T> {
         mPages.add(0, page);
         mLoadedCount += count;
         mStorageCount += count;
+        rebuildPageStarts();
 
         final int changedCount = Math.min(mLeadingNullCount, count);
         final int addedCount = count - changedCount;
@@ -410,6 +514,15 @@ final class PagedStorage<T> extends AbstractList<T> {
         mPages.add(page);
         mLoadedCount += count;
         mStorageCount += count;
+        if (!isTiled() && mPageStartCount == mPages.size() - 1) {
+            // already untiled, so only the new page needs an entry
+            if (mPageStartCount == mPageStarts.length) {
+                mPageStarts = Arrays.copyOf(mPageStarts, Math.max(8, mPageStartCount * 2));
+            }
+            mPageStarts[mPageStartCount++] = mStorageCount - count;
+        } else {
+            rebuildPageStarts();
+        }
 
         final int changedCount = Math.min(mTrailingNullCount, count);
         final int addedCount = count - changedCount;
@@ -524,6 +637,7 @@ final class PagedStorage<T> extends AbstractList<T> {
             } else {
                 trimFromEnd(true, maxSize, requiredRemaining, callback);
             }
+            dropDistantPages(lastLoad, maxSize, requiredRemaining, callback);
         }
     }
 
@@ -621,6 +735,18 @@ final class PagedStorage<T> extends AbstractList<T> {
         }
     }
 
+    /**
+     * Swap the placeholder of a page whose load was never started back to null, so that a later
+     * allocatePlaceholders call allocates it again.
+     */
+    void removePlaceholder(int pageIndex) {
+        int localPageIndex = pageIndex - mLeadingNullCount / mPageSize;
+        if (localPageIndex >= 0 && localPageIndex < mPages.size()
+                && mPages.get(localPageIndex) == PLACEHOLDER_LIST) {
+            mPages.set(localPageIndex, null);
+        }
+    }
+
     public boolean hasPage(int pageSize, int index) {
         // NOTE: we pass pageSize here to avoid in case mPageSize
         // not fully initialized (when last page only one loaded)
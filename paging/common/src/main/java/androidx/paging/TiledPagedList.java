@@ -17,10 +17,12 @@
 package androidx.paging;
 
 import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
 
@@ -29,6 +31,13 @@ class TiledPagedList<T> extends PagedList<T>
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     final PositionalDataSource<T> mDataSource;
 
+    // Pages with a placeholder, waiting for a load to be started. Main thread only.
+    private final ArrayList<Integer> mPendingPageLoads = new ArrayList<>();
+
+    // Number of tile loads started, whose result hasn't been received yet. Main thread only.
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    int mLoadsInFlight = 0;
+
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     androidx.paging.PageResult.Receiver<T> mReceiver = new androidx.paging.PageResult.Receiver<T>() {
         // Creation thread for initial synchronous load, otherwise main thread
@@ -37,6 +46,10 @@ class TiledPagedList<T> extends PagedList<T>
         @Override
         public void onPageResult(@androidx.paging.PageResult.ResultType int type,
                 @NonNull androidx.paging.PageResult<T> pageResult) {
+            if (type == androidx.paging.PageResult.TILE) {
+                mLoadsInFlight--;
+            }
+
             if (pageResult.isInvalid()) {
                 detach();
                 return;
@@ -78,6 +91,11 @@ class TiledPagedList<T> extends PagedList<T>
                                         && (pageResult.positionOffset + mConfig.pageSize >= size)));
                 deferBoundaryCallbacks(deferEmpty, deferBegin, deferEnd);
             }
+
+            if (type == androidx.paging.PageResult.TILE) {
+                // a load slot was freed
+                dispatchPageLoads();
+            }
         }
     };
 
@@ -166,6 +184,43 @@ class TiledPagedList<T> extends PagedList<T>
     @Override
     protected void loadAroundInternal(int index) {
         mStorage.allocatePlaceholders(index, mConfig.prefetchDistance, mConfig.pageSize, this);
+        dispatchPageLoads();
+    }
+
+    /**
+     * Start loading pending pages, closest to the most recent access first, until
+     * {@link Config#maxConcurrentLoads} loads are in flight.
+     * <p>
+     * Pending pages outside of the prefetch window of the most recent access are cancelled, and
+     * their placeholder is removed, so a fling doesn't leave a backlog of loads the user has
+     * already scrolled past. They're allocated again if the user scrolls back.
+     */
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    @MainThread
+    void dispatchPageLoads() {
+        final int pageSize = mConfig.pageSize;
+        final int minimumPage = Math.max(mLastLoad - mConfig.prefetchDistance, 0) / pageSize;
+        final int maximumPage = (mLastLoad + mConfig.prefetchDistance) / pageSize;
+        for (int i = mPendingPageLoads.size() - 1; i >= 0; i--) {
+            int pageIndex = mPendingPageLoads.get(i);
+            if (pageIndex < minimumPage || pageIndex > maximumPage) {
+                mPendingPageLoads.remove(i);
+                mStorage.removePlaceholder(pageIndex);
+            }
+        }
+
+        final int lastLoadPage = mLastLoad / pageSize;
+        while (mLoadsInFlight < mConfig.maxConcurrentLoads && !mPendingPageLoads.isEmpty()) {
+            int closest = 0;
+            for (int i = 1; i < mPendingPageLoads.size(); i++) {
+                if (Math.abs(mPendingPageLoads.get(i) - lastLoadPage)
+                        < Math.abs(mPendingPageLoads.get(closest) - lastLoadPage)) {
+                    closest = i;
+                }
+            }
+            mLoadsInFlight++;
+            loadPage(mPendingPageLoads.remove(closest));
+        }
     }
 
     @Override
@@ -194,8 +249,12 @@ class TiledPagedList<T> extends PagedList<T>
     }
 
     @Override
-    public void onPagePlaceholderInserted(final int pageIndex) {
-        // placeholder means initialize a load
+    public void onPagePlaceholderInserted(int pageIndex) {
+        // placeholder means initialize a load, once dispatchPageLoads ranks it against the others
+        mPendingPageLoads.add(pageIndex);
+    }
+
+    private void loadPage(final int pageIndex) {
         mBackgroundThreadExecutor.execute(new Runnable() {
             @Override
             public void run() {
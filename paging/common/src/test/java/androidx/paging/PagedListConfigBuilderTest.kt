@@ -33,6 +33,8 @@ class PagedListConfigBuilderTest {
         Assert.assertEquals(true, config.enablePlaceholders)
         Assert.assertEquals(10, config.prefetchDistance)
         Assert.assertEquals(PagedList.Config.MAX_SIZE_UNBOUNDED, config.maxSize)
+        Assert.assertEquals(PagedList.Config.MAX_CONCURRENT_LOADS_UNBOUNDED,
+                config.maxConcurrentLoads)
     }
 
     @Test(expected = IllegalArgumentException::class)
@@ -52,4 +54,11 @@ class PagedListConfigBuilderTest {
                 .setMaxSize(50)
                 .build()
     }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun maxConcurrentLoadsTooSmall() {
+        PagedList.Config.Builder()
+                .setPageSize(20)
+                .setMaxConcurrentLoads(0)
+    }
 }
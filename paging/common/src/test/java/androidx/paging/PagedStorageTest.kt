@@ -610,6 +610,78 @@ class PagedStorageTest {
         assertEquals(listOf("a", "b", null, "d", null, null, null, null), storage)
     }
 
+    @Test
+    fun get_nonTiledPrependAndTrim() {
+        val callback = mock(PagedStorage.Callback::class.java)
+        val storage = PagedStorage(2, createPage("c"), 2)
+
+        storage.appendPage(createPage("d", "e"), callback)
+        storage.prependPage(createPage("a", "b"), callback)
+        assertFalse(storage.isTiled)
+        assertArrayEquals(arrayOf("a", "b", "c", "d", "e"), storage.toArray())
+
+        // snapshot isn't affected by trimming the original
+        val snapshot = storage.snapshot()
+        storage.trimFromFront(false, 3, 3, callback)
+        assertArrayEquals(arrayOf("c", "d", "e"), storage.toArray())
+        assertArrayEquals(arrayOf("a", "b", "c", "d", "e"), snapshot.toArray())
+    }
+
+    private fun createTiledStorageWithGaps(callback: PagedStorage.Callback): PagedStorage<String> {
+        val storage = PagedStorage<String>()
+        storage.initAndSplit(4, listOf("e"), 3, 0, 1, callback)
+        storage.insertPage(1, listOf("b"), callback)
+        storage.insertPage(3, listOf("d"), callback)
+        storage.insertPage(6, listOf("g"), callback)
+        storage.insertPage(7, listOf("h"), callback)
+        return storage
+    }
+
+    @Test
+    fun dropDistantPages_innerPages() {
+        val callback = mock(PagedStorage.Callback::class.java)
+        val storage = createTiledStorageWithGaps(callback)
+        reset(callback)
+        assertEquals(listOf(null, "b", null, "d", "e", null, "g", "h"), storage)
+
+        // going from: -b-de-gh
+        //         to: ----e-gh
+        // unlike trimming, furthest pages are dropped one at a time, leaving others in place
+        assertTrue(storage.dropDistantPages(7, 3, 2, callback))
+        verify(callback).onPagesSwappedToPlaceholder(1, 1)
+        verify(callback).onPagesSwappedToPlaceholder(3, 1)
+        verifyNoMoreInteractions(callback)
+        assertEquals(3, storage.loadedCount)
+        assertEquals(listOf(null, null, null, null, "e", null, "g", "h"), storage)
+    }
+
+    @Test
+    fun dropDistantPages_keepsRequiredRemaining() {
+        val callback = mock(PagedStorage.Callback::class.java)
+        val storage = createTiledStorageWithGaps(callback)
+        reset(callback)
+
+        // pages within 4 of position 7 are kept, even though more than maxSize stay loaded
+        assertTrue(storage.dropDistantPages(7, 1, 8, callback))
+        verify(callback).onPagesSwappedToPlaceholder(1, 1)
+        verifyNoMoreInteractions(callback)
+        assertEquals(4, storage.loadedCount)
+        assertEquals(listOf(null, null, null, "d", "e", null, "g", "h"), storage)
+    }
+
+    @Test
+    fun dropDistantPages_nonTiled() {
+        val callback = mock(PagedStorage.Callback::class.java)
+        val storage = PagedStorage(0, createPage("a"), 0)
+        storage.appendPage(createPage("b", "c"), callback)
+        assertFalse(storage.isTiled)
+        reset(callback)
+
+        // contiguous storage is bounded by trimming only
+        assertFalse(storage.dropDistantPages(0, 1, 0, callback))
+        verifyNoMoreInteractions(callback)
+    }
+
     companion object {
         private val IGNORED_CALLBACK = object : PagedStorage.Callback {
             override fun onInitialized(count: Int) {}
@@ -67,7 +67,8 @@ class TiledPagedListTest {
         prefetchDistance: Int = pageSize,
         listData: List<Item> = ITEMS,
         boundaryCallback: PagedList.BoundaryCallback<Item>? = null,
-        maxSize: Int = PagedList.Config.MAX_SIZE_UNBOUNDED
+        maxSize: Int = PagedList.Config.MAX_SIZE_UNBOUNDED,
+        maxConcurrentLoads: Int = PagedList.Config.MAX_CONCURRENT_LOADS_UNBOUNDED
     ): TiledPagedList<Item> {
         return TiledPagedList(
                 ListDataSource(listData), mMainThread, mBackgroundThread, boundaryCallback,
@@ -76,6 +77,7 @@ class TiledPagedListTest {
                         .setInitialLoadSizeHint(pageSize * initPageCount)
                         .setPrefetchDistance(prefetchDistance)
                         .setMaxSize(maxSize)
+                        .setMaxConcurrentLoads(maxConcurrentLoads)
                         .build(),
                 loadPosition)
     }
@@ -396,6 +398,55 @@ class TiledPagedListTest {
         verify(callback).onChanged(30, 10)
     }
 
+    @Test
+    fun maxConcurrentLoads_closestFirst() {
+        val pagedList = createTiledPagedList(
+                loadPosition = 0, initPageCount = 1, maxConcurrentLoads = 1)
+        val callback = mock(PagedList.Callback::class.java)
+        pagedList.addWeakCallback(null, callback)
+        verifyLoadedPages(pagedList, 0, 1)
+
+        // pages 3 and 4 are needed, but only one is loaded at a time, starting with the closest
+        pagedList.loadAround(44)
+        mBackgroundThread.executeAll()
+        mMainThread.executeAll()
+        verifyLoadedPages(pagedList, 0, 1, 4)
+        verify(callback).onChanged(40, 5)
+        verifyNoMoreInteractions(callback)
+
+        drain()
+        verifyLoadedPages(pagedList, 0, 1, 3, 4)
+        verify(callback).onChanged(30, 10)
+        verifyNoMoreInteractions(callback)
+    }
+
+    @Test
+    fun maxConcurrentLoads_cancelPending() {
+        val pagedList = createTiledPagedList(
+                loadPosition = 0, initPageCount = 1, maxConcurrentLoads = 1)
+        val callback = mock(PagedList.Callback::class.java)
+        pagedList.addWeakCallback(null, callback)
+        verifyLoadedPages(pagedList, 0, 1)
+
+        // page 4 starts loading, page 3 waits...
+        pagedList.loadAround(44)
+
+        // but the user scrolls back before page 3 load is started, so it's cancelled
+        pagedList.loadAround(5)
+        drain()
+        verifyLoadedPages(pagedList, 0, 1, 4)
+        verify(callback).onChanged(40, 5)
+        verifyNoMoreInteractions(callback)
+
+        // cancelled page is loaded again when needed
+        pagedList.loadAround(39)
+        drain()
+        verifyLoadedPages(pagedList, 0, 1, 2, 3, 4)
+        verify(callback).onChanged(20, 10)
+        verify(callback).onChanged(30, 10)
+        verifyNoMoreInteractions(callback)
+    }
+
     @Test
     fun appendCallbackAddedLate() {
         val pagedList = createTiledPagedList(
@@ -96,6 +96,30 @@ class PagedStorageDiffHelperTest {
         }
     }
 
+    @Test
+    fun changeInLargeList() {
+        // first char is the item's identity, so these are all distinct items
+        val oldItems = List(100) { "${'a' + it}" }
+        val newItems = oldItems.toMutableList()
+        newItems[50] = newItems[50] + "2"
+        validateTwoListDiff(
+                PagedStorage(5, oldItems, 5),
+                PagedStorage(5, newItems, 5)) {
+            verify(it).onChanged(55, 1, null)
+            verifyNoMoreInteractions(it)
+        }
+    }
+
+    @Test
+    fun insertBetweenUnchanged() {
+        validateTwoListDiff(
+                PagedStorage(5, listOf("a", "b", "c", "d"), 5),
+                PagedStorage(5, listOf("a", "b", "x", "c", "d"), 5)) {
+            verify(it).onInserted(7, 1)
+            verifyNoMoreInteractions(it)
+        }
+    }
+
     @Test
     fun move() {
         validateTwoListDiff(
@@ -139,6 +163,18 @@ class PagedStorageDiffHelperTest {
         }
     }
 
+    @Test
+    fun transformAnchorIndex_unchangedTail() {
+        validateTwoListDiffTransform(
+                PagedStorage(5, listOf("a", "b", "c", "d"), 5),
+                PagedStorage(5, listOf("a", "x", "y", "c", "d"), 5)) { transformAnchorIndex ->
+            assertEquals(5, transformAnchorIndex(5))
+            // c, d are past the changed range, so are shifted by its change in size
+            assertEquals(8, transformAnchorIndex(7))
+            assertEquals(9, transformAnchorIndex(8))
+        }
+    }
+
     @Test
     fun transformAnchorIndex_move() {
         validateTwoListDiffTransform(
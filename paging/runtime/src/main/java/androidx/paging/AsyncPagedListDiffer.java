@@ -379,7 +379,7 @@ public class AsyncPagedListDiffer<T> {
         mConfig.getBackgroundThreadExecutor().execute(new Runnable() {
             @Override
             public void run() {
-                final DiffUtil.DiffResult result;
+                final PagedStorageDiffHelper.PagedDiffResult result;
                 result = androidx.paging.PagedStorageDiffHelper.computeDiff(
                         oldSnapshot.mStorage,
                         newSnapshot.mStorage,
@@ -405,7 +405,7 @@ public class AsyncPagedListDiffer<T> {
     void latchPagedList(
             @NonNull androidx.paging.PagedList<T> newList,
             @NonNull androidx.paging.PagedList<T> diffSnapshot,
-            @NonNull DiffUtil.DiffResult diffResult,
+            @NonNull PagedStorageDiffHelper.PagedDiffResult diffResult,
             int lastAccessIndex,
             @Nullable Runnable commitCallback) {
         if (mSnapshot == null || mPagedList != null) {
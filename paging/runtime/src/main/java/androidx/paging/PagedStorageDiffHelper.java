@@ -33,6 +33,10 @@ import androidx.recyclerview.widget.ListUpdateCallback;
  * To only inform DiffUtil about single loaded page in this case, by pruning all other nulls from
  * consideration.
  *
+ * Within the diff space, items that are unchanged at the start and end of both lists are skipped
+ * as well, so DiffUtil only runs over the range that changed. An invalidation that changes a few
+ * rows of a large loaded range then costs a linear scan, instead of a full DiffUtil pass.
+ *
  * @see PagedStorage#computeLeadingNulls()
  * @see PagedStorage#computeTrailingNulls()
  */
@@ -40,7 +44,7 @@ class PagedStorageDiffHelper {
     private PagedStorageDiffHelper() {
     }
 
-    static <T> DiffUtil.DiffResult computeDiff(
+    static <T> PagedDiffResult computeDiff(
             final PagedStorage<T> oldList,
             final PagedStorage<T> newList,
             final DiffUtil.ItemCallback<T> diffCallback) {
@@ -50,12 +54,36 @@ class PagedStorageDiffHelper {
         final int oldSize = oldList.size() - oldOffset - oldList.computeTrailingNulls();
         final int newSize = newList.size() - newOffset - newList.computeTrailingNulls();
 
-        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+        // skip unchanged items at the start, then at the end of the diff space
+        final int maxUnchanged = Math.min(oldSize, newSize);
+        int unchangedHead = 0;
+        while (unchangedHead < maxUnchanged
+                && isUnchanged(oldList, unchangedHead + oldOffset,
+                        newList, unchangedHead + newList.getLeadingNullCount(), diffCallback)) {
+            unchangedHead++;
+        }
+        int unchangedTail = 0;
+        while (unchangedTail < maxUnchanged - unchangedHead
+                && isUnchanged(oldList, oldOffset + oldSize - 1 - unchangedTail,
+                        newList, newList.getLeadingNullCount() + newSize - 1 - unchangedTail,
+                        diffCallback)) {
+            unchangedTail++;
+        }
+
+        final int oldChangedSize = oldSize - unchangedHead - unchangedTail;
+        final int newChangedSize = newSize - unchangedHead - unchangedTail;
+        if (oldChangedSize == 0 && newChangedSize == 0) {
+            return new PagedDiffResult(null, unchangedHead, oldSize, 0, 0);
+        }
+
+        final int oldStart = oldOffset + unchangedHead;
+        final int newStart = newList.getLeadingNullCount() + unchangedHead;
+        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
             @Nullable
             @Override
             public Object getChangePayload(int oldItemPosition, int newItemPosition) {
-                T oldItem = oldList.get(oldItemPosition + oldOffset);
-                T newItem = newList.get(newItemPosition + newList.getLeadingNullCount());
+                T oldItem = oldList.get(oldItemPosition + oldStart);
+                T newItem = newList.get(newItemPosition + newStart);
                 if (oldItem == null || newItem == null) {
                     return null;
                 }
@@ -64,18 +92,18 @@ class PagedStorageDiffHelper {
 
             @Override
             public int getOldListSize() {
-                return oldSize;
+                return oldChangedSize;
             }
 
             @Override
             public int getNewListSize() {
-                return newSize;
+                return newChangedSize;
             }
 
             @Override
             public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                T oldItem = oldList.get(oldItemPosition + oldOffset);
-                T newItem = newList.get(newItemPosition + newList.getLeadingNullCount());
+                T oldItem = oldList.get(oldItemPosition + oldStart);
+                T newItem = newList.get(newItemPosition + newStart);
                 if (oldItem == newItem) {
                     return true;
                 }
@@ -88,8 +116,8 @@ class PagedStorageDiffHelper {
 
             @Override
             public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                T oldItem = oldList.get(oldItemPosition + oldOffset);
-                T newItem = newList.get(newItemPosition + newList.getLeadingNullCount());
+                T oldItem = oldList.get(oldItemPosition + oldStart);
+                T newItem = newList.get(newItemPosition + newStart);
                 if (oldItem == newItem) {
                     return true;
                 }
@@ -101,6 +129,78 @@ class PagedStorageDiffHelper {
                 return diffCallback.areContentsTheSame(oldItem, newItem);
             }
         }, true);
+        return new PagedDiffResult(diffResult, unchangedHead, oldSize,
+                oldChangedSize, newChangedSize);
+    }
+
+    private static <T> boolean isUnchanged(PagedStorage<T> oldList, int oldIndex,
+            PagedStorage<T> newList, int newIndex, DiffUtil.ItemCallback<T> diffCallback) {
+        T oldItem = oldList.get(oldIndex);
+        T newItem = newList.get(newIndex);
+        if (oldItem == newItem) {
+            return true;
+        }
+        //noinspection SimplifiableIfStatement
+        if (oldItem == null || newItem == null) {
+            return false;
+        }
+        return diffCallback.areItemsTheSame(oldItem, newItem)
+                && diffCallback.areContentsTheSame(oldItem, newItem);
+    }
+
+    /**
+     * Diff between two PagedStorages in diff space, wrapping the DiffUtil.DiffResult computed for
+     * the range that changed, if any.
+     */
+    static class PagedDiffResult {
+        @Nullable
+        private final DiffUtil.DiffResult mDiffResult;
+        private final int mUnchangedHead;
+        private final int mOldSize;
+        private final int mOldChangedSize;
+        private final int mNewChangedSize;
+
+        PagedDiffResult(@Nullable DiffUtil.DiffResult diffResult, int unchangedHead, int oldSize,
+                int oldChangedSize, int newChangedSize) {
+            mDiffResult = diffResult;
+            mUnchangedHead = unchangedHead;
+            mOldSize = oldSize;
+            mOldChangedSize = oldChangedSize;
+            mNewChangedSize = newChangedSize;
+        }
+
+        /**
+         * @see DiffUtil.DiffResult#dispatchUpdatesTo(ListUpdateCallback)
+         */
+        void dispatchUpdatesTo(@NonNull ListUpdateCallback callback) {
+            if (mDiffResult == null) {
+                return;
+            }
+            if (mUnchangedHead != 0) {
+                callback = new OffsettingListUpdateCallback(mUnchangedHead, callback);
+            }
+            mDiffResult.dispatchUpdatesTo(callback);
+        }
+
+        /**
+         * @see DiffUtil.DiffResult#convertOldPositionToNew(int)
+         */
+        int convertOldPositionToNew(int oldListPosition) {
+            if (oldListPosition < 0 || oldListPosition >= mOldSize) {
+                throw new IndexOutOfBoundsException("Index out of bounds - passed position = "
+                        + oldListPosition + ", old list size = " + mOldSize);
+            }
+            if (oldListPosition < mUnchangedHead) {
+                return oldListPosition;
+            }
+            if (oldListPosition >= mUnchangedHead + mOldChangedSize) {
+                return oldListPosition - mOldChangedSize + mNewChangedSize;
+            }
+            // mDiffResult can't be null, since the old list changed
+            int newListPosition =
+                    mDiffResult.convertOldPositionToNew(oldListPosition - mUnchangedHead);
+            return newListPosition == -1 ? -1 : newListPosition + mUnchangedHead;
+        }
     }
 
     private static class OffsettingListUpdateCallback implements ListUpdateCallback {
@@ -148,7 +248,7 @@ class PagedStorageDiffHelper {
     static <T> void dispatchDiff(ListUpdateCallback callback,
             final PagedStorage<T> oldList,
             final PagedStorage<T> newList,
-            final DiffUtil.DiffResult diffResult) {
+            final PagedDiffResult diffResult) {
 
         final int trailingOld = oldList.computeTrailingNulls();
         final int trailingNew = newList.computeTrailingNulls();
@@ -191,7 +291,7 @@ class PagedStorageDiffHelper {
      * Given an oldPosition representing an anchor in the old data set, computes its new position
      * after the diff, or a guess if it no longer exists.
      */
-    static int transformAnchorIndex(@NonNull DiffUtil.DiffResult diffResult,
+    static int transformAnchorIndex(@NonNull PagedDiffResult diffResult,
             @NonNull PagedStorage oldList, @NonNull PagedStorage newList, final int oldPosition) {
         final int oldOffset = oldList.computeLeadingNulls();
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.benchmark
+
+import android.graphics.Color
+import android.view.View
+import android.view.ViewGroup
+import androidx.recyclerview.widget.GridLayoutManager
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import androidx.recyclerview.widget.StaggeredGridLayoutManager
+
+/**
+ * Measures and lays out the view right away with the given size, instead of waiting for the next
+ * traversal, so that a benchmark running on the UI thread observes the layout it triggered.
+ */
+internal fun View.measureAndLayout(width: Int = this.width, height: Int = this.height) {
+    measure(
+        View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY))
+    layout(left, top, left + width, top + height)
+}
+
+/**
+ * The LayoutManagers covered by the layout benchmarks, each configured the way an app with
+ * heterogeneous content would use it.
+ */
+enum class LayoutManagerType {
+    LINEAR {
+        override fun create(rv: RecyclerView) = LinearLayoutManager(rv.context)
+    },
+    GRID {
+        override fun create(rv: RecyclerView) = GridLayoutManager(rv.context, 4).apply {
+            // headers span the whole row, every third item spans half of it
+            spanSizeLookup = object : GridLayoutManager.SpanSizeLookup() {
+                override fun getSpanSize(position: Int) = when {
+                    position % 10 == 0 -> 4
+                    position % 3 == 0 -> 2
+                    else -> 1
+                }
+            }.apply {
+                isSpanIndexCacheEnabled = true
+                isSpanGroupIndexCacheEnabled = true
+            }
+        }
+    },
+    STAGGERED {
+        override fun create(rv: RecyclerView) =
+            StaggeredGridLayoutManager(3, StaggeredGridLayoutManager.VERTICAL)
+    };
+
+    abstract fun create(rv: RecyclerView): RecyclerView.LayoutManager
+}
+
+internal class VariableSizeViewHolder(view: View) : RecyclerView.ViewHolder(view)
+
+/**
+ * Displays many items of one view type whose heights vary between 40 and 120px, with minimal
+ * bind work.
+ */
+internal class VariableSizeAdapter(
+    private val count: Int = 1_000_000
+) : RecyclerView.Adapter<VariableSizeViewHolder>() {
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): VariableSizeViewHolder {
+        return VariableSizeViewHolder(View(parent.context).apply {
+            layoutParams = RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT)
+        })
+    }
+
+    override fun onBindViewHolder(holder: VariableSizeViewHolder, position: Int) {
+        holder.itemView.layoutParams.height = heightOf(position)
+        val color = position % 256
+        holder.itemView.setBackgroundColor(Color.rgb(color, color, color))
+    }
+
+    override fun getItemCount() = count
+
+    companion object {
+        fun heightOf(position: Int) = 40 + (position * 37 % 5) * 20
+    }
+}
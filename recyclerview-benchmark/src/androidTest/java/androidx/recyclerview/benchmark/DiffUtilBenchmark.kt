@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.recyclerview.widget.DiffUtil
+import androidx.recyclerview.widget.ListUpdateCallback
+import androidx.test.filters.LargeTest
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.util.Random
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Diffs lists of different sizes in which a given fraction of the items was inserted, removed,
+ * moved or changed.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class DiffUtilBenchmark(size: Int, changeRate: Float) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val callback: DiffUtil.Callback
+    private val executor: ExecutorService =
+        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
+
+    init {
+        val oldList = List(size) { Item(it, 0) }
+        val newList = ArrayList(oldList)
+        val random = Random(size.toLong())
+        val changes = (size * changeRate).toInt()
+        var nextId = size
+        for (i in 0 until changes) {
+            when (random.nextInt(4)) {
+                0 -> newList.add(random.nextInt(newList.size + 1), Item(nextId++, 0))
+                1 -> if (newList.isNotEmpty()) newList.removeAt(random.nextInt(newList.size))
+                2 -> if (newList.isNotEmpty()) {
+                    val item = newList.removeAt(random.nextInt(newList.size))
+                    newList.add(random.nextInt(newList.size + 1), item)
+                }
+                else -> if (newList.isNotEmpty()) {
+                    val index = random.nextInt(newList.size)
+                    newList[index] = Item(newList[index].id, newList[index].version + 1)
+                }
+            }
+        }
+        callback = ItemDiffCallback(oldList, newList)
+    }
+
+    @After
+    fun tearDown() {
+        executor.shutdown()
+    }
+
+    @Test
+    fun calculateDiff() {
+        benchmarkRule.measureRepeated {
+            DiffUtil.calculateDiff(callback, true)
+        }
+    }
+
+    @Test
+    fun calculateDiffWithoutMoves() {
+        benchmarkRule.measureRepeated {
+            DiffUtil.calculateDiff(callback, false)
+        }
+    }
+
+    @Test
+    fun calculateDiffParallel() {
+        benchmarkRule.measureRepeated {
+            DiffUtil.calculateDiff(callback, true, executor)
+        }
+    }
+
+    @Test
+    fun dispatchUpdates() {
+        val result = DiffUtil.calculateDiff(callback, true)
+        benchmarkRule.measureRepeated {
+            result.dispatchUpdatesTo(NoOpUpdateCallback)
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "size={0},changeRate={1}")
+        fun parameters(): List<Array<Any>> {
+            val parameters = mutableListOf<Array<Any>>()
+            for (size in listOf(100, 1_000, 10_000)) {
+                for (changeRate in listOf(0.01f, 0.1f, 0.5f)) {
+                    parameters.add(arrayOf(size, changeRate))
+                }
+            }
+            return parameters
+        }
+    }
+}
+
+private data class Item(val id: Int, val version: Int)
+
+private class ItemDiffCallback(
+    private val oldList: List<Item>,
+    private val newList: List<Item>
+) : DiffUtil.Callback() {
+    override fun getOldListSize() = oldList.size
+
+    override fun getNewListSize() = newList.size
+
+    override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+        oldList[oldItemPosition].id == newList[newItemPosition].id
+
+    override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+        oldList[oldItemPosition] == newList[newItemPosition]
+
+    override fun getOldItemKey(oldItemPosition: Int) = oldList[oldItemPosition].id
+
+    override fun getNewItemKey(newItemPosition: Int) = newList[newItemPosition].id
+}
+
+private object NoOpUpdateCallback : ListUpdateCallback {
+    override fun onInserted(position: Int, count: Int) {}
+
+    override fun onRemoved(position: Int, count: Int) {}
+
+    override fun onMoved(fromPosition: Int, toPosition: Int) {}
+
+    override fun onChanged(position: Int, count: Int, payload: Any?) {}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.benchmark
+
+import android.os.SystemClock
+import android.view.MotionEvent
+import android.widget.FrameLayout
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.recyclerview.widget.ItemTouchHelper
+import androidx.recyclerview.widget.RecyclerView
+import androidx.test.annotation.UiThreadTest
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.rule.ActivityTestRule
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class ItemTouchHelperBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val activityRule = ActivityTestRule(RecyclerViewActivity::class.java)
+
+    private lateinit var itemTouchHelper: ItemTouchHelper
+
+    @Before
+    fun setup() {
+        activityRule.runOnUiThread {
+            val rv = activityRule.activity.recyclerView
+            rv.layoutParams = FrameLayout.LayoutParams(WIDTH, HEIGHT)
+            // measure the moves themselves rather than the animations they start
+            rv.itemAnimator = null
+            rv.adapter = VariableSizeAdapter()
+            itemTouchHelper = ItemTouchHelper(DragCallback())
+            itemTouchHelper.attachToRecyclerView(rv)
+            rv.measureAndLayout(WIDTH, HEIGHT)
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun drag() {
+        val rv = activityRule.activity.recyclerView
+        rv.measureAndLayout(WIDTH, HEIGHT)
+        val itemView = rv.findViewHolderForAdapterPosition(2)!!.itemView
+        val x = itemView.width / 2f
+        val startY = itemView.top + itemView.height / 2f
+        val downTime = SystemClock.uptimeMillis()
+        dispatchTouchEvent(rv, downTime, MotionEvent.ACTION_DOWN, x, startY)
+        itemTouchHelper.startDrag(rv.getChildViewHolder(itemView))
+
+        var dy = 0f
+        var step = 30f
+        benchmarkRule.measureRepeated {
+            // drag the item down over its neighbours and back up, swapping it with each of them
+            dy += step
+            if (dy >= MAX_DRAG_DISTANCE || dy <= 0) {
+                step = -step
+            }
+            dispatchTouchEvent(rv, downTime, MotionEvent.ACTION_MOVE, x, startY + dy)
+            if (rv.isLayoutRequested) {
+                rv.measureAndLayout()
+            }
+        }
+        dispatchTouchEvent(rv, downTime, MotionEvent.ACTION_UP, x, startY + dy)
+    }
+
+    private fun dispatchTouchEvent(
+        rv: RecyclerView,
+        downTime: Long,
+        action: Int,
+        x: Float,
+        y: Float
+    ) {
+        val event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, y, 0)
+        rv.dispatchTouchEvent(event)
+        event.recycle()
+    }
+
+    companion object {
+        private const val WIDTH = 400
+        private const val HEIGHT = 800
+        private const val MAX_DRAG_DISTANCE = 240f
+    }
+}
+
+private class DragCallback : ItemTouchHelper.SimpleCallback(
+    ItemTouchHelper.UP or ItemTouchHelper.DOWN, 0) {
+
+    override fun onMove(
+        recyclerView: RecyclerView,
+        viewHolder: RecyclerView.ViewHolder,
+        target: RecyclerView.ViewHolder
+    ): Boolean {
+        recyclerView.adapter!!.notifyItemMoved(viewHolder.adapterPosition, target.adapterPosition)
+        return true
+    }
+
+    override fun onSwiped(viewHolder: RecyclerView.ViewHolder, direction: Int) {
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.benchmark
+
+import android.widget.FrameLayout
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.annotation.UiThreadTest
+import androidx.test.filters.LargeTest
+import androidx.test.rule.ActivityTestRule
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Scroll and layout benchmarks run against each [LayoutManagerType], with items of varying
+ * heights and, for grids, varying span sizes.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class LayoutManagerBenchmark(private val layoutManagerType: LayoutManagerType) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val activityRule = ActivityTestRule(RecyclerViewActivity::class.java)
+
+    @Before
+    fun setup() {
+        activityRule.runOnUiThread {
+            val rv = activityRule.activity.recyclerView
+            rv.layoutParams = FrameLayout.LayoutParams(WIDTH, HEIGHT)
+            rv.layoutManager = layoutManagerType.create(rv)
+            rv.adapter = VariableSizeAdapter()
+            rv.measureAndLayout(WIDTH, HEIGHT)
+
+            // offset by 50 to ensure we are part way through the first row
+            rv.scrollBy(0, 50)
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun offset() {
+        val rv = activityRule.activity.recyclerView
+        var offset = 10
+        benchmarkRule.measureRepeated {
+            // keep scrolling up and down - few or no new items should be revealed
+            rv.scrollBy(0, offset)
+            offset *= -1
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun bindOffset() {
+        val rv = activityRule.activity.recyclerView
+        benchmarkRule.measureRepeated {
+            // each scroll should reveal at least one new row
+            rv.scrollBy(0, 120)
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun relayout() {
+        val rv = activityRule.activity.recyclerView
+        benchmarkRule.measureRepeated {
+            // full layout pass, children are scrapped and re-added without being rebound
+            rv.requestLayout()
+            rv.measureAndLayout()
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun adapterUpdates() {
+        val rv = activityRule.activity.recyclerView
+        val adapter = rv.adapter!!
+        benchmarkRule.measureRepeated {
+            // a batch that AdapterHelper has to reorder, leaving the item count unchanged
+            adapter.notifyItemRangeInserted(2, 3)
+            adapter.notifyItemMoved(8, 1)
+            adapter.notifyItemRangeChanged(4, 2)
+            adapter.notifyItemRangeRemoved(6, 3)
+            rv.measureAndLayout()
+            runWithTimingDisabled {
+                rv.itemAnimator?.endAnimations()
+            }
+        }
+    }
+
+    companion object {
+        private const val WIDTH = 400
+        private const val HEIGHT = 800
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "{0}")
+        fun parameters(): List<Array<Any>> = LayoutManagerType.values().map { arrayOf<Any>(it) }
+    }
+}
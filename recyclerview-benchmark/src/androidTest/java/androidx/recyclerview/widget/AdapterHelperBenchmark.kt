@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package androidx.recyclerview.widget
+
+import android.view.View
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures how [AdapterHelper] reorders and dispatches a batch of adapter updates, without a
+ * RecyclerView, so that only the op reordering and offset bookkeeping is timed.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class AdapterHelperBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val callback = NoOpCallback()
+    private val adapterHelper = AdapterHelper(callback)
+
+    private fun addUpdates() {
+        adapterHelper.onItemRangeInserted(10, 3)
+        adapterHelper.onItemRangeMoved(2, 30, 1)
+        adapterHelper.onItemRangeRemoved(5, 4)
+        adapterHelper.onItemRangeChanged(20, 5, null)
+        adapterHelper.onItemRangeMoved(40, 1, 1)
+        adapterHelper.onItemRangeInserted(0, 1)
+        adapterHelper.onItemRangeRemoved(25, 2)
+        adapterHelper.onItemRangeChanged(3, 1, null)
+    }
+
+    @Test
+    fun preProcessOffscreen() {
+        callback.viewHolder = null
+        benchmarkRule.measureRepeated {
+            addUpdates()
+            adapterHelper.preProcess()
+            adapterHelper.consumePostponedUpdates()
+        }
+    }
+
+    @Test
+    fun preProcessOnscreen() {
+        // every position has a laid out ViewHolder, so all updates are postponed
+        callback.viewHolder = object : RecyclerView.ViewHolder(
+            View(ApplicationProvider.getApplicationContext())) {}
+        benchmarkRule.measureRepeated {
+            addUpdates()
+            adapterHelper.preProcess()
+            adapterHelper.consumePostponedUpdates()
+        }
+    }
+
+    @Test
+    fun consumeUpdatesInOnePass() {
+        benchmarkRule.measureRepeated {
+            addUpdates()
+            adapterHelper.consumeUpdatesInOnePass()
+        }
+    }
+
+    private class NoOpCallback : AdapterHelper.Callback {
+        var viewHolder: RecyclerView.ViewHolder? = null
+
+        override fun findViewHolder(position: Int) = viewHolder
+
+        override fun offsetPositionsForRemovingInvisible(positionStart: Int, itemCount: Int) {}
+
+        override fun offsetPositionsForRemovingLaidOutOrNewView(
+            positionStart: Int,
+            itemCount: Int
+        ) {}
+
+        override fun markViewHoldersUpdated(
+            positionStart: Int,
+            itemCount: Int,
+            payloads: Any?
+        ) {}
+
+        override fun onDispatchFirstPass(updateOp: AdapterHelper.UpdateOp) {}
+
+        override fun onDispatchSecondPass(updateOp: AdapterHelper.UpdateOp) {}
+
+        override fun offsetPositionsForAdd(positionStart: Int, itemCount: Int) {}
+
+        override fun offsetPositionsForMove(from: Int, to: Int) {}
+    }
+}
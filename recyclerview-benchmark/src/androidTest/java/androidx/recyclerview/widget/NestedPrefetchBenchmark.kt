@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package androidx.recyclerview.widget
+
+import android.graphics.Color
+import android.view.View
+import android.view.ViewGroup
+import android.widget.FrameLayout
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.recyclerview.benchmark.RecyclerViewActivity
+import androidx.recyclerview.benchmark.measureAndLayout
+import androidx.test.annotation.UiThreadTest
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.rule.ActivityTestRule
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Scrolls a vertical list of horizontal lists, revealing a new row on each scroll, with and
+ * without running the [GapWorker] prefetch that would normally happen between frames.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class NestedPrefetchBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val activityRule = ActivityTestRule(RecyclerViewActivity::class.java)
+
+    @Before
+    fun setup() {
+        activityRule.runOnUiThread {
+            val rv = activityRule.activity.recyclerView
+            rv.layoutParams = FrameLayout.LayoutParams(WIDTH, HEIGHT)
+            rv.adapter = OuterAdapter()
+            rv.measureAndLayout(WIDTH, HEIGHT)
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun bindOffset() {
+        val rv = activityRule.activity.recyclerView
+        rv.layoutManager!!.isItemPrefetchEnabled = false
+        benchmarkRule.measureRepeated {
+            // each scroll reveals a new row, whose inner list is created or rebound and laid out
+            rv.scrollBy(0, ROW_HEIGHT)
+        }
+    }
+
+    @UiThreadTest
+    @Test
+    fun bindOffsetWithPrefetch() {
+        val rv = activityRule.activity.recyclerView
+        val gapWorker = rv.mGapWorker!!
+        benchmarkRule.measureRepeated {
+            // each scroll reveals the row prefetched after the previous one, including the
+            // initial items of its inner list
+            rv.scrollBy(0, ROW_HEIGHT)
+            rv.mPrefetchRegistry.setPrefetchVector(0, ROW_HEIGHT)
+            gapWorker.prefetch(RecyclerView.FOREVER_NS)
+        }
+    }
+
+    companion object {
+        private const val WIDTH = 400
+        private const val HEIGHT = 800
+    }
+}
+
+private const val ROW_HEIGHT = 100
+
+private class RowViewHolder(val recyclerView: RecyclerView) : RecyclerView.ViewHolder(recyclerView)
+
+private class OuterAdapter : RecyclerView.Adapter<RowViewHolder>() {
+    private val sharedPool = RecyclerView.RecycledViewPool()
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): RowViewHolder {
+        val inner = RecyclerView(parent.context)
+        inner.layoutParams = RecyclerView.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT, ROW_HEIGHT)
+        inner.layoutManager = LinearLayoutManager(
+            parent.context, RecyclerView.HORIZONTAL, false).apply {
+            initialPrefetchItemCount = 5
+        }
+        inner.setRecycledViewPool(sharedPool)
+        inner.adapter = InnerAdapter()
+        return RowViewHolder(inner)
+    }
+
+    override fun onBindViewHolder(holder: RowViewHolder, position: Int) {
+        // reset the scroll position of the recycled row, as apps restoring row state would
+        holder.recyclerView.scrollToPosition(0)
+    }
+
+    override fun getItemCount() = Integer.MAX_VALUE
+}
+
+private class InnerAdapter : RecyclerView.Adapter<RecyclerView.ViewHolder>() {
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): RecyclerView.ViewHolder {
+        val view = View(parent.context)
+        view.layoutParams = RecyclerView.LayoutParams(90, ViewGroup.LayoutParams.MATCH_PARENT)
+        return object : RecyclerView.ViewHolder(view) {}
+    }
+
+    override fun onBindViewHolder(holder: RecyclerView.ViewHolder, position: Int) {
+        val color = position % 256
+        holder.itemView.setBackgroundColor(Color.rgb(color, color, color))
+    }
+
+    override fun getItemCount() = 100
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package androidx.recyclerview.widget
+
+import android.view.View
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures the bookkeeping [ViewInfoStore] does for each layout with animations: recording the
+ * pre-layout and post-layout state of every child, then sorting them into appearing, persisting
+ * and disappearing ones.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class ViewInfoStoreBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val viewInfoStore = ViewInfoStore()
+    private val info = RecyclerView.ItemAnimator.ItemHolderInfo()
+    private val viewHolders = List(CHILD_COUNT) {
+        object : RecyclerView.ViewHolder(View(ApplicationProvider.getApplicationContext())) {}
+    }
+
+    @Test
+    fun recordAndProcess() {
+        benchmarkRule.measureRepeated {
+            viewHolders.forEachIndexed { index, viewHolder ->
+                // most children persist, a few appear or disappear
+                if (index % 8 != 0) {
+                    viewInfoStore.addToPreLayout(viewHolder, info)
+                }
+                if (index % 8 != 1) {
+                    viewInfoStore.addToPostLayout(viewHolder, info)
+                }
+            }
+            viewInfoStore.process(NoOpProcessCallback)
+            viewInfoStore.clear()
+        }
+    }
+
+    @Test
+    fun recordChangedHolders() {
+        benchmarkRule.measureRepeated {
+            viewHolders.forEachIndexed { index, viewHolder ->
+                viewInfoStore.addToPreLayout(viewHolder, info)
+                viewInfoStore.addToOldChangeHolders(index.toLong(), viewHolder)
+            }
+            viewHolders.forEachIndexed { index, viewHolder ->
+                viewInfoStore.getFromOldChangeHolders(index.toLong())
+                viewInfoStore.popFromPreLayout(viewHolder)
+            }
+            viewInfoStore.clear()
+        }
+    }
+
+    private object NoOpProcessCallback : ViewInfoStore.ProcessCallback {
+        override fun processDisappeared(
+            viewHolder: RecyclerView.ViewHolder,
+            preInfo: RecyclerView.ItemAnimator.ItemHolderInfo,
+            postInfo: RecyclerView.ItemAnimator.ItemHolderInfo?
+        ) {}
+
+        override fun processAppeared(
+            viewHolder: RecyclerView.ViewHolder,
+            preInfo: RecyclerView.ItemAnimator.ItemHolderInfo?,
+            postInfo: RecyclerView.ItemAnimator.ItemHolderInfo
+        ) {}
+
+        override fun processPersistent(
+            viewHolder: RecyclerView.ViewHolder,
+            preInfo: RecyclerView.ItemAnimator.ItemHolderInfo,
+            postInfo: RecyclerView.ItemAnimator.ItemHolderInfo
+        ) {}
+
+        override fun unused(holder: RecyclerView.ViewHolder) {}
+    }
+
+    companion object {
+        private const val CHILD_COUNT = 30
+    }
+}
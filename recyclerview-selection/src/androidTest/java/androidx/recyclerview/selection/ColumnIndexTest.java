@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.selection;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class ColumnIndexTest {
+
+    @Test
+    public void testKeepsTopsSorted() {
+        ColumnIndex index = new ColumnIndex();
+        for (int i = 99; i >= 0; i--) {
+            index.put(i * 10, i);
+        }
+        assertEquals(100, index.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 10, index.topAt(i));
+            assertEquals(i, index.positionAt(i));
+        }
+    }
+
+    @Test
+    public void testReplacesSameTop() {
+        ColumnIndex index = new ColumnIndex();
+        index.put(10, 1);
+        index.put(10, 2);
+        assertEquals(1, index.size());
+        assertEquals(2, index.positionAt(0));
+    }
+
+    @Test
+    public void testCeilingIndex() {
+        ColumnIndex index = new ColumnIndex();
+        assertEquals(0, index.ceilingIndex(5));
+        index.put(10, 0);
+        index.put(30, 1);
+        index.put(20, 2);
+        assertEquals(0, index.ceilingIndex(5));
+        assertEquals(0, index.ceilingIndex(10));
+        assertEquals(1, index.ceilingIndex(11));
+        assertEquals(2, index.ceilingIndex(30));
+        assertEquals(3, index.ceilingIndex(31));
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.selection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public final class LongRangeSetTest {
+
+    private LongRangeSet mSet;
+
+    @Before
+    public void setUp() {
+        mSet = new LongRangeSet();
+    }
+
+    @Test
+    public void testAddMergesAdjacentKeys() {
+        mSet.add(3L);
+        mSet.add(5L);
+        assertEquals(2, mSet.getRangeCount());
+        mSet.add(4L);
+        assertEquals(1, mSet.getRangeCount());
+        assertEquals(3, mSet.size());
+        assertArrayEquals(new long[] {3, 5}, mSet.toRangeArray());
+    }
+
+    @Test
+    public void testSelectAllIsOneRange() {
+        for (long key = 0; key < 200000; key++) {
+            mSet.add(key);
+        }
+        assertEquals(1, mSet.getRangeCount());
+        assertEquals(200000, mSet.size());
+        assertTrue(mSet.contains(199999L));
+        assertFalse(mSet.contains(200000L));
+    }
+
+    @Test
+    public void testRemoveRangeSplits() {
+        mSet.addRange(0, 99);
+        assertTrue(mSet.removeRange(10, 19));
+        assertFalse(mSet.removeRange(10, 19));
+        assertArrayEquals(new long[] {0, 9, 20, 99}, mSet.toRangeArray());
+        assertEquals(90, mSet.size());
+        assertFalse(mSet.contains(15L));
+        assertTrue(mSet.contains(20L));
+    }
+
+    @Test
+    public void testIteratesInAscendingOrder() {
+        mSet.add(7L);
+        mSet.add(-2L);
+        mSet.addRange(1, 3);
+
+        List<Long> keys = new ArrayList<>();
+        for (Long key : mSet) {
+            keys.add(key);
+        }
+        assertEquals(5, keys.size());
+        assertEquals(-2L, (long) keys.get(0));
+        assertEquals(1L, (long) keys.get(1));
+        assertEquals(3L, (long) keys.get(3));
+        assertEquals(7L, (long) keys.get(4));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        mSet.addRange(0, 9);
+        Iterator<Long> iterator = mSet.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertArrayEquals(new long[] {1, 1, 3, 3, 5, 5, 7, 7, 9, 9}, mSet.toRangeArray());
+    }
+
+    @Test
+    public void testScatteredKeysSwitchToBitmapAndBack() {
+        for (long key = 0; key < 10000; key += 2) {
+            mSet.add(key);
+        }
+        assertTrue(mSet.isBitmap());
+        assertEquals(5000, mSet.size());
+        assertEquals(5000, mSet.getRangeCount());
+        assertTrue(mSet.contains(9998L));
+        assertFalse(mSet.contains(9999L));
+
+        mSet.addRange(0, 9999);
+        assertFalse(mSet.isBitmap());
+        assertEquals(1, mSet.getRangeCount());
+    }
+
+    @Test
+    public void testDistantKeysDoNotUseBitmap() {
+        for (long key = 0; key < 100; key++) {
+            mSet.add(key * LongRangeSet.MAX_BITMAP_BITS);
+        }
+        assertFalse(mSet.isBitmap());
+        assertEquals(100, mSet.getRangeCount());
+    }
+
+    @Test
+    public void testDistantKeySwitchesBitmapToRanges() {
+        for (long key = 0; key < 10000; key += 2) {
+            mSet.add(key);
+        }
+        assertTrue(mSet.isBitmap());
+
+        // a nearby key grows the bitmap
+        mSet.add(10100L);
+        assertTrue(mSet.isBitmap());
+
+        // a distant key would stretch the bitmap far beyond the size of the ranges
+        mSet.add(4000000L);
+        assertFalse(mSet.isBitmap());
+        assertEquals(5002, mSet.size());
+        assertEquals(5002, mSet.getRangeCount());
+        assertTrue(mSet.contains(10100L));
+        assertTrue(mSet.contains(4000000L));
+        assertFalse(mSet.contains(4000001L));
+    }
+
+    @Test
+    public void testEqualsOtherSets() {
+        TreeSet<Long> other = new TreeSet<>();
+        for (long key = 0; key < 10; key++) {
+            mSet.add(key);
+            other.add(key);
+        }
+        assertEquals(other, mSet);
+        assertEquals(mSet, other);
+        assertEquals(other.hashCode(), mSet.hashCode());
+
+        LongRangeSet copy = new LongRangeSet();
+        copy.addAll(mSet);
+        assertEquals(mSet, copy);
+    }
+
+    @Test
+    public void testMatchesTreeSet() {
+        Random random = new Random(7);
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 5000; i++) {
+            long first = random.nextInt(2000);
+            long last = first + random.nextInt(i % 10 == 0 ? 200 : 3);
+            if (random.nextBoolean()) {
+                mSet.addRange(first, last);
+                for (long key = first; key <= last; key++) {
+                    expected.add(key);
+                }
+            } else {
+                mSet.removeRange(first, last);
+                for (long key = first; key <= last; key++) {
+                    expected.remove(key);
+                }
+            }
+            assertEquals(expected.size(), mSet.size());
+        }
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(mSet));
+        for (long key = -1; key <= 2201; key++) {
+            assertEquals(expected.contains(key), mSet.contains(key));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.selection;
+
+import java.util.Arrays;
+
+/**
+ * Index of the items recorded in one column of a {@link GridModel}, answering which items start
+ * within a vertical range in O(log n + k) time.
+ *
+ * <p>Items within a grid column never overlap, so an interval tree over their vertical extents
+ * reduces to the item tops kept in sorted order: the items intersecting a range of rows are a
+ * contiguous run that starts at the first top inside the range.
+ *
+ * <p>Entries are stored in parallel arrays like {@link android.util.SparseIntArray}, but unlike it
+ * this class exposes {@link #ceilingIndex(int)} so that range queries don't need to probe every
+ * known row.
+ */
+final class ColumnIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] mTops = new int[INITIAL_CAPACITY];
+    private int[] mPositions = new int[INITIAL_CAPACITY];
+    private int mSize;
+
+    /**
+     * Records the item with the given top in this column, replacing any item previously recorded
+     * with the same top.
+     */
+    void put(int top, int position) {
+        int index = Arrays.binarySearch(mTops, 0, mSize, top);
+        if (index >= 0) {
+            mPositions[index] = position;
+            return;
+        }
+
+        index = ~index;
+        if (mSize == mTops.length) {
+            mTops = Arrays.copyOf(mTops, mSize * 2);
+            mPositions = Arrays.copyOf(mPositions, mSize * 2);
+        }
+        System.arraycopy(mTops, index, mTops, index + 1, mSize - index);
+        System.arraycopy(mPositions, index, mPositions, index + 1, mSize - index);
+        mTops[index] = top;
+        mPositions[index] = position;
+        mSize++;
+    }
+
+    /**
+     * @return The number of items recorded in this column.
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @return The index of the first item whose top is not less than {@code top}, or
+     * {@link #size()} if there is none.
+     */
+    int ceilingIndex(int top) {
+        int index = Arrays.binarySearch(mTops, 0, mSize, top);
+        return index >= 0 ? index : ~index;
+    }
+
+    /**
+     * @return The top of the item at {@code index}, in ascending order of tops.
+     */
+    int topAt(int index) {
+        return mTops[index];
+    }
+
+    /**
+     * @return The adapter position of the item at {@code index}, in ascending order of tops.
+     */
+    int positionAt(int index) {
+        return mPositions[index];
+    }
+}
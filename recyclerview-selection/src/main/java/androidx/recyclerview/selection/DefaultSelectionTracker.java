@@ -56,7 +56,7 @@ public class DefaultSelectionTracker<K> extends SelectionTracker<K> {
     private static final String TAG = "DefaultSelectionTracker";
     private static final String EXTRA_SELECTION_PREFIX = "androidx.recyclerview.selection";
 
-    private final Selection<K> mSelection = new Selection<>();
+    private final Selection<K> mSelection;
     private final List<SelectionObserver<K>> mObservers = new ArrayList<>(1);
     private final ItemKeyProvider<K> mKeyProvider;
     private final SelectionPredicate<K> mSelectionPredicate;
@@ -93,6 +93,7 @@ public class DefaultSelectionTracker<K> extends SelectionTracker<K> {
         mKeyProvider = keyProvider;
         mSelectionPredicate = selectionPredicate;
         mStorage = storage;
+        mSelection = storage.createSelection();
 
         mRangeCallbacks = new RangeCallbacks();
 
@@ -185,9 +186,9 @@ public class DefaultSelectionTracker<K> extends SelectionTracker<K> {
     private Selection<K> clearSelectionQuietly() {
         mRange = null;
 
-        MutableSelection<K> prevSelection = new MutableSelection();
+        Selection<K> prevSelection = mStorage.createSelection();
         if (hasSelection()) {
-            copySelection(prevSelection);
+            prevSelection.copyFrom(mSelection);
             mSelection.clear();
         }
 
@@ -23,7 +23,6 @@ import android.graphics.Rect;
 import android.util.Log;
 import android.util.SparseArray;
 import android.util.SparseBooleanArray;
-import android.util.SparseIntArray;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -65,11 +64,12 @@ final class GridModel<K> {
 
     private final List<SelectionObserver<K>> mOnSelectionChangedListeners = new ArrayList<>();
 
-    // Map from the x-value of the left side of a SparseBooleanArray of adapter positions, keyed
-    // by their y-offset. For example, if the first column of the view starts at an x-value of 5,
-    // mColumns.get(5) would return an array of positions in that column. Within that array, the
-    // value for key y is the adapter position for the item whose y-offset is y.
-    private final SparseArray<SparseIntArray> mColumns = new SparseArray<>();
+    // Map from the x-value of the left side of a column to the index of the adapter positions in
+    // that column, keyed by their y-offset. For example, if the first column of the view starts
+    // at an x-value of 5, mColumns.get(5) would return the index of positions in that column.
+    // The index is updated as children are recorded so that the items covered by the band can be
+    // found without probing every known row of every column.
+    private final SparseArray<ColumnIndex> mColumns = new SparseArray<>();
 
     // List of limits along the x-axis (columns).
     // This list is sorted from furthest left to furthest right.
@@ -234,12 +234,12 @@ final class GridModel<K> {
 
         recordLimits(mRowBounds, new Limits(absoluteChildRect.top, absoluteChildRect.bottom));
 
-        SparseIntArray columnList = mColumns.get(absoluteChildRect.left);
-        if (columnList == null) {
-            columnList = new SparseIntArray();
-            mColumns.put(absoluteChildRect.left, columnList);
+        ColumnIndex column = mColumns.get(absoluteChildRect.left);
+        if (column == null) {
+            column = new ColumnIndex();
+            mColumns.put(absoluteChildRect.left, column);
         }
-        columnList.put(absoluteChildRect.top, adapterPosition);
+        column.put(absoluteChildRect.top, adapterPosition);
     }
 
     /**
@@ -301,12 +301,7 @@ final class GridModel<K> {
 
         checkArgument(columnStart >= 0, "Rect doesn't intesect any known column.");
 
-        int columnEnd = columnStart;
-
-        for (int i = columnStart; i < mColumnBounds.size()
-                && mColumnBounds.get(i).lowerLimit <= rect.right; i++) {
-            columnEnd = i;
-        }
+        int columnEnd = Math.max(columnStart, floorIndex(mColumnBounds, rect.right));
 
         int rowStart = Collections.binarySearch(mRowBounds, new Limits(rect.top, rect.top));
         if (rowStart < 0) {
@@ -314,15 +309,20 @@ final class GridModel<K> {
             return;
         }
 
-        int rowEnd = rowStart;
-        for (int i = rowStart; i < mRowBounds.size()
-                && mRowBounds.get(i).lowerLimit <= rect.bottom; i++) {
-            rowEnd = i;
-        }
+        int rowEnd = Math.max(rowStart, floorIndex(mRowBounds, rect.bottom));
 
         updateSelection(columnStart, columnEnd, rowStart, rowEnd);
     }
 
+    /**
+     * @return The index of the last limits in the sorted list limitsList whose lower limit is not
+     * greater than value, or -1 if there is none.
+     */
+    private static int floorIndex(List<Limits> limitsList, int value) {
+        int index = Collections.binarySearch(limitsList, new Limits(value, value));
+        return index >= 0 ? index : ~index - 1;
+    }
+
     /**
      * Computes the selection given the previously-computed start- and end-indices for each
      * row and column.
@@ -337,30 +337,30 @@ final class GridModel<K> {
         }
 
         mSelection.clear();
+        final int firstRowTop = mRowBounds.get(rowStartIndex).lowerLimit;
+        final int lastRowTop = mRowBounds.get(rowEndIndex).lowerLimit;
         for (int column = columnStartIndex; column <= columnEndIndex; column++) {
-            SparseIntArray items = mColumns.get(mColumnBounds.get(column).lowerLimit);
-            for (int row = rowStartIndex; row <= rowEndIndex; row++) {
-                // The default return value for SparseIntArray.get is 0, which is a valid
-                // position. Use a sentry value to prevent erroneously selecting item 0.
-                final int rowKey = mRowBounds.get(row).lowerLimit;
-                int position = items.get(rowKey, NOT_SET);
-                if (position != NOT_SET) {
-                    K key = mKeyProvider.getKey(position);
-                    if (key != null) {
-                        // The adapter inserts items for UI layout purposes that aren't
-                        // associated with files. Those will have a null model ID.
-                        // Don't select them.
-                        if (canSelect(key)) {
-                            mSelection.add(key);
-                        }
-                    }
-                    if (isPossiblePositionNearestOrigin(column, columnStartIndex, columnEndIndex,
-                            row, rowStartIndex, rowEndIndex)) {
-                        // If this is the position nearest the origin, record it now so that it
-                        // can be returned by endSelection() later.
-                        mPositionNearestOrigin = position;
+            ColumnIndex items = mColumns.get(mColumnBounds.get(column).lowerLimit);
+            // Every recorded top is the lower limit of a known row, so the items of this column
+            // within the band are exactly those whose top lies between the first and last row.
+            for (int i = items.ceilingIndex(firstRowTop);
+                    i < items.size() && items.topAt(i) <= lastRowTop; i++) {
+                final int position = items.positionAt(i);
+                K key = mKeyProvider.getKey(position);
+                if (key != null) {
+                    // The adapter inserts items for UI layout purposes that aren't
+                    // associated with files. Those will have a null model ID.
+                    // Don't select them.
+                    if (canSelect(key)) {
+                        mSelection.add(key);
                     }
                 }
+                if (isPossiblePositionNearestOrigin(column, columnStartIndex, columnEndIndex,
+                        items.topAt(i), firstRowTop, lastRowTop)) {
+                    // If this is the position nearest the origin, record it now so that it
+                    // can be returned by endSelection() later.
+                    mPositionNearestOrigin = position;
+                }
             }
         }
     }
@@ -375,22 +375,22 @@ final class GridModel<K> {
      * origin. See comment below for reasoning for this special case.
      */
     private boolean isPossiblePositionNearestOrigin(int columnIndex, int columnStartIndex,
-            int columnEndIndex, int rowIndex, int rowStartIndex, int rowEndIndex) {
+            int columnEndIndex, int rowTop, int firstRowTop, int lastRowTop) {
         int corner = computeCornerNearestOrigin();
         switch (corner) {
             case UPPER_LEFT:
-                return columnIndex == columnStartIndex && rowIndex == rowStartIndex;
+                return columnIndex == columnStartIndex && rowTop == firstRowTop;
             case UPPER_RIGHT:
-                return columnIndex == columnEndIndex && rowIndex == rowStartIndex;
+                return columnIndex == columnEndIndex && rowTop == firstRowTop;
             case LOWER_LEFT:
-                return columnIndex == columnStartIndex && rowIndex == rowEndIndex;
+                return columnIndex == columnStartIndex && rowTop == lastRowTop;
             case LOWER_RIGHT:
                 // Note that in some cases, the last row will not have as many items as there
                 // are columns (e.g., if there are 4 items and 3 columns, the second row will
                 // only have one item in the first column). This function is invoked for each
                 // position from left to right, so return true for any position in the bottom
                 // row and only the right-most position in the bottom row will be recorded.
-                return rowIndex == rowEndIndex;
+                return rowTop == lastRowTop;
             default:
                 throw new RuntimeException("Invalid corner type.");
         }
@@ -0,0 +1,628 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.selection;
+
+import static androidx.core.util.Preconditions.checkArgument;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of {@link Long} keys stored as sorted ranges of consecutive keys, for selections of
+ * positions or sequential ids, which mostly come in contiguous runs.
+ *
+ * <p>
+ * Checking a key is O(log r) for r ranges, and adding or removing a whole range of keys costs
+ * about as much as adding or removing a single key, so selecting all items or a shift-click
+ * range takes constant memory. When the keys are so fragmented that a bitmap over their span
+ * would be much smaller than the list of ranges, the set switches to such a bitmap, and back to
+ * ranges once the keys consolidate again.
+ *
+ * <p>
+ * Iterates keys in ascending order.
+ */
+final class LongRangeSet extends AbstractSet<Long> {
+
+    // Bits taken by one range, made of two longs.
+    private static final int BITS_PER_RANGE = 128;
+
+    // Below this many ranges, the ranges are small enough not to bother with a bitmap.
+    private static final int MIN_RANGES_FOR_BITMAP = 64;
+
+    // Largest bitmap the set uses, 1 MiB.
+    @VisibleForTesting
+    static final int MAX_BITMAP_BITS = 1 << 23;
+
+    private static final int MIN_CAPACITY = 4;
+    private static final long[] EMPTY = new long[0];
+
+    // Range representation: the inclusive bounds of mRangeCount ranges, sorted, and separated by
+    // at least one key that is not in the set.
+    private long[] mFirsts = EMPTY;
+    private long[] mLasts = EMPTY;
+
+    // Bitmap representation, used when non-null: bit i stands for key mBitmapBase + i. The base
+    // is a multiple of 64.
+    private @Nullable long[] mBitmap;
+    private long mBitmapBase;
+
+    // Number of runs of consecutive keys, in both representations.
+    private int mRangeCount;
+    private long mSize;
+    private int mModCount;
+
+    LongRangeSet() {
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(mSize, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object o) {
+        return o instanceof Long && contains((long) (Long) o);
+    }
+
+    boolean contains(long key) {
+        if (mBitmap != null) {
+            // the difference may overflow if the key is far from the bitmap
+            final long bit = key - mBitmapBase;
+            return key >= mBitmapBase && bit >= 0 && bit < bitCount() && isBitSet((int) bit);
+        }
+        final int index = floorRange(key);
+        return index >= 0 && mLasts[index] >= key;
+    }
+
+    @Override
+    public boolean add(@NonNull Long key) {
+        return addRange(key, key);
+    }
+
+    @Override
+    public boolean remove(@Nullable Object o) {
+        return o instanceof Long && removeRange((Long) o, (Long) o);
+    }
+
+    @Override
+    public boolean addAll(@NonNull Collection<? extends Long> c) {
+        if (!(c instanceof LongRangeSet)) {
+            return super.addAll(c);
+        }
+        return addRanges(((LongRangeSet) c).toRangeArray());
+    }
+
+    @Override
+    public void clear() {
+        mFirsts = EMPTY;
+        mLasts = EMPTY;
+        mBitmap = null;
+        mRangeCount = 0;
+        mSize = 0;
+        mModCount++;
+    }
+
+    /**
+     * Adds all keys from {@code first} to {@code last}, inclusive.
+     *
+     * @return true if the set changed.
+     */
+    boolean addRange(long first, long last) {
+        checkArgument(first <= last);
+        final long oldSize = mSize;
+        if (mBitmap != null && !ensureBitmapCovers(first, last)) {
+            bitmapToRanges();
+        }
+        if (mBitmap != null) {
+            setBits((int) (first - mBitmapBase), (int) (last - mBitmapBase), true);
+        } else {
+            addToRanges(first, last);
+        }
+        return onRangesChanged(oldSize);
+    }
+
+    /**
+     * Removes all keys from {@code first} to {@code last}, inclusive.
+     *
+     * @return true if the set changed.
+     */
+    boolean removeRange(long first, long last) {
+        checkArgument(first <= last);
+        final long oldSize = mSize;
+        if (mBitmap != null) {
+            final long bitmapLast = mBitmapBase + bitCount() - 1;
+            if (last >= mBitmapBase && first <= bitmapLast) {
+                setBits((int) (Math.max(first, mBitmapBase) - mBitmapBase),
+                        (int) (Math.min(last, bitmapLast) - mBitmapBase), false);
+            }
+        } else {
+            removeFromRanges(first, last);
+        }
+        return onRangesChanged(oldSize);
+    }
+
+    /**
+     * Adds the ranges from an array as returned by {@link #toRangeArray()}.
+     *
+     * @return true if the set changed.
+     */
+    boolean addRanges(@NonNull long[] ranges) {
+        checkArgument(ranges.length % 2 == 0);
+        boolean changed = false;
+        for (int i = 0; i < ranges.length; i += 2) {
+            changed |= addRange(ranges[i], ranges[i + 1]);
+        }
+        return changed;
+    }
+
+    /**
+     * @return The first and last key of each range of consecutive keys, in ascending order.
+     */
+    @NonNull
+    long[] toRangeArray() {
+        final long[] ranges = new long[mRangeCount * 2];
+        if (mBitmap == null) {
+            for (int i = 0; i < mRangeCount; i++) {
+                ranges[i * 2] = mFirsts[i];
+                ranges[i * 2 + 1] = mLasts[i];
+            }
+            return ranges;
+        }
+        int i = 0;
+        int first = nextSetBit(0);
+        while (first >= 0) {
+            final int end = nextClearBit(first);
+            ranges[i++] = mBitmapBase + first;
+            ranges[i++] = mBitmapBase + end - 1;
+            first = nextSetBit(end);
+        }
+        return ranges;
+    }
+
+    /**
+     * @return The number of ranges of consecutive keys in the set.
+     */
+    int getRangeCount() {
+        return mRangeCount;
+    }
+
+    @VisibleForTesting
+    boolean isBitmap() {
+        return mBitmap != null;
+    }
+
+    @NonNull
+    @Override
+    public Iterator<Long> iterator() {
+        return new KeyIterator();
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (o instanceof LongRangeSet) {
+            final LongRangeSet other = (LongRangeSet) o;
+            return mSize == other.mSize
+                    && Arrays.equals(toRangeArray(), other.toRangeArray());
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        final long[] ranges = toRangeArray();
+        final StringBuilder buffer = new StringBuilder(ranges.length * 8 + 2).append('[');
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(ranges[i]);
+            if (ranges[i + 1] != ranges[i]) {
+                buffer.append("..").append(ranges[i + 1]);
+            }
+        }
+        return buffer.append(']').toString();
+    }
+
+    private boolean onRangesChanged(long oldSize) {
+        if (mSize == oldSize) {
+            return false;
+        }
+        mModCount++;
+        if (mBitmap == null) {
+            maybeSwitchToBitmap();
+        } else if ((long) mRangeCount * BITS_PER_RANGE * 2 < bitCount()) {
+            bitmapToRanges();
+        }
+        return true;
+    }
+
+    // ----- Ranges -----
+
+    /**
+     * @return The index of the last range starting at or before the key, or -1.
+     */
+    private int floorRange(long key) {
+        int low = 0;
+        int high = mRangeCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (mFirsts[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * @return The index of the first range ending at or after the key, or the range count.
+     */
+    private int ceilingRange(long key) {
+        int low = 0;
+        int high = mRangeCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (mLasts[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void addToRanges(long first, long last) {
+        // Ranges that overlap or touch [first, last] are merged with it.
+        final int low = first == Long.MIN_VALUE ? 0 : ceilingRange(first - 1);
+        final int high = last == Long.MAX_VALUE ? mRangeCount - 1 : floorRange(last + 1);
+        long merged = 0;
+        for (int i = low; i <= high; i++) {
+            merged += mLasts[i] - mFirsts[i] + 1;
+        }
+        if (low <= high) {
+            first = Math.min(first, mFirsts[low]);
+            last = Math.max(last, mLasts[high]);
+        }
+        replaceRanges(low, high, 1);
+        mFirsts[low] = first;
+        mLasts[low] = last;
+        mSize += last - first + 1 - merged;
+    }
+
+    private void removeFromRanges(long first, long last) {
+        final int low = ceilingRange(first);
+        final int high = floorRange(last);
+        if (low > high) {
+            return;
+        }
+        long removed = 0;
+        for (int i = low; i <= high; i++) {
+            removed += Math.min(mLasts[i], last) - Math.max(mFirsts[i], first) + 1;
+        }
+        final long headFirst = mFirsts[low];
+        final long tailLast = mLasts[high];
+        final boolean keepHead = headFirst < first;
+        final boolean keepTail = tailLast > last;
+        replaceRanges(low, high, (keepHead ? 1 : 0) + (keepTail ? 1 : 0));
+        int index = low;
+        if (keepHead) {
+            mFirsts[index] = headFirst;
+            mLasts[index] = first - 1;
+            index++;
+        }
+        if (keepTail) {
+            mFirsts[index] = last + 1;
+            mLasts[index] = tailLast;
+        }
+        mSize -= removed;
+    }
+
+    /**
+     * Replaces the ranges from {@code low} to {@code high}, inclusive, with {@code count} ranges
+     * for the caller to fill in. {@code high} may be {@code low - 1} to insert ranges.
+     */
+    private void replaceRanges(int low, int high, int count) {
+        final int newRangeCount = mRangeCount - (high - low + 1) + count;
+        if (newRangeCount > mFirsts.length) {
+            final int capacity = Math.max(MIN_CAPACITY, newRangeCount + (newRangeCount >> 1));
+            mFirsts = Arrays.copyOf(mFirsts, capacity);
+            mLasts = Arrays.copyOf(mLasts, capacity);
+        }
+        final int tail = mRangeCount - high - 1;
+        System.arraycopy(mFirsts, high + 1, mFirsts, low + count, tail);
+        System.arraycopy(mLasts, high + 1, mLasts, low + count, tail);
+        mRangeCount = newRangeCount;
+    }
+
+    private void maybeSwitchToBitmap() {
+        if (mRangeCount < MIN_RANGES_FOR_BITMAP) {
+            return;
+        }
+        final long base = mFirsts[0] & ~63L;
+        final long span = mLasts[mRangeCount - 1] - base;
+        // a negative span overflowed
+        if (span < 0 || span >= MAX_BITMAP_BITS
+                || (span + 1) * 2 >= (long) mRangeCount * BITS_PER_RANGE) {
+            return;
+        }
+        final long[] bitmap = new long[(int) (span >>> 6) + 1];
+        final int rangeCount = mRangeCount;
+        final long[] firsts = mFirsts;
+        final long[] lasts = mLasts;
+        mBitmap = bitmap;
+        mBitmapBase = base;
+        mFirsts = EMPTY;
+        mLasts = EMPTY;
+        for (int i = 0; i < rangeCount; i++) {
+            fillBits((int) (firsts[i] - base), (int) (lasts[i] - base), true);
+        }
+    }
+
+    // ----- Bitmap -----
+
+    private long bitCount() {
+        return (long) mBitmap.length << 6;
+    }
+
+    private boolean isBitSet(int bit) {
+        return (mBitmap[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Grows the bitmap to cover the keys from {@code first} to {@code last}, unless it would
+     * get too large, or so sparse that {@link #onRangesChanged(long)} would switch back to ranges.
+     *
+     * @return false if the keys should be stored as ranges instead.
+     */
+    private boolean ensureBitmapCovers(long first, long last) {
+        final long oldLast = mBitmapBase + bitCount() - 1;
+        if (first >= mBitmapBase && last <= oldLast) {
+            return true;
+        }
+        final long base = Math.min(first & ~63L, mBitmapBase);
+        final long span = Math.max(last, oldLast) - base;
+        // the new keys add at most one range
+        if (span < 0 || span >= MAX_BITMAP_BITS
+                || span + 1 > ((long) mRangeCount + 1) * BITS_PER_RANGE * 2) {
+            return false;
+        }
+        final long[] bitmap = new long[(int) (span >>> 6) + 1];
+        System.arraycopy(mBitmap, 0, bitmap, (int) ((mBitmapBase - base) >>> 6), mBitmap.length);
+        mBitmap = bitmap;
+        mBitmapBase = base;
+        return true;
+    }
+
+    private void bitmapToRanges() {
+        final long[] ranges = toRangeArray();
+        mBitmap = null;
+        mFirsts = new long[Math.max(MIN_CAPACITY, mRangeCount)];
+        mLasts = new long[mFirsts.length];
+        for (int i = 0; i < mRangeCount; i++) {
+            mFirsts[i] = ranges[i * 2];
+            mLasts[i] = ranges[i * 2 + 1];
+        }
+    }
+
+    /**
+     * Sets or clears the bits from {@code from} to {@code to}, inclusive, and updates the size
+     * and the number of runs.
+     */
+    private void setBits(int from, int to, boolean value) {
+        // the runs that change are the ones starting in [from, to + 1]
+        final int runsTo = (int) Math.min(to + 1L, bitCount() - 1);
+        final int runsBefore = countRunStarts(from, runsTo);
+        final int setBefore = countSetBits(from, to);
+        fillBits(from, to, value);
+        mRangeCount += countRunStarts(from, runsTo) - runsBefore;
+        mSize += value ? (to - from + 1) - setBefore : -setBefore;
+    }
+
+    private void fillBits(int from, int to, boolean value) {
+        final int firstWord = from >>> 6;
+        final int lastWord = to >>> 6;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = -1L;
+            if (word == firstWord) {
+                mask &= -1L << from;
+            }
+            if (word == lastWord) {
+                mask &= -1L >>> (63 - (to & 63));
+            }
+            if (value) {
+                mBitmap[word] |= mask;
+            } else {
+                mBitmap[word] &= ~mask;
+            }
+        }
+    }
+
+    private int countSetBits(int from, int to) {
+        final int firstWord = from >>> 6;
+        final int lastWord = to >>> 6;
+        int count = 0;
+        for (int word = firstWord; word <= lastWord; word++) {
+            long mask = -1L;
+            if (word == firstWord) {
+                mask &= -1L << from;
+            }
+            if (word == lastWord) {
+                mask &= -1L >>> (63 - (to & 63));
+            }
+            count += Long.bitCount(mBitmap[word] & mask);
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of set bits from {@code from} to {@code to}, inclusive, that follow a
+     * clear bit.
+     */
+    private int countRunStarts(int from, int to) {
+        final int firstWord = from >>> 6;
+        final int lastWord = to >>> 6;
+        int count = 0;
+        for (int word = firstWord; word <= lastWord; word++) {
+            final long bits = mBitmap[word];
+            final long previous = word == 0 ? 0 : mBitmap[word - 1] >>> 63;
+            long mask = -1L;
+            if (word == firstWord) {
+                mask &= -1L << from;
+            }
+            if (word == lastWord) {
+                mask &= -1L >>> (63 - (to & 63));
+            }
+            count += Long.bitCount(bits & ~((bits << 1) | previous) & mask);
+        }
+        return count;
+    }
+
+    /**
+     * @return The index of the first set bit at or after {@code from}, or -1.
+     */
+    private int nextSetBit(int from) {
+        int word = from >>> 6;
+        if (word >= mBitmap.length) {
+            return -1;
+        }
+        long bits = mBitmap[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == mBitmap.length) {
+                return -1;
+            }
+            bits = mBitmap[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * @return The index of the first clear bit at or after {@code from}, which may be just past
+     * the end of the bitmap.
+     */
+    private int nextClearBit(int from) {
+        int word = from >>> 6;
+        if (word >= mBitmap.length) {
+            return from;
+        }
+        long bits = ~mBitmap[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == mBitmap.length) {
+                return word << 6;
+            }
+            bits = ~mBitmap[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    private final class KeyIterator implements Iterator<Long> {
+        private int mExpectedModCount = mModCount;
+        private boolean mHasNext;
+        private long mNext;
+        // Index of the range holding mNext, in the range representation.
+        private int mRangeIndex;
+        private long mLastReturned;
+        private boolean mCanRemove;
+
+        KeyIterator() {
+            seek(Long.MIN_VALUE);
+        }
+
+        /**
+         * Moves to the smallest key at or after the given one.
+         */
+        private void seek(long key) {
+            if (mBitmap == null) {
+                mRangeIndex = ceilingRange(key);
+                mHasNext = mRangeIndex < mRangeCount;
+                if (mHasNext) {
+                    mNext = Math.max(key, mFirsts[mRangeIndex]);
+                }
+                return;
+            }
+            final long from = key <= mBitmapBase ? 0 : key - mBitmapBase;
+            final int bit = from < bitCount() ? nextSetBit((int) from) : -1;
+            mHasNext = bit >= 0;
+            mNext = mBitmapBase + bit;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mHasNext;
+        }
+
+        @Override
+        public Long next() {
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!mHasNext) {
+                throw new NoSuchElementException();
+            }
+            final long key = mNext;
+            if (mBitmap != null) {
+                final int bit = nextSetBit((int) (key - mBitmapBase) + 1);
+                mHasNext = bit >= 0;
+                mNext = mBitmapBase + bit;
+            } else if (key < mLasts[mRangeIndex]) {
+                mNext = key + 1;
+            } else if (++mRangeIndex < mRangeCount) {
+                mNext = mFirsts[mRangeIndex];
+            } else {
+                mHasNext = false;
+            }
+            mLastReturned = key;
+            mCanRemove = true;
+            return key;
+        }
+
+        @Override
+        public void remove() {
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!mCanRemove) {
+                throw new IllegalStateException();
+            }
+            mCanRemove = false;
+            removeRange(mLastReturned, mLastReturned);
+            mExpectedModCount = mModCount;
+            if (mHasNext) {
+                // ranges may have been split or the representation may have changed
+                seek(mNext);
+            }
+        }
+    }
+}
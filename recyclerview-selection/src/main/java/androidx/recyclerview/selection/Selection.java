@@ -76,6 +76,14 @@ public class Selection<K> implements Iterable<K> {
         mProvisionalSelection = new LinkedHashSet<>();
     }
 
+    /**
+     * Used by {@link StorageStrategy} to back the selection with sets suited to its key type.
+     */
+    Selection(@NonNull Set<K> selection, @NonNull Set<K> provisionalSelection) {
+        mSelection = selection;
+        mProvisionalSelection = provisionalSelection;
+    }
+
     /**
      * @return true if the position is currently selected.
      */
@@ -465,7 +465,9 @@ public abstract class SelectionTracker<K> {
      *           provides factory methods for each type:
      *           {@link StorageStrategy#createStringStorage()},
      *           {@link StorageStrategy#createParcelableStorage(Class)},
-     *           {@link StorageStrategy#createLongStorage()}
+     *           {@link StorageStrategy#createLongStorage()}, and
+     *           {@link StorageStrategy#createLongRangeStorage()} for {@link Long} keys, such as
+     *           positions, that are selected in contiguous runs.
      */
     public static final class Builder<K> {
 
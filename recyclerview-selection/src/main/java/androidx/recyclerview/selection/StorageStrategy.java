@@ -31,7 +31,8 @@ import java.util.ArrayList;
  * Strategy for storing keys in saved state. Extend this class when using custom
  * key types that aren't supported by default. Prefer use of builtin storage strategies:
  * {@link #createStringStorage()}, {@link #createLongStorage()},
- * {@link #createParcelableStorage(Class)}.
+ * {@link #createParcelableStorage(Class)}, and {@link #createLongRangeStorage()} for
+ * positions or other {@link Long} keys that are selected in contiguous runs.
  *
  * <p>
  * See
@@ -53,6 +54,9 @@ public abstract class StorageStrategy<K> {
     @VisibleForTesting
     static final String SELECTION_KEY_TYPE = "androidx.recyclerview.selection.type";
 
+    @VisibleForTesting
+    static final String SELECTION_RANGES = "androidx.recyclerview.selection.ranges";
+
     private final Class<K> mType;
 
     /**
@@ -85,6 +89,14 @@ public abstract class StorageStrategy<K> {
         return mType.getCanonicalName();
     }
 
+    /**
+     * Creates an empty {@link Selection} backed by sets suited to this key type.
+     */
+    @NonNull
+    Selection<K> createSelection() {
+        return new Selection<>();
+    }
+
     /**
      * @return StorageStrategy suitable for use with {@link Parcelable} keys
      * (like {@link android.net.Uri}).
@@ -107,6 +119,25 @@ public abstract class StorageStrategy<K> {
         return new LongStorageStrategy();
     }
 
+    /**
+     * Returns a StorageStrategy for {@link Long} keys that stores the selection as ranges of
+     * consecutive keys, such as adapter positions or sequential ids, instead of as individual
+     * keys.
+     *
+     * <p>
+     * Checking whether a key is selected takes O(log n) time in the number of ranges, and
+     * selecting all items or a range of items takes constant memory. The selection is also saved
+     * as ranges. When the selected keys are scattered, the selection falls back to a bitmap over
+     * their span. Unlike other storage strategies, the selection iterates keys in ascending order
+     * rather than in the order they were selected.
+     *
+     * @return StorageStrategy suitable for use with {@link Long} keys that are mostly selected in
+     * contiguous runs.
+     */
+    public static StorageStrategy<Long> createLongRangeStorage() {
+        return new LongRangeStorageStrategy();
+    }
+
     private static class StringStorageStrategy extends StorageStrategy<String> {
 
         StringStorageStrategy() {
@@ -188,6 +219,66 @@ public abstract class StorageStrategy<K> {
         }
     }
 
+    private static class LongRangeStorageStrategy extends StorageStrategy<Long> {
+
+        LongRangeStorageStrategy() {
+            super(Long.class);
+        }
+
+        @Override
+        @NonNull Selection<Long> createSelection() {
+            return new Selection<Long>(new LongRangeSet(), new LongRangeSet());
+        }
+
+        @Override
+        public @Nullable Selection<Long> asSelection(@NonNull Bundle state) {
+            String keyType = state.getString(SELECTION_KEY_TYPE, null);
+            if (keyType == null || !keyType.equals(getKeyTypeName())) {
+                return null;
+            }
+
+            Selection<Long> selection = createSelection();
+            LongRangeSet keys = (LongRangeSet) selection.mSelection;
+
+            @Nullable long[] ranges = state.getLongArray(SELECTION_RANGES);
+            if (ranges != null) {
+                if (ranges.length % 2 != 0) {
+                    return null;
+                }
+                keys.addRanges(ranges);
+                return selection;
+            }
+
+            // Also accept state saved as individual keys by createLongStorage().
+            @Nullable long[] stored = state.getLongArray(SELECTION_ENTRIES);
+            if (stored == null) {
+                return null;
+            }
+            for (long key : stored) {
+                keys.add(key);
+            }
+            return selection;
+        }
+
+        @Override
+        public @NonNull Bundle asBundle(@NonNull Selection<Long> selection) {
+
+            Bundle bundle = new Bundle();
+            bundle.putString(SELECTION_KEY_TYPE, getKeyTypeName());
+
+            LongRangeSet keys;
+            if (selection.mSelection instanceof LongRangeSet) {
+                keys = (LongRangeSet) selection.mSelection;
+            } else {
+                keys = new LongRangeSet();
+                keys.addAll(selection.mSelection);
+            }
+            bundle.putLongArray(SELECTION_RANGES, keys.toRangeArray());
+
+            return bundle;
+        }
+    }
+
     private static class ParcelableStorageStrategy<K extends Parcelable>
             extends StorageStrategy<K> {
 
@@ -345,6 +345,30 @@ class AsyncListDifferTest {
         verifyNoMoreInteractions(listener)
     }
 
+    @Test
+    fun submitListKeyed() {
+        val callback = mock(ListUpdateCallback::class.java)
+        val differ = AsyncListDiffer(callback,
+                AsyncDifferConfig.Builder(STRING_DIFF_CALLBACK)
+                        .setMainThreadExecutor(mMainThread)
+                        .setBackgroundThreadExecutor(mBackgroundThread)
+                        .setKeyExtractor(AsyncDifferConfig.KeyExtractor<String> { it[0] })
+                        .build())
+
+        differ.submitList(listOf("a", "b", "c"))
+        verify(callback).onInserted(0, 3)
+        drain()
+        verifyNoMoreInteractions(callback)
+
+        // "a" and "b" keep their order, so only "c" moves
+        differ.submitList(listOf("c", "a", "b2"))
+        drain()
+        verify(callback).onChanged(1, 1, "2")
+        verify(callback).onMoved(2, 0)
+        verifyNoMoreInteractions(callback)
+        assertEquals(listOf("c", "a", "b2"), differ.currentList)
+    }
+
     private fun drain() {
         var executed: Boolean
         do {
@@ -55,6 +55,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @LargeTest
@@ -1393,6 +1394,103 @@ public class GridLayoutManagerTest extends BaseGridLayoutManagerTest {
         assertGetSpanGroupIndex();
     }
 
+    @Test
+    public void getSpanGroupIndex_incrementalSpanIndex() {
+        mSpanSizeLookupForSpanIndexTest.setIncrementalSpanIndexEnabled(true);
+        assertGetSpanGroupIndex();
+        for (int i = 0; i < SPAN_SIZES.length; i++) {
+            mSpanSizeLookupForSpanIndexTest.setIncrementalSpanIndexEnabled(false);
+            final int expected = mSpanSizeLookupForSpanIndexTest.getSpanIndex(i, 3);
+            mSpanSizeLookupForSpanIndexTest.setIncrementalSpanIndexEnabled(true);
+            assertEquals(expected, mSpanSizeLookupForSpanIndexTest.getSpanIndex(i, 3));
+        }
+    }
+
+    @Test
+    public void incrementalSpanIndex_onlyLooksUpQueriedPositions() {
+        final GridLayoutManager.SpanSizeLookup ssl = new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                if (position >= 10) {
+                    throw new IndexOutOfBoundsException("position " + position);
+                }
+                return position % 3 + 1;
+            }
+        };
+        ssl.setIncrementalSpanIndexEnabled(true);
+        assertEquals(1, ssl.getSpanIndex(1, 4));
+        assertEquals(5, ssl.getSpanGroupIndex(9, 4));
+    }
+
+    @Test
+    public void incrementalSpanIndex_followsAdapterChanges() {
+        final Random random = new Random(7);
+        final List<Integer> spanSizes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            spanSizes.add(1 + random.nextInt(4));
+        }
+        final GridLayoutManager.SpanSizeLookup reference = new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return spanSizes.get(position);
+            }
+        };
+        final GridLayoutManager.SpanSizeLookup ssl = new GridLayoutManager.SpanSizeLookup() {
+            @Override
+            public int getSpanSize(int position) {
+                return spanSizes.get(position);
+            }
+        };
+        ssl.setIncrementalSpanIndexEnabled(true);
+        assertIncrementalSpanIndex(reference, ssl, spanSizes.size());
+
+        for (int i = 0; i < 200; i++) {
+            final int position = random.nextInt(spanSizes.size());
+            switch (random.nextInt(4)) {
+                case 0:
+                    final int added = 1 + random.nextInt(150);
+                    for (int j = 0; j < added; j++) {
+                        spanSizes.add(position, 1 + random.nextInt(4));
+                    }
+                    ssl.onItemsAdded(position, added);
+                    break;
+                case 1:
+                    final int removed = 1 + random.nextInt(
+                            Math.min(150, spanSizes.size() - position));
+                    for (int j = 0; j < removed; j++) {
+                        spanSizes.remove(position);
+                    }
+                    ssl.onItemsRemoved(position, removed);
+                    break;
+                case 2:
+                    final int to = random.nextInt(spanSizes.size());
+                    spanSizes.add(to, spanSizes.remove(position));
+                    ssl.onItemsMoved(position, to, 1);
+                    break;
+                default:
+                    spanSizes.set(position, 1 + random.nextInt(4));
+                    ssl.onItemsUpdated(position, 1);
+                    break;
+            }
+            final int query = random.nextInt(spanSizes.size());
+            assertEquals(reference.getSpanIndex(query, 4), ssl.getSpanIndex(query, 4));
+            assertEquals(reference.getSpanGroupIndex(query, 4), ssl.getSpanGroupIndex(query, 4));
+        }
+        assertIncrementalSpanIndex(reference, ssl, spanSizes.size());
+    }
+
+    private void assertIncrementalSpanIndex(GridLayoutManager.SpanSizeLookup reference,
+            GridLayoutManager.SpanSizeLookup incremental, int itemCount) {
+        for (int spanCount = 4; spanCount <= 5; spanCount++) {
+            for (int i = 0; i < itemCount; i++) {
+                assertEquals(reference.getSpanIndex(i, spanCount),
+                        incremental.getSpanIndex(i, spanCount));
+                assertEquals(reference.getSpanGroupIndex(i, spanCount),
+                        incremental.getSpanGroupIndex(i, spanCount));
+            }
+        }
+    }
+
     private void assertGetSpanGroupIndex() {
         assertEquals(0, mSpanSizeLookupForSpanIndexTest.getSpanGroupIndex(0, 3));
         assertEquals(0, mSpanSizeLookupForSpanIndexTest.getSpanGroupIndex(1, 3));
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static androidx.recyclerview.widget.StaggeredGridLayoutManager.LayoutParams
+        .INVALID_SPAN_ID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import androidx.recyclerview.widget.StaggeredGridLayoutManager.LazySpanLookup;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager.LazySpanLookup.FullSpanItem;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class LazySpanLookupTest {
+
+    private StaggeredGridLayoutManager mLayoutManager;
+    private LazySpanLookup mLookup;
+
+    @Before
+    public void setUp() {
+        mLayoutManager = new StaggeredGridLayoutManager(3, StaggeredGridLayoutManager.VERTICAL);
+        mLookup = new LazySpanLookup();
+    }
+
+    private StaggeredGridLayoutManager.Span span(int index) {
+        return mLayoutManager.mSpans[index];
+    }
+
+    private FullSpanItem fullSpanItem(int position, int gapDir) {
+        FullSpanItem fsi = new FullSpanItem();
+        fsi.mPosition = position;
+        fsi.mGapDir = gapDir;
+        return fsi;
+    }
+
+    private int allocatedPages() {
+        int count = 0;
+        for (int[] page : mLookup.mPages) {
+            if (page != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void distantPositionOnlyAllocatesItsPage() {
+        mLookup.setSpan(3, span(1));
+        mLookup.setSpan(500000, span(2));
+        assertEquals(1, mLookup.getSpan(3));
+        assertEquals(2, mLookup.getSpan(500000));
+        assertEquals(INVALID_SPAN_ID, mLookup.getSpan(250000));
+        assertEquals(INVALID_SPAN_ID, mLookup.getSpan(600000000));
+        assertEquals(2, allocatedPages());
+    }
+
+    @Test
+    public void invalidateAfterDropsPages() {
+        for (int i = 0; i < 1000; i++) {
+            mLookup.setSpan(i, span(i % 3));
+        }
+        assertEquals(mLookup.getCapacity(), mLookup.invalidateAfter(10));
+        assertEquals(1, mLookup.getSpan(1));
+        assertEquals(INVALID_SPAN_ID, mLookup.getSpan(10));
+        assertEquals(INVALID_SPAN_ID, mLookup.getSpan(999));
+        assertEquals(1, allocatedPages());
+    }
+
+    @Test
+    public void offsetsShiftAcrossPages() {
+        for (int i = 0; i < 1000; i++) {
+            mLookup.setSpan(i, span(i % 3));
+        }
+        mLookup.offsetForAddition(100, 7);
+        assertEquals(99 % 3, mLookup.getSpan(99));
+        assertEquals(INVALID_SPAN_ID, mLookup.getSpan(106));
+        for (int i = 100; i < 1000; i++) {
+            assertEquals(i % 3, mLookup.getSpan(i + 7));
+        }
+        mLookup.offsetForRemoval(100, 7);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 3, mLookup.getSpan(i));
+        }
+    }
+
+    @Test
+    public void fullSpanItemsStaySorted() {
+        mLookup.setSpan(0, span(0));
+        mLookup.addFullSpanItem(fullSpanItem(300, 1));
+        mLookup.addFullSpanItem(fullSpanItem(10, -1));
+        mLookup.addFullSpanItem(fullSpanItem(150, -1));
+        FullSpanItem replacement = fullSpanItem(150, 1);
+        mLookup.addFullSpanItem(replacement);
+        assertEquals(3, mLookup.mFullSpanItems.size());
+        assertSame(replacement, mLookup.getFullSpanItem(150));
+        assertNull(mLookup.getFullSpanItem(151));
+        assertEquals(150, mLookup.getFirstFullSpanItemInRange(11, 400, 1, false).mPosition);
+        assertEquals(10, mLookup.getFirstFullSpanItemInRange(0, 400, 0, false).mPosition);
+        assertNull(mLookup.getFirstFullSpanItemInRange(11, 150, 0, false));
+
+        mLookup.offsetForRemoval(100, 60);
+        mLookup.offsetForAddition(0, 5);
+        assertEquals(2, mLookup.mFullSpanItems.size());
+        assertEquals(15, mLookup.mFullSpanItems.get(0).mPosition);
+        assertEquals(245, mLookup.mFullSpanItems.get(1).mPosition);
+    }
+
+    @Test
+    public void arrayRoundTrip() {
+        mLookup.setSpan(5, span(1));
+        mLookup.setSpan(1000, span(2));
+        int[] data = mLookup.toArray();
+        LazySpanLookup restored = new LazySpanLookup();
+        restored.setFromArray(data);
+        for (int i = 0; i < data.length; i++) {
+            assertEquals(mLookup.getSpan(i), restored.getSpan(i));
+        }
+        mLookup.clear();
+        assertNull(mLookup.toArray());
+    }
+}
@@ -21,6 +21,7 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 import android.content.Context;
@@ -138,6 +139,80 @@ public class RecycledViewPoolTest {
         assertThat(pool.getRecycledViewCount(1), is(equalTo(clears ? 0 : 1)));
     }
 
+    @Test
+    public void adaptiveMaxGrowsAfterDiscardAndMiss() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveMaxRecycledViews(true);
+        pool.attach();
+        for (int i = 0; i < 6; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        assertEquals(5, pool.getRecycledViewCount(0));
+
+        // Miss after a discard: the limit grows by one.
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(pool.getRecycledView(0));
+        }
+        assertNull(pool.getRecycledView(0));
+        for (int i = 0; i < 7; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        assertEquals(6, pool.getRecycledViewCount(0));
+    }
+
+    @Test
+    public void adaptiveMaxKeepsLimitSetByApp() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveMaxRecycledViews(true);
+        pool.setMaxRecycledViews(0, 2);
+        pool.attach();
+        for (int i = 0; i < 3; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        assertNotNull(pool.getRecycledView(0));
+        assertNotNull(pool.getRecycledView(0));
+        assertNull(pool.getRecycledView(0));
+        for (int i = 0; i < 3; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        assertEquals(2, pool.getRecycledViewCount(0));
+    }
+
+    @Test
+    public void adaptiveMaxIsCappedPerAdapter() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setAdaptiveMaxRecycledViews(true);
+        pool.attach();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 10; i++) {
+                pool.putRecycledView(makeHolder(0));
+            }
+            while (pool.getRecycledView(0) != null) {
+                // drain
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        assertEquals(5, pool.getRecycledViewCount(0));
+    }
+
+    @Test
+    public void fixedMaxByDefault() {
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.attach();
+        for (int i = 0; i < 6; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        while (pool.getRecycledView(0) != null) {
+            // drain
+        }
+        for (int i = 0; i < 6; i++) {
+            pool.putRecycledView(makeHolder(0));
+        }
+        assertEquals(5, pool.getRecycledViewCount(0));
+    }
+
     private static class MockViewHolder extends RecyclerView.ViewHolder {
         MockViewHolder(Context context) {
             super(new View(context));
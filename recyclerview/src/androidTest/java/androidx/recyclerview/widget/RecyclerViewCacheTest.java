@@ -23,6 +23,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
@@ -48,6 +49,7 @@ import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.MediumTest;
 import androidx.test.filters.SdkSuppress;
+import androidx.test.platform.app.InstrumentationRegistry;
 
 import org.junit.After;
 import org.junit.Before;
@@ -59,6 +61,7 @@ import org.mockito.stubbing.Answer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 @MediumTest
@@ -405,6 +408,255 @@ public class RecyclerViewCacheTest {
         assertEquals(15, mRecyclerView.mPrefetchRegistry.mPrefetchDy); // same as prev
     }
 
+    private RecyclerView.Adapter createWarmUpAdapter() {
+        return new RecyclerView.Adapter() {
+            @NonNull
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(
+                    @NonNull ViewGroup parent, int viewType) {
+                mRecyclerView.registerTimePassingMs(5);
+                return new RecyclerView.ViewHolder(new View(getContext())) {};
+            }
+
+            @Override
+            public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            }
+
+            @Override
+            public int getItemCount() {
+                return 100;
+            }
+
+            @Override
+            public int getItemViewType(int position) {
+                return 3;
+            }
+        };
+    }
+
+    @Test
+    public void warmUpFillsPool() {
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        mRecyclerView.setAdapter(createWarmUpAdapter());
+        RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+
+        pool.warmUp(mRecyclerView, 3, 4);
+        assertTrue(pool.hasWarmUpFor(mRecyclerView));
+
+        assertNull(mRecyclerView.mGapWorker.warmUpPoolsWithDeadline(
+                RecyclerView.FOREVER_NS, false));
+        assertEquals(4, pool.getRecycledViewCount(3));
+        assertFalse(pool.hasWarmUpFor(mRecyclerView));
+
+        // Requests beyond the max are capped
+        pool.warmUp(mRecyclerView, 3, 10);
+        mRecyclerView.mGapWorker.warmUpPoolsWithDeadline(RecyclerView.FOREVER_NS, false);
+        assertEquals(5, pool.getRecycledViewCount(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void warmUpRequiresSharedPool() {
+        new RecyclerView.RecycledViewPool().warmUp(mRecyclerView, 0, 1);
+    }
+
+    @Test
+    public void warmUpRespectsDeadline() {
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        mRecyclerView.setAdapter(createWarmUpAdapter());
+        RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+        pool.warmUp(mRecyclerView, 3, 3);
+
+        // First create has no estimate, so it always happens. After it, 5ms creates don't fit.
+        long deadlineNs = mRecyclerView.getNanoTime() + TimeUnit.MILLISECONDS.toNanos(7);
+        assertSame(mRecyclerView,
+                mRecyclerView.mGapWorker.warmUpPoolsWithDeadline(deadlineNs, false));
+        assertEquals(1, pool.getRecycledViewCount(3));
+
+        // Idle, one create happens even though the deadline has passed
+        assertSame(mRecyclerView,
+                mRecyclerView.mGapWorker.warmUpPoolsWithDeadline(deadlineNs, true));
+        assertEquals(2, pool.getRecycledViewCount(3));
+
+        assertNull(mRecyclerView.mGapWorker.warmUpPoolsWithDeadline(
+                RecyclerView.FOREVER_NS, false));
+        assertEquals(3, pool.getRecycledViewCount(3));
+    }
+
+    @Test
+    public void prefetchCreatesSlowViewHoldersOnExecutor() {
+        final List<Runnable> tasks = new ArrayList<>();
+        mRecyclerView.setViewHolderCreationExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+
+        // 1000x1000 pixel views, that take longer than a frame to create
+        RecyclerView.Adapter adapter = new RecyclerView.Adapter() {
+            @NonNull
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(
+                    @NonNull ViewGroup parent, int viewType) {
+                mRecyclerView.registerTimePassingMs(20);
+                View view = new View(getContext());
+                view.setMinimumWidth(1000);
+                view.setMinimumHeight(1000);
+                return new RecyclerView.ViewHolder(view) {};
+            }
+
+            @Override
+            public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            }
+
+            @Override
+            public int getItemCount() {
+                return 100;
+            }
+        };
+        mRecyclerView.setAdapter(adapter);
+        layout(1000, 1000);
+        RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+
+        // Creating doesn't fit before the deadline, so it's handed to the executor
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 10);
+        mRecyclerView.mGapWorker.prefetch(
+                mRecyclerView.getNanoTime() + TimeUnit.MILLISECONDS.toNanos(16));
+        assertEquals(1, tasks.size());
+        CacheUtils.verifyCacheDoesNotContainPositions(mRecyclerView, 1);
+
+        tasks.get(0).run();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertEquals(1, pool.getRecycledViewCount(0));
+
+        // Next pass binds the created ViewHolder, without creating another one
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+        assertEquals(1, tasks.size());
+        assertEquals(0, pool.getRecycledViewCount(0));
+        CacheUtils.verifyCacheContainsPrefetchedPositions(mRecyclerView, 1);
+    }
+
+    @Test
+    public void adaptivePrefetchLooksAheadForSlowItems() {
+        mRecyclerView.setAdaptivePrefetchEnabled(true);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+
+        // 100x100 pixel views, taking 10ms to create and bind
+        RecyclerView.Adapter adapter = new RecyclerView.Adapter() {
+            @NonNull
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(
+                    @NonNull ViewGroup parent, int viewType) {
+                mRecyclerView.registerTimePassingMs(5);
+                View view = new View(getContext());
+                view.setMinimumWidth(100);
+                view.setMinimumHeight(100);
+                return new RecyclerView.ViewHolder(view) {};
+            }
+
+            @Override
+            public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+                mRecyclerView.registerTimePassingMs(5);
+            }
+
+            @Override
+            public int getItemCount() {
+                return 100;
+            }
+        };
+        mRecyclerView.setAdapter(adapter);
+        layout(100, 200);
+
+        GapWorker gapWorker = mRecyclerView.mGapWorker;
+        gapWorker.mFrameSlackNs = TimeUnit.MILLISECONDS.toNanos(4);
+        assertEquals(3, gapWorker.getLookaheadFrames(mRecyclerView));
+
+        // 3 frames of 100 pixels each
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 100);
+        gapWorker.prefetch(RecyclerView.FOREVER_NS);
+        CacheUtils.verifyCacheContainsPrefetchedPositions(mRecyclerView, 2, 3, 4);
+
+        // With enough time in each frame, only the next frame is prefetched
+        gapWorker.mFrameSlackNs = TimeUnit.MILLISECONDS.toNanos(12);
+        assertEquals(1, gapWorker.getLookaheadFrames(mRecyclerView));
+    }
+
+    @Test
+    public void adaptivePrefetchLookaheadIsCapped() {
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        RecyclerView.RecycledViewPool pool = mRecyclerView.getRecycledViewPool();
+        GapWorker gapWorker = mRecyclerView.mGapWorker;
+
+        // nothing measured
+        assertEquals(1, gapWorker.getLookaheadFrames(mRecyclerView));
+
+        pool.factorInCreateTime(0, TimeUnit.MILLISECONDS.toNanos(100));
+        gapWorker.mFrameSlackNs = 0;
+        assertEquals(GapWorker.MAX_ADAPTIVE_LOOKAHEAD_FRAMES,
+                gapWorker.getLookaheadFrames(mRecyclerView));
+        gapWorker.mFrameSlackNs = TimeUnit.MILLISECONDS.toNanos(1);
+        assertEquals(GapWorker.MAX_ADAPTIVE_LOOKAHEAD_FRAMES,
+                gapWorker.getLookaheadFrames(mRecyclerView));
+    }
+
+    @Test
+    public void metricsCountLookupsAndPrefetchHits() {
+        mRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), 3));
+        RecyclerViewMetrics metrics = new RecyclerViewMetrics();
+        mRecyclerView.setMetrics(metrics);
+
+        RecyclerView.Adapter mockAdapter = mock(RecyclerView.Adapter.class);
+        when(mockAdapter.onCreateViewHolder(any(ViewGroup.class), anyInt()))
+                .thenAnswer(new Answer<RecyclerView.ViewHolder>() {
+                    @Override
+                    public RecyclerView.ViewHolder answer(InvocationOnMock invocation)
+                            throws Throwable {
+                        View view = new View(getContext());
+                        view.setMinimumWidth(100);
+                        view.setMinimumHeight(100);
+                        return new RecyclerView.ViewHolder(view) {};
+                    }
+                });
+        when(mockAdapter.getItemCount()).thenReturn(100);
+        mRecyclerView.setAdapter(mockAdapter);
+
+        layout(300, 100);
+        assertEquals(3, metrics.getViewHolderLookupCount(RecyclerViewMetrics.SOURCE_CREATED,
+                false));
+        assertEquals(3, metrics.getPoolMissCount(0));
+        for (int step = RecyclerViewMetrics.LAYOUT_STEP_PRE_LAYOUT;
+                step <= RecyclerViewMetrics.LAYOUT_STEP_ANIMATIONS; step++) {
+            assertEquals(1, metrics.getLayoutStepHistogram(step).getCount());
+        }
+
+        // a deadline that is always met, but still marks the lookups as prefetch
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 1);
+        mRecyclerView.mGapWorker.prefetch(TimeUnit.SECONDS.toNanos(1));
+        CacheUtils.verifyCacheContainsPrefetchedPositions(mRecyclerView, 3, 4, 5);
+        assertEquals(3, metrics.getViewHolderLookupCount(RecyclerViewMetrics.SOURCE_CREATED,
+                true));
+        assertEquals(3, metrics.getPrefetchedCount());
+        assertEquals(6, metrics.getCreateHistogram(0).getCount());
+        assertEquals(6, metrics.getBindHistogram(0).getCount());
+
+        // prefetching again finds the same ViewHolders in the cache, which are not new prefetches
+        mRecyclerView.mGapWorker.prefetch(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(3, metrics.getViewHolderLookupCount(RecyclerViewMetrics.SOURCE_CACHE, true));
+        assertEquals(3, metrics.getPrefetchedCount());
+
+        mRecycler.getViewForPosition(4);
+        assertEquals(1, metrics.getViewHolderLookupCount(RecyclerViewMetrics.SOURCE_CACHE,
+                false));
+        assertEquals(1, metrics.getPrefetchHitCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getPrefetchedCount());
+        assertNull(metrics.getCreateHistogram(0));
+        assertEquals(0, metrics.getLayoutStepHistogram(
+                RecyclerViewMetrics.LAYOUT_STEP_LAYOUT).getCount());
+    }
+
     @Test
     public void prefetchItemsRespectDeadline() {
         mRecyclerView.setLayoutManager(new GridLayoutManager(getContext(), 3));
@@ -889,6 +1141,31 @@ public class RecyclerViewCacheTest {
         CacheUtils.verifyCacheContainsPrefetchedPositions(innerView, 0, 1, 2, 3);
     }
 
+    @Test
+    public void nestedPrefetchAdaptiveCount() {
+        mRecyclerView.setAdaptivePrefetchEnabled(true);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        mRecyclerView.setAdapter(new OuterAdapter());
+
+        // attached inner RecyclerViews show 2 items each
+        layout(200, 200);
+        mRecyclerView.mPrefetchRegistry.setPrefetchVector(0, 1);
+
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+        RecyclerView.ViewHolder holder = CacheUtils.peekAtCachedViewForPosition(mRecyclerView, 2);
+        assertNotNull(holder);
+        assertNotNull(holder.mNestedRecyclerView);
+        RecyclerView innerView = holder.mNestedRecyclerView.get();
+        CacheUtils.verifyCacheContainsPrefetchedPositions(innerView, 0, 1);
+
+        // count set on the inner LayoutManager is replaced by the observed one
+        ((LinearLayoutManager) innerView.getLayoutManager())
+                .setInitialPrefetchItemCount(4);
+        mRecyclerView.mGapWorker.prefetch(RecyclerView.FOREVER_NS);
+        CacheUtils.verifyCacheContainsPrefetchedPositions(innerView, 0, 1);
+        assertEquals(2, mRecyclerView.mNestedItemCountsObserved.get(0));
+    }
+
     @Test
     public void nestedPrefetchNotClearInnerStructureChangeFlag() {
         LinearLayoutManager llm = new LinearLayoutManager(getContext());
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class RecyclerViewMetricsTest {
+
+    @Test
+    public void histogramBuckets() {
+        RecyclerViewMetrics.Histogram histogram = new RecyclerViewMetrics.Histogram();
+        histogram.record(500);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(1));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(3));
+        histogram.record(TimeUnit.MINUTES.toNanos(1));
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(1, histogram.getBucketValue(0));
+        assertEquals(1, histogram.getBucketValue(1));
+        assertEquals(1, histogram.getBucketValue(2));
+        assertEquals(1, histogram.getBucketValue(histogram.getBucketCount() - 1));
+        assertEquals(TimeUnit.MINUTES.toNanos(1), histogram.getMaxNs());
+        assertEquals(500 + TimeUnit.MICROSECONDS.toNanos(4) + TimeUnit.MINUTES.toNanos(1),
+                histogram.getTotalNs());
+        assertEquals(Long.MAX_VALUE,
+                histogram.getBucketUpperBoundNs(histogram.getBucketCount() - 1));
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        RecyclerViewMetrics.Histogram histogram = new RecyclerViewMetrics.Histogram();
+        assertEquals(0, histogram.getPercentileNs(50));
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        // 100us falls in the bucket of durations below 128us
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(128), histogram.getPercentileNs(50));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(128), histogram.getPercentileNs(90));
+        // limited to the longest recorded duration
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), histogram.getPercentileNs(99));
+    }
+
+    @Test
+    public void countsPerViewType() {
+        RecyclerViewMetrics metrics = new RecyclerViewMetrics();
+        metrics.recordPoolMiss(3);
+        metrics.recordPoolMiss(3);
+        metrics.recordBind(3, 100);
+        assertEquals(2, metrics.getPoolMissCount(3));
+        assertEquals(0, metrics.getPoolMissCount(4));
+        assertEquals(1, metrics.getBindHistogram(3).getCount());
+        assertEquals(0, metrics.getCreateHistogram(3).getCount());
+        assertNull(metrics.getBindHistogram(4));
+    }
+}
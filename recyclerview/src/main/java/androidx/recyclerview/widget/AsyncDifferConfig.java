@@ -39,15 +39,19 @@ public final class AsyncDifferConfig<T> {
     private final Executor mBackgroundThreadExecutor;
     @NonNull
     private final DiffUtil.ItemCallback<T> mDiffCallback;
+    @Nullable
+    private final KeyExtractor<T> mKeyExtractor;
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     AsyncDifferConfig(
             @Nullable Executor mainThreadExecutor,
             @NonNull Executor backgroundThreadExecutor,
-            @NonNull DiffUtil.ItemCallback<T> diffCallback) {
+            @NonNull DiffUtil.ItemCallback<T> diffCallback,
+            @Nullable KeyExtractor<T> keyExtractor) {
         mMainThreadExecutor = mainThreadExecutor;
         mBackgroundThreadExecutor = backgroundThreadExecutor;
         mDiffCallback = diffCallback;
+        mKeyExtractor = keyExtractor;
     }
 
     /** @hide */
@@ -70,6 +74,36 @@ public final class AsyncDifferConfig<T> {
         return mDiffCallback;
     }
 
+    @SuppressWarnings("WeakerAccess")
+    @Nullable
+    public KeyExtractor<T> getKeyExtractor() {
+        return mKeyExtractor;
+    }
+
+    /**
+     * Returns a stable key for an item, used to match items between lists without comparing them
+     * pairwise.
+     *
+     * @param <T> Type of items in the lists.
+     *
+     * @see Builder#setKeyExtractor(KeyExtractor)
+     */
+    public interface KeyExtractor<T> {
+        /**
+         * Returns the key of the given item.
+         * <p>
+         * Keys must be unique within a list, and two items must have equal keys exactly when
+         * {@link DiffUtil.ItemCallback#areItemsTheSame(Object, Object)} returns {@code true} for
+         * them.
+         *
+         * @param item The item, from the old or the new list.
+         * @return The key of the item, with {@link Object#equals(Object)} and
+         * {@link Object#hashCode()} implementations.
+         */
+        @NonNull
+        Object getKey(@NonNull T item);
+    }
+
     /**
      * Builder class for {@link AsyncDifferConfig}.
      *
@@ -80,6 +114,8 @@ public final class AsyncDifferConfig<T> {
         private Executor mMainThreadExecutor;
         private Executor mBackgroundThreadExecutor;
         private final DiffUtil.ItemCallback<T> mDiffCallback;
+        @Nullable
+        private KeyExtractor<T> mKeyExtractor;
 
         public Builder(@NonNull DiffUtil.ItemCallback<T> diffCallback) {
             mDiffCallback = diffCallback;
@@ -119,6 +155,30 @@ public final class AsyncDifferConfig<T> {
             return this;
         }
 
+        /**
+         * If provided, items are matched by the keys it returns instead of by running Myers'
+         * algorithm on the lists.
+         * <p>
+         * Items with the same key in both lists are matched with a hash lookup. The largest group
+         * of matched items that kept their relative order stays in place, and the other matched
+         * items are dispatched as moves. This takes O(N log N) time, where N is the size of the
+         * lists, instead of growing with the square of the number of changes, which makes a big
+         * difference for lists that get reordered a lot. The resulting updates may differ from
+         * the ones {@link DiffUtil} would dispatch, but they lead to the same list.
+         * <p>
+         * If an item is {@code null}, or if a key is not unique in its list, the diff falls back
+         * to {@link DiffUtil#calculateDiff(DiffUtil.Callback)}.
+         *
+         * @param keyExtractor Returns the stable key of an item.
+         * @return this
+         */
+        @SuppressWarnings({"unused", "WeakerAccess"})
+        @NonNull
+        public Builder<T> setKeyExtractor(@Nullable KeyExtractor<T> keyExtractor) {
+            mKeyExtractor = keyExtractor;
+            return this;
+        }
+
         /**
          * Creates a {@link AsyncListDiffer} with the given parameters.
          *
@@ -137,7 +197,8 @@ public final class AsyncDifferConfig<T> {
             return new AsyncDifferConfig<>(
                     mMainThreadExecutor,
                     mBackgroundThreadExecutor,
-                    mDiffCallback);
+                    mDiffCallback,
+                    mKeyExtractor);
         }
 
         // TODO: remove the below once supportlib has its own appropriate executors
@@ -289,7 +289,9 @@ public class AsyncListDiffer<T> {
         mConfig.getBackgroundThreadExecutor().execute(new Runnable() {
             @Override
             public void run() {
-                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                final AsyncDifferConfig.KeyExtractor<T> keyExtractor =
+                        mConfig.getKeyExtractor();
+                final DiffUtil.Callback callback = new DiffUtil.Callback() {
                     @Override
                     public int getOldListSize() {
                         return oldList.size();
@@ -342,7 +344,26 @@ public class AsyncListDiffer<T> {
                         // non-null which is the only case handled above.
                         throw new AssertionError();
                     }
-                });
+
+                    @Nullable
+                    @Override
+                    public Object getOldItemKey(int oldItemPosition) {
+                        T oldItem = oldList.get(oldItemPosition);
+                        return keyExtractor != null && oldItem != null
+                                ? keyExtractor.getKey(oldItem) : null;
+                    }
+
+                    @Nullable
+                    @Override
+                    public Object getNewItemKey(int newItemPosition) {
+                        T newItem = newList.get(newItemPosition);
+                        return keyExtractor != null && newItem != null
+                                ? keyExtractor.getKey(newItem) : null;
+                    }
+                };
+                final DiffUtil.DiffResult result = keyExtractor != null
+                        ? DiffUtil.calculateKeyedDiff(callback)
+                        : DiffUtil.calculateDiff(callback);
 
                 mMainThreadExecutor.execute(new Runnable() {
                     @Override
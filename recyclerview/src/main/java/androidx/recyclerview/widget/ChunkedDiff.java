@@ -0,0 +1,319 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import androidx.recyclerview.widget.DiffUtil.Callback;
+import androidx.recyclerview.widget.DiffUtil.Range;
+import androidx.recyclerview.widget.DiffUtil.Snake;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the snakes for {@link DiffUtil#calculateDiff(Callback, boolean, Executor)}.
+ * <p>
+ * Unchanged prefixes and suffixes are matched first. Then items whose key is unique in both lists
+ * are paired with a hash lookup, and the longest sequence of pairs that is in the same order in
+ * both lists is kept as anchors. Anchors split the lists into gaps that do not depend on each
+ * other, so Myers' algorithm runs on each gap separately, in parallel.
+ */
+final class ChunkedDiff {
+
+    private static final int NO_PREVIOUS = -1;
+
+    private static final int DUPLICATE = -2;
+
+    // Big gaps are handed out first so that the last gaps to be picked up are the cheap ones.
+    private static final Comparator<Range> LARGEST_FIRST = new Comparator<Range>() {
+        @Override
+        public int compare(Range o1, Range o2) {
+            return size(o2) - size(o1);
+        }
+
+        private int size(Range range) {
+            return range.oldListEnd - range.oldListStart + range.newListEnd - range.newListStart;
+        }
+    };
+
+    private ChunkedDiff() {
+        // utility class, no instance.
+    }
+
+    static List<Snake> findSnakes(Callback cb, Executor executor) {
+        final int oldSize = cb.getOldListSize();
+        final int newSize = cb.getNewListSize();
+        final int minSize = Math.min(oldSize, newSize);
+
+        int prefix = 0;
+        while (prefix < minSize && cb.areItemsTheSame(prefix, prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < minSize - prefix
+                && cb.areItemsTheSame(oldSize - suffix - 1, newSize - suffix - 1)) {
+            suffix++;
+        }
+        final int oldEnd = oldSize - suffix;
+        final int newEnd = newSize - suffix;
+
+        final List<Snake> snakes = new ArrayList<>();
+        final List<Range> gaps = new ArrayList<>();
+        Snake last = addSnake(snakes, null, 0, 0, prefix);
+
+        final int[] anchors = findAnchors(cb, prefix, oldEnd, prefix, newEnd);
+        int oldStart = prefix;
+        int newStart = prefix;
+        for (int i = 0; i < anchors.length; i += 2) {
+            final int oldPos = anchors[i];
+            final int newPos = anchors[i + 1];
+            addGap(gaps, oldStart, oldPos, newStart, newPos);
+            last = addSnake(snakes, last, oldPos, newPos, 1);
+            oldStart = oldPos + 1;
+            newStart = newPos + 1;
+        }
+        addGap(gaps, oldStart, oldEnd, newStart, newEnd);
+        addSnake(snakes, last, oldEnd, newEnd, suffix);
+
+        diffGaps(cb, gaps, snakes, executor);
+        Collections.sort(snakes, DiffUtil.SNAKE_COMPARATOR);
+        return snakes;
+    }
+
+    /**
+     * Adds a run of matching items, extending {@code last} instead if the run continues it.
+     */
+    static Snake addSnake(List<Snake> snakes, Snake last, int x, int y, int size) {
+        if (size == 0) {
+            return last;
+        }
+        if (last != null && last.x + last.size == x && last.y + last.size == y) {
+            last.size += size;
+            return last;
+        }
+        final Snake snake = new Snake();
+        snake.x = x;
+        snake.y = y;
+        snake.size = size;
+        snakes.add(snake);
+        return snake;
+    }
+
+    private static void addGap(List<Range> gaps, int oldStart, int oldEnd, int newStart,
+            int newEnd) {
+        // If either side is empty, the gap is only additions or only removals.
+        if (oldStart < oldEnd && newStart < newEnd) {
+            gaps.add(new Range(oldStart, oldEnd, newStart, newEnd));
+        }
+    }
+
+    /**
+     * Returns the anchors as {@code [oldPos0, newPos0, oldPos1, newPos1, ...]}, in increasing
+     * order in both lists.
+     */
+    static int[] findAnchors(Callback cb, int oldStart, int oldEnd, int newStart, int newEnd) {
+        // key -> old position, or DUPLICATE
+        final Map<Object, Integer> oldPositions = new HashMap<>();
+        for (int i = oldStart; i < oldEnd; i++) {
+            final Object key = cb.getOldItemKey(i);
+            if (key != null) {
+                oldPositions.put(key, oldPositions.containsKey(key) ? DUPLICATE : i);
+            }
+        }
+        if (oldPositions.isEmpty()) {
+            return new int[0];
+        }
+        // key -> new position, or DUPLICATE. Keys that are not in the old list are skipped.
+        final Map<Object, Integer> newPositions = new HashMap<>();
+        for (int i = newStart; i < newEnd; i++) {
+            final Object key = cb.getNewItemKey(i);
+            if (key != null && oldPositions.containsKey(key)) {
+                newPositions.put(key, newPositions.containsKey(key) ? DUPLICATE : i);
+            }
+        }
+
+        // Pairs of items that are unique in both lists, in new list order.
+        final int[] pairedOld = new int[newPositions.size()];
+        final int[] pairedNew = new int[newPositions.size()];
+        int pairCount = 0;
+        for (int i = newStart; i < newEnd; i++) {
+            final Object key = cb.getNewItemKey(i);
+            if (key == null) {
+                continue;
+            }
+            final Integer newPos = newPositions.get(key);
+            if (newPos == null || newPos != i) {
+                continue;
+            }
+            final int oldPos = oldPositions.get(key);
+            if (oldPos != DUPLICATE) {
+                pairedOld[pairCount] = oldPos;
+                pairedNew[pairCount] = i;
+                pairCount++;
+            }
+        }
+
+        final int[] increasing = longestIncreasingSubsequence(pairedOld, pairCount);
+        final int[] anchors = new int[increasing.length * 2];
+        int anchorCount = 0;
+        for (int index : increasing) {
+            // Keys are only a hint; the callback has the final say on which items are the same.
+            if (cb.areItemsTheSame(pairedOld[index], pairedNew[index])) {
+                anchors[anchorCount * 2] = pairedOld[index];
+                anchors[anchorCount * 2 + 1] = pairedNew[index];
+                anchorCount++;
+            }
+        }
+        return Arrays.copyOf(anchors, anchorCount * 2);
+    }
+
+    /**
+     * Returns the indices of a longest strictly increasing subsequence of the first
+     * {@code count} values, in increasing order. Runs in O(N log N) time, by patience sorting.
+     */
+    static int[] longestIncreasingSubsequence(int[] values, int count) {
+        // tails[len] is the index of the value that ends the best subsequence of length len + 1
+        // found so far.
+        final int[] tails = new int[count];
+        final int[] previous = new int[count];
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : NO_PREVIOUS;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        final int[] result = new int[length];
+        for (int i = length > 0 ? tails[length - 1] : NO_PREVIOUS, j = length - 1;
+                i != NO_PREVIOUS; i = previous[i], j--) {
+            result[j] = i;
+        }
+        return result;
+    }
+
+    private static void diffGaps(Callback cb, List<Range> gaps, List<Snake> snakes,
+            Executor executor) {
+        if (gaps.isEmpty()) {
+            return;
+        }
+        if (gaps.size() == 1) {
+            DiffUtil.findSnakes(cb, gaps.get(0), snakes);
+            return;
+        }
+        Collections.sort(gaps, LARGEST_FIRST);
+        final GapRunner runner = new GapRunner(cb, gaps);
+        final int helpers = Math.min(gaps.size() - 1,
+                Runtime.getRuntime().availableProcessors() - 1);
+        try {
+            for (int i = 0; i < helpers; i++) {
+                executor.execute(runner);
+            }
+        } catch (RejectedExecutionException e) {
+            // The calling thread diffs whatever the executor did not take.
+        }
+        runner.run();
+        runner.await();
+        for (int i = 0; i < gaps.size(); i++) {
+            snakes.addAll(runner.mResults.get(i));
+        }
+    }
+
+    /**
+     * Diffs gaps until there are none left. The calling thread and every thread of the executor
+     * that picks this up share the same queue of gaps, so the caller never waits for a gap that
+     * no thread has started.
+     */
+    private static class GapRunner implements Runnable {
+        final Callback mCallback;
+        final List<Range> mGaps;
+        // Each slot is written by the thread that diffed the gap, before counting down mDone.
+        final List<List<Snake>> mResults;
+        final AtomicInteger mNextGap = new AtomicInteger();
+        final CountDownLatch mDone;
+        volatile Throwable mFailure;
+
+        GapRunner(Callback callback, List<Range> gaps) {
+            mCallback = callback;
+            mGaps = gaps;
+            mResults = new ArrayList<>(Collections.<List<Snake>>nCopies(gaps.size(), null));
+            mDone = new CountDownLatch(gaps.size());
+        }
+
+        @Override
+        public void run() {
+            int index;
+            while ((index = mNextGap.getAndIncrement()) < mGaps.size()) {
+                try {
+                    if (mFailure == null) {
+                        final List<Snake> result = new ArrayList<>();
+                        DiffUtil.findSnakes(mCallback, mGaps.get(index), result);
+                        mResults.set(index, result);
+                    }
+                } catch (Throwable t) {
+                    if (mFailure == null) {
+                        mFailure = t;
+                    }
+                } finally {
+                    mDone.countDown();
+                }
+            }
+        }
+
+        void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mDone.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            final Throwable failure = mFailure;
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new RuntimeException(failure);
+            }
+        }
+    }
+}
@@ -25,7 +25,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * DiffUtil is a utility class that calculates the difference between two lists and outputs a
@@ -81,7 +84,7 @@ public class DiffUtil {
         // utility class, no instance.
     }
 
-    private static final Comparator<Snake> SNAKE_COMPARATOR = new Comparator<Snake>() {
+    static final Comparator<Snake> SNAKE_COMPARATOR = new Comparator<Snake>() {
         @Override
         public int compare(Snake o1, Snake o2) {
             int cmpX = o1.x - o2.x;
@@ -125,12 +128,6 @@ public class DiffUtil {
 
         final List<Snake> snakes = new ArrayList<>();
 
-        // instead of a recursive implementation, we keep our own stack to avoid potential stack
-        // overflow exceptions
-        final List<Range> stack = new ArrayList<>();
-
-        stack.add(new Range(0, oldSize, 0, newSize));
-
         final int max = oldSize + newSize + Math.abs(oldSize - newSize);
         // allocate forward and backward k-lines. K lines are diagonal lines in the matrix. (see the
         // paper for details)
@@ -138,6 +135,128 @@ public class DiffUtil {
         final int[] forward = new int[max * 2];
         final int[] backward = new int[max * 2];
 
+        findSnakes(cb, new Range(0, oldSize, 0, newSize), forward, backward, max, snakes);
+
+        // sort snakes
+        Collections.sort(snakes, SNAKE_COMPARATOR);
+
+        return new DiffResult(cb, snakes, forward, backward, detectMoves);
+
+    }
+
+    /**
+     * Calculates the list of update operations that can covert one list into the other one,
+     * sharing the work with the given executor.
+     * <p>
+     * Items that did not change at the start and at the end of the lists are matched first. If
+     * the callback provides {@link Callback#getOldItemKey(int) item keys}, items whose key is
+     * unique in both lists and that kept their relative order are matched next, using a hash
+     * lookup instead of comparing items pairwise. These matches split the rest of the lists into
+     * independent ranges which are diffed in parallel on {@code executor} and on the calling
+     * thread. For large lists with scattered changes this is much faster than
+     * {@link #calculateDiff(Callback, boolean)}, and each range only needs memory proportional
+     * to its own size.
+     * <p>
+     * The calling thread helps diffing the ranges and only waits for ranges that were already
+     * picked up by the executor, so it is safe to call this method from one of the executor's
+     * threads. On API 21 and above, a {@code ForkJoinPool} is a good choice of executor.
+     * <p>
+     * The callback is called from several threads at once, so it must not rely on being called
+     * on a single thread. Dispatching the result to a {@link ListUpdateCallback} produces the
+     * same list as {@link #calculateDiff(Callback, boolean)}. When several edit scripts of the same
+     * length exist, the two methods may pick different ones, and matching keyed items may
+     * produce a longer edit script than Myers' algorithm when many keyed items swap positions.
+     *
+     * @param cb The callback that acts as a gateway to the backing list data
+     * @param detectMoves True if DiffUtil should try to detect moved items, false otherwise.
+     * @param executor The executor used to diff independent ranges of the lists in parallel.
+     *
+     * @return A DiffResult that contains the information about the edit sequence to convert the
+     * old list into the new list.
+     */
+    @NonNull
+    public static DiffResult calculateDiff(@NonNull Callback cb, boolean detectMoves,
+            @NonNull Executor executor) {
+        final List<Snake> snakes = ChunkedDiff.findSnakes(cb, executor);
+        return new DiffResult(cb, snakes, new int[cb.getOldListSize()],
+                new int[cb.getNewListSize()], detectMoves);
+    }
+
+    /**
+     * Calculates the update operations by matching items by their
+     * {@link Callback#getOldItemKey(int) keys}, in O(N log N) time instead of running Myers'
+     * algorithm.
+     * <p>
+     * Matched items that kept their relative order, i.e. the longest increasing run of old
+     * positions in new list order, stay in place; the other matched items are moves. Every item
+     * must have a key that is unique in its list, otherwise this falls back to
+     * {@link #calculateDiff(Callback, boolean)}.
+     */
+    @NonNull
+    static DiffResult calculateKeyedDiff(@NonNull Callback cb) {
+        final int oldSize = cb.getOldListSize();
+        final int newSize = cb.getNewListSize();
+
+        final Map<Object, Integer> oldPositions = new HashMap<>();
+        for (int i = 0; i < oldSize; i++) {
+            final Object key = cb.getOldItemKey(i);
+            if (key == null || oldPositions.put(key, i) != null) {
+                return calculateDiff(cb, true);
+            }
+        }
+
+        final int[] oldToNew = new int[oldSize];
+        Arrays.fill(oldToNew, DiffResult.NO_POSITION);
+        final int[] newToOld = new int[newSize];
+        final int[] matchedOld = new int[newSize];
+        final int[] matchedNew = new int[newSize];
+        int matchCount = 0;
+        for (int i = 0; i < newSize; i++) {
+            final Object key = cb.getNewItemKey(i);
+            if (key == null) {
+                return calculateDiff(cb, true);
+            }
+            final Integer oldPos = oldPositions.get(key);
+            if (oldPos == null) {
+                newToOld[i] = DiffResult.NO_POSITION;
+                continue;
+            }
+            if (oldToNew[oldPos] != DiffResult.NO_POSITION) {
+                return calculateDiff(cb, true); // duplicate key in the new list
+            }
+            oldToNew[oldPos] = i;
+            newToOld[i] = oldPos;
+            matchedOld[matchCount] = oldPos;
+            matchedNew[matchCount] = i;
+            matchCount++;
+        }
+
+        final List<Snake> snakes = new ArrayList<>();
+        Snake last = null;
+        for (int index : ChunkedDiff.longestIncreasingSubsequence(matchedOld, matchCount)) {
+            last = ChunkedDiff.addSnake(snakes, last, matchedOld[index], matchedNew[index], 1);
+        }
+        return new DiffResult(cb, snakes, oldToNew, newToOld);
+    }
+
+    /**
+     * Runs Myers' algorithm on the given range and adds the snakes it finds to {@code snakes}.
+     */
+    static void findSnakes(Callback cb, Range range, List<Snake> snakes) {
+        final int oldSize = range.oldListEnd - range.oldListStart;
+        final int newSize = range.newListEnd - range.newListStart;
+        final int max = oldSize + newSize + Math.abs(oldSize - newSize);
+        findSnakes(cb, range, new int[max * 2], new int[max * 2], max, snakes);
+    }
+
+    private static void findSnakes(Callback cb, Range initialRange, int[] forward,
+            int[] backward, int max, List<Snake> snakes) {
+        // instead of a recursive implementation, we keep our own stack to avoid potential stack
+        // overflow exceptions
+        final List<Range> stack = new ArrayList<>();
+
+        stack.add(initialRange);
+
         // We pool the ranges to avoid allocations for each recursive call.
         final List<Range> rangePool = new ArrayList<>();
         while (!stack.isEmpty()) {
@@ -192,11 +311,6 @@ public class DiffUtil {
             }
 
         }
-        // sort snakes
-        Collections.sort(snakes, SNAKE_COMPARATOR);
-
-        return new DiffResult(cb, snakes, forward, backward, detectMoves);
-
     }
 
     private static Snake diffPartial(Callback cb, int startOld, int endOld,
@@ -359,6 +473,47 @@ public class DiffUtil {
         public Object getChangePayload(int oldItemPosition, int newItemPosition) {
             return null;
         }
+
+        /**
+         * Returns a key that identifies the item at the given position in the old list, or
+         * {@code null} if it has no key.
+         * <p>
+         * Keys are only used by {@link DiffUtil#calculateDiff(Callback, boolean, Executor)},
+         * which matches items whose key is unique in both lists before it runs Myers' algorithm
+         * on the rest. If the keys of two items are equal,
+         * {@link #areItemsTheSame(int, int)} must return {@code true} for them.
+         * <p>
+         * Default implementation returns {@code null}.
+         *
+         * @param oldItemPosition The position of the item in the old list
+         *
+         * @return A key with {@link Object#equals(Object)} and {@link Object#hashCode()}
+         * implementations that are consistent with {@link #areItemsTheSame(int, int)}.
+         *
+         * @see #getNewItemKey(int)
+         */
+        @Nullable
+        public Object getOldItemKey(int oldItemPosition) {
+            return null;
+        }
+
+        /**
+         * Returns a key that identifies the item at the given position in the new list, or
+         * {@code null} if it has no key.
+         * <p>
+         * Default implementation returns {@code null}.
+         *
+         * @param newItemPosition The position of the item in the new list
+         *
+         * @return A key with {@link Object#equals(Object)} and {@link Object#hashCode()}
+         * implementations that are consistent with {@link #areItemsTheSame(int, int)}.
+         *
+         * @see #getOldItemKey(int)
+         */
+        @Nullable
+        public Object getNewItemKey(int newItemPosition) {
+            return null;
+        }
     }
 
     /**
@@ -556,6 +711,14 @@ public class DiffUtil {
 
         private final boolean mDetectMoves;
 
+        // When the items were matched by key, the new position of each old item and the old
+        // position of each new item, or NO_POSITION. Moves are then read from these instead of
+        // being searched for.
+        @Nullable
+        private final int[] mOldToNew;
+        @Nullable
+        private final int[] mNewToOld;
+
         /**
          * @param callback The callback that was used to calculate the diff
          * @param snakes The list of Myers' snakes
@@ -565,6 +728,25 @@ public class DiffUtil {
          */
         DiffResult(Callback callback, List<Snake> snakes, int[] oldItemStatuses,
                 int[] newItemStatuses, boolean detectMoves) {
+            this(callback, snakes, oldItemStatuses, newItemStatuses, detectMoves, null, null);
+        }
+
+        /**
+         * @param callback The callback that was used to calculate the diff
+         * @param snakes The unchanged runs of matched items
+         * @param oldToNew The new position of each old item, or {@link #NO_POSITION}
+         * @param newToOld The old position of each new item, or {@link #NO_POSITION}
+         */
+        DiffResult(Callback callback, List<Snake> snakes, int[] oldToNew, int[] newToOld) {
+            this(callback, snakes, new int[oldToNew.length], new int[newToOld.length], true,
+                    oldToNew, newToOld);
+        }
+
+        private DiffResult(Callback callback, List<Snake> snakes, int[] oldItemStatuses,
+                int[] newItemStatuses, boolean detectMoves, @Nullable int[] oldToNew,
+                @Nullable int[] newToOld) {
+            mOldToNew = oldToNew;
+            mNewToOld = newToOld;
             mSnakes = snakes;
             mOldItemStatuses = oldItemStatuses;
             mNewItemStatuses = newItemStatuses;
@@ -646,6 +828,16 @@ public class DiffUtil {
             if (mOldItemStatuses[x - 1] != 0) {
                 return; // already set by a latter item
             }
+            if (mOldToNew != null) {
+                final int pos = mOldToNew[x - 1];
+                if (pos != NO_POSITION) {
+                    final int changeFlag = mCallback.areContentsTheSame(x - 1, pos)
+                            ? FLAG_MOVED_NOT_CHANGED : FLAG_MOVED_CHANGED;
+                    mOldItemStatuses[x - 1] = (pos << FLAG_OFFSET) | FLAG_IGNORE;
+                    mNewItemStatuses[pos] = ((x - 1) << FLAG_OFFSET) | changeFlag;
+                }
+                return;
+            }
             findMatchingItem(x, y, snakeIndex, false);
         }
 
@@ -653,6 +845,16 @@ public class DiffUtil {
             if (mNewItemStatuses[y - 1] != 0) {
                 return; // already set by a latter item
             }
+            if (mNewToOld != null) {
+                final int pos = mNewToOld[y - 1];
+                if (pos != NO_POSITION) {
+                    final int changeFlag = mCallback.areContentsTheSame(pos, y - 1)
+                            ? FLAG_MOVED_NOT_CHANGED : FLAG_MOVED_CHANGED;
+                    mNewItemStatuses[y - 1] = (pos << FLAG_OFFSET) | FLAG_IGNORE;
+                    mOldItemStatuses[pos] = ((y - 1) << FLAG_OFFSET) | changeFlag;
+                }
+                return;
+            }
             findMatchingItem(x, y, snakeIndex, true);
         }
 
@@ -16,15 +16,20 @@
 package androidx.recyclerview.widget;
 
 import android.annotation.SuppressLint;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseIntArray;
 import android.view.View;
 
 import androidx.annotation.Nullable;
 import androidx.core.os.TraceCompat;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 final class GapWorker implements Runnable {
@@ -35,6 +40,23 @@ final class GapWorker implements Runnable {
     long mPostTimeNs;
     long mFrameIntervalNs;
 
+    /**
+     * Most frames adaptive prefetch looks ahead.
+     */
+    static final int MAX_ADAPTIVE_LOOKAHEAD_FRAMES = 4;
+
+    /**
+     * Running average of the time left before the next frame when a prefetch pass starts, used
+     * by adaptive prefetch.
+     */
+    long mFrameSlackNs;
+
+    /**
+     * Handler for the thread this worker runs on, which ViewHolders created off that thread are
+     * handed back through. Created when first needed.
+     */
+    private Handler mHandler;
+
     static class Task {
         public boolean immediate;
         public int viewVelocity;
@@ -66,6 +88,8 @@ final class GapWorker implements Runnable {
             implements RecyclerView.LayoutManager.LayoutPrefetchRegistry {
         int mPrefetchDx;
         int mPrefetchDy;
+        // Number of frames of scrolling at the current velocity to collect positions for.
+        int mLookaheadFrames = 1;
         int[] mPrefetchArray;
 
         int mCount;
@@ -94,8 +118,8 @@ final class GapWorker implements Runnable {
                 } else {
                     // momentum based prefetch, only if we trust current child/adapter state
                     if (!view.hasPendingAdapterUpdates()) {
-                        layout.collectAdjacentPrefetchPositions(mPrefetchDx, mPrefetchDy,
-                                view.mState, this);
+                        layout.collectAdjacentPrefetchPositions(mPrefetchDx * mLookaheadFrames,
+                                mPrefetchDy * mLookaheadFrames, view.mState, this);
                     }
                 }
 
@@ -170,6 +194,20 @@ final class GapWorker implements Runnable {
         }
     }
 
+    /**
+     * Schedule a pass to create ViewHolders for a pool warm-up, unless a pass is already
+     * scheduled.
+     */
+    void postWarmUp(RecyclerView recyclerView) {
+        if (recyclerView.isAttachedToWindow() && mPostTimeNs == 0) {
+            if (RecyclerView.DEBUG && !mRecyclerViews.contains(recyclerView)) {
+                throw new IllegalStateException("attempting to post unregistered view!");
+            }
+            mPostTimeNs = recyclerView.getNanoTime();
+            recyclerView.post(this);
+        }
+    }
+
     /**
      * Schedule a prefetch immediately after the current traversal.
      */
@@ -212,6 +250,51 @@ final class GapWorker implements Runnable {
         }
     };
 
+    /**
+     * Returns how many frames ahead adaptive prefetch should look, so that items that take
+     * longer than the time left after a frame to create and bind are started early enough.
+     */
+    int getLookaheadFrames(RecyclerView view) {
+        final long itemNs = view.getRecycledViewPool().getMaxCreateAndBindTimeNs();
+        if (itemNs == 0) {
+            // nothing measured yet
+            return 1;
+        }
+        if (mFrameSlackNs <= 0) {
+            return MAX_ADAPTIVE_LOOKAHEAD_FRAMES;
+        }
+        final long frames = (itemNs + mFrameSlackNs - 1) / mFrameSlackNs;
+        return (int) Math.max(1, Math.min(frames, MAX_ADAPTIVE_LOOKAHEAD_FRAMES));
+    }
+
+    /**
+     * Records the number of items displayed by the nested RecyclerViews in the attached items
+     * of the given view, by item view type.
+     */
+    static void updateNestedItemCounts(RecyclerView view) {
+        final int childCount = view.mChildHelper.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final RecyclerView.ViewHolder holder =
+                    RecyclerView.getChildViewHolderInt(view.mChildHelper.getChildAt(i));
+            final RecyclerView innerView = holder == null || holder.mNestedRecyclerView == null
+                    ? null : holder.mNestedRecyclerView.get();
+            if (innerView == null) {
+                continue;
+            }
+            final int innerCount = innerView.mChildHelper.getChildCount();
+            if (innerCount == 0) {
+                continue;
+            }
+            if (view.mNestedItemCountsObserved == null) {
+                view.mNestedItemCountsObserved = new SparseIntArray();
+            }
+            final int viewType = holder.getItemViewType();
+            if (innerCount > view.mNestedItemCountsObserved.get(viewType)) {
+                view.mNestedItemCountsObserved.put(viewType, innerCount);
+            }
+        }
+    }
+
     private void buildTaskList() {
         // Update PrefetchRegistry in each view
         final int viewCount = mRecyclerViews.size();
@@ -219,6 +302,12 @@ final class GapWorker implements Runnable {
         for (int i = 0; i < viewCount; i++) {
             RecyclerView view = mRecyclerViews.get(i);
             if (view.getWindowVisibility() == View.VISIBLE) {
+                if (view.mAdaptivePrefetchEnabled) {
+                    view.mPrefetchRegistry.mLookaheadFrames = getLookaheadFrames(view);
+                    updateNestedItemCounts(view);
+                } else {
+                    view.mPrefetchRegistry.mLookaheadFrames = 1;
+                }
                 view.mPrefetchRegistry.collectPrefetchPositionsFromView(view, false);
                 totalTaskCount += view.mPrefetchRegistry.mCount;
             }
@@ -293,6 +382,11 @@ final class GapWorker implements Runnable {
                     // Only give the view a chance to go into the cache if binding succeeded
                     // Note that we must use public method, since item may need cleanup
                     recycler.recycleView(holder.itemView);
+                    if (view.mMetrics != null
+                            && !holder.hasAnyOfTheFlags(RecyclerView.ViewHolder.FLAG_PREFETCHED)) {
+                        holder.addFlags(RecyclerView.ViewHolder.FLAG_PREFETCHED);
+                        view.mMetrics.recordPrefetched();
+                    }
                 } else {
                     // Didn't bind, so we can't cache the view, but it will stay in the pool until
                     // next prefetch/traversal. If a View fails to bind, it means we didn't have
@@ -308,10 +402,13 @@ final class GapWorker implements Runnable {
     }
 
     private void prefetchInnerRecyclerViewWithDeadline(@Nullable RecyclerView innerView,
-            long deadlineNs) {
+            int adaptiveItemCount, long deadlineNs) {
         if (innerView == null) {
             return;
         }
+        if (innerView.mLayout != null) {
+            innerView.mLayout.mAdaptiveInitialPrefetchItemCount = adaptiveItemCount;
+        }
 
         if (innerView.mDataSetHasChangedAfterLayout
                 && innerView.mChildHelper.getUnfilteredChildCount() != 0) {
@@ -348,7 +445,12 @@ final class GapWorker implements Runnable {
                 && holder.mNestedRecyclerView != null
                 && holder.isBound()
                 && !holder.isInvalid()) {
-            prefetchInnerRecyclerViewWithDeadline(holder.mNestedRecyclerView.get(), deadlineNs);
+            final RecyclerView view = task.view;
+            final int adaptiveItemCount = view.mAdaptivePrefetchEnabled
+                    && view.mNestedItemCountsObserved != null
+                    ? view.mNestedItemCountsObserved.get(holder.getItemViewType()) : 0;
+            prefetchInnerRecyclerViewWithDeadline(holder.mNestedRecyclerView.get(),
+                    adaptiveItemCount, deadlineNs);
         }
     }
 
@@ -368,8 +470,132 @@ final class GapWorker implements Runnable {
         flushTasksWithDeadline(deadlineNs);
     }
 
+    /**
+     * Creates a ViewHolder of the given type on the RecyclerView's
+     * {@link RecyclerView#setViewHolderCreationExecutor(java.util.concurrent.Executor) creation
+     * executor}, and adds it to the RecyclerView's pool on this thread once it is created.
+     */
+    void createViewHolderAsync(RecyclerView view, int viewType) {
+        final RecyclerView.RecycledViewPool pool = view.getRecycledViewPool();
+        if (!pool.startAsyncCreate(viewType)) {
+            // enough ViewHolders of this type are already pooled or on their way
+            return;
+        }
+        if (mHandler == null) {
+            Looper looper = Looper.myLooper();
+            mHandler = new Handler(looper != null ? looper : Looper.getMainLooper());
+        }
+        try {
+            view.mViewHolderCreationExecutor.execute(
+                    new AsyncCreateTask(view, view.mAdapter, pool, viewType, mHandler));
+        } catch (RejectedExecutionException e) {
+            pool.finishAsyncCreate(viewType);
+        }
+    }
+
+    /**
+     * Creates a ViewHolder on an executor thread, then adds it to the pool on the thread of the
+     * given Handler.
+     */
+    static class AsyncCreateTask implements Runnable {
+        final RecyclerView mView;
+        final RecyclerView.Adapter mAdapter;
+        final RecyclerView.RecycledViewPool mPool;
+        final int mViewType;
+        final Handler mHandler;
+
+        // Written on the executor thread, read after the Handler delivers mDeliver.
+        RecyclerView.ViewHolder mHolder;
+        Throwable mFailure;
+
+        private final Runnable mDeliver = new Runnable() {
+            @Override
+            public void run() {
+                deliver();
+            }
+        };
+
+        AsyncCreateTask(RecyclerView view, RecyclerView.Adapter adapter,
+                RecyclerView.RecycledViewPool pool, int viewType, Handler handler) {
+            mView = view;
+            mAdapter = adapter;
+            mPool = pool;
+            mViewType = viewType;
+            mHandler = handler;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mHolder = mAdapter.createViewHolder(mView, mViewType);
+            } catch (Throwable t) {
+                // includes Errors, which must not skip finishAsyncCreate either
+                mFailure = t;
+            } finally {
+                mHandler.post(mDeliver);
+            }
+        }
+
+        void deliver() {
+            mPool.finishAsyncCreate(mViewType);
+            if (mFailure != null) {
+                // fail the same way a ViewHolder created on the UI thread would
+                if (mFailure instanceof RuntimeException) {
+                    throw (RuntimeException) mFailure;
+                }
+                if (mFailure instanceof Error) {
+                    throw (Error) mFailure;
+                }
+                throw new RuntimeException(mFailure);
+            }
+            if (mView.mAdapter != mAdapter || mView.mRecycler.mRecyclerPool != mPool) {
+                // adapter or pool was swapped while creating, the ViewHolder may not fit anymore
+                return;
+            }
+            RecyclerView innerView = RecyclerView.findNestedRecyclerView(mHolder.itemView);
+            if (innerView != null) {
+                mHolder.mNestedRecyclerView = new WeakReference<>(innerView);
+            }
+            mPool.putRecycledView(mHolder);
+        }
+    }
+
+    /**
+     * Creates ViewHolders for pool warm-ups while they are expected to complete before the
+     * deadline. If {@code idle}, at least one is created regardless of the deadline.
+     *
+     * @return A RecyclerView that still has warm-up work, or null if all warm-ups are done.
+     */
+    @Nullable
+    RecyclerView warmUpPoolsWithDeadline(long deadlineNs, boolean idle) {
+        boolean created = false;
+        for (int i = 0; i < mRecyclerViews.size(); i++) {
+            final RecyclerView view = mRecyclerViews.get(i);
+            final RecyclerView.RecycledViewPool pool = view.mRecycler.mRecyclerPool;
+            if (pool == null || view.mAdapter == null) {
+                continue;
+            }
+            int viewType;
+            while ((viewType = pool.nextWarmUpType(view)) != RecyclerView.INVALID_TYPE) {
+                if ((created || !idle)
+                        && !pool.willCreateInTime(viewType, view.getNanoTime(), deadlineNs)) {
+                    return view;
+                }
+                try {
+                    TraceCompat.beginSection(RecyclerView.TRACE_WARM_UP_TAG);
+                    pool.putWarmedUpView(view.mRecycler.createViewHolder(viewType));
+                } finally {
+                    TraceCompat.endSection();
+                }
+                created = true;
+            }
+        }
+        return null;
+    }
+
     @Override
     public void run() {
+        RecyclerView pendingWarmUpView = null;
         try {
             TraceCompat.beginSection(RecyclerView.TRACE_PREFETCH_TAG);
 
@@ -382,10 +608,12 @@ final class GapWorker implements Runnable {
             // valid in animation/input callbacks, so query it here to be safe.
             final int size = mRecyclerViews.size();
             long latestFrameVsyncMs = 0;
+            RecyclerView visibleView = null;
             for (int i = 0; i < size; i++) {
                 RecyclerView view = mRecyclerViews.get(i);
                 if (view.getWindowVisibility() == View.VISIBLE) {
                     latestFrameVsyncMs = Math.max(view.getDrawingTime(), latestFrameVsyncMs);
+                    visibleView = view;
                 }
             }
 
@@ -396,12 +624,32 @@ final class GapWorker implements Runnable {
 
             long nextFrameNs = TimeUnit.MILLISECONDS.toNanos(latestFrameVsyncMs) + mFrameIntervalNs;
 
+            // Track time left in the frame, for adaptive prefetch. A pass more than a frame
+            // late means no frames are being drawn, which says nothing about frame time.
+            final long slackNs = nextFrameNs - visibleView.getNanoTime();
+            if (slackNs > -mFrameIntervalNs) {
+                final long clampedSlackNs = Math.max(0, slackNs);
+                mFrameSlackNs = mFrameSlackNs == 0
+                        ? clampedSlackNs : (mFrameSlackNs / 4 * 3) + (clampedSlackNs / 4);
+            }
+
             prefetch(nextFrameNs);
 
+            // If the predicted frame has already passed without being drawn, nothing is
+            // animating or scrolling, so warm-ups can use a whole frame interval from now.
+            final long nowNs = visibleView.getNanoTime();
+            final boolean idle = nextFrameNs <= nowNs;
+            pendingWarmUpView = warmUpPoolsWithDeadline(
+                    idle ? nowNs + mFrameIntervalNs : nextFrameNs, idle);
+
             // TODO: consider rescheduling self, if there's more work to do
         } finally {
             mPostTimeNs = 0;
             TraceCompat.endSection();
         }
+        if (pendingWarmUpView != null) {
+            // continue warming up in the next gap
+            postWarmUp(pendingWarmUpView);
+        }
     }
 }
@@ -197,18 +197,21 @@ public class GridLayoutManager extends LinearLayoutManager {
 
     @Override
     public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        mSpanSizeLookup.onItemsAdded(positionStart, itemCount);
         mSpanSizeLookup.invalidateSpanIndexCache();
         mSpanSizeLookup.invalidateSpanGroupIndexCache();
     }
 
     @Override
     public void onItemsChanged(RecyclerView recyclerView) {
+        mSpanSizeLookup.onItemsChanged();
         mSpanSizeLookup.invalidateSpanIndexCache();
         mSpanSizeLookup.invalidateSpanGroupIndexCache();
     }
 
     @Override
     public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        mSpanSizeLookup.onItemsRemoved(positionStart, itemCount);
         mSpanSizeLookup.invalidateSpanIndexCache();
         mSpanSizeLookup.invalidateSpanGroupIndexCache();
     }
@@ -216,12 +219,14 @@ public class GridLayoutManager extends LinearLayoutManager {
     @Override
     public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount,
             Object payload) {
+        mSpanSizeLookup.onItemsUpdated(positionStart, itemCount);
         mSpanSizeLookup.invalidateSpanIndexCache();
         mSpanSizeLookup.invalidateSpanGroupIndexCache();
     }
 
     @Override
     public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        mSpanSizeLookup.onItemsMoved(from, to, itemCount);
         mSpanSizeLookup.invalidateSpanIndexCache();
         mSpanSizeLookup.invalidateSpanGroupIndexCache();
     }
@@ -839,6 +844,9 @@ public class GridLayoutManager extends LinearLayoutManager {
         private boolean mCacheSpanIndices = false;
         private boolean mCacheSpanGroupIndices = false;
 
+        // Non-null if the incremental span index is enabled.
+        SpanIndexTree mSpanIndexTree;
+
         /**
          * Returns the number of span occupied by the item at <code>position</code>.
          *
@@ -879,6 +887,67 @@ public class GridLayoutManager extends LinearLayoutManager {
             mCacheSpanGroupIndices = cacheSpanGroupIndices;
         }
 
+        /**
+         * Sets whether the default implementations of {@link #getSpanIndex(int, int)} and
+         * {@link #getSpanGroupIndex(int, int)} use an incremental index. By default, it is not
+         * used.
+         * <p>
+         * The index answers both in logarithmic time for any position, so scrolling far or
+         * jumping to a position in a large grid doesn't walk all items before it. It follows
+         * the adapter changes GridLayoutManager is notified of, and only recomputes the items
+         * around each change. Span sizes are only looked up for positions up to the highest
+         * one queried.
+         * <p>
+         * The index is not used if you override {@link #getSpanIndex(int, int)} or
+         * {@link #getSpanGroupIndex(int, int)}. If the span size of items changes without the
+         * adapter notifying of a change, call this method again to rebuild the index.
+         *
+         * @param enabled Whether the incremental span index should be used.
+         */
+        public void setIncrementalSpanIndexEnabled(boolean enabled) {
+            mSpanIndexTree = enabled ? new SpanIndexTree(this) : null;
+        }
+
+        /**
+         * Returns whether the default {@link #getSpanIndex(int, int)} and
+         * {@link #getSpanGroupIndex(int, int)} use an incremental index.
+         *
+         * @return True if the incremental span index is used.
+         */
+        public boolean isIncrementalSpanIndexEnabled() {
+            return mSpanIndexTree != null;
+        }
+
+        void onItemsAdded(int positionStart, int itemCount) {
+            if (mSpanIndexTree != null) {
+                mSpanIndexTree.onItemsAdded(positionStart, itemCount);
+            }
+        }
+
+        void onItemsRemoved(int positionStart, int itemCount) {
+            if (mSpanIndexTree != null) {
+                mSpanIndexTree.onItemsRemoved(positionStart, itemCount);
+            }
+        }
+
+        void onItemsUpdated(int positionStart, int itemCount) {
+            if (mSpanIndexTree != null) {
+                mSpanIndexTree.onItemsUpdated(positionStart, itemCount);
+            }
+        }
+
+        void onItemsMoved(int from, int to, int itemCount) {
+            if (mSpanIndexTree != null) {
+                mSpanIndexTree.onItemsMoved(from, to, itemCount);
+            }
+        }
+
+        void onItemsChanged() {
+            if (mSpanIndexTree != null) {
+                mSpanIndexTree.clear();
+            }
+        }
+
         /**
          * Clears the span index cache. GridLayoutManager automatically calls this method when
          * adapter changes occur.
@@ -947,7 +1016,8 @@ public class GridLayoutManager extends LinearLayoutManager {
          * ({@link #setSpanIndexCacheEnabled(boolean)}) for better performance. When caching is
          * disabled, default implementation traverses all items from 0 to
          * <code>position</code>. When caching is enabled, it calculates from the closest cached
-         * value before the <code>position</code>.
+         * value before the <code>position</code>. When the incremental span index is enabled
+         * ({@link #setIncrementalSpanIndexEnabled(boolean)}), it takes logarithmic time.
          * <p>
          * If you override this method, you need to make sure it is consistent with
          * {@link #getSpanSize(int)}. GridLayoutManager does not call this method for
@@ -963,6 +1033,9 @@ public class GridLayoutManager extends LinearLayoutManager {
          * <code>spanCount</code>(exclusive)
          */
         public int getSpanIndex(int position, int spanCount) {
+            if (mSpanIndexTree != null && position >= 0) {
+                return mSpanIndexTree.getSpanIndex(position, spanCount);
+            }
             int positionSpanSize = getSpanSize(position);
             if (positionSpanSize == spanCount) {
                 return 0; // quick return for full-span items
@@ -1026,6 +1099,9 @@ public class GridLayoutManager extends LinearLayoutManager {
          * @return The index of the span group including the item at the given adapter position
          */
         public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+            if (mSpanIndexTree != null && adapterPosition >= 0) {
+                return mSpanIndexTree.getSpanGroupIndex(adapterPosition, spanCount);
+            }
             int span = 0;
             int group = 0;
             int start = 0;
@@ -1278,6 +1278,35 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
         final int pos = layoutState.mCurrentPosition;
         if (pos >= 0 && pos < state.getItemCount()) {
             layoutPrefetchRegistry.addPosition(pos, Math.max(0, layoutState.mScrollingOffset));
+            layoutState.mCurrentPosition += layoutState.mItemDirection;
+        }
+    }
+
+    /**
+     * Keeps collecting positions after the first
+     * {@link #collectPrefetchPositionsForLayoutState(RecyclerView.State, LayoutState,
+     * LayoutPrefetchRegistry)} call, until the estimated distance to the next position is at
+     * least {@code absDelta}. Item sizes are estimated from the attached children.
+     */
+    private void collectLookaheadPrefetchPositions(RecyclerView.State state, int absDelta,
+            int firstPosition, LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        final int childCount = getChildCount();
+        final int itemExtent = (mOrientationHelper.getDecoratedEnd(getChildClosestToEnd())
+                - mOrientationHelper.getDecoratedStart(getChildClosestToStart())) / childCount;
+        if (itemExtent <= 0) {
+            return;
+        }
+        int distance = Math.max(0, mLayoutState.mScrollingOffset);
+        int startPosition = firstPosition;
+        while (mLayoutState.hasMore(state)) {
+            final int collected = Math.abs(mLayoutState.mCurrentPosition - startPosition);
+            distance += collected * itemExtent;
+            if (collected == 0 || distance >= absDelta) {
+                return;
+            }
+            startPosition = mLayoutState.mCurrentPosition;
+            mLayoutState.mScrollingOffset = distance;
+            collectPrefetchPositionsForLayoutState(state, mLayoutState, layoutPrefetchRegistry);
         }
     }
 
@@ -1303,8 +1332,10 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
         final int direction = fromEnd
                 ? LayoutState.ITEM_DIRECTION_HEAD
                 : LayoutState.ITEM_DIRECTION_TAIL;
+        final int itemCount = mAdaptiveInitialPrefetchItemCount > 0
+                ? mAdaptiveInitialPrefetchItemCount : mInitialPrefetchItemCount;
         int targetPos = anchorPos;
-        for (int i = 0; i < mInitialPrefetchItemCount; i++) {
+        for (int i = 0; i < itemCount; i++) {
             if (targetPos >= 0 && targetPos < adapterItemCount) {
                 layoutPrefetchRegistry.addPosition(targetPos, 0);
             } else {
@@ -1337,6 +1368,10 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
      * views that will be visible in this view can incur unnecessary bind work, and an increase to
      * the number of Views created and in active use.</p>
      *
+     * <p>If the outer RecyclerView has
+     * {@link RecyclerView#setAdaptivePrefetchEnabled(boolean) adaptive prefetch} enabled, it
+     * picks this number itself once it has seen a nested RecyclerView laid out.</p>
+     *
      * @param itemCount Number of items to prefetch
      *
      * @see #isItemPrefetchEnabled()
@@ -1376,7 +1411,13 @@ public class LinearLayoutManager extends RecyclerView.LayoutManager implements
         final int layoutDirection = delta > 0 ? LayoutState.LAYOUT_END : LayoutState.LAYOUT_START;
         final int absDelta = Math.abs(delta);
         updateLayoutState(layoutDirection, absDelta, true, state);
+        final int firstPosition = mLayoutState.mCurrentPosition;
         collectPrefetchPositionsForLayoutState(state, mLayoutState, layoutPrefetchRegistry);
+        if (mRecyclerView != null && mRecyclerView.mAdaptivePrefetchEnabled) {
+            // delta spans several frames of scrolling, so it may reach past the next item
+            collectLookaheadPrefetchPositions(state, absDelta, firstPosition,
+                    layoutPrefetchRegistry);
+        }
     }
 
     int scrollBy(int delta, RecyclerView.Recycler recycler, RecyclerView.State state) {
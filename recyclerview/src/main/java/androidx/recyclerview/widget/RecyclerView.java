@@ -43,6 +43,7 @@ import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.Display;
 import android.view.FocusFinder;
 import android.view.InputDevice;
@@ -92,6 +93,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * A flexible view for providing a limited window into a large data set.
@@ -345,6 +347,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
      */
     static final String TRACE_NESTED_PREFETCH_TAG = "RV Nested Prefetch";
 
+    /**
+     * RecyclerView is creating views ahead of time for a
+     * {@link RecycledViewPool#warmUp(RecyclerView, int, int) pool warm-up}.
+     */
+    static final String TRACE_WARM_UP_TAG = "RV Warm Up";
+
     /**
      * RecyclerView is creating a new View.
      * If too many of these present in Systrace:
@@ -552,6 +560,18 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
     androidx.recyclerview.widget.GapWorker.LayoutPrefetchRegistryImpl mPrefetchRegistry =
             ALLOW_THREAD_GAP_WORK ? new androidx.recyclerview.widget.GapWorker.LayoutPrefetchRegistryImpl() : null;
 
+    // Creates ViewHolders that prefetch could not create in time, if set.
+    Executor mViewHolderCreationExecutor;
+
+    boolean mAdaptivePrefetchEnabled = false;
+
+    // Most items seen in a nested RecyclerView, by the view type of the item holding it. Only
+    // tracked for adaptive prefetch.
+    SparseIntArray mNestedItemCountsObserved;
+
+    // Collects layout, create, bind and prefetch metrics, if set.
+    RecyclerViewMetrics mMetrics;
+
     final State mState = new State();
 
     private OnScrollListener mScrollListener;
@@ -1525,6 +1545,108 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         mRecycler.setViewCacheSize(size);
     }
 
+    /**
+     * Sets an Executor that creates ViewHolders off the UI thread when item prefetch can't
+     * create them before the next frame.
+     * <p>
+     * Prefetch only creates a ViewHolder between frames if the average creation time for its
+     * type fits before the next frame. For view types that take longer than that, the
+     * ViewHolder is instead created by calling {@link Adapter#createViewHolder(ViewGroup, int)}
+     * on this Executor. Once it is created, it is added to the
+     * {@link #getRecycledViewPool() RecycledViewPool} on the UI thread, where later prefetch
+     * passes or layouts pick it up.
+     * <p>
+     * The Adapter's {@link Adapter#onCreateViewHolder(ViewGroup, int)} must be safe to call
+     * from the Executor's threads, at the same time as other Adapter methods are called on the
+     * UI thread. It must not touch views that are attached to a window, or state that the UI
+     * thread modifies. {@link Adapter#onBindViewHolder(ViewHolder, int)} is still always called
+     * on the UI thread.
+     * <p>
+     * Item prefetch requires API 21, so on older versions the Executor is not used.
+     *
+     * @param executor Executor to create ViewHolders on, or null to only create them on the UI
+     *                 thread. Null by default.
+     */
+    public void setViewHolderCreationExecutor(@Nullable Executor executor) {
+        mViewHolderCreationExecutor = executor;
+    }
+
+    /**
+     * Returns the Executor set with {@link #setViewHolderCreationExecutor(Executor)}.
+     *
+     * @return The Executor ViewHolders are created on, or null if they are only created on the
+     * UI thread.
+     */
+    @Nullable
+    public Executor getViewHolderCreationExecutor() {
+        return mViewHolderCreationExecutor;
+    }
+
+    /**
+     * Sets whether item prefetch adapts how far ahead it looks to the cost of items and to the
+     * time left between frames.
+     * <p>
+     * By default, prefetch collects the items the next frame of a scroll or fling needs. With
+     * adaptive prefetch, when creating and binding an item takes longer than the time usually
+     * left after a frame, prefetch looks as many frames ahead as it takes to prepare such an
+     * item, up to 4 frames. Items that are needed sooner are still prefetched first. The
+     * distance covered grows with the scroll velocity, so fast flings start prefetching items
+     * earlier. {@link LinearLayoutManager} and {@link GridLayoutManager} collect every item in
+     * that distance.
+     * <p>
+     * Adaptive prefetch also replaces the
+     * {@link LinearLayoutManager#setInitialPrefetchItemCount(int) initial prefetch item count}
+     * of nested RecyclerViews. Once a nested RecyclerView inside an item of a given view type
+     * has been laid out, as many items as it displayed are prefetched for nested
+     * RecyclerViews in other items of that type.
+     * <p>
+     * Item prefetch requires API 21, and this setting has no effect on older versions.
+     *
+     * @param enabled True to adapt prefetch, false to prefetch the next frame's items. False by
+     *                default.
+     *
+     * @see LayoutManager#setItemPrefetchEnabled(boolean)
+     */
+    public void setAdaptivePrefetchEnabled(boolean enabled) {
+        mAdaptivePrefetchEnabled = enabled;
+    }
+
+    /**
+     * Returns whether item prefetch adapts to item cost and frame time.
+     *
+     * @return True if adaptive prefetch is enabled.
+     *
+     * @see #setAdaptivePrefetchEnabled(boolean)
+     */
+    public boolean isAdaptivePrefetchEnabled() {
+        return mAdaptivePrefetchEnabled;
+    }
+
+    /**
+     * Sets the {@link RecyclerViewMetrics} this RecyclerView records its layout, create, bind and
+     * prefetch metrics into.
+     * <p>
+     * The same metrics may be set on several RecyclerViews to add up their metrics. Nested
+     * RecyclerViews do not inherit the metrics of their parent.
+     *
+     * @param metrics The metrics to record into, or null to stop recording. Null by default.
+     */
+    public void setMetrics(@Nullable RecyclerViewMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Returns the {@link RecyclerViewMetrics} this RecyclerView records into.
+     *
+     * @return The metrics, or null if none are set.
+     *
+     * @see #setMetrics(RecyclerViewMetrics)
+     */
+    @Nullable
+    public RecyclerViewMetrics getMetrics() {
+        return mMetrics;
+    }
+
     /**
      * Return the current scrolling state of the RecyclerView.
      *
@@ -2986,6 +3108,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
                 androidx.recyclerview.widget.GapWorker.sGapWorker.set(mGapWorker);
             }
             mGapWorker.add(this);
+            if (mRecycler.mRecyclerPool != null && mRecycler.mRecyclerPool.hasWarmUpFor(this)) {
+                mGapWorker.postWarmUp(this);
+            }
         }
     }
 
@@ -4030,6 +4155,8 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
      * - If necessary, run predictive layout and save its information
      */
     private void dispatchLayoutStep1() {
+        final RecyclerViewMetrics metrics = mMetrics;
+        final long startNs = metrics != null ? getNanoTime() : 0;
         mState.assertLayoutStep(State.STEP_START);
         fillRemainingScrollValues(mState);
         mState.mIsMeasuring = false;
@@ -4115,6 +4242,10 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         onExitLayoutOrScroll();
         stopInterceptRequestLayout(false);
         mState.mLayoutStep = State.STEP_LAYOUT;
+        if (metrics != null) {
+            metrics.recordLayoutStep(RecyclerViewMetrics.LAYOUT_STEP_PRE_LAYOUT,
+                    getNanoTime() - startNs);
+        }
     }
 
     /**
@@ -4122,6 +4253,8 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
      * This step might be run multiple times if necessary (e.g. measure).
      */
     private void dispatchLayoutStep2() {
+        final RecyclerViewMetrics metrics = mMetrics;
+        final long startNs = metrics != null ? getNanoTime() : 0;
         startInterceptRequestLayout();
         onEnterLayoutOrScroll();
         mState.assertLayoutStep(State.STEP_LAYOUT | State.STEP_ANIMATIONS);
@@ -4141,6 +4274,10 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         mState.mLayoutStep = State.STEP_ANIMATIONS;
         onExitLayoutOrScroll();
         stopInterceptRequestLayout(false);
+        if (metrics != null) {
+            metrics.recordLayoutStep(RecyclerViewMetrics.LAYOUT_STEP_LAYOUT,
+                    getNanoTime() - startNs);
+        }
     }
 
     /**
@@ -4148,6 +4285,8 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
      * trigger animations and do any necessary cleanup.
      */
     private void dispatchLayoutStep3() {
+        final RecyclerViewMetrics metrics = mMetrics;
+        final long startNs = metrics != null ? getNanoTime() : 0;
         mState.assertLayoutStep(State.STEP_ANIMATIONS);
         startInterceptRequestLayout();
         onEnterLayoutOrScroll();
@@ -4232,6 +4371,10 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         }
         recoverFocusFromState();
         resetFocusInfo();
+        if (metrics != null) {
+            metrics.recordLayoutStep(RecyclerViewMetrics.LAYOUT_STEP_ANIMATIONS,
+                    getNanoTime() - startNs);
+        }
     }
 
     /**
@@ -5636,6 +5779,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
     public static class RecycledViewPool {
         private static final int DEFAULT_MAX_SCRAP = 5;
 
+        /**
+         * With adaptive limits, a type may hold this many ViewHolders per adapter attached to the
+         * pool.
+         */
+        private static final int ADAPTIVE_MAX_SCRAP_PER_ADAPTER = DEFAULT_MAX_SCRAP;
+
         /**
          * Tracks both pooled holders, as well as create/bind timing metadata for the given type.
          *
@@ -5653,13 +5802,25 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         static class ScrapData {
             final ArrayList<ViewHolder> mScrapHeap = new ArrayList<>();
             int mMaxScrap = DEFAULT_MAX_SCRAP;
+            // True if mMaxScrap came from setMaxRecycledViews, and must not be adapted.
+            boolean mMaxScrapSetByApp = false;
+            // ViewHolders discarded because the heap was full, since the last time the pool had
+            // none to give out.
+            int mDiscardCount = 0;
             long mCreateRunningAverageNs = 0;
             long mBindRunningAverageNs = 0;
+            // ViewHolders still to be created ahead of time, and the RecyclerView creating them.
+            int mWarmUpCount = 0;
+            WeakReference<RecyclerView> mWarmUpView;
+            // ViewHolders being created off the UI thread, that will be added to the pool.
+            int mAsyncCreateCount = 0;
         }
         SparseArray<ScrapData> mScrap = new SparseArray<>();
 
         private int mAttachCount = 0;
 
+        private boolean mAdaptiveMaxScrap = false;
+
         /**
          * Discard all ViewHolders.
          */
@@ -5679,12 +5840,69 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         public void setMaxRecycledViews(int viewType, int max) {
             ScrapData scrapData = getScrapDataForType(viewType);
             scrapData.mMaxScrap = max;
+            scrapData.mMaxScrapSetByApp = true;
             final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
             while (scrapHeap.size() > max) {
                 scrapHeap.remove(scrapHeap.size() - 1);
             }
         }
 
+        /**
+         * Lets the pool raise the maximum number of ViewHolders it holds for a view type, based
+         * on how the RecyclerViews sharing it use that type.
+         * <p>
+         * When ViewHolders of a type are discarded because the pool is full, and the pool later
+         * runs out of that type so that a new ViewHolder has to be created, the limit for that
+         * type is raised by one. The limit grows up to 5 ViewHolders per adapter attached to the
+         * pool. Types whose limit was set with {@link #setMaxRecycledViews(int, int)} keep that
+         * limit.
+         * <p>
+         * Adaptive limits are disabled by default.
+         *
+         * @param adaptive True to adapt the limits to observed usage, false to keep them fixed.
+         */
+        public void setAdaptiveMaxRecycledViews(boolean adaptive) {
+            mAdaptiveMaxScrap = adaptive;
+        }
+
+        /**
+         * Creates ViewHolders of the given type ahead of time, so that the first items of that
+         * type that scroll into view don't have to be created in the middle of a frame.
+         * <p>
+         * The ViewHolders are created by {@code recyclerView}'s adapter in the time between
+         * frames, after item prefetch is done. A ViewHolder is only created if the pool's
+         * average creation time for its type fits before the next frame. When no frames are
+         * being drawn, at least one ViewHolder is created per pass, so that types that take
+         * longer than a frame to create are still warmed up.
+         * <p>
+         * Warm-up relies on item prefetch, which requires API 21. On older versions, the
+         * ViewHolders are not created ahead of time.
+         *
+         * @param recyclerView The RecyclerView that uses this pool and whose adapter creates the
+         *                     ViewHolders. Work starts once it is attached to a window.
+         * @param viewType ViewHolder type.
+         * @param count The number of ViewHolders of the given type the pool should hold, capped
+         *              at the {@link #setMaxRecycledViews(int, int) maximum} for the type. Pass 0
+         *              to cancel a previous warm-up.
+         */
+        public void warmUp(@NonNull RecyclerView recyclerView, int viewType, int count) {
+            if (recyclerView.mRecycler.mRecyclerPool != this) {
+                throw new IllegalArgumentException("RecyclerView " + recyclerView
+                        + " does not use this pool");
+            }
+            ScrapData scrapData = getScrapDataForType(viewType);
+            scrapData.mWarmUpCount = Math.max(0,
+                    Math.min(count, scrapData.mMaxScrap) - scrapData.mScrapHeap.size());
+            if (scrapData.mWarmUpCount == 0) {
+                scrapData.mWarmUpView = null;
+                return;
+            }
+            scrapData.mWarmUpView = new WeakReference<>(recyclerView);
+            if (recyclerView.mGapWorker != null) {
+                recyclerView.mGapWorker.postWarmUp(recyclerView);
+            }
+        }
+
         /**
          * Returns the current number of Views held by the RecycledViewPool of the given view type.
          */
@@ -5703,14 +5921,24 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
         @Nullable
         public ViewHolder getRecycledView(int viewType) {
             final ScrapData scrapData = mScrap.get(viewType);
-            if (scrapData != null && !scrapData.mScrapHeap.isEmpty()) {
-                final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
-                for (int i = scrapHeap.size() - 1; i >= 0; i--) {
-                    if (!scrapHeap.get(i).isAttachedToTransitionOverlay()) {
-                        return scrapHeap.remove(i);
-                    }
+            if (scrapData == null) {
+                return null;
+            }
+            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+            for (int i = scrapHeap.size() - 1; i >= 0; i--) {
+                if (!scrapHeap.get(i).isAttachedToTransitionOverlay()) {
+                    return scrapHeap.remove(i);
                 }
             }
+            // The pool ran out. If it discarded ViewHolders of this type since it last ran out,
+            // it was too small to cover the gap between recycling and reuse.
+            if (mAdaptiveMaxScrap && !scrapData.mMaxScrapSetByApp
+                    && scrapData.mDiscardCount > 0) {
+                scrapData.mMaxScrap = Math.max(scrapData.mMaxScrap, Math.min(
+                        scrapData.mMaxScrap + 1,
+                        ADAPTIVE_MAX_SCRAP_PER_ADAPTER * Math.max(1, mAttachCount)));
+            }
+            scrapData.mDiscardCount = 0;
             return null;
         }
 
@@ -5739,8 +5967,10 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         public void putRecycledView(ViewHolder scrap) {
             final int viewType = scrap.getItemViewType();
-            final ArrayList<ViewHolder> scrapHeap = getScrapDataForType(viewType).mScrapHeap;
-            if (mScrap.get(viewType).mMaxScrap <= scrapHeap.size()) {
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            final ArrayList<ViewHolder> scrapHeap = scrapData.mScrapHeap;
+            if (scrapData.mMaxScrap <= scrapHeap.size()) {
+                scrapData.mDiscardCount++;
                 return;
             }
             if (DEBUG && scrapHeap.contains(scrap)) {
@@ -5779,6 +6009,88 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             return expectedDurationNs == 0 || (approxCurrentNs + expectedDurationNs < deadlineNs);
         }
 
+        /**
+         * Returns true if a warm-up requested by {@code recyclerView} still has ViewHolders to
+         * create.
+         */
+        boolean hasWarmUpFor(RecyclerView recyclerView) {
+            return nextWarmUpType(recyclerView) != INVALID_TYPE;
+        }
+
+        /**
+         * Returns a view type that {@code recyclerView} should create a ViewHolder of to warm up
+         * the pool, or {@link #INVALID_TYPE} if there is none.
+         */
+        int nextWarmUpType(RecyclerView recyclerView) {
+            for (int i = 0; i < mScrap.size(); i++) {
+                final ScrapData scrapData = mScrap.valueAt(i);
+                if (scrapData.mWarmUpCount == 0
+                        || scrapData.mWarmUpView.get() != recyclerView) {
+                    continue;
+                }
+                if (scrapData.mScrapHeap.size() >= scrapData.mMaxScrap) {
+                    // Filled up by recycled ViewHolders in the meantime.
+                    scrapData.mWarmUpCount = 0;
+                    scrapData.mWarmUpView = null;
+                    continue;
+                }
+                return mScrap.keyAt(i);
+            }
+            return INVALID_TYPE;
+        }
+
+        /**
+         * Returns the highest average time to create and bind a ViewHolder, over all view types
+         * in the pool, or 0 if no times have been measured.
+         */
+        long getMaxCreateAndBindTimeNs() {
+            long maxNs = 0;
+            for (int i = 0; i < mScrap.size(); i++) {
+                final ScrapData scrapData = mScrap.valueAt(i);
+                maxNs = Math.max(maxNs,
+                        scrapData.mCreateRunningAverageNs + scrapData.mBindRunningAverageNs);
+            }
+            return maxNs;
+        }
+
+        /**
+         * Registers a ViewHolder of the given type that is about to be created off the UI
+         * thread, unless the pool expects to be full without it.
+         *
+         * @return True if the ViewHolder should be created.
+         */
+        boolean startAsyncCreate(int viewType) {
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            if (scrapData.mScrapHeap.size() + scrapData.mAsyncCreateCount
+                    >= scrapData.mMaxScrap) {
+                return false;
+            }
+            scrapData.mAsyncCreateCount++;
+            return true;
+        }
+
+        /**
+         * Unregisters a ViewHolder registered with {@link #startAsyncCreate(int)}, once it is
+         * created or failed to be.
+         */
+        void finishAsyncCreate(int viewType) {
+            final ScrapData scrapData = getScrapDataForType(viewType);
+            if (scrapData.mAsyncCreateCount > 0) {
+                scrapData.mAsyncCreateCount--;
+            }
+        }
+
+        /**
+         * Adds a ViewHolder that was created for a warm-up.
+         */
+        void putWarmedUpView(ViewHolder holder) {
+            final ScrapData scrapData = getScrapDataForType(holder.getItemViewType());
+            if (scrapData.mWarmUpCount > 0 && --scrapData.mWarmUpCount == 0) {
+                scrapData.mWarmUpView = null;
+            }
+            putRecycledView(holder);
+        }
+
         void attach() {
             mAttachCount++;
         }
@@ -6013,6 +6325,9 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             mAdapter.bindViewHolder(holder, offsetPosition);
             long endBindNs = getNanoTime();
             mRecyclerPool.factorInBindTime(holder.getItemViewType(), endBindNs - startBindNs);
+            if (mMetrics != null) {
+                mMetrics.recordBind(viewType, endBindNs - startBindNs);
+            }
             attachAccessibilityDelegateOnBind(holder);
             if (mState.isPreLayout()) {
                 holder.mPreLayoutPosition = position;
@@ -6119,6 +6434,30 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             return tryGetViewHolderForPositionByDeadline(position, dryRun, FOREVER_NS).itemView;
         }
 
+        /**
+         * Creates a new ViewHolder of the given type with the adapter, and factors the time it
+         * took into the pool's running average for the type.
+         */
+        @NonNull
+        ViewHolder createViewHolder(int type) {
+            long start = getNanoTime();
+            ViewHolder holder = mAdapter.createViewHolder(RecyclerView.this, type);
+            if (ALLOW_THREAD_GAP_WORK) {
+                // only bother finding nested RV if prefetching
+                RecyclerView innerView = findNestedRecyclerView(holder.itemView);
+                if (innerView != null) {
+                    holder.mNestedRecyclerView = new WeakReference<>(innerView);
+                }
+            }
+
+            long end = getNanoTime();
+            getRecycledViewPool().factorInCreateTime(type, end - start);
+            if (mMetrics != null) {
+                mMetrics.recordCreate(type, end - start);
+            }
+            return holder;
+        }
+
         /**
          * Attempts to get the ViewHolder for the given position, either from the Recycler scrap,
          * cache, the RecycledViewPool, or creating it directly.
@@ -6146,6 +6485,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
                         + exceptionLabel());
             }
             boolean fromScrapOrHiddenOrCache = false;
+            int source = RecyclerViewMetrics.SOURCE_SCRAP;
             ViewHolder holder = null;
             // 0) If there is a changed scrap, try to find from there
             if (mState.isPreLayout()) {
@@ -6202,6 +6542,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
                             .getViewForPositionAndType(this, position, type);
                     if (view != null) {
                         holder = getChildViewHolder(view);
+                        source = RecyclerViewMetrics.SOURCE_VIEW_CACHE_EXTENSION;
                         if (holder == null) {
                             throw new IllegalArgumentException("getViewForPositionAndType returned"
                                     + " a view which does not have a ViewHolder"
@@ -6220,6 +6561,7 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
                     }
                     holder = getRecycledViewPool().getRecycledView(type);
                     if (holder != null) {
+                        source = RecyclerViewMetrics.SOURCE_POOL;
                         holder.resetInternal();
                         if (FORCE_INVALIDATE_DISPLAY_LIST) {
                             invalidateDisplayListInt(holder);
@@ -6227,29 +6569,33 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
                     }
                 }
                 if (holder == null) {
-                    long start = getNanoTime();
+                    if (mMetrics != null) {
+                        mMetrics.recordPoolMiss(type);
+                    }
                     if (deadlineNs != FOREVER_NS
-                            && !mRecyclerPool.willCreateInTime(type, start, deadlineNs)) {
+                            && !mRecyclerPool.willCreateInTime(type, getNanoTime(), deadlineNs)) {
+                        if (mViewHolderCreationExecutor != null && mGapWorker != null) {
+                            // create it in the background, for a later pass to take from the pool
+                            mGapWorker.createViewHolderAsync(RecyclerView.this, type);
+                        }
+                        if (mMetrics != null) {
+                            mMetrics.recordLookup(RecyclerViewMetrics.SOURCE_DEADLINE_MISSED, true);
+                        }
                         // abort - we have a deadline we can't meet
                         return null;
                     }
-                    holder = mAdapter.createViewHolder(RecyclerView.this, type);
-                    if (ALLOW_THREAD_GAP_WORK) {
-                        // only bother finding nested RV if prefetching
-                        RecyclerView innerView = findNestedRecyclerView(holder.itemView);
-                        if (innerView != null) {
-                            holder.mNestedRecyclerView = new WeakReference<>(innerView);
-                        }
-                    }
-
-                    long end = getNanoTime();
-                    mRecyclerPool.factorInCreateTime(type, end - start);
+                    source = RecyclerViewMetrics.SOURCE_CREATED;
+                    holder = createViewHolder(type);
                     if (DEBUG) {
                         Log.d(TAG, "tryGetViewHolderForPositionByDeadline created new ViewHolder");
                     }
                 }
             }
 
+            if (mMetrics != null) {
+                recordLookup(holder, fromScrapOrHiddenOrCache, source, deadlineNs != FOREVER_NS);
+            }
+
             // This is very ugly but the only place we can grab this information
             // before the View is rebound and returned to the LayoutManager for post layout ops.
             // We don't need this in pre-layout since the VH is not updated by the LM.
@@ -6296,6 +6642,18 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
             return holder;
         }
 
+        private void recordLookup(ViewHolder holder, boolean fromScrapOrHiddenOrCache,
+                int source, boolean prefetch) {
+            if (fromScrapOrHiddenOrCache && !holder.wasReturnedFromScrap()) {
+                source = RecyclerViewMetrics.SOURCE_CACHE;
+                if (!prefetch && holder.hasAnyOfTheFlags(ViewHolder.FLAG_PREFETCHED)) {
+                    holder.setFlags(0, ViewHolder.FLAG_PREFETCHED);
+                    mMetrics.recordPrefetchHit();
+                }
+            }
+            mMetrics.recordLookup(source, prefetch);
+        }
+
         private void attachAccessibilityDelegateOnBind(ViewHolder holder) {
             if (isAccessibilityEnabled()) {
                 final View itemView = holder.itemView;
@@ -7704,6 +8062,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         boolean mPrefetchMaxObservedInInitialPrefetch;
 
+        /**
+         * Number of items to collect for a nested prefetch, picked by adaptive prefetch in the
+         * outer RecyclerView, or 0 to use the LayoutManager's own count.
+         */
+        int mAdaptiveInitialPrefetchItemCount;
+
         /**
          * These measure specs might be the measure specs that were passed into RecyclerView's
          * onMeasure method OR fake measure specs created by the RecyclerView.
@@ -11055,6 +11419,12 @@ public class RecyclerView extends ViewGroup implements ScrollingView,
          */
         static final int FLAG_BOUNCED_FROM_HIDDEN_LIST = 1 << 13;
 
+        /**
+         * Set on ViewHolders that prefetch left in the cache while metrics are recorded, so that
+         * using them later counts as a prefetch hit.
+         */
+        static final int FLAG_PREFETCHED = 1 << 14;
+
         int mFlags;
 
         private static final List<Object> FULLUPDATE_PAYLOADS = Collections.emptyList();
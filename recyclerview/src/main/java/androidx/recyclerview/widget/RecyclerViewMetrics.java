@@ -0,0 +1,371 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import static androidx.annotation.RestrictTo.Scope.LIBRARY_GROUP_PREFIX;
+
+import android.util.SparseArray;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
+
+/**
+ * Collects counters and timing histograms about how a {@link RecyclerView} lays out, creates,
+ * binds and prefetches its items.
+ * <p>
+ * Set an instance with {@link RecyclerView#setMetrics(RecyclerViewMetrics)} to start collecting,
+ * and read it periodically, for example at the end of a scroll, to report scroll performance. The
+ * same instance may be set on several RecyclerViews, for example nested ones, in which case their
+ * metrics are added up.
+ * <p>
+ * Recording only increments counters, so it is cheap enough to leave enabled in production. When
+ * no metrics are set, RecyclerView does not measure anything beyond what it already does for
+ * prefetch.
+ * <p>
+ * RecyclerViewMetrics is not thread safe. It is updated on the UI thread and should only be read
+ * and reset there.
+ */
+public final class RecyclerViewMetrics {
+
+    /** @hide */
+    @RestrictTo(LIBRARY_GROUP_PREFIX)
+    @IntDef({SOURCE_SCRAP, SOURCE_CACHE, SOURCE_VIEW_CACHE_EXTENSION, SOURCE_POOL, SOURCE_CREATED,
+            SOURCE_DEADLINE_MISSED})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Source {}
+
+    /**
+     * The ViewHolder was attached, or scrapped during the current layout, and was reused as is.
+     */
+    public static final int SOURCE_SCRAP = 0;
+
+    /**
+     * The ViewHolder was taken from the Recycler's cache of recently detached views, which also
+     * holds prefetched ViewHolders.
+     */
+    public static final int SOURCE_CACHE = 1;
+
+    /**
+     * The ViewHolder was provided by the {@link RecyclerView.ViewCacheExtension}.
+     */
+    public static final int SOURCE_VIEW_CACHE_EXTENSION = 2;
+
+    /**
+     * The ViewHolder was taken from the {@link RecyclerView.RecycledViewPool}.
+     */
+    public static final int SOURCE_POOL = 3;
+
+    /**
+     * The ViewHolder was created by the Adapter because none could be reused.
+     */
+    public static final int SOURCE_CREATED = 4;
+
+    /**
+     * No ViewHolder was returned because creating one was not expected to finish before the
+     * prefetch deadline.
+     */
+    public static final int SOURCE_DEADLINE_MISSED = 5;
+
+    private static final int SOURCE_COUNT = 6;
+
+    /** @hide */
+    @RestrictTo(LIBRARY_GROUP_PREFIX)
+    @IntDef({LAYOUT_STEP_PRE_LAYOUT, LAYOUT_STEP_LAYOUT, LAYOUT_STEP_ANIMATIONS})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface LayoutStep {}
+
+    /**
+     * The first layout step, which processes adapter updates, saves the state of the current
+     * views and runs the pre-layout pass of predictive animations.
+     */
+    public static final int LAYOUT_STEP_PRE_LAYOUT = 0;
+
+    /**
+     * The second layout step, in which the {@link RecyclerView.LayoutManager} lays out the
+     * children. It may run more than once per layout, for example during measure.
+     */
+    public static final int LAYOUT_STEP_LAYOUT = 1;
+
+    /**
+     * The last layout step, which starts item animations and recycles unused scrap.
+     */
+    public static final int LAYOUT_STEP_ANIMATIONS = 2;
+
+    private static final int LAYOUT_STEP_COUNT = 3;
+
+    // [prefetch ? 1 : 0][source]
+    private final long[][] mLookupCounts = new long[2][SOURCE_COUNT];
+    private final Histogram[] mLayoutSteps = new Histogram[LAYOUT_STEP_COUNT];
+    private final SparseArray<TypeMetrics> mTypeMetrics = new SparseArray<>();
+    private long mPrefetchedCount;
+    private long mPrefetchHitCount;
+
+    static class TypeMetrics {
+        final Histogram mCreate = new Histogram();
+        final Histogram mBind = new Histogram();
+        long mPoolMissCount;
+    }
+
+    public RecyclerViewMetrics() {
+        for (int i = 0; i < LAYOUT_STEP_COUNT; i++) {
+            mLayoutSteps[i] = new Histogram();
+        }
+    }
+
+    private TypeMetrics getTypeMetrics(int viewType) {
+        TypeMetrics typeMetrics = mTypeMetrics.get(viewType);
+        if (typeMetrics == null) {
+            typeMetrics = new TypeMetrics();
+            mTypeMetrics.put(viewType, typeMetrics);
+        }
+        return typeMetrics;
+    }
+
+    void recordLookup(@Source int source, boolean prefetch) {
+        mLookupCounts[prefetch ? 1 : 0][source]++;
+    }
+
+    void recordPoolMiss(int viewType) {
+        getTypeMetrics(viewType).mPoolMissCount++;
+    }
+
+    void recordCreate(int viewType, long durationNs) {
+        getTypeMetrics(viewType).mCreate.record(durationNs);
+    }
+
+    void recordBind(int viewType, long durationNs) {
+        getTypeMetrics(viewType).mBind.record(durationNs);
+    }
+
+    void recordPrefetched() {
+        mPrefetchedCount++;
+    }
+
+    void recordPrefetchHit() {
+        mPrefetchHitCount++;
+    }
+
+    void recordLayoutStep(@LayoutStep int step, long durationNs) {
+        mLayoutSteps[step].record(durationNs);
+    }
+
+    /**
+     * Returns how many times the Recycler looked up a ViewHolder for a position with the given
+     * outcome.
+     *
+     * @param source   The outcome of the lookup, one of the {@code SOURCE_} constants.
+     * @param prefetch True to count lookups done by prefetch, false to count the ones done
+     *                 during layout and scroll.
+     * @return The number of lookups with the given outcome.
+     */
+    public long getViewHolderLookupCount(@Source int source, boolean prefetch) {
+        return mLookupCounts[prefetch ? 1 : 0][source];
+    }
+
+    /**
+     * Returns how many ViewHolders prefetch created or bound and left in the Recycler's cache.
+     *
+     * @return The number of prefetched ViewHolders.
+     * @see #getPrefetchHitCount()
+     */
+    public long getPrefetchedCount() {
+        return mPrefetchedCount;
+    }
+
+    /**
+     * Returns how many prefetched ViewHolders were then used by a layout or scroll. The ratio of
+     * this to {@link #getPrefetchedCount()} is the prefetch hit rate.
+     *
+     * @return The number of prefetched ViewHolders that were used.
+     */
+    public long getPrefetchHitCount() {
+        return mPrefetchHitCount;
+    }
+
+    /**
+     * Returns how many times the {@link RecyclerView.RecycledViewPool} had no ViewHolder of the
+     * given view type when the Recycler needed one.
+     *
+     * @param viewType The view type.
+     * @return The number of pool misses for the view type.
+     */
+    public long getPoolMissCount(int viewType) {
+        final TypeMetrics typeMetrics = mTypeMetrics.get(viewType);
+        return typeMetrics == null ? 0 : typeMetrics.mPoolMissCount;
+    }
+
+    /**
+     * Returns the durations of {@link RecyclerView.Adapter#createViewHolder} calls for the given
+     * view type made on the UI thread.
+     *
+     * @param viewType The view type.
+     * @return The create durations, or null if no ViewHolder of this type was created or bound.
+     */
+    @Nullable
+    public Histogram getCreateHistogram(int viewType) {
+        final TypeMetrics typeMetrics = mTypeMetrics.get(viewType);
+        return typeMetrics == null ? null : typeMetrics.mCreate;
+    }
+
+    /**
+     * Returns the durations of {@link RecyclerView.Adapter#bindViewHolder} calls for the given
+     * view type.
+     *
+     * @param viewType The view type.
+     * @return The bind durations, or null if no ViewHolder of this type was created or bound.
+     */
+    @Nullable
+    public Histogram getBindHistogram(int viewType) {
+        final TypeMetrics typeMetrics = mTypeMetrics.get(viewType);
+        return typeMetrics == null ? null : typeMetrics.mBind;
+    }
+
+    /**
+     * Returns the durations of a layout step.
+     *
+     * @param step The layout step, one of the {@code LAYOUT_STEP_} constants.
+     * @return The durations of the layout step.
+     */
+    @NonNull
+    public Histogram getLayoutStepHistogram(@LayoutStep int step) {
+        return mLayoutSteps[step];
+    }
+
+    /**
+     * Clears all counters and histograms.
+     */
+    public void reset() {
+        for (long[] counts : mLookupCounts) {
+            Arrays.fill(counts, 0);
+        }
+        for (Histogram histogram : mLayoutSteps) {
+            histogram.reset();
+        }
+        mTypeMetrics.clear();
+        mPrefetchedCount = 0;
+        mPrefetchHitCount = 0;
+    }
+
+    /**
+     * A histogram of durations with exponentially growing buckets.
+     * <p>
+     * Bucket 0 counts durations shorter than 1 microsecond, and bucket {@code i} counts durations
+     * from 2<sup>i-1</sup> up to 2<sup>i</sup> microseconds. The last bucket also counts all
+     * longer durations.
+     */
+    public static final class Histogram {
+        private static final int BUCKET_COUNT = 24;
+
+        private final long[] mBuckets = new long[BUCKET_COUNT];
+        private long mCount;
+        private long mTotalNs;
+        private long mMaxNs;
+
+        Histogram() {
+        }
+
+        void record(long durationNs) {
+            final long durationUs = durationNs / 1000;
+            final int bucket = 64 - Long.numberOfLeadingZeros(durationUs);
+            mBuckets[Math.min(bucket, BUCKET_COUNT - 1)]++;
+            mCount++;
+            mTotalNs += durationNs;
+            mMaxNs = Math.max(mMaxNs, durationNs);
+        }
+
+        void reset() {
+            Arrays.fill(mBuckets, 0);
+            mCount = 0;
+            mTotalNs = 0;
+            mMaxNs = 0;
+        }
+
+        /**
+         * @return The number of recorded durations.
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        /**
+         * @return The sum of all recorded durations in nanoseconds.
+         */
+        public long getTotalNs() {
+            return mTotalNs;
+        }
+
+        /**
+         * @return The longest recorded duration in nanoseconds.
+         */
+        public long getMaxNs() {
+            return mMaxNs;
+        }
+
+        /**
+         * @return The number of buckets.
+         */
+        public int getBucketCount() {
+            return BUCKET_COUNT;
+        }
+
+        /**
+         * @param bucket The index of the bucket.
+         * @return The number of durations counted in the bucket.
+         */
+        public long getBucketValue(int bucket) {
+            return mBuckets[bucket];
+        }
+
+        /**
+         * @param bucket The index of the bucket.
+         * @return The exclusive upper bound of the bucket in nanoseconds, or
+         * {@link Long#MAX_VALUE} for the last bucket.
+         */
+        public long getBucketUpperBoundNs(int bucket) {
+            if (bucket == BUCKET_COUNT - 1) {
+                return Long.MAX_VALUE;
+            }
+            return (1L << bucket) * 1000;
+        }
+
+        /**
+         * Returns an upper bound of the given percentile of the recorded durations, as precise
+         * as the buckets allow.
+         *
+         * @param percentile The percentile, from 0 to 100.
+         * @return The upper bound of the bucket in which the percentile falls, limited to the
+         * longest recorded duration, in nanoseconds. 0 if nothing was recorded.
+         */
+        public long getPercentileNs(float percentile) {
+            final long rank = (long) Math.ceil(mCount * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(getBucketUpperBoundNs(i), mMaxNs);
+                }
+            }
+            return 0;
+        }
+    }
+}
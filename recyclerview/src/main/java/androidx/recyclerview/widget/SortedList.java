@@ -20,6 +20,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
@@ -81,6 +82,12 @@ public class SortedList<T> {
     private int mSize;
     private final Class<T> mTClass;
 
+    /**
+     * Incremented on every change to the items, so that an {@link UpdateBuilder} can tell whether
+     * its snapshot of the items is still current.
+     */
+    private int mModCount;
+
     /**
      * Creates a new SortedList of type T.
      *
@@ -248,10 +255,65 @@ public class SortedList<T> {
         replaceAll(items.toArray(copy), true);
     }
 
+    /**
+     * Creates an {@link UpdateBuilder} that collects adds and removes for this list, and merges
+     * them with a snapshot of the current items without blocking the thread that owns the list.
+     * <p>
+     * This method must be called on the thread that modifies the list, usually the main thread.
+     *
+     * @return A new UpdateBuilder for this list.
+     * @see #applyUpdates(UpdateBuilder)
+     */
+    @NonNull
+    public UpdateBuilder<T> newUpdateBuilder() {
+        throwIfInMutationOperation();
+        return new UpdateBuilder<>(this, Arrays.copyOf(mData, mSize), mModCount);
+    }
+
+    /**
+     * Replaces the items of the list with the result of the given {@link UpdateBuilder}, and
+     * dispatches the changes to the {@link Callback} with as few events as possible.
+     * <p>
+     * If {@link UpdateBuilder#build()} has not been called yet, or the list was modified after
+     * the builder was created, the updates are merged into the current items on this thread.
+     * Merging sorted updates into the items takes a single pass over the list.
+     * <p>
+     * Like the other {@link Callback} events of this list, the events are dispatched after the
+     * items have been replaced, so {@link #get(int)} returns the final items from a callback.
+     *
+     * @param builder The UpdateBuilder created by {@link #newUpdateBuilder()} of this list.
+     * @throws IllegalArgumentException if the builder was created by another list.
+     * @throws IllegalStateException if the builder was already applied.
+     */
+    public void applyUpdates(@NonNull UpdateBuilder<T> builder) {
+        throwIfInMutationOperation();
+        if (builder.mList != this) {
+            throw new IllegalArgumentException("The UpdateBuilder was created by another "
+                    + "SortedList.");
+        }
+        if (builder.mApplied) {
+            throw new IllegalStateException("The UpdateBuilder was already applied.");
+        }
+        if (builder.mModCount != mModCount) {
+            // the list changed after the snapshot was taken, merge into the current items
+            builder.sortAndDedupOperations();
+            builder.merge(mData, mSize);
+        } else if (builder.mData == null) {
+            builder.build();
+        }
+        builder.mApplied = true;
+        mData = builder.mData;
+        mSize = builder.mSize;
+        mModCount++;
+        builder.mData = null;
+        builder.mUpdates.dispatchTo(mCallback);
+    }
+
     private void addAllInternal(T[] newItems) {
         if (newItems.length < 1) {
             return;
         }
+        mModCount++;
 
         final int newSize = sortAndDedup(newItems);
 
@@ -265,6 +327,7 @@ public class SortedList<T> {
     }
 
     private void replaceAllInternal(@NonNull T[] newData) {
+        mModCount++;
         final boolean forceBatchedUpdates = !(mCallback instanceof BatchedCallback);
         if (forceBatchedUpdates) {
             beginBatchedUpdates();
@@ -539,6 +602,7 @@ public class SortedList<T> {
     }
 
     private int add(T item, boolean notify) {
+        mModCount++;
         int index = findIndexOf(item, mData, 0, mSize, INSERTION);
         if (index == INVALID_POSITION) {
             index = 0;
@@ -599,6 +663,7 @@ public class SortedList<T> {
     }
 
     private void removeItemAtIndex(int index, boolean notify) {
+        mModCount++;
         System.arraycopy(mData, index + 1, mData, index, mSize - index - 1);
         mSize--;
         mData[mSize] = null;
@@ -630,6 +695,7 @@ public class SortedList<T> {
     public void updateItemAt(int index, T item) {
         throwIfInMutationOperation();
         final T existing = get(index);
+        mModCount++;
         // assume changed if the same object is given back
         boolean contentsChanged = existing == item || !mCallback.areContentsTheSame(existing, item);
         if (existing != item) {
@@ -823,6 +889,7 @@ public class SortedList<T> {
         if (mSize == 0) {
             return;
         }
+        mModCount++;
         final int prevSize = mSize;
         Arrays.fill(mData, 0, prevSize, null);
         mSize = 0;
@@ -1007,4 +1074,374 @@ public class SortedList<T> {
             mBatchingListUpdateCallback.dispatchLastEvent();
         }
     }
+
+    /**
+     * Collects adds and removes for a {@link SortedList} and merges them with the items of the
+     * list in one pass, so that a high rate of updates, such as a stream of new messages, can be
+     * prepared on a background thread.
+     * <p>
+     * Create an UpdateBuilder with {@link SortedList#newUpdateBuilder()}, which takes a snapshot
+     * of the list. Then add and remove items on any thread, call {@link #build()} on that same
+     * thread, and pass the builder to {@link SortedList#applyUpdates(UpdateBuilder)} on the
+     * thread that owns the list, for example with a {@link android.os.Handler}:
+     * <pre>
+     *     final SortedList.UpdateBuilder&lt;Message> builder = mSortedList.newUpdateBuilder();
+     *     mExecutor.execute(new Runnable() {
+     *         public void run() {
+     *             builder.addAll(loadNewMessages());
+     *             builder.build();
+     *             mMainHandler.post(new Runnable() {
+     *                 public void run() {
+     *                     mSortedList.applyUpdates(builder);
+     *                 }
+     *             });
+     *         }
+     *     });
+     * </pre>
+     * The updates have the same result as calling {@link SortedList#add(Object)} and
+     * {@link SortedList#remove(Object)} in the same order, except that change events may be
+     * dispatched in a different order and granularity. To change the sorting criteria of an item,
+     * remove the old item and add the new one. The change is then dispatched as a removal and an
+     * insertion, like {@link SortedList#replaceAll(Object[])} does.
+     * <p>
+     * {@link #build()} calls the {@link Callback#compare(Object, Object)},
+     * {@link Callback#areItemsTheSame(Object, Object)},
+     * {@link Callback#areContentsTheSame(Object, Object)} and
+     * {@link Callback#getChangePayload(Object, Object)} methods of the list on the thread it is
+     * called on. The other Callback methods are called by
+     * {@link SortedList#applyUpdates(UpdateBuilder)}.
+     * <p>
+     * An UpdateBuilder is not thread safe, it should only be used by one thread at a time.
+     *
+     * @param <T> Type of the items in the list.
+     */
+    public static final class UpdateBuilder<T> {
+        final SortedList<T> mList;
+        final int mModCount;
+        private final Callback<T> mCallback;
+        private final Class<T> mTClass;
+        // The items of the list when the builder was created, released once merged.
+        private T[] mSnapshot;
+        private ArrayList<Operation<T>> mOperations = new ArrayList<>();
+        private Operation<T>[] mSortedOperations;
+        private int mSortedOperationCount;
+        private int mAddCount;
+
+        // The result of the last merge.
+        T[] mData;
+        int mSize;
+        UpdateRecorder mUpdates;
+        boolean mApplied;
+
+        UpdateBuilder(SortedList<T> list, T[] snapshot, int modCount) {
+            mList = list;
+            mCallback = list.mCallback;
+            mTClass = list.mTClass;
+            mSnapshot = snapshot;
+            mModCount = modCount;
+        }
+
+        /**
+         * Adds an item to the list, or replaces the item that is the same as it.
+         *
+         * @param item The item to add.
+         * @return This UpdateBuilder.
+         * @see SortedList#add(Object)
+         */
+        @NonNull
+        public UpdateBuilder<T> add(@NonNull T item) {
+            addOperation(item, false);
+            return this;
+        }
+
+        /**
+         * Adds the given items to the list, or replaces the items that are the same as them.
+         *
+         * @param items The items to add.
+         * @return This UpdateBuilder.
+         * @see SortedList#addAll(Collection)
+         */
+        @NonNull
+        public UpdateBuilder<T> addAll(@NonNull Collection<T> items) {
+            mOperations.ensureCapacity(mOperations.size() + items.size());
+            for (T item : items) {
+                addOperation(item, false);
+            }
+            return this;
+        }
+
+        /**
+         * Removes the item that is the same as the given one from the list, if there is one.
+         *
+         * @param item The item to remove.
+         * @return This UpdateBuilder.
+         * @see SortedList#remove(Object)
+         */
+        @NonNull
+        public UpdateBuilder<T> remove(@NonNull T item) {
+            addOperation(item, true);
+            return this;
+        }
+
+        private void addOperation(T item, boolean remove) {
+            if (mOperations == null) {
+                throw new IllegalStateException("Cannot update an UpdateBuilder after build().");
+            }
+            mOperations.add(new Operation<>(item, remove));
+        }
+
+        /**
+         * Sorts the collected updates and merges them with the snapshot of the list. Once built,
+         * the builder no longer accepts updates.
+         * <p>
+         * This can be called on a background thread. Otherwise
+         * {@link SortedList#applyUpdates(UpdateBuilder)} builds the updates itself.
+         */
+        public void build() {
+            if (mApplied) {
+                throw new IllegalStateException("The UpdateBuilder was already applied.");
+            }
+            if (mSnapshot == null) {
+                return;
+            }
+            sortAndDedupOperations();
+            merge(mSnapshot, mSnapshot.length);
+            mSnapshot = null;
+        }
+
+        /**
+         * Sorts the operations, keeping only the last one of each group of operations on the
+         * same item, like SortedList#sortAndDedup does for added items.
+         */
+        void sortAndDedupOperations() {
+            if (mOperations == null) {
+                return;
+            }
+            final Operation<T>[] operations = mOperations.toArray(
+                    new Operation[mOperations.size()]);
+            mOperations = null;
+            mSortedOperations = operations;
+            if (operations.length == 0) {
+                return;
+            }
+            // Arrays.sort is stable, so later operations on an item come after earlier ones.
+            Arrays.sort(operations, new Comparator<Operation<T>>() {
+                @Override
+                public int compare(Operation<T> o1, Operation<T> o2) {
+                    return mCallback.compare(o1.mItem, o2.mItem);
+                }
+            });
+            int rangeStart = 0;
+            int rangeEnd = 1;
+            for (int i = 1; i < operations.length; i++) {
+                final Operation<T> current = operations[i];
+                if (mCallback.compare(operations[rangeStart].mItem, current.mItem) == 0) {
+                    int samePos = INVALID_POSITION;
+                    for (int pos = rangeStart; pos < rangeEnd; pos++) {
+                        if (mCallback.areItemsTheSame(operations[pos].mItem, current.mItem)) {
+                            samePos = pos;
+                            break;
+                        }
+                    }
+                    if (samePos != INVALID_POSITION) {
+                        operations[samePos] = current;
+                    } else {
+                        operations[rangeEnd++] = current;
+                    }
+                } else {
+                    operations[rangeEnd] = current;
+                    rangeStart = rangeEnd++;
+                }
+            }
+            mSortedOperationCount = rangeEnd;
+            mAddCount = 0;
+            for (int i = 0; i < rangeEnd; i++) {
+                if (!operations[i].mRemove) {
+                    mAddCount++;
+                }
+            }
+        }
+
+        /**
+         * Merges the sorted operations with the given sorted items into a new array, recording
+         * the change events the way SortedList#merge dispatches them.
+         */
+        void merge(T[] oldData, int oldSize) {
+            final Operation<T>[] operations = mSortedOperations;
+            final int operationCount = mSortedOperationCount;
+            final T[] data = (T[]) Array.newInstance(mTClass,
+                    oldSize + mAddCount + CAPACITY_GROWTH);
+            final UpdateRecorder recorder = new UpdateRecorder();
+            final BatchingListUpdateCallback updates = new BatchingListUpdateCallback(recorder);
+            // operations that matched an old item in their group of equally sorted items
+            boolean[] matched = null;
+            int size = 0;
+            int oldIndex = 0;
+            int opIndex = 0;
+            while (opIndex < operationCount) {
+                final T item = operations[opIndex].mItem;
+                // copy the old items that sort before the operation in one go
+                final int oldStart = findFirstNotBefore(item, oldData, oldIndex, oldSize);
+                System.arraycopy(oldData, oldIndex, data, size, oldStart - oldIndex);
+                size += oldStart - oldIndex;
+                oldIndex = oldStart;
+                if (oldIndex == oldSize || mCallback.compare(oldData[oldIndex], item) != 0) {
+                    // no old item sorts the same, so this can only be an insertion
+                    if (!operations[opIndex].mRemove) {
+                        data[size] = item;
+                        updates.onInserted(size, 1);
+                        size++;
+                    }
+                    opIndex++;
+                    continue;
+                }
+                int oldEnd = oldIndex + 1;
+                while (oldEnd < oldSize && mCallback.compare(oldData[oldEnd], item) == 0) {
+                    oldEnd++;
+                }
+                int opEnd = opIndex + 1;
+                while (opEnd < operationCount
+                        && mCallback.compare(operations[opEnd].mItem, item) == 0) {
+                    opEnd++;
+                }
+                if (matched == null) {
+                    matched = new boolean[operationCount];
+                }
+                for (int i = oldIndex; i < oldEnd; i++) {
+                    final T oldItem = oldData[i];
+                    int match = INVALID_POSITION;
+                    for (int j = opIndex; j < opEnd; j++) {
+                        if (!matched[j] && mCallback.areItemsTheSame(oldItem,
+                                operations[j].mItem)) {
+                            match = j;
+                            break;
+                        }
+                    }
+                    if (match == INVALID_POSITION) {
+                        data[size++] = oldItem;
+                    } else if (operations[match].mRemove) {
+                        matched[match] = true;
+                        updates.onRemoved(size, 1);
+                    } else {
+                        matched[match] = true;
+                        final T newItem = operations[match].mItem;
+                        data[size] = newItem;
+                        if (!mCallback.areContentsTheSame(oldItem, newItem)) {
+                            updates.onChanged(size, 1,
+                                    mCallback.getChangePayload(oldItem, newItem));
+                        }
+                        size++;
+                    }
+                }
+                // new items that sort the same as old items go after them
+                for (int j = opIndex; j < opEnd; j++) {
+                    if (!matched[j] && !operations[j].mRemove) {
+                        data[size] = operations[j].mItem;
+                        updates.onInserted(size, 1);
+                        size++;
+                    }
+                }
+                oldIndex = oldEnd;
+                opIndex = opEnd;
+            }
+            System.arraycopy(oldData, oldIndex, data, size, oldSize - oldIndex);
+            size += oldSize - oldIndex;
+            updates.dispatchLastEvent();
+            mData = data;
+            mSize = size;
+            mUpdates = recorder;
+        }
+
+        /**
+         * Returns the index of the first item in [left, right) that does not sort before the
+         * given item.
+         */
+        private int findFirstNotBefore(T item, T[] data, int left, int right) {
+            while (left < right) {
+                final int middle = (left + right) >>> 1;
+                if (mCallback.compare(data[middle], item) < 0) {
+                    left = middle + 1;
+                } else {
+                    right = middle;
+                }
+            }
+            return left;
+        }
+
+        static final class Operation<T> {
+            final T mItem;
+            final boolean mRemove;
+
+            Operation(T item, boolean remove) {
+                mItem = item;
+                mRemove = remove;
+            }
+        }
+    }
+
+    /**
+     * Records the events of an {@link UpdateBuilder} merge, to be dispatched once the merged
+     * items are applied.
+     */
+    static final class UpdateRecorder implements ListUpdateCallback {
+        private static final int TYPE_ADD = 1;
+        private static final int TYPE_REMOVE = 2;
+        private static final int TYPE_CHANGE = 3;
+
+        // type, position and count of each event
+        private int[] mEvents = new int[3 * 4];
+        private int mEventCount;
+        private final ArrayList<Object> mPayloads = new ArrayList<>();
+
+        private void record(int type, int position, int count) {
+            if (mEvents.length < (mEventCount + 1) * 3) {
+                mEvents = Arrays.copyOf(mEvents, mEvents.length * 2);
+            }
+            final int index = mEventCount * 3;
+            mEvents[index] = type;
+            mEvents[index + 1] = position;
+            mEvents[index + 2] = count;
+            mEventCount++;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            record(TYPE_ADD, position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            record(TYPE_REMOVE, position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            throw new UnsupportedOperationException("merges do not move items");
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            record(TYPE_CHANGE, position, count);
+            mPayloads.add(payload);
+        }
+
+        void dispatchTo(ListUpdateCallback callback) {
+            int payloadIndex = 0;
+            for (int i = 0; i < mEventCount; i++) {
+                final int position = mEvents[i * 3 + 1];
+                final int count = mEvents[i * 3 + 2];
+                switch (mEvents[i * 3]) {
+                    case TYPE_ADD:
+                        callback.onInserted(position, count);
+                        break;
+                    case TYPE_REMOVE:
+                        callback.onRemoved(position, count);
+                        break;
+                    case TYPE_CHANGE:
+                        callback.onChanged(position, count, mPayloads.get(payloadIndex++));
+                        break;
+                }
+            }
+        }
+    }
 }
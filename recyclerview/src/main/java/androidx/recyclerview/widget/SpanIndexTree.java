@@ -0,0 +1,420 @@
+/*
+ * Copyright 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.recyclerview.widget;
+
+import java.util.ArrayList;
+
+/**
+ * Computes the default span index and span group index of
+ * {@link GridLayoutManager.SpanSizeLookup} in O(log N) time, and follows adapter changes
+ * without starting over.
+ * <p>
+ * Items are assigned to spans greedily, so where an item goes only depends on the span the
+ * previous item ended at. Items are split into blocks of consecutive positions, and for each
+ * block and each span it could start at, the tree stores the span the block ends at and how
+ * many span groups it starts. A segment tree over the blocks combines those, so a query skips
+ * whole blocks and only walks the items of one block. An adapter change only recomputes the
+ * blocks it touches.
+ * <p>
+ * Only positions up to the highest position queried are tracked, so span sizes are never
+ * looked up for positions the caller has not asked about.
+ */
+final class SpanIndexTree {
+
+    /**
+     * Blocks are created with up to this many items, and split when changes make them more than
+     * twice as large.
+     */
+    static final int BLOCK_SIZE = 64;
+
+    private static class Block {
+        int mCount;
+        // Index of this block's leaf in the tree, valid unless mStructureChanged.
+        int mLeaf;
+        // True if mEnd and mGroups need to be recomputed.
+        boolean mDirty = true;
+        // For each start state, the state after this block and the groups started.
+        final int[] mEnd;
+        final int[] mGroups;
+
+        Block(int count, int stateCount) {
+            mCount = count;
+            mEnd = new int[stateCount];
+            mGroups = new int[stateCount];
+        }
+    }
+
+    private final GridLayoutManager.SpanSizeLookup mLookup;
+
+    private int mSpanCount;
+    // Number of states an item can start at: spans 0 to mSpanCount - 1, plus mSpanCount for
+    // after an item that did not fit in the rest of its group and took all spans.
+    private int mStateCount;
+
+    private final ArrayList<Block> mBlocks = new ArrayList<>();
+    private final ArrayList<Block> mDirtyBlocks = new ArrayList<>();
+    // Total items in mBlocks.
+    private int mItemCount;
+    // True if blocks were split or removed, or added past the tree's leaves, since the tree was
+    // built.
+    private boolean mStructureChanged;
+
+    // Segment tree over mBlocks, in heap order: node 1 is the root and leaves start at mLeafBase.
+    private int mLeafBase;
+    private int[] mNodeCount;
+    // For node n and start state s, at index n * mStateCount + s.
+    private int[] mNodeEnd;
+    private int[] mNodeGroups;
+    private int[] mSpanSizes = new int[BLOCK_SIZE];
+
+    // Results of the last walk.
+    private int mSpan;
+    private int mGroup;
+
+    SpanIndexTree(GridLayoutManager.SpanSizeLookup lookup) {
+        mLookup = lookup;
+    }
+
+    /**
+     * Returns the same value as the default {@link GridLayoutManager.SpanSizeLookup#getSpanIndex}.
+     */
+    int getSpanIndex(int position, int spanCount) {
+        final int spanSize = walkTo(position, spanCount);
+        return mSpan + spanSize <= spanCount ? mSpan : 0;
+    }
+
+    /**
+     * Returns the same value as the default
+     * {@link GridLayoutManager.SpanSizeLookup#getSpanGroupIndex}.
+     */
+    int getSpanGroupIndex(int position, int spanCount) {
+        final int spanSize = walkTo(position, spanCount);
+        return mSpan + spanSize > spanCount ? mGroup + 1 : mGroup;
+    }
+
+    void clear() {
+        mBlocks.clear();
+        mDirtyBlocks.clear();
+        mItemCount = 0;
+        mStructureChanged = true;
+    }
+
+    void onItemsAdded(int positionStart, int itemCount) {
+        if (positionStart >= mItemCount) {
+            // items after the tracked ones don't move any tracked item
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < mBlocks.size(); i++) {
+            final Block block = mBlocks.get(i);
+            if (positionStart < start + block.mCount) {
+                block.mCount += itemCount;
+                markDirty(block);
+                if (block.mCount > 2 * BLOCK_SIZE) {
+                    mStructureChanged = true;
+                }
+                break;
+            }
+            start += block.mCount;
+        }
+        mItemCount += itemCount;
+    }
+
+    void onItemsRemoved(int positionStart, int itemCount) {
+        final int end = Math.min(positionStart + itemCount, mItemCount);
+        if (positionStart >= end) {
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < mBlocks.size() && start < end; i++) {
+            final Block block = mBlocks.get(i);
+            final int blockEnd = start + block.mCount;
+            final int removed = Math.min(end, blockEnd) - Math.max(positionStart, start);
+            if (removed > 0) {
+                block.mCount -= removed;
+                markDirty(block);
+                if (block.mCount == 0) {
+                    mStructureChanged = true;
+                }
+            }
+            start = blockEnd;
+        }
+        mItemCount -= end - positionStart;
+    }
+
+    void onItemsUpdated(int positionStart, int itemCount) {
+        final int end = Math.min(positionStart + itemCount, mItemCount);
+        int start = 0;
+        for (int i = 0; i < mBlocks.size() && start < end; i++) {
+            final Block block = mBlocks.get(i);
+            if (positionStart < start + block.mCount) {
+                markDirty(block);
+            }
+            start += block.mCount;
+        }
+    }
+
+    void onItemsMoved(int from, int to, int itemCount) {
+        onItemsRemoved(from, itemCount);
+        onItemsAdded(to, itemCount);
+    }
+
+    /**
+     * Marks a block's results as outdated. Blocks in mDirtyBlocks are recomputed if dirty, and
+     * have their leaf updated.
+     */
+    private void markDirty(Block block) {
+        if (!block.mDirty) {
+            block.mDirty = true;
+            mDirtyBlocks.add(block);
+        }
+    }
+
+    /**
+     * Finds the span and group the item at {@code position} would start at, given the items
+     * before it, into mSpan and mGroup.
+     *
+     * @return The span size of the item at {@code position}.
+     */
+    private int walkTo(int position, int spanCount) {
+        if (spanCount != mSpanCount) {
+            mSpanCount = spanCount;
+            mStateCount = spanCount + 1;
+            clear();
+        }
+        if (position >= mItemCount) {
+            track(position + 1);
+        }
+        update();
+
+        int span = 0;
+        int group = 0;
+        int node = 1;
+        int remaining = position;
+        while (node < mLeafBase) {
+            final int left = node * 2;
+            if (remaining < mNodeCount[left]) {
+                node = left;
+            } else {
+                final int index = left * mStateCount + span;
+                group += mNodeGroups[index];
+                span = mNodeEnd[index];
+                remaining -= mNodeCount[left];
+                node = left + 1;
+            }
+        }
+        for (int i = position - remaining; i < position; i++) {
+            final int size = mLookup.getSpanSize(i);
+            span += size;
+            if (span == spanCount) {
+                span = 0;
+                group++;
+            } else if (span > spanCount) {
+                // did not fit, moving to next row / column
+                span = Math.min(size, spanCount);
+                group++;
+            }
+        }
+        mSpan = span;
+        mGroup = group;
+        return mLookup.getSpanSize(position);
+    }
+
+    /**
+     * Tracks positions up to {@code itemCount}, filling up the last block first.
+     */
+    private void track(int itemCount) {
+        int missing = itemCount - mItemCount;
+        if (!mBlocks.isEmpty()) {
+            final Block last = mBlocks.get(mBlocks.size() - 1);
+            final int added = Math.min(missing, BLOCK_SIZE - last.mCount);
+            if (added > 0) {
+                if (!last.mDirty) {
+                    // extend the block's results with the new items, instead of recomputing
+                    for (int i = 0; i < added; i++) {
+                        final int size = mLookup.getSpanSize(mItemCount + i);
+                        for (int s = 0; s < mStateCount; s++) {
+                            final int span = last.mEnd[s] + size;
+                            if (span >= mSpanCount) {
+                                last.mGroups[s]++;
+                            }
+                            last.mEnd[s] = span == mSpanCount ? 0
+                                    : span > mSpanCount ? Math.min(size, mSpanCount) : span;
+                        }
+                    }
+                    mDirtyBlocks.add(last);
+                }
+                last.mCount += added;
+                missing -= added;
+            }
+        }
+        while (missing > 0) {
+            final int added = Math.min(missing, BLOCK_SIZE);
+            final Block block = new Block(added, mStateCount);
+            mBlocks.add(block);
+            missing -= added;
+            if (!mStructureChanged && mBlocks.size() <= mLeafBase) {
+                // fits in a padding leaf
+                block.mLeaf = mLeafBase + mBlocks.size() - 1;
+                mDirtyBlocks.add(block);
+            } else {
+                mStructureChanged = true;
+            }
+        }
+        mItemCount = itemCount;
+    }
+
+    private void update() {
+        if (mStructureChanged) {
+            rebuild();
+            return;
+        }
+        // Update item counts first, so that the start of each dirty block can be found.
+        for (int i = 0; i < mDirtyBlocks.size(); i++) {
+            final Block block = mDirtyBlocks.get(i);
+            mNodeCount[block.mLeaf] = block.mCount;
+            for (int node = block.mLeaf / 2; node >= 1; node /= 2) {
+                mNodeCount[node] = mNodeCount[node * 2] + mNodeCount[node * 2 + 1];
+            }
+        }
+        for (int i = 0; i < mDirtyBlocks.size(); i++) {
+            final Block block = mDirtyBlocks.get(i);
+            if (block.mDirty) {
+                int start = 0;
+                for (int node = block.mLeaf; node > 1; node /= 2) {
+                    if ((node & 1) == 1) {
+                        // right child, the left sibling's items come first
+                        start += mNodeCount[node - 1];
+                    }
+                }
+                computeBlock(block, start);
+            }
+            setLeaf(block);
+            for (int node = block.mLeaf / 2; node >= 1; node /= 2) {
+                combine(node);
+            }
+        }
+        mDirtyBlocks.clear();
+    }
+
+    private void rebuild() {
+        // Split blocks that grew too large, and drop empty ones.
+        final ArrayList<Block> blocks = new ArrayList<>(mBlocks.size());
+        for (int i = 0; i < mBlocks.size(); i++) {
+            final Block block = mBlocks.get(i);
+            if (block.mCount > 2 * BLOCK_SIZE) {
+                int count = block.mCount;
+                while (count > 0) {
+                    final int size = Math.min(count, BLOCK_SIZE);
+                    blocks.add(new Block(size, mStateCount));
+                    count -= size;
+                }
+            } else if (block.mCount > 0) {
+                blocks.add(block);
+            }
+        }
+        mBlocks.clear();
+        mBlocks.addAll(blocks);
+        mDirtyBlocks.clear();
+
+        // Leave room for as many blocks again, so tracking more positions rarely rebuilds.
+        int leafBase = 1;
+        while (leafBase < mBlocks.size() * 2) {
+            leafBase *= 2;
+        }
+        mLeafBase = leafBase;
+        final int nodeCount = leafBase * 2;
+        if (mNodeCount == null || mNodeCount.length < nodeCount
+                || mNodeEnd.length < nodeCount * mStateCount) {
+            mNodeCount = new int[nodeCount];
+            mNodeEnd = new int[nodeCount * mStateCount];
+            mNodeGroups = new int[nodeCount * mStateCount];
+        }
+        int start = 0;
+        for (int leaf = leafBase; leaf < nodeCount; leaf++) {
+            final int blockIndex = leaf - leafBase;
+            if (blockIndex < mBlocks.size()) {
+                final Block block = mBlocks.get(blockIndex);
+                block.mLeaf = leaf;
+                if (block.mDirty) {
+                    computeBlock(block, start);
+                }
+                setLeaf(block);
+                start += block.mCount;
+            } else {
+                // padding, leaves the state as is
+                mNodeCount[leaf] = 0;
+                for (int s = 0; s < mStateCount; s++) {
+                    mNodeEnd[leaf * mStateCount + s] = s;
+                    mNodeGroups[leaf * mStateCount + s] = 0;
+                }
+            }
+        }
+        for (int node = leafBase - 1; node >= 1; node--) {
+            combine(node);
+        }
+        mStructureChanged = false;
+    }
+
+    private void computeBlock(Block block, int start) {
+        final int count = block.mCount;
+        if (mSpanSizes.length < count) {
+            mSpanSizes = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            mSpanSizes[i] = mLookup.getSpanSize(start + i);
+        }
+        final int spanCount = mSpanCount;
+        for (int s = 0; s < mStateCount; s++) {
+            int span = s;
+            int group = 0;
+            for (int i = 0; i < count; i++) {
+                final int size = mSpanSizes[i];
+                span += size;
+                if (span == spanCount) {
+                    span = 0;
+                    group++;
+                } else if (span > spanCount) {
+                    span = Math.min(size, spanCount);
+                    group++;
+                }
+            }
+            block.mEnd[s] = span;
+            block.mGroups[s] = group;
+        }
+        block.mDirty = false;
+    }
+
+    private void setLeaf(Block block) {
+        final int leaf = block.mLeaf;
+        mNodeCount[leaf] = block.mCount;
+        System.arraycopy(block.mEnd, 0, mNodeEnd, leaf * mStateCount, mStateCount);
+        System.arraycopy(block.mGroups, 0, mNodeGroups, leaf * mStateCount, mStateCount);
+    }
+
+    private void combine(int node) {
+        final int left = node * 2;
+        final int right = left + 1;
+        mNodeCount[node] = mNodeCount[left] + mNodeCount[right];
+        for (int s = 0; s < mStateCount; s++) {
+            final int leftIndex = left * mStateCount + s;
+            final int rightIndex = right * mStateCount + mNodeEnd[leftIndex];
+            mNodeEnd[node * mStateCount + s] = mNodeEnd[rightIndex];
+            mNodeGroups[node * mStateCount + s] = mNodeGroups[leftIndex] + mNodeGroups[rightIndex];
+        }
+    }
+}
@@ -813,7 +813,7 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             anchorInfo.mLayoutFromEnd = mShouldReverseLayout;
         }
         if (mPendingSavedState.mSpanLookupSize > 1) {
-            mLazySpanLookup.mData = mPendingSavedState.mSpanLookup;
+            mLazySpanLookup.setFromArray(mPendingSavedState.mSpanLookup);
             mLazySpanLookup.mFullSpanItems = mPendingSavedState.mFullSpanItems;
         }
     }
@@ -1237,9 +1237,10 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
         state.mAnchorLayoutFromEnd = mLastLayoutFromEnd;
         state.mLastLayoutRTL = mLastLayoutRTL;
 
-        if (mLazySpanLookup != null && mLazySpanLookup.mData != null) {
-            state.mSpanLookup = mLazySpanLookup.mData;
-            state.mSpanLookupSize = state.mSpanLookup.length;
+        final int[] spanLookup = mLazySpanLookup != null ? mLazySpanLookup.toArray() : null;
+        if (spanLookup != null) {
+            state.mSpanLookup = spanLookup;
+            state.mSpanLookupSize = spanLookup.length;
             state.mFullSpanItems = mLazySpanLookup.mFullSpanItems;
         } else {
             state.mSpanLookupSize = 0;
@@ -2832,13 +2833,20 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
     }
 
     /**
-     * An array of mappings from adapter position to span.
-     * This only grows when a write happens and it grows up to the size of the adapter.
+     * A mapping from adapter position to span.
+     * <p>
+     * Spans are stored in fixed size pages which are only allocated when a position in them is
+     * written, so jumping to a distant position does not allocate storage for the positions that
+     * were skipped. Full span items are kept sorted by position and looked up by binary search.
      */
     static class LazySpanLookup {
 
-        private static final int MIN_SIZE = 10;
-        int[] mData;
+        private static final int PAGE_SHIFT = 7;
+        private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+        private static final int PAGE_MASK = PAGE_SIZE - 1;
+        private static final int MIN_PAGE_COUNT = 4;
+        // null entries are pages in which every position has an invalid span.
+        int[][] mPages;
         List<FullSpanItem> mFullSpanItems;
 
 
@@ -2847,12 +2855,8 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
          */
         int forceInvalidateAfter(int position) {
             if (mFullSpanItems != null) {
-                for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                    FullSpanItem fsi = mFullSpanItems.get(i);
-                    if (fsi.mPosition >= position) {
-                        mFullSpanItems.remove(i);
-                    }
-                }
+                mFullSpanItems.subList(findFullSpanItemIndex(position), mFullSpanItems.size())
+                        .clear();
             }
             return invalidateAfter(position);
         }
@@ -2861,72 +2865,190 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
          * returns end position for invalidation.
          */
         int invalidateAfter(int position) {
-            if (mData == null) {
-                return RecyclerView.NO_POSITION;
-            }
-            if (position >= mData.length) {
+            final int capacity = getCapacity();
+            if (position >= capacity) {
                 return RecyclerView.NO_POSITION;
             }
             int endPosition = invalidateFullSpansAfter(position);
             if (endPosition == RecyclerView.NO_POSITION) {
-                Arrays.fill(mData, position, mData.length, LayoutParams.INVALID_SPAN_ID);
-                return mData.length;
+                invalidateRange(position, capacity);
+                return capacity;
             } else {
                 // just invalidate items in between
-                Arrays.fill(mData, position, endPosition + 1, LayoutParams.INVALID_SPAN_ID);
+                invalidateRange(position, endPosition + 1);
                 return endPosition + 1;
             }
         }
 
         int getSpan(int position) {
-            if (mData == null || position >= mData.length) {
+            if (position >= getCapacity()) {
                 return LayoutParams.INVALID_SPAN_ID;
-            } else {
-                return mData[position];
             }
+            final int[] page = mPages[position >> PAGE_SHIFT];
+            return page == null ? LayoutParams.INVALID_SPAN_ID : page[position & PAGE_MASK];
         }
 
         void setSpan(int position, Span span) {
             ensureSize(position);
-            mData[position] = span.mIndex;
+            getOrCreatePage(position >> PAGE_SHIFT)[position & PAGE_MASK] = span.mIndex;
         }
 
-        int sizeForPosition(int position) {
-            int len = mData.length;
-            while (len <= position) {
-                len *= 2;
-            }
-            return len;
+        /**
+         * Returns the number of positions the page table can address.
+         */
+        int getCapacity() {
+            return mPages == null ? 0 : mPages.length << PAGE_SHIFT;
         }
 
         void ensureSize(int position) {
-            if (mData == null) {
-                mData = new int[Math.max(position, MIN_SIZE) + 1];
-                Arrays.fill(mData, LayoutParams.INVALID_SPAN_ID);
-            } else if (position >= mData.length) {
-                int[] old = mData;
-                mData = new int[sizeForPosition(position)];
-                System.arraycopy(old, 0, mData, 0, old.length);
-                Arrays.fill(mData, old.length, mData.length, LayoutParams.INVALID_SPAN_ID);
+            final int pageCount = (position >> PAGE_SHIFT) + 1;
+            if (mPages == null) {
+                mPages = new int[Math.max(pageCount, MIN_PAGE_COUNT)][];
+            } else if (pageCount > mPages.length) {
+                int len = mPages.length;
+                while (len < pageCount) {
+                    len *= 2;
+                }
+                mPages = Arrays.copyOf(mPages, len);
+            }
+        }
+
+        private int[] getOrCreatePage(int pageIndex) {
+            int[] page = mPages[pageIndex];
+            if (page == null) {
+                page = new int[PAGE_SIZE];
+                Arrays.fill(page, LayoutParams.INVALID_SPAN_ID);
+                mPages[pageIndex] = page;
+            }
+            return page;
+        }
+
+        /**
+         * Clears spans in [start, end), dropping pages that are cleared entirely.
+         */
+        private void invalidateRange(int start, int end) {
+            end = Math.min(end, getCapacity());
+            while (start < end) {
+                final int pageIndex = start >> PAGE_SHIFT;
+                final int pageEnd = Math.min(end, (pageIndex + 1) << PAGE_SHIFT);
+                final int[] page = mPages[pageIndex];
+                if (page != null) {
+                    if (pageEnd - start == PAGE_SIZE) {
+                        mPages[pageIndex] = null;
+                    } else {
+                        final int offset = start & PAGE_MASK;
+                        Arrays.fill(page, offset, offset + pageEnd - start,
+                                LayoutParams.INVALID_SPAN_ID);
+                    }
+                }
+                start = pageEnd;
+            }
+        }
+
+        /**
+         * Same as System.arraycopy over the paged positions, including overlapping ranges.
+         */
+        private void moveRange(int from, int to, int count) {
+            if (from > to) {
+                while (count > 0) {
+                    final int chunk = Math.min(count, Math.min(PAGE_SIZE - (from & PAGE_MASK),
+                            PAGE_SIZE - (to & PAGE_MASK)));
+                    moveWithinPages(from, to, chunk);
+                    from += chunk;
+                    to += chunk;
+                    count -= chunk;
+                }
+            } else if (from < to) {
+                int fromEnd = from + count;
+                int toEnd = to + count;
+                while (count > 0) {
+                    final int chunk = Math.min(count, Math.min(((fromEnd - 1) & PAGE_MASK) + 1,
+                            ((toEnd - 1) & PAGE_MASK) + 1));
+                    fromEnd -= chunk;
+                    toEnd -= chunk;
+                    moveWithinPages(fromEnd, toEnd, chunk);
+                    count -= chunk;
+                }
+            }
+        }
+
+        private void moveWithinPages(int from, int to, int count) {
+            final int[] source = mPages[from >> PAGE_SHIFT];
+            if (source == null) {
+                invalidateRange(to, to + count);
+            } else {
+                System.arraycopy(source, from & PAGE_MASK, getOrCreatePage(to >> PAGE_SHIFT),
+                        to & PAGE_MASK, count);
             }
         }
 
         void clear() {
-            if (mData != null) {
-                Arrays.fill(mData, LayoutParams.INVALID_SPAN_ID);
+            if (mPages != null) {
+                Arrays.fill(mPages, null);
             }
             mFullSpanItems = null;
         }
 
+        /**
+         * Returns the spans as a flat array for {@link SavedState}, or null if no span is set.
+         */
+        int[] toArray() {
+            if (mPages == null) {
+                return null;
+            }
+            int pageCount = mPages.length;
+            while (pageCount > 0 && mPages[pageCount - 1] == null) {
+                pageCount--;
+            }
+            if (pageCount == 0) {
+                return null;
+            }
+            final int[] data = new int[pageCount << PAGE_SHIFT];
+            for (int i = 0; i < pageCount; i++) {
+                final int[] page = mPages[i];
+                if (page == null) {
+                    Arrays.fill(data, i << PAGE_SHIFT, (i + 1) << PAGE_SHIFT,
+                            LayoutParams.INVALID_SPAN_ID);
+                } else {
+                    System.arraycopy(page, 0, data, i << PAGE_SHIFT, PAGE_SIZE);
+                }
+            }
+            return data;
+        }
+
+        /**
+         * Replaces the spans with the given flat array, see {@link #toArray()}.
+         */
+        void setFromArray(int[] data) {
+            clear();
+            if (data == null || data.length == 0) {
+                return;
+            }
+            ensureSize(data.length - 1);
+            for (int start = 0; start < data.length; start += PAGE_SIZE) {
+                final int end = Math.min(data.length, start + PAGE_SIZE);
+                for (int i = start; i < end; i++) {
+                    if (data[i] != LayoutParams.INVALID_SPAN_ID) {
+                        System.arraycopy(data, start, getOrCreatePage(start >> PAGE_SHIFT), 0,
+                                end - start);
+                        break;
+                    }
+                }
+            }
+        }
+
         void offsetForRemoval(int positionStart, int itemCount) {
-            if (mData == null || positionStart >= mData.length) {
+            final int capacity = getCapacity();
+            if (positionStart >= capacity) {
                 return;
             }
-            ensureSize(positionStart + itemCount);
-            System.arraycopy(mData, positionStart + itemCount, mData, positionStart,
-                    mData.length - positionStart - itemCount);
-            Arrays.fill(mData, mData.length - itemCount, mData.length,
-                    LayoutParams.INVALID_SPAN_ID);
+            if (positionStart + itemCount >= capacity) {
+                invalidateRange(positionStart, capacity);
+            } else {
+                moveRange(positionStart + itemCount, positionStart,
+                        capacity - positionStart - itemCount);
+                invalidateRange(capacity - itemCount, capacity);
+            }
             offsetFullSpansForRemoval(positionStart, itemCount);
         }
 
@@ -2934,29 +3056,23 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             if (mFullSpanItems == null) {
                 return;
             }
-            final int end = positionStart + itemCount;
-            for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                FullSpanItem fsi = mFullSpanItems.get(i);
-                if (fsi.mPosition < positionStart) {
-                    continue;
-                }
-                if (fsi.mPosition < end) {
-                    mFullSpanItems.remove(i);
-                } else {
-                    fsi.mPosition -= itemCount;
-                }
+            final int start = findFullSpanItemIndex(positionStart);
+            mFullSpanItems.subList(start, findFullSpanItemIndex(positionStart + itemCount))
+                    .clear();
+            for (int i = mFullSpanItems.size() - 1; i >= start; i--) {
+                mFullSpanItems.get(i).mPosition -= itemCount;
             }
         }
 
         void offsetForAddition(int positionStart, int itemCount) {
-            if (mData == null || positionStart >= mData.length) {
+            if (positionStart >= getCapacity()) {
                 return;
             }
             ensureSize(positionStart + itemCount);
-            System.arraycopy(mData, positionStart, mData, positionStart + itemCount,
-                    mData.length - positionStart - itemCount);
-            Arrays.fill(mData, positionStart, positionStart + itemCount,
-                    LayoutParams.INVALID_SPAN_ID);
+            final int capacity = getCapacity();
+            moveRange(positionStart, positionStart + itemCount,
+                    capacity - positionStart - itemCount);
+            invalidateRange(positionStart, positionStart + itemCount);
             offsetFullSpansForAddition(positionStart, itemCount);
         }
 
@@ -2964,13 +3080,27 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             if (mFullSpanItems == null) {
                 return;
             }
-            for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                FullSpanItem fsi = mFullSpanItems.get(i);
-                if (fsi.mPosition < positionStart) {
-                    continue;
+            final int start = findFullSpanItemIndex(positionStart);
+            for (int i = mFullSpanItems.size() - 1; i >= start; i--) {
+                mFullSpanItems.get(i).mPosition += itemCount;
+            }
+        }
+
+        /**
+         * Returns the index of the first full span item at or after the given position.
+         */
+        private int findFullSpanItemIndex(int position) {
+            int low = 0;
+            int high = mFullSpanItems.size();
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (mFullSpanItems.get(mid).mPosition < position) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
                 }
-                fsi.mPosition += itemCount;
             }
+            return low;
         }
 
         /**
@@ -2981,24 +3111,13 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             if (mFullSpanItems == null) {
                 return RecyclerView.NO_POSITION;
             }
-            final FullSpanItem item = getFullSpanItem(position);
+            final int index = findFullSpanItemIndex(position);
             // if there is an fsi at this position, get rid of it.
-            if (item != null) {
-                mFullSpanItems.remove(item);
+            if (index < mFullSpanItems.size() && mFullSpanItems.get(index).mPosition == position) {
+                mFullSpanItems.remove(index);
             }
-            int nextFsiIndex = -1;
-            final int count = mFullSpanItems.size();
-            for (int i = 0; i < count; i++) {
-                FullSpanItem fsi = mFullSpanItems.get(i);
-                if (fsi.mPosition >= position) {
-                    nextFsiIndex = i;
-                    break;
-                }
-            }
-            if (nextFsiIndex != -1) {
-                FullSpanItem fsi = mFullSpanItems.get(nextFsiIndex);
-                mFullSpanItems.remove(nextFsiIndex);
-                return fsi.mPosition;
+            if (index < mFullSpanItems.size()) {
+                return mFullSpanItems.remove(index).mPosition;
             }
             return RecyclerView.NO_POSITION;
         }
@@ -3007,31 +3126,26 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
             if (mFullSpanItems == null) {
                 mFullSpanItems = new ArrayList<>();
             }
-            final int size = mFullSpanItems.size();
-            for (int i = 0; i < size; i++) {
-                FullSpanItem other = mFullSpanItems.get(i);
-                if (other.mPosition == fullSpanItem.mPosition) {
-                    if (DEBUG) {
-                        throw new IllegalStateException("two fsis for same position");
-                    } else {
-                        mFullSpanItems.remove(i);
-                    }
-                }
-                if (other.mPosition >= fullSpanItem.mPosition) {
-                    mFullSpanItems.add(i, fullSpanItem);
-                    return;
+            final int index = findFullSpanItemIndex(fullSpanItem.mPosition);
+            if (index < mFullSpanItems.size()
+                    && mFullSpanItems.get(index).mPosition == fullSpanItem.mPosition) {
+                if (DEBUG) {
+                    throw new IllegalStateException("two fsis for same position");
+                } else {
+                    mFullSpanItems.set(index, fullSpanItem);
                 }
+            } else {
+                mFullSpanItems.add(index, fullSpanItem);
             }
-            // if it is not added to a position.
-            mFullSpanItems.add(fullSpanItem);
         }
 
         public FullSpanItem getFullSpanItem(int position) {
             if (mFullSpanItems == null) {
                 return null;
             }
-            for (int i = mFullSpanItems.size() - 1; i >= 0; i--) {
-                final FullSpanItem fsi = mFullSpanItems.get(i);
+            final int index = findFullSpanItemIndex(position);
+            if (index < mFullSpanItems.size()) {
+                final FullSpanItem fsi = mFullSpanItems.get(index);
                 if (fsi.mPosition == position) {
                     return fsi;
                 }
@@ -3052,14 +3166,13 @@ public class StaggeredGridLayoutManager extends RecyclerView.LayoutManager imple
                 return null;
             }
             final int limit = mFullSpanItems.size();
-            for (int i = 0; i < limit; i++) {
+            for (int i = findFullSpanItemIndex(minPos); i < limit; i++) {
                 FullSpanItem fsi = mFullSpanItems.get(i);
                 if (fsi.mPosition >= maxPos) {
                     return null;
                 }
-                if (fsi.mPosition >= minPos
-                        && (gapDir == 0 || fsi.mGapDir == gapDir
-                        || (hasUnwantedGapAfter && fsi.mHasUnwantedGapAfter))) {
+                if (gapDir == 0 || fsi.mGapDir == gapDir
+                        || (hasUnwantedGapAfter && fsi.mHasUnwantedGapAfter)) {
                     return fsi;
                 }
             }
@@ -35,13 +35,18 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @RunWith(JUnit4.class)
 public class DiffUtilTest {
     private static Random sRand = new Random(System.nanoTime());
+    private static final ExecutorService sExecutor = Executors.newFixedThreadPool(2);
     private List<Item> mBefore = new ArrayList<>();
     private List<Item> mAfter = new ArrayList<>();
     private StringBuilder mLog = new StringBuilder();
@@ -78,6 +83,16 @@ public class DiffUtilTest {
                     not(CoreMatchers.equalTo(mAfter.get(newItemIndex).data)));
             return mAfter.get(newItemIndex).payload;
         }
+
+        @Override
+        public Object getOldItemKey(int oldItemPosition) {
+            return mBefore.get(oldItemPosition).id;
+        }
+
+        @Override
+        public Object getNewItemKey(int newItemPosition) {
+            return mAfter.get(newItemPosition).id;
+        }
     };
 
     @Rule
@@ -276,6 +291,200 @@ public class DiffUtilTest {
         assertThat(applied.contains(mBefore.get(0)), is(false));
     }
 
+    @Test
+    public void testChunkedLargeList() {
+        initWithSize(3000);
+        for (int i = 0; i < 60; i++) {
+            int op = i % 3;
+            if (op == 0) {
+                add(sRand.nextInt(mAfter.size() + 1));
+            } else if (op == 1) {
+                delete(sRand.nextInt(mAfter.size()));
+            } else {
+                update(sRand.nextInt(mAfter.size()));
+            }
+        }
+        move(10, 2900);
+        check();
+    }
+
+    @Test
+    public void testChunkedWithoutKeys() {
+        initWithSize(50);
+        add(10);
+        delete(30);
+        move(3, 40);
+        update(20);
+        DiffUtil.Callback withoutKeys = new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return mCallback.getOldListSize();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return mCallback.getNewListSize();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return mCallback.areItemsTheSame(oldItemPosition, newItemPosition);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return mCallback.areContentsTheSame(oldItemPosition, newItemPosition);
+            }
+
+            @Nullable
+            @Override
+            public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+                return mCallback.getChangePayload(oldItemPosition, newItemPosition);
+            }
+        };
+        check(DiffUtil.calculateDiff(withoutKeys, true, sExecutor));
+    }
+
+    @Test
+    public void testChunkedOnExecutorThread() throws Exception {
+        initWithSize(200);
+        for (int i = 0; i < 20; i++) {
+            add(i * 10);
+        }
+        final ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            DiffUtil.DiffResult result = singleThread.submit(new Callable<DiffUtil.DiffResult>() {
+                @Override
+                public DiffUtil.DiffResult call() {
+                    return DiffUtil.calculateDiff(mCallback, true, singleThread);
+                }
+            }).get();
+            check(result);
+        } finally {
+            singleThread.shutdown();
+        }
+    }
+
+    @Test
+    public void testChunkedRethrowsCallbackFailure() {
+        // Replace pairs of items so that Myers' algorithm runs on several 2x2 gaps.
+        initWithSize(100);
+        for (int i = 1; i <= 5; i++) {
+            delete(i * 15);
+            delete(i * 15);
+            add(i * 15);
+            add(i * 15);
+        }
+        final IllegalStateException failure = new IllegalStateException("boom");
+        DiffUtil.Callback failing = new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return mCallback.getOldListSize();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return mCallback.getNewListSize();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                // Only off-diagonal comparisons are made inside the gaps.
+                if (oldItemPosition != newItemPosition) {
+                    throw failure;
+                }
+                return mCallback.areItemsTheSame(oldItemPosition, newItemPosition);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return mCallback.areContentsTheSame(oldItemPosition, newItemPosition);
+            }
+
+            @Override
+            public Object getOldItemKey(int oldItemPosition) {
+                return mCallback.getOldItemKey(oldItemPosition);
+            }
+
+            @Override
+            public Object getNewItemKey(int newItemPosition) {
+                return mCallback.getNewItemKey(newItemPosition);
+            }
+        };
+        try {
+            DiffUtil.calculateDiff(failing, true, sExecutor);
+            fail("callback failure should be rethrown");
+        } catch (IllegalStateException e) {
+            assertThat(e, is(failure));
+        }
+    }
+
+    @Test
+    public void testKeyedLargeReorder() {
+        initWithSize(500);
+        for (int i = 0; i < 200; i++) {
+            move(sRand.nextInt(mAfter.size()), sRand.nextInt(mAfter.size()));
+        }
+        add(250);
+        delete(10);
+        check();
+    }
+
+    @Test
+    public void testKeyedFallsBackOnDuplicateKey() {
+        initWithSize(5);
+        move(0, 4);
+        // The item at 2 appears twice in the new list, so keys can't be used to match items.
+        mAfter.add(3, mAfter.get(2));
+        mAfter.add(0, new Item(true));
+        DiffUtil.DiffResult keyed = DiffUtil.calculateKeyedDiff(mCallback);
+        DiffUtil.DiffResult myers = DiffUtil.calculateDiff(mCallback);
+        for (int oldPos = 0; oldPos < mBefore.size(); oldPos++) {
+            Assert.assertEquals(myers.convertOldPositionToNew(oldPos),
+                    keyed.convertOldPositionToNew(oldPos));
+        }
+    }
+
+    @Test
+    public void findAnchors_skipsDuplicateKeys() {
+        final List<String> before = Arrays.asList("a", "b", "x", "c", "x", "d");
+        final List<String> after = Arrays.asList("d", "a", "x", "b", "c", "e");
+        DiffUtil.Callback callback = new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return before.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return after.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return before.get(oldItemPosition).equals(after.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return true;
+            }
+
+            @Override
+            public Object getOldItemKey(int oldItemPosition) {
+                return before.get(oldItemPosition);
+            }
+
+            @Override
+            public Object getNewItemKey(int newItemPosition) {
+                return after.get(newItemPosition);
+            }
+        };
+        // "x" is not unique and "d" is out of order, so a, b and c are the anchors.
+        int[] anchors = ChunkedDiff.findAnchors(callback, 0, before.size(), 0, after.size());
+        Assert.assertArrayEquals(new int[]{0, 1, 1, 3, 3, 4}, anchors);
+    }
+
     @Test(expected = IndexOutOfBoundsException.class)
     public void convertOldPositionToNew_tooSmall() {
         initWithSize(2);
@@ -342,7 +551,12 @@ public class DiffUtilTest {
     }
 
     private void check() {
-        DiffUtil.DiffResult result = DiffUtil.calculateDiff(mCallback);
+        check(DiffUtil.calculateDiff(mCallback));
+        check(DiffUtil.calculateDiff(mCallback, true, sExecutor));
+        check(DiffUtil.calculateKeyedDiff(mCallback));
+    }
+
+    private void check(DiffUtil.DiffResult result) {
         log("before", mBefore);
         log("after", mAfter);
         log("snakes", result.getSnakes());
@@ -1495,6 +1495,143 @@ public class SortedListTest {
         assertTrue(mCallbackRunnables.isEmpty());
     }
 
+    @Test
+    public void updateBuilder_mergesAddsUpdatesAndRemoves() {
+        mList.addAll(createItems(0, 9, 1));
+        mEvents.clear();
+
+        SortedList.UpdateBuilder<Item> builder = mList.newUpdateBuilder();
+        builder.add(new Item(20));
+        builder.add(new Item(5, 5, 50));
+        builder.remove(new Item(3));
+        builder.build();
+        mList.applyUpdates(builder);
+
+        assertEquals(new Event(TYPE.REMOVE, 3, 1), mEvents.get(0));
+        assertEquals(new Event(TYPE.CHANGE, 4, 1), mEvents.get(1));
+        assertEquals(new Event(TYPE.ADD, 9, 1), mEvents.get(2));
+        assertEquals(3, mEvents.size());
+        assertTrue(sortedListEquals(mList, new Item[] {new Item(0), new Item(1), new Item(2),
+                new Item(4), new Item(5, 5, 50), new Item(6), new Item(7), new Item(8),
+                new Item(9), new Item(20)}));
+    }
+
+    @Test
+    public void updateBuilder_batchesConsecutiveInserts() {
+        mList.addAll(createItems(0, 100, 10));
+        mEvents.clear();
+
+        SortedList.UpdateBuilder<Item> builder = mList.newUpdateBuilder();
+        builder.addAll(Arrays.asList(shuffle(createItems(31, 35, 1))));
+        mList.applyUpdates(builder);
+
+        assertEquals(new Event(TYPE.ADD, 4, 5), mEvents.get(0));
+        assertEquals(1, mEvents.size());
+        assertEquals(16, mList.size());
+    }
+
+    @Test
+    public void updateBuilder_lastOperationOnItemWins() {
+        mList.addAll(createItems(0, 4, 1));
+        mEvents.clear();
+
+        SortedList.UpdateBuilder<Item> builder = mList.newUpdateBuilder();
+        builder.add(new Item(20));
+        builder.remove(new Item(20));
+        builder.remove(new Item(1));
+        builder.add(new Item(1, 1, 10));
+        mList.applyUpdates(builder);
+
+        assertEquals(new Event(TYPE.CHANGE, 1, 1), mEvents.get(0));
+        assertEquals(1, mEvents.size());
+        assertTrue(sortedListEquals(mList, new Item[] {new Item(0), new Item(1, 1, 10),
+                new Item(2), new Item(3), new Item(4)}));
+    }
+
+    @Test
+    public void updateBuilder_listChangedAfterSnapshot() {
+        mList.addAll(createItems(0, 4, 1));
+        SortedList.UpdateBuilder<Item> builder = mList.newUpdateBuilder();
+        builder.add(new Item(7));
+        builder.remove(new Item(2));
+        builder.build();
+
+        mList.add(new Item(6));
+        mList.remove(new Item(0));
+        mList.applyUpdates(builder);
+
+        assertTrue(sortedListEquals(mList, createItemsFromInts(1, 3, 4, 6, 7)));
+    }
+
+    @Test
+    public void updateBuilder_appliesOnlyOnceToItsList() {
+        SortedList.UpdateBuilder<Item> builder = mList.newUpdateBuilder();
+        SortedList<Item> other = new SortedList<>(Item.class, mCallback);
+        try {
+            other.applyUpdates(builder);
+            fail("applied to another list");
+        } catch (IllegalArgumentException expected) {
+        }
+        mList.applyUpdates(builder);
+        try {
+            mList.applyUpdates(builder);
+            fail("applied twice");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void updateBuilder_randomMatchesAddAndRemove() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            setUp();
+            SortedList<Item> expected = new SortedList<>(Item.class, mCallback);
+            Item[] initial = createItems(0, random.nextInt(50), 1 + random.nextInt(3));
+            mList.addAll(initial);
+            expected.addAll(initial);
+
+            SortedList.UpdateBuilder<Item> builder = mList.newUpdateBuilder();
+            final int operations = random.nextInt(50);
+            for (int j = 0; j < operations; j++) {
+                final int id = random.nextInt(60);
+                if (random.nextBoolean()) {
+                    Item item = new Item(id, id, random.nextInt(3));
+                    builder.add(item);
+                    expected.add(item);
+                } else {
+                    builder.remove(new Item(id));
+                    expected.remove(new Item(id));
+                }
+            }
+            if (random.nextBoolean()) {
+                builder.build();
+            }
+            mEvents.clear();
+            mList.applyUpdates(builder);
+
+            assertEquals(expected.size(), mList.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j), mList.get(j));
+            }
+            List<Integer> positions = new ArrayList<>();
+            for (int j = 0; j < initial.length; j++) {
+                positions.add(j);
+            }
+            for (Event event : mEvents) {
+                if (event.mType == TYPE.ADD) {
+                    for (int k = 0; k < event.mVal2; k++) {
+                        positions.add(event.mVal1, -1);
+                    }
+                } else if (event.mType == TYPE.REMOVE) {
+                    for (int k = 0; k < event.mVal2; k++) {
+                        positions.remove(event.mVal1);
+                    }
+                }
+            }
+            assertEquals(mList.size(), positions.size());
+        }
+    }
+
     private int size() {
         return mList.size();
     }